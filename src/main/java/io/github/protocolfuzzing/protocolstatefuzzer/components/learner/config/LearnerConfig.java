@@ -2,6 +2,7 @@ package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.config;
 
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.factory.EquivalenceAlgorithmName;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.factory.LearningAlgorithmName;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.factory.SanitizationRuleName;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.statistics.RunDescriptionPrinter;
 
 import java.io.PrintWriter;
@@ -114,6 +115,20 @@ public interface LearnerConfig extends RunDescriptionPrinter {
         return 1;
     }
 
+    /**
+     * Indicates if the number of times each membership query is executed should
+     * adapt to the observed non-determinism, so that only queries in contexts that
+     * have shown non-determinism are executed {@link #getRunsPerMembershipQuery()}
+     * times and the rest are executed once.
+     * <p>
+     * Default value: false.
+     *
+     * @return {@code true} if the runs of membership queries should be adaptive
+     */
+    default boolean isAdaptiveRuns() {
+        return false;
+    }
+
     /**
      * Returns the number of times a membership query is executed in case cache inconsistency is
      * detected.
@@ -127,6 +142,18 @@ public interface LearnerConfig extends RunDescriptionPrinter {
         return 3;
     }
 
+    /**
+     * Indicates if the membership queries of the learner should be answered in
+     * parallel by all SULs, whose number is given by {@link #getEquivalenceThreadCount()}.
+     * <p>
+     * Default value: false.
+     *
+     * @return {@code true} if membership queries should be answered in parallel
+     */
+    default boolean isParallelMembershipQueries() {
+        return false;
+    }
+
     /**
      * Indicates to log all membership queries to a specific file in the output directory.
      * <p>
@@ -138,6 +165,43 @@ public interface LearnerConfig extends RunDescriptionPrinter {
         return false;
     }
 
+    /**
+     * Indicates if the query and non-determinism logs should be written by a
+     * background thread, so that logging does not delay the queries.
+     * <p>
+     * Default value: false.
+     *
+     * @return {@code true} if the logs should be written asynchronously
+     */
+    default boolean isAsyncLogging() {
+        return false;
+    }
+
+    /**
+     * Returns the maximum number of log records waiting to be written when
+     * logging asynchronously, beyond which records are dropped, or 0 if
+     * records should never be dropped.
+     * <p>
+     * Default value: 0.
+     *
+     * @return the maximum number of log records waiting to be written
+     */
+    default int getAsyncLogCapacity() {
+        return 0;
+    }
+
+    /**
+     * Indicates if metrics on the cache, the queries and the SUL should be
+     * collected and exported to a specific file in the output directory.
+     * <p>
+     * Default value: false.
+     *
+     * @return {@code true} if metrics should be collected
+     */
+    default boolean isMetrics() {
+        return false;
+    }
+
     /**
      * Returns the probability of stopping the execution of a test after each input.
      * <p>
@@ -183,6 +247,99 @@ public interface LearnerConfig extends RunDescriptionPrinter {
         return false;
     }
 
+    /**
+     * Indicates whether to use the array-backed cache, which needs less memory
+     * per stored observation than the default one. It is not used if a cache
+     * node limit is set or if more than one equivalence thread is used, since
+     * it is not thread-safe.
+     * <p>
+     * Default value: false.
+     *
+     * @return {@code true} if the compact cache should be used
+     */
+    default boolean isCompactCache() {
+        return false;
+    }
+
+    /**
+     * Returns the file in which the cache is persisted across learning runs or null.
+     * <p>
+     * The cache is loaded from the file if the file was created with the same
+     * alphabet and mapper connection configuration, and new observations are
+     * appended to it.
+     * <p>
+     * Default value: null.
+     *
+     * @return the file in which the cache is persisted or null
+     */
+    default String getCacheFile() {
+        return null;
+    }
+
+    /**
+     * Returns null or the maximum number of nodes kept in the cache.
+     * <p>
+     * Once the limit is exceeded, the least recently used parts of the cache
+     * are evicted, apart from the access sequences of the current hypothesis.
+     * <p>
+     * Default value: null.
+     *
+     * @return null or the maximum number of nodes kept in the cache
+     */
+    default Long getCacheNodeLimit() {
+        return null;
+    }
+
+    /**
+     * Returns the file with exported observations used to seed the cache or null.
+     * <p>
+     * The file should have been written using the cache export file of a
+     * previous learning run.
+     * <p>
+     * Default value: null.
+     *
+     * @return the file with exported observations or null
+     */
+    default String getCacheSeedFile() {
+        return null;
+    }
+
+    /**
+     * Indicates if the inputs found to be non-deterministic should be recorded in
+     * an index, which is checked before running queries and saved in the output
+     * directory at the end of learning.
+     * <p>
+     * Default value: false.
+     *
+     * @return {@code true} if the non-determinism index should be used
+     */
+    default boolean isNonDetIndex() {
+        return false;
+    }
+
+    /**
+     * Returns the non-determinism index saved by a previous learning run, which
+     * is loaded into the index before learning starts, or null.
+     * <p>
+     * Default value: null.
+     *
+     * @return the file with the saved non-determinism index or null
+     */
+    default String getNonDetIndexSeedFile() {
+        return null;
+    }
+
+    /**
+     * Returns the file to which the cache is exported at the end of learning or null.
+     * <p>
+     * Default value: null.
+     *
+     * @return the file to which the cache is exported or null
+     */
+    default String getCacheExportFile() {
+        return null;
+    }
+
     /**
      * Indicates if counterexamples (CE) sanitization should be enabled,
      * which involves re-running potential CEs ensuring they are not spurious.
@@ -218,6 +375,32 @@ public interface LearnerConfig extends RunDescriptionPrinter {
         return 3;
     }
 
+    /**
+     * Indicates if the counterexamples should be reduced before they are used
+     * for refinement, by removing loops and replacing prefixes with shorter
+     * access sequences of the hypothesis.
+     * <p>
+     * Default value: false.
+     *
+     * @return {@code true} if counterexamples should be reduced
+     */
+    default boolean isCeReduction() {
+        return false;
+    }
+
+    /**
+     * Returns the maximum number of membership queries the learner is predicted
+     * to ask next, which are run while each hypothesis is exported, or 0 if no
+     * queries should be prefetched.
+     * <p>
+     * Default value: 0.
+     *
+     * @return the maximum number of queries prefetched per hypothesis
+     */
+    default int getPrefetchQueries() {
+        return 0;
+    }
+
     /**
      * Indicates if probabilistic sanitization of CEs resulting in non determinism
      * should be enabled.
@@ -230,6 +413,18 @@ public interface LearnerConfig extends RunDescriptionPrinter {
         return false;
     }
 
+    /**
+     * Returns the rule deciding after each run of probabilistic sanitization
+     * whether the most common answer can be returned.
+     * <p>
+     * Default value: THRESHOLD.
+     *
+     * @return the rule deciding the outcome of probabilistic sanitization
+     */
+    default SanitizationRuleName getSanitizationRule() {
+        return SanitizationRuleName.THRESHOLD;
+    }
+
     /**
      * Returns null or a time limit on the learning experiment.
      * <p>
@@ -338,6 +533,44 @@ public interface LearnerConfig extends RunDescriptionPrinter {
         return 1;
     }
 
+    /**
+     * Indicates if the queries dispatched concurrently to the SULs should run
+     * on virtual threads instead of platform threads.
+     * <p>
+     * Default value: false.
+     *
+     * @return {@code true} if virtual threads should be used
+     */
+    default boolean isVirtualThreads() {
+        return false;
+    }
+
+    /**
+     * Indicates if the tests of the equivalence oracles should be run on the
+     * SULs one step at a time, checking each output against the hypothesis and
+     * stopping each test at the first mismatch.
+     * <p>
+     * Default value: false.
+     *
+     * @return {@code true} if the tests should be checked while they run
+     */
+    default boolean isStreamingTests() {
+        return false;
+    }
+
+    /**
+     * Indicates if the equivalence oracles based on the Wp-method should reuse
+     * the suffixes computed for the previous hypothesis and test more often the
+     * states that are new or changed since then.
+     * <p>
+     * Default value: false.
+     *
+     * @return {@code true} if each round should reuse the previous one
+     */
+    default boolean isIncrementalTests() {
+        return false;
+    }
+
     @Override
     default void printRunDescriptionSelf(PrintWriter printWriter) {}
 }
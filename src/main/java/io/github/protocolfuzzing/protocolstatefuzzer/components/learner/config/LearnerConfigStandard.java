@@ -3,6 +3,7 @@ package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.config;
 import com.beust.jcommander.Parameter;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.factory.EquivalenceAlgorithmName;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.factory.LearningAlgorithmName;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.factory.SanitizationRuleName;
 
 import java.io.PrintWriter;
 import java.time.Duration;
@@ -123,6 +124,20 @@ public class LearnerConfigStandard implements LearnerConfig {
         + "which can be used to resolve non-determinism.")
     protected Integer runsPerMembershipQuery = 1;
 
+    /**
+     * Stores the JCommander Parameter -adaptiveRuns.
+     * <p>
+     * If set, only membership queries containing inputs or reaching prefix lengths
+     * that have shown non-determinism are executed -memQueryRuns times, while the
+     * rest are executed once.
+     * <p>
+     * Default value: false.
+     */
+    @Parameter(names = "-adaptiveRuns", description = "If set, only membership queries containing inputs or reaching "
+        + "prefix lengths that have shown non-determinism are executed -memQueryRuns times, while the rest are "
+        + "executed once.")
+    protected boolean adaptiveRuns = false;
+
     /**
      * Stores the JCommander Parameter -memQueryRetries.
      * <p>
@@ -134,6 +149,18 @@ public class LearnerConfigStandard implements LearnerConfig {
         + "cache inconsistency is detected.")
     protected Integer membershipQueryRetries = 3;
 
+    /**
+     * Stores the JCommander Parameter -parallelMemQueries.
+     * <p>
+     * If set, the membership queries of the learner are answered in parallel by
+     * all SULs, whose number is given by -eqvThreads.
+     * <p>
+     * Default value: false.
+     */
+    @Parameter(names = "-parallelMemQueries", description = "If set, the membership queries of the learner are "
+        + "answered in parallel by all SULs, whose number is given by -eqvThreads.")
+    protected boolean parallelMembershipQueries = false;
+
     /**
      * Stores the JCommander Parameter -logQueries.
      * <p>
@@ -145,6 +172,44 @@ public class LearnerConfigStandard implements LearnerConfig {
         + "output directory.")
     protected boolean logQueries = false;
 
+    /**
+     * Stores the JCommander Parameter -asyncLogging.
+     * <p>
+     * If set, the query and non-determinism logs are written by a background
+     * thread, so that logging does not delay the queries.
+     * <p>
+     * Default value: false.
+     */
+    @Parameter(names = "-asyncLogging", description = "If set, the query and non-determinism logs are written by a "
+        + "background thread, so that logging does not delay the queries.")
+    protected boolean asyncLogging = false;
+
+    /**
+     * Stores the JCommander Parameter -asyncLogCapacity.
+     * <p>
+     * The maximum number of log records waiting to be written when logging
+     * asynchronously, beyond which records are dropped. Use 0 to never drop records.
+     * <p>
+     * Default value: 0.
+     */
+    @Parameter(names = "-asyncLogCapacity", description = "The maximum number of log records waiting to be written "
+        + "when logging asynchronously, beyond which records are dropped. Use 0 to never drop records.")
+    protected Integer asyncLogCapacity = 0;
+
+    /**
+     * Stores the JCommander Parameter -metrics.
+     * <p>
+     * If set, collects cache hits and misses, query lengths and latencies per
+     * oracle, as well as SUL reset and step latencies, and exports them to a
+     * specific file in the output directory.
+     * <p>
+     * Default value: false.
+     */
+    @Parameter(names = "-metrics", description = "If set, collects cache hits and misses, query lengths and "
+        + "latencies per oracle, as well as SUL reset and step latencies, and exports them to a specific file in "
+        + "the output directory.")
+    protected boolean metrics = false;
+
     /**
      * Stores the JCommander Parameter -probReset.
      * <p>
@@ -188,6 +253,99 @@ public class LearnerConfigStandard implements LearnerConfig {
         + "but improves performance. It also renders useless most forms of non-determinism sanitization")
     protected boolean cacheTests = false;
 
+    /**
+     * Stores the JCommander Parameter -compactCache.
+     * <p>
+     * Use an array-backed cache, which indexes inputs by their position in the
+     * alphabet and needs less memory per stored observation. It is ignored if
+     * a cache node limit is set or more than one equivalence thread is used.
+     * <p>
+     * Default value: false.
+     */
+    @Parameter(names = "-compactCache", description = "Use an array-backed cache, which indexes inputs by their "
+        + "position in the alphabet and needs less memory per stored observation. "
+        + "It is ignored if a cache node limit is set or more than one equivalence thread is used")
+    protected boolean compactCache = false;
+
+    /**
+     * Stores the JCommander Parameter -cacheFile.
+     * <p>
+     * A file in which the cache is persisted across learning runs. The cache is
+     * loaded from the file if the file was created with the same alphabet and
+     * mapper connection configuration, and new observations are appended to it.
+     * <p>
+     * Default value: null.
+     */
+    @Parameter(names = "-cacheFile", description = "A file in which the cache is persisted across learning runs. "
+        + "The cache is loaded from the file if the file was created with the same alphabet and mapper connection "
+        + "configuration, and new observations are appended to it")
+    protected String cacheFile = null;
+
+    /**
+     * Stores the JCommander Parameter -cacheNodeLimit.
+     * <p>
+     * The maximum number of nodes kept in the cache. Once the limit is exceeded,
+     * the least recently used parts of the cache are evicted, apart from the
+     * access sequences of the current hypothesis. Before the first hypothesis,
+     * nothing is exempt from eviction.
+     * <p>
+     * Default value: null.
+     */
+    @Parameter(names = "-cacheNodeLimit", description = "The maximum number of nodes kept in the cache. "
+        + "Once the limit is exceeded, the least recently used parts of the cache are evicted, apart from the "
+        + "access sequences of the current hypothesis. Before the first hypothesis, nothing is exempt from eviction")
+    protected Long cacheNodeLimit = null;
+
+    /**
+     * Stores the JCommander Parameter -cacheSeedFile.
+     * <p>
+     * A file with observations exported by a previous learning run, which are
+     * added to the cache before learning starts.
+     * <p>
+     * Default value: null.
+     */
+    @Parameter(names = "-cacheSeedFile", description = "A file with observations exported by a previous learning "
+        + "run, which are added to the cache before learning starts")
+    protected String cacheSeedFile = null;
+
+    /**
+     * Stores the JCommander Parameter -cacheExportFile.
+     * <p>
+     * A file to which the observations of the cache are exported at the end of
+     * learning, in a compact binary format that can be used by -cacheSeedFile.
+     * <p>
+     * Default value: null.
+     */
+    @Parameter(names = "-cacheExportFile", description = "A file to which the observations of the cache are "
+        + "exported at the end of learning, in a compact binary format that can be used by -cacheSeedFile")
+    protected String cacheExportFile = null;
+
+    /**
+     * Stores the JCommander Parameter -nonDetIndex.
+     * <p>
+     * If set, the inputs found to be non-deterministic are recorded in an index,
+     * which is checked before running queries and saved in the output directory
+     * at the end of learning.
+     * <p>
+     * Default value: false.
+     */
+    @Parameter(names = "-nonDetIndex", description = "If set, the inputs found to be non-deterministic are recorded "
+        + "in an index, which is checked before running queries and saved in the output directory at the end of "
+        + "learning")
+    protected boolean nonDetIndex = false;
+
+    /**
+     * Stores the JCommander Parameter -nonDetIndexSeedFile.
+     * <p>
+     * A non-determinism index saved by a previous learning run, which is loaded
+     * into the index before learning starts. Requires -nonDetIndex.
+     * <p>
+     * Default value: null.
+     */
+    @Parameter(names = "-nonDetIndexSeedFile", description = "A non-determinism index saved by a previous learning "
+        + "run, which is loaded into the index before learning starts. Requires -nonDetIndex")
+    protected String nonDetIndexSeedFile = null;
+
     /**
      * Stores the JCommander Parameter -ceSanitizationDisable.
      * <p>
@@ -223,6 +381,33 @@ public class LearnerConfigStandard implements LearnerConfig {
         + "be confirmed")
     protected Integer ceReruns = 3;
 
+    /**
+     * Stores the JCommander Parameter -ceReduction.
+     * <p>
+     * If set, counterexamples are reduced before they are used for refinement,
+     * by removing loops and replacing prefixes with shorter access sequences of
+     * the hypothesis.
+     * <p>
+     * Default value: false.
+     */
+    @Parameter(names = "-ceReduction", description = "If set, counterexamples are reduced before they are used for "
+        + "refinement, by removing loops and replacing prefixes with shorter access sequences of the hypothesis.")
+    protected boolean ceReduction = false;
+
+    /**
+     * Stores the JCommander Parameter -prefetchQueries.
+     * <p>
+     * The maximum number of membership queries the learner is predicted to ask
+     * next, which are run while each hypothesis is exported. Prefetching stops
+     * once the learner uses few of the prefetched queries. 0 disables prefetching.
+     * <p>
+     * Default value: 0.
+     */
+    @Parameter(names = "-prefetchQueries", description = "The maximum number of membership queries the learner is "
+        + "predicted to ask next, which are run while each hypothesis is exported. Prefetching stops once the "
+        + "learner uses few of the prefetched queries. 0 disables prefetching")
+    protected Integer prefetchQueries = 0;
+
     /**
      * Stores the JCommander Parameter -probabilisticSanitizationDisable.
      * <p>
@@ -234,6 +419,22 @@ public class LearnerConfigStandard implements LearnerConfig {
         + "CEs resulting in non-determinism")
     protected boolean probabilisticSanitizationDisable = false;
 
+    /**
+     * Stores the JCommander Parameter -sanitizationRule.
+     * <p>
+     * The rule deciding after each run of probabilistic sanitization whether the
+     * most common answer can be returned. THRESHOLD checks fixed likelihood
+     * thresholds after a minimum number of runs, while WILSON and SPRT stop as
+     * soon as the answer is statistically settled.
+     * <p>
+     * Default value: THRESHOLD.
+     */
+    @Parameter(names = "-sanitizationRule", description = "The rule deciding after each run of probabilistic "
+        + "sanitization whether the most common answer can be returned. THRESHOLD checks fixed likelihood "
+        + "thresholds after a minimum number of runs, while WILSON and SPRT stop as soon as the answer is "
+        + "statistically settled")
+    protected SanitizationRuleName sanitizationRule = SanitizationRuleName.THRESHOLD;
+
     /**
      * Stores the JCommander Parameter -timeLimit.
      * <p>
@@ -283,13 +484,56 @@ public class LearnerConfigStandard implements LearnerConfig {
     /**
      * Stores the JCommander Parameter -equivalenceThreadCount, -eqvThreads.
      * <p>
-     * The number of threads to be used for the SULs.
+     * The number of threads to be used for the SULs. The tests of all equivalence
+     * algorithms except RANDOM_WALK are split over the SULs.
      * <p>
      * Default value: 1.
      */
-    @Parameter(names = {"-equivalenceThreadCount", "-eqvThreads"}, description = "The number of threads to parallel RandomWpMethodEQOracle (we only support this method right now)")
+    @Parameter(names = {"-equivalenceThreadCount", "-eqvThreads"}, description = "The number of threads to be used "
+        + "for the SULs. The tests of all equivalence algorithms except RANDOM_WALK are split over the SULs.")
     protected Integer equivalenceThreadCount = 1;
 
+    /**
+     * Stores the JCommander Parameter -virtualThreads.
+     * <p>
+     * If set, the queries dispatched concurrently to the SULs run on virtual
+     * threads instead of platform threads, which suits SULs that mostly wait
+     * for responses.
+     * <p>
+     * Default value: false.
+     */
+    @Parameter(names = "-virtualThreads", description = "If set, the queries dispatched concurrently to the SULs "
+        + "run on virtual threads instead of platform threads, which suits SULs that mostly wait for responses.")
+    protected boolean virtualThreads = false;
+
+    /**
+     * Stores the JCommander Parameter -streamingTests.
+     * <p>
+     * If set, the tests of the equivalence oracles run on the SULs one step at
+     * a time, checking each output against the hypothesis and stopping each test
+     * at the first mismatch. Tests that pass are then not cached or logged.
+     * <p>
+     * Default value: false.
+     */
+    @Parameter(names = "-streamingTests", description = "If set, the tests of the equivalence oracles run on the SULs "
+        + "one step at a time and stop at the first output that differs from the hypothesis. Tests that pass are "
+        + "then not cached or logged.")
+    protected boolean streamingTests = false;
+
+    /**
+     * Stores the JCommander Parameter -incrementalTests.
+     * <p>
+     * If set, the equivalence oracles based on the Wp-method reuse the suffixes
+     * computed for the previous hypothesis and test more often the states that
+     * are new or changed since then.
+     * <p>
+     * Default value: false.
+     */
+    @Parameter(names = "-incrementalTests", description = "If set, the equivalence oracles based on the Wp-method "
+        + "reuse the suffixes computed for the previous hypothesis and test more often the states that are new or "
+        + "changed since then.")
+    protected boolean incrementalTests = false;
+
     /** Constructor. */
     public LearnerConfigStandard() {}
 
@@ -378,6 +622,16 @@ public class LearnerConfigStandard implements LearnerConfig {
         return runsPerMembershipQuery;
     }
 
+    /**
+     * Returns the stored value of {@link #adaptiveRuns}.
+     *
+     * @return the stored value of {@link #adaptiveRuns}
+     */
+    @Override
+    public boolean isAdaptiveRuns() {
+        return adaptiveRuns;
+    }
+
     /**
      * Returns the stored value of {@link #membershipQueryRetries}.
      *
@@ -388,6 +642,16 @@ public class LearnerConfigStandard implements LearnerConfig {
         return membershipQueryRetries;
     }
 
+    /**
+     * Returns the stored value of {@link #parallelMembershipQueries}.
+     *
+     * @return the stored value of {@link #parallelMembershipQueries}
+     */
+    @Override
+    public boolean isParallelMembershipQueries() {
+        return parallelMembershipQueries;
+    }
+
     /**
      * Returns the stored value of {@link #logQueries}.
      *
@@ -398,6 +662,36 @@ public class LearnerConfigStandard implements LearnerConfig {
         return logQueries;
     }
 
+    /**
+     * Returns the stored value of {@link #asyncLogging}.
+     *
+     * @return the stored value of {@link #asyncLogging}
+     */
+    @Override
+    public boolean isAsyncLogging() {
+        return asyncLogging;
+    }
+
+    /**
+     * Returns the stored value of {@link #asyncLogCapacity}.
+     *
+     * @return the stored value of {@link #asyncLogCapacity}
+     */
+    @Override
+    public int getAsyncLogCapacity() {
+        return asyncLogCapacity;
+    }
+
+    /**
+     * Returns the stored value of {@link #metrics}.
+     *
+     * @return the stored value of {@link #metrics}
+     */
+    @Override
+    public boolean isMetrics() {
+        return metrics;
+    }
+
     /**
      * Returns the stored value of {@link #probReset}.
      *
@@ -438,6 +732,76 @@ public class LearnerConfigStandard implements LearnerConfig {
         return cacheTests;
     }
 
+    /**
+     * Returns the stored value of {@link #compactCache}.
+     *
+     * @return the stored value of {@link #compactCache}
+     */
+    @Override
+    public boolean isCompactCache() {
+        return compactCache;
+    }
+
+    /**
+     * Returns the stored value of {@link #cacheFile}.
+     *
+     * @return the stored value of {@link #cacheFile}
+     */
+    @Override
+    public String getCacheFile() {
+        return cacheFile;
+    }
+
+    /**
+     * Returns the stored value of {@link #cacheNodeLimit}.
+     *
+     * @return the stored value of {@link #cacheNodeLimit}
+     */
+    @Override
+    public Long getCacheNodeLimit() {
+        return cacheNodeLimit;
+    }
+
+    /**
+     * Returns the stored value of {@link #cacheSeedFile}.
+     *
+     * @return the stored value of {@link #cacheSeedFile}
+     */
+    @Override
+    public String getCacheSeedFile() {
+        return cacheSeedFile;
+    }
+
+    /**
+     * Returns the stored value of {@link #cacheExportFile}.
+     *
+     * @return the stored value of {@link #cacheExportFile}
+     */
+    @Override
+    public String getCacheExportFile() {
+        return cacheExportFile;
+    }
+
+    /**
+     * Returns the stored value of {@link #nonDetIndex}.
+     *
+     * @return the stored value of {@link #nonDetIndex}
+     */
+    @Override
+    public boolean isNonDetIndex() {
+        return nonDetIndex;
+    }
+
+    /**
+     * Returns the stored value of {@link #nonDetIndexSeedFile}.
+     *
+     * @return the stored value of {@link #nonDetIndexSeedFile}
+     */
+    @Override
+    public String getNonDetIndexSeedFile() {
+        return nonDetIndexSeedFile;
+    }
+
     /**
      * Returns the stored value of {@link #ceSanitizationDisable}.
      *
@@ -468,6 +832,26 @@ public class LearnerConfigStandard implements LearnerConfig {
         return ceReruns;
     }
 
+    /**
+     * Returns the stored value of {@link #ceReduction}.
+     *
+     * @return the stored value of {@link #ceReduction}
+     */
+    @Override
+    public boolean isCeReduction() {
+        return ceReduction;
+    }
+
+    /**
+     * Returns the stored value of {@link #prefetchQueries}.
+     *
+     * @return the stored value of {@link #prefetchQueries}
+     */
+    @Override
+    public int getPrefetchQueries() {
+        return prefetchQueries;
+    }
+
     /**
      * Returns the stored value of {@link #probabilisticSanitizationDisable}.
      *
@@ -478,6 +862,16 @@ public class LearnerConfigStandard implements LearnerConfig {
         return !probabilisticSanitizationDisable;
     }
 
+    /**
+     * Returns the stored value of {@link #sanitizationRule}.
+     *
+     * @return the stored value of {@link #sanitizationRule}
+     */
+    @Override
+    public SanitizationRuleName getSanitizationRule() {
+        return sanitizationRule;
+    }
+
     /**
      * Returns the stored value of {@link #timeLimit}.
      *
@@ -518,6 +912,36 @@ public class LearnerConfigStandard implements LearnerConfig {
         return equivalenceThreadCount;
     }
 
+    /**
+     * Returns the stored value of {@link #virtualThreads}.
+     *
+     * @return the stored value of {@link #virtualThreads}
+     */
+    @Override
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Returns the stored value of {@link #streamingTests}.
+     *
+     * @return the stored value of {@link #streamingTests}
+     */
+    @Override
+    public boolean isStreamingTests() {
+        return streamingTests;
+    }
+
+    /**
+     * Returns the stored value of {@link #incrementalTests}.
+     *
+     * @return the stored value of {@link #incrementalTests}
+     */
+    @Override
+    public boolean isIncrementalTests() {
+        return incrementalTests;
+    }
+
     @Override
     public void printRunDescriptionSelf(PrintWriter printWriter) {
         printWriter.println("### LearnerConfigStandard Parameters");
@@ -530,19 +954,37 @@ public class LearnerConfigStandard implements LearnerConfig {
         printRDParam(printWriter, "-randLength", randLength);
         printRDParam(printWriter, "-eqvQueries", equivQueryBound);
         printRDParam(printWriter, "-memQueryRuns", runsPerMembershipQuery);
+        printRDBooleanParam(printWriter, "-adaptiveRuns", adaptiveRuns);
         printRDParam(printWriter, "-memQueryRetries", membershipQueryRetries);
+        printRDBooleanParam(printWriter, "-parallelMemQueries", parallelMembershipQueries);
         printRDBooleanParam(printWriter, "-logQueries", logQueries);
+        printRDBooleanParam(printWriter, "-asyncLogging", asyncLogging);
+        printRDParam(printWriter, "-asyncLogCapacity", asyncLogCapacity);
+        printRDBooleanParam(printWriter, "-metrics", metrics);
         printRDParam(printWriter, "-probReset", probReset);
         printRDStringParam(printWriter, "-testFile", testFile);
         printRDParam(printWriter, "-seed", seed);
         printRDBooleanParam(printWriter, "-cacheTests", cacheTests);
+        printRDBooleanParam(printWriter, "-compactCache", compactCache);
+        printRDStringParam(printWriter, "-cacheFile", cacheFile);
+        printRDParam(printWriter, "-cacheNodeLimit", cacheNodeLimit);
+        printRDStringParam(printWriter, "-cacheSeedFile", cacheSeedFile);
+        printRDStringParam(printWriter, "-cacheExportFile", cacheExportFile);
+        printRDBooleanParam(printWriter, "-nonDetIndex", nonDetIndex);
+        printRDStringParam(printWriter, "-nonDetIndexSeedFile", nonDetIndexSeedFile);
         printRDBooleanParam(printWriter, "-ceSanitizationDisable", ceSanitizationDisable);
         printRDBooleanParam(printWriter, "-skipNonDetTests", skipNonDetTests);
         printRDParam(printWriter, "-ceReruns", ceReruns);
+        printRDBooleanParam(printWriter, "-ceReduction", ceReduction);
+        printRDParam(printWriter, "-prefetchQueries", prefetchQueries);
         printRDBooleanParam(printWriter, "-probabilisticSanitizationDisable", probabilisticSanitizationDisable);
+        printRDParam(printWriter, "-sanitizationRule", sanitizationRule);
         printRDParam(printWriter, "-timeLimit", timeLimit);
         printRDParam(printWriter, "-testLimit", testLimit);
         printRDParam(printWriter, "-roundLimit", roundLimit);
         printRDParam(printWriter, "-eqvThreads", equivalenceThreadCount);
+        printRDBooleanParam(printWriter, "-virtualThreads", virtualThreads);
+        printRDBooleanParam(printWriter, "-streamingTests", streamingTests);
+        printRDBooleanParam(printWriter, "-incrementalTests", incrementalTests);
     }
 }
@@ -36,8 +36,16 @@ import de.learnlib.ralib.words.InputSymbol;
 import de.learnlib.ralib.words.ParameterizedSymbol;
 import de.learnlib.sul.SUL;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.config.LearnerConfig;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.AbstractParallelEQOracle;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.HypothesisTestExecutor;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.MultipleRunsSULOracle;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.ParallelTestSuiteEQOracle;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.ProbabilisticDecisionRule;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.RandomWpMethodEQOracle;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.SPRTDecisionRule;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.SampledTestsEQOracle;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.ThresholdDecisionRule;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.WilsonDecisionRule;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.WpSampledTestsEQOracle;
 import io.github.protocolfuzzing.protocolstatefuzzer.statefuzzer.testrunner.core.TestParser;
 import net.automatalib.alphabet.Alphabet;
@@ -240,30 +248,94 @@ public class LearningSetupFactory {
                     new Random(config.getSeed()));
 
             // Smarter methods: state coverage, trying to distinguish states, etc.
-            case W_METHOD ->
-                new MealyWMethodEQOracle<>(sulOracles.get(0), config.getMaxDepth());
-
-            case WP_METHOD ->
-                new MealyWpMethodEQOracle<>(sulOracles.get(0), config.getMaxDepth());
-
-            case RANDOM_WP_METHOD ->
-                new RandomWpMethodEQOracle<>(
+            // the test suites are split over the suls, if there are several
+            case W_METHOD -> {
+                if (sulOracles.size() == 1 && !config.isStreamingTests()) {
+                    yield new MealyWMethodEQOracle<>(sulOracles.get(0), config.getMaxDepth());
+                }
+                yield withTestSetup(ParallelTestSuiteEQOracle.wMethod(sulOracles, config.getMaxDepth()),
+                    config, suls, sulOracles);
+            }
+
+            case WP_METHOD -> {
+                if (sulOracles.size() == 1 && !config.isStreamingTests()) {
+                    yield new MealyWpMethodEQOracle<>(sulOracles.get(0), config.getMaxDepth());
+                }
+                yield withTestSetup(ParallelTestSuiteEQOracle.wpMethod(sulOracles, config.getMaxDepth()),
+                    config, suls, sulOracles);
+            }
+
+            case RANDOM_WP_METHOD -> {
+                RandomWpMethodEQOracle<I, O> oracle = new RandomWpMethodEQOracle<>(
                     sulOracles, config.getMinLength(), config.getRandLength(),
                     config.getEquivQueryBound(), config.getSeed());
+                oracle.setIncremental(config.isIncrementalTests());
+                yield withTestSetup(oracle, config, suls, sulOracles);
+            }
 
             case SAMPLED_TESTS ->
-                new SampledTestsEQOracle<I, O>(readTests(config, alphabet), sulOracles.get(0));
+                withTestSetup(new SampledTestsEQOracle<I, O>(readTests(config, alphabet), sulOracles),
+                    config, suls, sulOracles);
 
-            case WP_SAMPLED_TESTS ->
-                new WpSampledTestsEQOracle<I, O>(
-                    readTests(config, alphabet), sulOracles.get(0), config.getMinLength(),
+            case WP_SAMPLED_TESTS -> {
+                WpSampledTestsEQOracle<I, O> oracle = new WpSampledTestsEQOracle<I, O>(
+                    readTests(config, alphabet), sulOracles, config.getMinLength(),
                     config.getRandLength(), config.getSeed(), config.getEquivQueryBound());
+                oracle.setIncremental(config.isIncrementalTests());
+                yield withTestSetup(oracle, config, suls, sulOracles);
+            }
 
             default ->
                 throw new RuntimeException("Equivalence algorithm " + algorithm + " is not supported");
         };
     }
 
+    /**
+     * Configures how the given oracle dispatches its tests to the suls, i.e. on
+     * virtual threads or not and, if tests are streamed, through executors
+     * running them on the suls one step at a time.
+     *
+     * @param  <I>        the type of inputs
+     * @param  <O>        the type of outputs
+     * @param  <T>        the type of the oracle
+     * @param  oracle     the oracle to be configured
+     * @param  config     the learner configuration to be used
+     * @param  suls       the list of suls that are contained inside the sulOracles
+     * @param  sulOracles the list of sul oracles to be used that contains the suls
+     *
+     * @return            the configured oracle
+     */
+    protected static <I, O, T extends AbstractParallelEQOracle<I, O>> T withTestSetup(T oracle,
+        LearnerConfig config, List<SUL<I, O>> suls, List<MealyMembershipOracle<I, O>> sulOracles) {
+
+        oracle.setVirtualThreads(config.isVirtualThreads());
+        if (config.isStreamingTests()) {
+            oracle.setTestExecutors(createStreamingTestExecutors(suls, sulOracles));
+        }
+        return oracle;
+    }
+
+    /**
+     * Creates the executors running the tests on each sul one step at a time,
+     * which answer the failing prefixes through the sul oracle containing the sul.
+     *
+     * @param  <I>        the type of inputs
+     * @param  <O>        the type of outputs
+     * @param  suls       the list of suls that are contained inside the sulOracles
+     * @param  sulOracles the list of sul oracles to be used that contains the suls
+     *
+     * @return            the list of created executors, one per sul
+     */
+    protected static <I, O> List<HypothesisTestExecutor<I, O>> createStreamingTestExecutors(
+        List<SUL<I, O>> suls, List<MealyMembershipOracle<I, O>> sulOracles) {
+
+        List<HypothesisTestExecutor<I, O>> testExecutors = new ArrayList<>(suls.size());
+        for (int i = 0; i < suls.size(); i++) {
+            testExecutors.add(new HypothesisTestExecutor<>(sulOracles.get(i), suls.get(i)));
+        }
+        return testExecutors;
+    }
+
     /**
      * Create a new Equivalence Oracle for a RA Equivalence algorithm specified
      * and the given parameters.
@@ -312,6 +384,35 @@ public class LearningSetupFactory {
         };
     }
 
+    /**
+     * Creates the rule deciding the outcome of probabilistic sanitization, as
+     * specified by {@link LearnerConfig#getSanitizationRule()}.
+     * <p>
+     * All rules use the likelihood thresholds of the {@link MultipleRunsSULOracle}.
+     * The Wilson rule compares the likelihood with their midpoint at 95% confidence.
+     *
+     * @param  config the learner config to be used
+     * @param  runs   the number of runs of the oracle using the rule
+     *
+     * @return        the new decision rule
+     */
+    public static ProbabilisticDecisionRule createDecisionRule(LearnerConfig config, int runs) {
+        return switch (config.getSanitizationRule()) {
+            case THRESHOLD ->
+                new ThresholdDecisionRule(runs * MultipleRunsSULOracle.PROBABILISTIC_MIN_MULTIPLIER,
+                    MultipleRunsSULOracle.ACCEPTABLE_PROBABILISTIC_THRESHOLD,
+                    MultipleRunsSULOracle.PASSABLE_PROBABILISTIC_THRESHOLD);
+
+            case WILSON ->
+                new WilsonDecisionRule((MultipleRunsSULOracle.ACCEPTABLE_PROBABILISTIC_THRESHOLD
+                    + MultipleRunsSULOracle.PASSABLE_PROBABILISTIC_THRESHOLD) / 2, WilsonDecisionRule.DEFAULT_Z);
+
+            case SPRT ->
+                new SPRTDecisionRule(MultipleRunsSULOracle.ACCEPTABLE_PROBABILISTIC_THRESHOLD,
+                    MultipleRunsSULOracle.PASSABLE_PROBABILISTIC_THRESHOLD, SPRTDecisionRule.DEFAULT_ERROR_RATE);
+        };
+    }
+
     /**
      * Reads tests from the file found in {@link LearnerConfig#getTestFile()}.
      *
@@ -0,0 +1,25 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.factory;
+
+/**
+ * The decision rules used in probabilistic sanitization for deciding, after
+ * each run, whether the most common answer of a query can be returned.
+ */
+public enum SanitizationRuleName {
+    /**
+     * Check
+     * {@link io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.ThresholdDecisionRule}.
+     */
+    THRESHOLD,
+
+    /**
+     * Check
+     * {@link io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.WilsonDecisionRule}.
+     */
+    WILSON,
+
+    /**
+     * Check
+     * {@link io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.SPRTDecisionRule}.
+     */
+    SPRT
+}
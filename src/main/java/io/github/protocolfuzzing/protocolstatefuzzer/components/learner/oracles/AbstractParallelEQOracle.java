@@ -0,0 +1,185 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import de.learnlib.oracle.EquivalenceOracle;
+import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
+import de.learnlib.query.DefaultQuery;
+import net.automatalib.word.Word;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Base class of the equivalence oracles that split their tests over several
+ * sul oracles.
+ * <p>
+ * The tests are numbered by tickets taken from an atomic counter by one task
+ * per {@link HypothesisTestExecutor}. Once a counterexample is found, the tests
+ * with greater tickets are cancelled, while the ones with smaller tickets, which
+ * are already running, are completed. The counterexample with the lowest ticket
+ * is returned, so that the result does not depend on the number of oracles or
+ * on thread scheduling.
+ *
+ * @param <I> the type of inputs
+ * @param <O> the type of outputs
+ */
+public abstract class AbstractParallelEQOracle<I, O> implements EquivalenceOracle.MealyEquivalenceOracle<I, O> {
+
+    /** Stores the constructor parameter. */
+    protected List<MealyMembershipOracle<I, O>> sulOracles;
+
+    /** Indicates if the tests are dispatched to the oracles from virtual threads. */
+    protected boolean virtualThreads;
+
+    /** The executors running the tests, one per task, or null to run them through {@link #sulOracles}. */
+    @Nullable protected List<HypothesisTestExecutor<I, O>> testExecutors;
+
+    /**
+     * Constructs a new instance from the given parameter.
+     *
+     * @param sulOracles the oracles which answer tests
+     */
+    protected AbstractParallelEQOracle(List<MealyMembershipOracle<I, O>> sulOracles) {
+        this.sulOracles = sulOracles;
+    }
+
+    /**
+     * Sets whether the tests are dispatched to the oracles from virtual threads
+     * instead of platform threads.
+     *
+     * @param virtualThreads {@code true} to use virtual threads
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Sets the executors running the tests, each of which is used by a single
+     * task, instead of running the tests through {@link #sulOracles}.
+     *
+     * @param testExecutors the executors running the tests or null
+     */
+    public void setTestExecutors(@Nullable List<HypothesisTestExecutor<I, O>> testExecutors) {
+        this.testExecutors = testExecutors;
+    }
+
+    /**
+     * Returns the executors running the tests, which by default answer the tests
+     * through {@link #sulOracles}.
+     *
+     * @return the executors running the tests
+     */
+    protected List<HypothesisTestExecutor<I, O>> getTestExecutors() {
+        if (testExecutors != null) {
+            return testExecutors;
+        }
+        List<HypothesisTestExecutor<I, O>> executors = new ArrayList<>(sulOracles.size());
+        for (MealyMembershipOracle<I, O> oracle: sulOracles) {
+            executors.add(new HypothesisTestExecutor<>(oracle));
+        }
+        return executors;
+    }
+
+    /**
+     * Runs the given tests against the given hypothesis, splitting them over the
+     * {@link #getTestExecutors()}.
+     * <p>
+     * The tests function is called concurrently, each ticket at most once, and
+     * must return the same test for a ticket on whichever thread it is called.
+     * A single executor runs the tests on the calling thread.
+     *
+     * @param  hypothesis the compiled hypothesis
+     * @param  tests      the function returning the test of each ticket, or null
+     *                        if there are no tests from this ticket on
+     *
+     * @return            the counterexample with the lowest ticket or null if
+     *                        all tests agree with the hypothesis
+     */
+    protected @Nullable DefaultQuery<I, Word<O>> runTests(CompiledMealy<I, O> hypothesis,
+        IntFunction<@Nullable Word<I>> tests) {
+
+        AtomicInteger counter = new AtomicInteger(0);
+        // the tickets greater than this one are cancelled
+        AtomicInteger lastTicket = new AtomicInteger(Integer.MAX_VALUE);
+        ConcurrentMap<Integer, DefaultQuery<I, Word<O>>> counterExamples = new ConcurrentHashMap<>();
+
+        List<HypothesisTestExecutor<I, O>> executors = getTestExecutors();
+        List<Runnable> tasks = new ArrayList<>(executors.size());
+        for (HypothesisTestExecutor<I, O> testExecutor: executors) {
+            tasks.add(() -> {
+                try {
+                    while (true) {
+                        int ticket = counter.getAndIncrement();
+                        Word<I> test = ticket > lastTicket.get() ? null : tests.apply(ticket);
+                        if (test == null) {
+                            break;
+                        }
+                        DefaultQuery<I, Word<O>> query = testExecutor.runTest(hypothesis, test);
+                        if (query != null) {
+                            counterExamples.put(ticket, query);
+                            lastTicket.accumulateAndGet(ticket, Math::min);
+                        }
+                    }
+                }
+                catch (RuntimeException e) {
+                    lastTicket.set(-1);
+                    throw e;
+                }
+            });
+        }
+
+        if (tasks.size() == 1) {
+            tasks.get(0).run();
+        } else {
+            List<Future<?>> futures = new ArrayList<>(tasks.size());
+            try (ExecutorService executor = SULOraclePool.newExecutor(tasks.size(), virtualThreads)) {
+                for (Runnable task: tasks) {
+                    futures.add(executor.submit(task));
+                }
+            }
+
+            // closing the executor has waited for all tasks
+            for (Future<?> future: futures) {
+                SULOraclePool.await(future);
+            }
+        }
+
+        return counterExamples.isEmpty() ? null : counterExamples.get(Collections.min(counterExamples.keySet()));
+    }
+
+    /**
+     * Numbers the tests of the given iterator by their position, so that they
+     * can be passed to {@link #runTests(CompiledMealy, IntFunction)}.
+     * <p>
+     * The tests are taken from the iterator in order, while the ones of tickets
+     * that have not been asked yet are kept until they are.
+     *
+     * @param  <I>   the type of inputs
+     * @param  tests the iterator over the tests
+     *
+     * @return       the function returning the test of each ticket or null
+     *                   past the end of the iterator
+     */
+    protected static <I> IntFunction<@Nullable Word<I>> numbered(Iterator<Word<I>> tests) {
+        Map<Integer, Word<I>> pending = new HashMap<>();
+        int[] taken = {0};
+        return ticket -> {
+            synchronized (pending) {
+                while (taken[0] <= ticket && tests.hasNext()) {
+                    pending.put(taken[0]++, tests.next());
+                }
+                return pending.remove(ticket);
+            }
+        };
+    }
+}
@@ -0,0 +1,176 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import net.automatalib.word.Word;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Policy deciding how many times a query should be run, based on the
+ * non-determinism observed so far.
+ * <p>
+ * The policy tracks how often non-determinism shows up after each input symbol
+ * and at each prefix length, relative to how often they are run. A symbol or a
+ * prefix length is suspicious while its rate of non-determinism reaches the
+ * threshold. Queries that contain a suspicious symbol or reach a suspicious
+ * prefix length are run the maximum number of times, while the rest are run once.
+ * <p>
+ * Each change in the suspicious symbols and prefix lengths is logged to the given writer.
+ * The policy can be shared by oracles used from different threads.
+ *
+ * @param <I> the type of inputs
+ */
+public class AdaptiveRunsPolicy<I> {
+
+    /** Default rate of non-determinism at which a symbol or prefix length becomes suspicious. */
+    public static final double DEFAULT_RATE_THRESHOLD = 0.01;
+
+    /** Stores the constructor parameter. */
+    protected double rateThreshold;
+
+    /** Stores the Writer constructor parameter wrapped it with a PrintWriter. */
+    protected PrintWriter printWriter;
+
+    /** Stores the observations of each input symbol. */
+    protected Map<I, Observations> symbolObservations;
+
+    /** Stores the observations of each prefix length, where index i refers to length i + 1. */
+    protected List<Observations> lengthObservations;
+
+    /**
+     * The runs and the non-deterministic runs observed in a context.
+     */
+    protected static class Observations {
+
+        /** The number of runs that went through the context. */
+        protected long runs;
+
+        /** The number of runs that showed non-determinism in the context. */
+        protected long nonDeterministicRuns;
+
+        /** Indicates if the context is suspicious. */
+        protected boolean suspicious;
+    }
+
+    /**
+     * Constructs a new instance from the given parameter, using the {@link #DEFAULT_RATE_THRESHOLD}.
+     *
+     * @param writer the writer used to log the decisions of the policy
+     */
+    public AdaptiveRunsPolicy(Writer writer) {
+        this(writer, DEFAULT_RATE_THRESHOLD);
+    }
+
+    /**
+     * Constructs a new instance from the given parameters.
+     *
+     * @param writer        the writer used to log the decisions of the policy
+     * @param rateThreshold the rate of non-determinism at which a symbol or
+     *                          prefix length becomes suspicious
+     */
+    public AdaptiveRunsPolicy(Writer writer, double rateThreshold) {
+        this.printWriter = new PrintWriter(writer);
+        this.rateThreshold = rateThreshold;
+        this.symbolObservations = new HashMap<>();
+        this.lengthObservations = new ArrayList<>();
+    }
+
+    /**
+     * Returns the number of times the given input should be run.
+     *
+     * @param  input   the input to be run
+     * @param  maxRuns the number of runs for inputs in suspicious contexts
+     *
+     * @return         maxRuns if the input contains a suspicious symbol or
+     *                     reaches a suspicious prefix length, otherwise 1
+     */
+    public synchronized int getRuns(Word<I> input, int maxRuns) {
+        for (int i = 0; i < input.length(); i++) {
+            Observations symbol = symbolObservations.get(input.getSymbol(i));
+            if ((symbol != null && symbol.suspicious)
+                || (i < lengthObservations.size() && lengthObservations.get(i).suspicious)) {
+                return maxRuns;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Records a query that has been answered, which runs through all of its
+     * symbols and prefix lengths.
+     *
+     * @param input the input of the query
+     */
+    public synchronized void recordRun(Word<I> input) {
+        for (int i = 0; i < input.length(); i++) {
+            I symbol = input.getSymbol(i);
+            Observations observations = symbolObservations.computeIfAbsent(symbol, s -> new Observations());
+            observations.runs++;
+            update(observations, "input " + symbol);
+
+            observations = getLengthObservations(i);
+            observations.runs++;
+            update(observations, "prefix length " + (i + 1));
+        }
+    }
+
+    /**
+     * Records non-determinism shown by a query at the given index, i.e. by
+     * the output of the symbol at the index.
+     *
+     * @param input the input of the query
+     * @param index the index of the first non-deterministic output
+     */
+    public synchronized void recordNonDeterminism(Word<I> input, int index) {
+        I symbol = input.getSymbol(index);
+        Observations observations = symbolObservations.computeIfAbsent(symbol, s -> new Observations());
+        observations.nonDeterministicRuns++;
+        update(observations, "input " + symbol);
+
+        observations = getLengthObservations(index);
+        observations.nonDeterministicRuns++;
+        update(observations, "prefix length " + (index + 1));
+    }
+
+    /**
+     * Returns the observations of the prefix length index + 1, adding the
+     * observations of the missing lengths.
+     *
+     * @param  index the index of the prefix length
+     *
+     * @return       the observations of the prefix length
+     */
+    protected Observations getLengthObservations(int index) {
+        while (lengthObservations.size() <= index) {
+            lengthObservations.add(new Observations());
+        }
+        return lengthObservations.get(index);
+    }
+
+    /**
+     * Updates whether the context of the given observations is suspicious and
+     * logs any change.
+     *
+     * @param observations the observations of the context
+     * @param context      the description of the context
+     */
+    protected void update(Observations observations, String context) {
+        // a context that has only shown non-determinism is suspicious
+        double rate = observations.runs == 0
+            ? 1.0
+            : (double) observations.nonDeterministicRuns / observations.runs;
+        boolean suspicious = observations.nonDeterministicRuns > 0 && rate >= rateThreshold;
+
+        if (suspicious != observations.suspicious) {
+            observations.suspicious = suspicious;
+            printWriter.println((suspicious ? "Raising repetitions after " : "Returning to single runs after ")
+                + context + " (" + observations.nonDeterministicRuns + " non-deterministic out of "
+                + observations.runs + " runs)");
+            printWriter.flush();
+        }
+    }
+}
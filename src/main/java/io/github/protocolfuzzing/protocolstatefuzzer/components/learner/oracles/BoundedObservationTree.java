@@ -0,0 +1,417 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import net.automatalib.word.Word;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Variant of the {@link ObservationTree} that holds at most a given number of
+ * nodes, evicting the least recently used subtrees once the limit is exceeded.
+ * <p>
+ * The nodes are kept in a list ordered by their last access, which is updated
+ * whenever a query or observation traverses them. A traversed node is moved
+ * right before its parent, which is moved first, so that every node precedes
+ * its ancestors in the list. Eviction removes the nodes at the least recently
+ * used end of the list, which are thus leaves, until the tree is reduced to
+ * {@link #RETAINED_FRACTION} of the limit. It only visits the evicted nodes
+ * and the pinned nodes it skips, rather than the whole tree.
+ * <p>
+ * The prefixes of the pinned words, such as the access sequences of the
+ * current hypothesis, are never evicted. Nothing is pinned before the first
+ * pinned words are set, e.g. while the first hypothesis is being learned.
+ * <p>
+ * All operations, including lookups since they reorder the list, synchronize
+ * on the state shared by the nodes of the tree, so that the tree can be shared
+ * by oracles running in different threads. These oracles therefore access the
+ * tree one at a time, unlike the {@link ConcurrentObservationTree}.
+ *
+ * @param <I> the input type of the observations
+ * @param <O> the output type of the observations
+ */
+public class BoundedObservationTree<I, O> extends ObservationTree<I, O> {
+
+    /** The fraction of the node limit to which the tree is reduced by an eviction. */
+    protected static final double RETAINED_FRACTION = 0.9;
+
+    /**
+     * The state shared by all nodes of a tree.
+     *
+     * @param <I> the input type of the observations
+     * @param <O> the output type of the observations
+     */
+    protected static class Budget<I, O> {
+
+        /** The maximum number of nodes, excluding the root. */
+        protected long nodeLimit;
+
+        /** The number of nodes, excluding the root. */
+        protected long nodeCount;
+
+        /** The number of nodes evicted so far. */
+        protected long evictionCount;
+
+        /** The least recently used node, or null if the tree has no nodes besides the root. */
+        protected BoundedObservationTree<I, O> leastRecent;
+
+        /** The most recently used node, or null if the tree has no nodes besides the root. */
+        protected BoundedObservationTree<I, O> mostRecent;
+
+        /** The node accessed last, or null if it has been evicted. */
+        protected BoundedObservationTree<I, O> lastAccessed;
+
+        /** The words whose prefixes are never evicted. */
+        protected Collection<? extends Word<I>> pinnedWords;
+
+        /**
+         * Constructs a new instance from the given parameter.
+         *
+         * @param nodeLimit the maximum number of nodes, excluding the root
+         */
+        protected Budget(long nodeLimit) {
+            this.nodeLimit = nodeLimit;
+            this.nodeCount = 0;
+            this.evictionCount = 0;
+            this.pinnedWords = Collections.emptyList();
+        }
+    }
+
+    /** The state shared by all nodes of the tree. */
+    protected final Budget<I, O> budget;
+
+    /** The next less recently used node in the list, or null. */
+    protected BoundedObservationTree<I, O> lessRecent;
+
+    /** The next more recently used node in the list, or null. */
+    protected BoundedObservationTree<I, O> moreRecent;
+
+    /** Indicates if this node has been evicted or removed from the tree. */
+    protected boolean evicted;
+
+    /**
+     * Constructs a new root node.
+     *
+     * @param nodeLimit the maximum number of nodes, excluding the root
+     */
+    public BoundedObservationTree(long nodeLimit) {
+        super(null, null, null, new HashMap<>(), new HashMap<>());
+        this.budget = new Budget<>(nodeLimit);
+    }
+
+    /**
+     * Constructs a new child node from the given parameters.
+     *
+     * @param parent       the parent observation tree of this node
+     * @param parentInput  the parent input
+     * @param parentOutput the parent output
+     */
+    protected BoundedObservationTree(BoundedObservationTree<I, O> parent, I parentInput, O parentOutput) {
+        super(parent, parentInput, parentOutput, new HashMap<>(), new HashMap<>());
+        this.budget = parent.budget;
+        this.evicted = parent.evicted;
+    }
+
+    /**
+     * Returns the number of nodes in the tree, excluding the root.
+     *
+     * @return the number of nodes in the tree
+     */
+    public long getNodeCount() {
+        synchronized (budget) {
+            return budget.nodeCount;
+        }
+    }
+
+    /**
+     * Returns the number of nodes evicted so far.
+     *
+     * @return the number of nodes evicted so far
+     */
+    public long getEvictionCount() {
+        synchronized (budget) {
+            return budget.evictionCount;
+        }
+    }
+
+    /**
+     * Sets the words whose prefixes are never evicted, replacing the previous ones.
+     *
+     * @param pinnedWords the words to be pinned
+     */
+    public void setPinnedWords(Collection<? extends Word<I>> pinnedWords) {
+        synchronized (budget) {
+            budget.pinnedWords = new ArrayList<>(pinnedWords);
+        }
+    }
+
+    @Override
+    protected ObservationTree<I, O> createChild(I input, O output) {
+        if (!evicted) {
+            budget.nodeCount++;
+        }
+        return new BoundedObservationTree<>(this, input, output);
+    }
+
+    @Override
+    @Nullable protected ObservationTree<I, O> getChild(I input) {
+        ObservationTree<I, O> child = super.getChild(input);
+        if (child != null) {
+            ((BoundedObservationTree<I, O>) child).access();
+        }
+        return child;
+    }
+
+    @Override
+    @Nullable protected ObservationTree<I, O> addObservationStep(I input, O output) {
+        ObservationTree<I, O> child = super.addObservationStep(input, output);
+        if (child != null) {
+            ((BoundedObservationTree<I, O>) child).access();
+        }
+        return child;
+    }
+
+    @Override
+    public ObservationTree<I, O> addObservation(I input, O output) throws CacheInconsistencyException {
+        synchronized (budget) {
+            ObservationTree<I, O> child = super.addObservation(input, output);
+            evictIfNeeded();
+            return child;
+        }
+    }
+
+    @Override
+    public void addObservation(Word<I> inputs, Word<O> outputs) throws CacheInconsistencyException {
+        synchronized (budget) {
+            try {
+                super.addObservation(inputs, outputs);
+            }
+            finally {
+                evictIfNeeded();
+            }
+        }
+    }
+
+    @Override
+    public void addObservation(List<I> inputs, List<O> outputs) throws CacheInconsistencyException {
+        synchronized (budget) {
+            try {
+                super.addObservation(inputs, outputs);
+            }
+            finally {
+                evictIfNeeded();
+            }
+        }
+    }
+
+    @Override
+    public void remove() {
+        synchronized (budget) {
+            if (this.parent == null) {
+                throw new RuntimeException("Cannot remove root node");
+            }
+
+            if (this.parent.children.remove(this.parentInput, this)) {
+                this.parent.outputs.remove(this.parentInput);
+                budget.nodeCount -= unlinkSubtree();
+            }
+        }
+    }
+
+    @Override
+    public void remove(List<I> accessSequence) throws RemovalException {
+        synchronized (budget) {
+            super.remove(accessSequence);
+        }
+    }
+
+    @Override
+    @Nullable public Word<O> answerQuery(Word<I> word, boolean allowIncompleteAnswer) {
+        synchronized (budget) {
+            return super.answerQuery(word, allowIncompleteAnswer);
+        }
+    }
+
+    @Override
+    public Cursor<I, O> cursor() {
+        Cursor<I, O> cursor = super.cursor();
+        return input -> {
+            synchronized (budget) {
+                return cursor.next(input);
+            }
+        };
+    }
+
+    @Override
+    @Nullable public List<O> answerInputChain(List<I> inputs, boolean allowIncompleteAnswer) {
+        synchronized (budget) {
+            return super.answerInputChain(inputs, allowIncompleteAnswer);
+        }
+    }
+
+    @Override
+    protected void traverseDepthFirst(DepthFirstVisitor<I, O> visitor) throws IOException {
+        synchronized (budget) {
+            super.traverseDepthFirst(visitor);
+        }
+    }
+
+    /**
+     * Moves this node to the most recently used position among its ancestors,
+     * i.e. right before its parent in the list, or to the most recently used
+     * end if its parent is the root.
+     * <p>
+     * If the parent was not the node accessed last, e.g. when a traversal
+     * starts below the root, the ancestors are moved first, so that every node
+     * still precedes its ancestors. Should be called while holding the lock of
+     * the {@link #budget}.
+     */
+    protected void access() {
+        if (evicted) {
+            return;
+        }
+
+        if (parent.parent != null && parent != budget.lastAccessed) {
+            // the ancestors below the root, from the top
+            Deque<BoundedObservationTree<I, O>> ancestors = new ArrayDeque<>();
+            for (ObservationTree<I, O> node = parent; node.parent != null; node = node.parent) {
+                ancestors.push((BoundedObservationTree<I, O>) node);
+            }
+            for (BoundedObservationTree<I, O> ancestor: ancestors) {
+                ancestor.moveBeforeParent();
+            }
+        }
+        moveBeforeParent();
+        budget.lastAccessed = this;
+    }
+
+    /**
+     * Moves this node right before its parent in the list, or to the most
+     * recently used end if its parent is the root.
+     */
+    protected void moveBeforeParent() {
+        unlink();
+        BoundedObservationTree<I, O> next = parent.parent == null ? null : (BoundedObservationTree<I, O>) parent;
+        BoundedObservationTree<I, O> previous = next == null ? budget.mostRecent : next.lessRecent;
+
+        lessRecent = previous;
+        moreRecent = next;
+        if (previous == null) {
+            budget.leastRecent = this;
+        } else {
+            previous.moreRecent = this;
+        }
+        if (next == null) {
+            budget.mostRecent = this;
+        } else {
+            next.lessRecent = this;
+        }
+    }
+
+    /**
+     * Removes this node from the list, if it is in it.
+     */
+    protected void unlink() {
+        if (budget.leastRecent == this) {
+            budget.leastRecent = moreRecent;
+        }
+        if (budget.mostRecent == this) {
+            budget.mostRecent = lessRecent;
+        }
+        if (lessRecent != null) {
+            lessRecent.moreRecent = moreRecent;
+        }
+        if (moreRecent != null) {
+            moreRecent.lessRecent = lessRecent;
+        }
+        lessRecent = null;
+        moreRecent = null;
+        if (budget.lastAccessed == this) {
+            budget.lastAccessed = null;
+        }
+    }
+
+    /**
+     * Evicts the least recently used unpinned nodes, if the node limit is exceeded.
+     * <p>
+     * Since every node precedes its ancestors in the list and the pinned nodes
+     * are closed under ancestors, each unpinned node reached from the least
+     * recently used end is a leaf. Should be called while holding the lock of
+     * the {@link #budget}.
+     */
+    protected void evictIfNeeded() {
+        if (budget.nodeCount <= budget.nodeLimit) {
+            return;
+        }
+
+        // the nodes on the paths of the pinned words
+        Set<ObservationTree<I, O>> pinned = Collections.newSetFromMap(new IdentityHashMap<>());
+        BoundedObservationTree<I, O> root = getRoot();
+        for (Word<I> word: budget.pinnedWords) {
+            ObservationTree<I, O> node = root;
+            for (I input: word) {
+                node = node.children.get(input);
+                if (node == null) {
+                    break;
+                }
+                pinned.add(node);
+            }
+        }
+
+        long retainedNodes = (long) (budget.nodeLimit * RETAINED_FRACTION);
+        BoundedObservationTree<I, O> node = budget.leastRecent;
+        while (node != null && budget.nodeCount > retainedNodes) {
+            BoundedObservationTree<I, O> next = node.moreRecent;
+            if (!node.evicted && !pinned.contains(node)) {
+                node.parent.children.remove(node.parentInput);
+                node.parent.outputs.remove(node.parentInput);
+                long evicted = node.unlinkSubtree();
+                budget.nodeCount -= evicted;
+                budget.evictionCount += evicted;
+            }
+            node = next;
+        }
+    }
+
+    /**
+     * Removes this node and its descendants from the list and marks them as evicted.
+     *
+     * @return the number of removed nodes
+     */
+    protected long unlinkSubtree() {
+        long unlinked = 0;
+        Deque<ObservationTree<I, O>> stack = new ArrayDeque<>();
+        stack.push(this);
+        while (!stack.isEmpty()) {
+            BoundedObservationTree<I, O> node = (BoundedObservationTree<I, O>) stack.pop();
+            node.unlink();
+            node.evicted = true;
+            unlinked++;
+            for (ObservationTree<I, O> child: node.children.values()) {
+                stack.push(child);
+            }
+        }
+        return unlinked;
+    }
+
+    /**
+     * Returns the root of the tree this node belongs to.
+     *
+     * @return the root of the tree
+     */
+    protected BoundedObservationTree<I, O> getRoot() {
+        ObservationTree<I, O> node = this;
+        while (node.parent != null) {
+            node = node.parent;
+        }
+        return (BoundedObservationTree<I, O>) node;
+    }
+}
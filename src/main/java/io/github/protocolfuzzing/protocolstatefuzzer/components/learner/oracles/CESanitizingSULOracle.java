@@ -1,13 +1,17 @@
 package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
 
 import de.learnlib.query.Query;
+import de.learnlib.sul.SUL;
 import net.automatalib.automaton.UniversalDeterministicAutomaton;
 import net.automatalib.automaton.concept.Output;
 import net.automatalib.word.Word;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.io.Writer;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.function.Supplier;
 
 /**
@@ -16,6 +20,12 @@ import java.util.function.Supplier;
  * This allows to avoid restarting the whole testing process due to spurious counterexamples.
  * The output comparison should be done twice, but that cost is insignificant in the context of
  * learning.
+ * <p>
+ * If the sul underlying the wrapped oracle is provided and probabilistic sanitization
+ * is disabled, then only the shortest prefix of a potential counterexample that shows
+ * the divergence from the hypothesis is re-run, step by step on the sul. Each re-run is
+ * aborted on the first output that differs from the original one, which already proves
+ * that the sul is non-deterministic.
  *
  * @param <HA> the type of hypothesis automaton
  * @param <I>  the type of inputs
@@ -35,6 +45,9 @@ public class CESanitizingSULOracle<HA extends UniversalDeterministicAutomaton<?,
     /** Stores the constructor parameter. */
     protected ObservationTree<I, O> cache;
 
+    /** Stores the constructor parameter, which is null if counterexamples are not re-run step by step. */
+    @Nullable protected SUL<I, O> sul;
+
     /**
      * Constructs a new instance from the given parameters.
      *
@@ -53,14 +66,42 @@ public class CESanitizingSULOracle<HA extends UniversalDeterministicAutomaton<?,
         Writer writer, Supplier<HA> automatonProvider,
         ObservationTree<I, O> cache, boolean skipNonDetTests) {
 
+        this(runs, sulOracle, probabilisticSanitization, writer, automatonProvider, cache, skipNonDetTests, null);
+    }
+
+    /**
+     * Constructs a new instance from the given parameters.
+     *
+     * @param runs                      the number of times that a counterexample should be run, stored
+     *                                      in {@link #runs}
+     * @param sulOracle                 the sul Oracle that is being wrapped
+     * @param probabilisticSanitization {@code true} to enable the probabilistic sanitization
+     * @param writer                    the writer used to log results and information
+     * @param automatonProvider         the provider of the hypothesis automaton
+     * @param cache                     the external cache used for lookup
+     * @param skipNonDetTests           {@code true} to skip non-deterministic tests and not throw an
+     *                                      exception
+     * @param sul                       the sul answering the queries of the sulOracle in a single run,
+     *                                      used for re-running counterexamples step by step, or null
+     */
+    public CESanitizingSULOracle(int runs,
+        MealyMembershipOracle<I, O> sulOracle, boolean probabilisticSanitization,
+        Writer writer, Supplier<HA> automatonProvider,
+        ObservationTree<I, O> cache, boolean skipNonDetTests, @Nullable SUL<I, O> sul) {
+
         super(runs, sulOracle, probabilisticSanitization, writer);
         this.automatonProvider = automatonProvider;
         this.cache = cache;
         this.skipNonDetTests = skipNonDetTests;
+        this.sul = sul;
     }
 
     /**
      * Processes the given query using counterexample sanitization.
+     * <p>
+     * If {@link #skipNonDetTests} is enabled and the input has a prefix known to
+     * be unstable by the {@link #nonDetIndex}, the query is skipped without being
+     * run and answered with the hypothesis output.
      *
      * @param  query                   the query to be processed
      *
@@ -68,8 +109,20 @@ public class CESanitizingSULOracle<HA extends UniversalDeterministicAutomaton<?,
      */
     @Override
     public void processQuery(Query<I, Word<O>> query) throws NonDeterminismException {
-        Word<O> originalOutput = sulOracle.answerQuery(query.getInput());
         Word<O> hypOutput = automatonProvider.get().computeOutput(query.getInput());
+
+        if (skipNonDetTests && nonDetIndex != null) {
+            Word<I> unstablePrefix = nonDetIndex.findUnstablePrefix(query.getInput());
+            if (unstablePrefix != null) {
+                printWriter.printf("Skipping input with known non-deterministic prefix %s%nSkipping: %s%n",
+                    unstablePrefix, query.getInput());
+                printWriter.flush();
+                query.answer(hypOutput.suffix(query.getSuffix().length()));
+                return;
+            }
+        }
+
+        Word<O> originalOutput = sulOracle.answerQuery(query.getInput());
         Word<O> returnedOutput;
 
         if (!originalOutput.equals(hypOutput)) {
@@ -86,10 +139,9 @@ public class CESanitizingSULOracle<HA extends UniversalDeterministicAutomaton<?,
             Word<O> outputFromCache = cache.answerQuery(query.getInput(), true);
 
             if (outputFromCache != null && !outputFromCache.equals(returnedOutput.prefix(outputFromCache.length()))) {
-                printWriter.println("Output inconsistent with cache, discarding it and returning automaton output");
-                printWriter.println("Input: " + query.getInput().prefix(outputFromCache.length()));
-                printWriter.println("Spurious output: " + returnedOutput);
-                printWriter.println("Cached output: " + outputFromCache);
+                printWriter.printf("Output inconsistent with cache, discarding it and returning automaton output%n"
+                    + "Input: %s%nSpurious output: %s%nCached output: %s%n",
+                    query.getInput().prefix(outputFromCache.length()), returnedOutput, outputFromCache);
                 printWriter.flush();
                 returnedOutput = hypOutput;
             }
@@ -102,6 +154,9 @@ public class CESanitizingSULOracle<HA extends UniversalDeterministicAutomaton<?,
      * Reruns the input {@link #runs} times and compares the checked output with
      * the ones given in the parameters.
      * <p>
+     * If the {@link #sul} is provided and probabilistic sanitization is disabled,
+     * then the output is checked by {@link #getConfirmedOutput(Word, Word, Word)} instead.
+     * <p>
      * Specifically:
      * <ul>
      * <li>If the output does not equal none of originalOutput and hypOutput then it is a CE
@@ -120,20 +175,16 @@ public class CESanitizingSULOracle<HA extends UniversalDeterministicAutomaton<?,
     protected Word<O> getCheckedOutput(Word<I> input, Word<O> originalOutput, Word<O> hypOutput)
         throws NonDeterminismException {
         try {
+            if (sul != null && !probabilisticSanitization) {
+                return getConfirmedOutput(input, originalOutput, hypOutput);
+            }
+
             Word<O> checkedOutput = super.getMultipleRunOutput(input);
 
             if (!checkedOutput.equals(originalOutput)) {
-                printWriter.println("Output changed following CE verification");
-                printWriter.println("Input: " + input);
-                printWriter.println("Original output: " + originalOutput);
-                printWriter.println("New output: " + checkedOutput);
-
-                if (!checkedOutput.equals(hypOutput)) {
-                    printWriter.println("New CE status: is a CE");
-                } else {
-                    printWriter.println("New CE status: is not a CE");
-                }
-
+                printWriter.printf("Output changed following CE verification%n"
+                    + "Input: %s%nOriginal output: %s%nNew output: %s%nNew CE status: %s%n",
+                    input, originalOutput, checkedOutput, checkedOutput.equals(hypOutput) ? "is not a CE" : "is a CE");
                 printWriter.flush();
             }
 
@@ -146,11 +197,59 @@ public class CESanitizingSULOracle<HA extends UniversalDeterministicAutomaton<?,
             }
 
             // skip the non-deterministic input
-            printWriter.println("NonDeterminism in running input");
-            printWriter.println(e);
-            printWriter.println("Skipping: " + input);
+            printWriter.printf("NonDeterminism in running input%n%s%nSkipping: %s%n", e, input);
             printWriter.flush();
             return hypOutput;
         }
     }
+
+    /**
+     * Reruns the shortest prefix of the input that shows the divergence of the
+     * original output from the hypothesis output {@link #runs} times on the
+     * {@link #sul}, aborting each rerun on the first output that differs from
+     * the original one.
+     * <p>
+     * Since the outputs of the prefix determine the divergence, the rest of the
+     * input is not rerun and the original output is returned once all reruns
+     * agree with it.
+     *
+     * @param  input                   the input whose output diverges from the hypothesis
+     * @param  originalOutput          the original output of the sulOracle
+     * @param  hypOutput               the hypothesis output obtained from {@link #automatonProvider}
+     *
+     * @return                         the original output, once it is confirmed
+     *
+     * @throws NonDeterminismException if a rerun gives an output different from the original one
+     */
+    protected Word<O> getConfirmedOutput(Word<I> input, Word<O> originalOutput, Word<O> hypOutput)
+        throws NonDeterminismException {
+        int divergence = 0;
+        while (divergence < originalOutput.length() - 1
+            && originalOutput.getSymbol(divergence).equals(hypOutput.getSymbol(divergence))) {
+            divergence++;
+        }
+
+        Word<I> divergentInput = input.prefix(divergence + 1);
+        Word<O> divergentOutput = originalOutput.prefix(divergence + 1);
+
+        for (int i = 0; i < runs; i++) {
+            Iterator<O> expectedOutputs = divergentOutput.iterator();
+            Word<O> rerunOutput = runWhileAccepted(sul, divergentInput,
+                (symbol, output) -> output.equals(expectedOutputs.next()));
+
+            if (!rerunOutput.equals(divergentOutput.prefix(rerunOutput.length()))) {
+                printWriter.printf("Output changed following CE verification%n"
+                    + "Input: %s%nOriginal output: %s%nNew output: %s%n",
+                    divergentInput.prefix(rerunOutput.length()), divergentOutput.prefix(rerunOutput.length()),
+                    rerunOutput);
+                printWriter.flush();
+                recordNonDeterminism(input, rerunOutput.length() - 1, Map.of(divergentOutput, 1, rerunOutput, 1));
+                throw new NonDeterminismException("Counterexample could not be reproduced",
+                    divergentInput.prefix(rerunOutput.length()), divergentOutput.prefix(rerunOutput.length()),
+                    rerunOutput).makeCompact();
+            }
+        }
+
+        return originalOutput;
+    }
 }
@@ -2,15 +2,22 @@ package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles
 
 import de.learnlib.oracle.MembershipOracle;
 import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
+import de.learnlib.query.DefaultQuery;
 import de.learnlib.query.Query;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.statistics.Histogram;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.statistics.MetricsRegistry;
 import net.automatalib.word.Word;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Caches inputs and outputs and adds functionality for terminating outputs.
@@ -30,17 +37,30 @@ public class CachingSULOracle<I, O> implements MealyMembershipOracle<I, O> {
     /** Stores the constructor parameter. */
     protected boolean onlyLookup;
 
-    /** The set of terminating outputs specified in the constructor. */
-    protected HashSet<O> terminatingOutputs;
+    /** Counts the queries answered by the cache, or null if metrics are disabled. */
+    protected LongAdder hits;
+
+    /** Counts the missed queries with a cached prefix, or null if metrics are disabled. */
+    protected LongAdder partialHits;
+
+    /** Counts the missed queries without a cached prefix, or null if metrics are disabled. */
+    protected LongAdder misses;
+
+    /** Records the lengths of all processed queries, or null if metrics are disabled. */
+    protected Histogram queryLengths;
 
     /**
      * Constructs a new instance from the given parameters.
+     * <p>
+     * Non-empty terminating outputs are set to the cache, via
+     * {@link ObservationTree#setTerminatingOutputs(Collection)}, which then
+     * completes the answers to queries that pass through a terminating output.
      *
      * @param sulOracle          the sul oracle to be wrapped
      * @param cache              the external cache used to lookup and store inputs and outputs
      * @param onlyLookup         {@code true} if the external cache is used only for lookup, but not for
      *                               storing
-     * @param terminatingOutputs the terminating outputs to be used
+     * @param terminatingOutputs the terminating outputs of the cache or null
      */
     public CachingSULOracle(MembershipOracle<I, Word<O>> sulOracle, ObservationTree<I, O> cache,
         boolean onlyLookup, List<O> terminatingOutputs) {
@@ -48,40 +68,166 @@ public class CachingSULOracle<I, O> implements MealyMembershipOracle<I, O> {
         this.cache = cache;
         this.sulOracle = sulOracle;
         this.onlyLookup = onlyLookup;
-        this.terminatingOutputs = new HashSet<O>();
 
         if (terminatingOutputs != null && !terminatingOutputs.isEmpty()) {
-            this.terminatingOutputs.addAll(terminatingOutputs);
+            cache.setTerminatingOutputs(terminatingOutputs);
         }
     }
 
+    /**
+     * Enables the recording of cache hits, partial hits and misses, and of
+     * query lengths, to the metrics {@code <layer>.cache.hits},
+     * {@code <layer>.cache.partialHits}, {@code <layer>.cache.misses} and
+     * {@code <layer>.queries.length} of the given registry.
+     * <p>
+     * A partial hit is a query that is not answered by the cache, although a
+     * non-empty prefix of it is.
+     *
+     * @param registry the registry of the metrics
+     * @param layer    the name of the oracle chain, used as prefix of the metrics
+     */
+    public void enableMetrics(MetricsRegistry registry, String layer) {
+        this.hits = registry.counter(layer + ".cache.hits");
+        this.partialHits = registry.counter(layer + ".cache.partialHits");
+        this.misses = registry.counter(layer + ".cache.misses");
+        this.queryLengths = registry.histogram(layer + ".queries.length");
+    }
+
     /**
      * Processes the given queries and provides them with their corresponding answer
      * using their {@link Query#answer(Object)} method.
      * <p>
-     * It also stores each input and output to {@link #cache}, if storing is
-     * enabled.
+     * The queries that cannot be answered by {@link #cache} are planned as a
+     * batch: a query whose input is a prefix of the input of another query in
+     * the batch is not executed, but answered from the output of the longer one.
+     * Only the maximal inputs are sent to {@link #sulOracle}, which saves one
+     * reset of the SUL per query covered by another.
+     * <p>
+     * It also stores the input and output of each execution to {@link #cache},
+     * if storing is enabled.
      *
      * @param queries the queries to be answered
      */
     @Override
     public void processQueries(Collection<? extends Query<I, Word<O>>> queries) {
+        List<Query<I, Word<O>>> missedQueries = new ArrayList<>();
+        List<Word<I>> missedInputs = new ArrayList<>();
+
         for (Query<I, Word<O>> q: queries) {
             Word<I> fullInput = q.getPrefix().concat(q.getSuffix());
-            Word<O> fullOutput = cacheAnswer(fullInput);
+            // the cached prefix of a missed query is only needed for the metrics
+            Word<O> cachedOutput = cacheAnswer(fullInput, queryLengths != null);
+            Word<O> fullOutput = cachedOutput != null && cachedOutput.length() == fullInput.length()
+                ? cachedOutput : null;
 
             if (fullOutput != null) {
                 LOGGER.debug("CACHE HIT!");
+                q.answer(fullOutput.suffix(q.getSuffix().size()));
             } else {
-                fullOutput = sulOracle.answerQuery(fullInput);
-                if (!onlyLookup) {
-                    cacheAdd(fullInput, fullOutput);
+                missedQueries.add(q);
+                missedInputs.add(fullInput);
+            }
+
+            if (queryLengths != null) {
+                recordLookup(fullInput, cachedOutput == null ? 0 : cachedOutput.length());
+            }
+        }
+
+        if (missedQueries.isEmpty()) {
+            return;
+        }
+
+        List<DefaultQuery<I, Word<O>>> executions = new ArrayList<>();
+        int[] coveringExecutions = planExecutions(missedInputs, executions);
+        LOGGER.debug("Executing {} out of {} missed queries", executions.size(), missedQueries.size());
+
+        sulOracle.processQueries(executions);
+
+        if (!onlyLookup) {
+            for (DefaultQuery<I, Word<O>> execution: executions) {
+                cacheAdd(execution.getInput(), execution.getOutput());
+            }
+        }
+
+        for (int i = 0; i < missedQueries.size(); i++) {
+            Query<I, Word<O>> q = missedQueries.get(i);
+            Word<O> fullOutput = executions.get(coveringExecutions[i]).getOutput()
+                .prefix(missedInputs.get(i).length());
+            q.answer(fullOutput.suffix(q.getSuffix().size()));
+        }
+    }
+
+    /**
+     * Records the length of a processed query and the outcome of its lookup
+     * in {@link #cache}; to be called only if metrics are enabled.
+     *
+     * @param fullInput    the full input of the query
+     * @param cachedLength the length of the longest prefix of the input answered by the cache
+     */
+    protected void recordLookup(Word<I> fullInput, int cachedLength) {
+        queryLengths.record(fullInput.length());
+
+        if (cachedLength == fullInput.length()) {
+            hits.increment();
+        } else if (cachedLength > 0) {
+            partialHits.increment();
+        } else {
+            misses.increment();
+        }
+    }
+
+    /**
+     * Plans the execution of the given inputs, so that no input that is a prefix
+     * of another one is executed.
+     * <p>
+     * The inputs are inserted into a trie in order of decreasing length, so that
+     * an input is inserted after all inputs it is a prefix of. An input whose
+     * path, including the empty one, is already covered by a previous one is answered by that one;
+     * otherwise it is maximal and becomes a new execution.
+     *
+     * @param  inputs     the inputs to be planned
+     * @param  executions the list to which the queries of the maximal inputs are added
+     *
+     * @return            the index in {@code executions} of the execution covering each input
+     */
+    protected int[] planExecutions(List<Word<I>> inputs, List<DefaultQuery<I, Word<O>>> executions) {
+        List<Integer> order = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparingInt((Integer i) -> inputs.get(i).length()).reversed());
+
+        int[] coveringExecutions = new int[inputs.size()];
+        PlanNode<I> root = new PlanNode<>();
+
+        for (int i: order) {
+            Word<I> input = inputs.get(i);
+            PlanNode<I> node = root;
+            for (I symbol: input) {
+                node = node.children.computeIfAbsent(symbol, k -> new PlanNode<>());
+            }
+
+            if (node.execution == PlanNode.NO_EXECUTION) {
+                // input is maximal, make it cover the nodes on its path
+                int execution = executions.size();
+                executions.add(new DefaultQuery<>(input));
+
+                if (root.execution == PlanNode.NO_EXECUTION) {
+                    root.execution = execution;
+                }
+                node = root;
+                for (I symbol: input) {
+                    node = node.children.get(symbol);
+                    if (node.execution == PlanNode.NO_EXECUTION) {
+                        node.execution = execution;
+                    }
                 }
             }
 
-            Word<O> output = fullOutput.suffix(q.getSuffix().size());
-            q.answer(output);
+            coveringExecutions[i] = node.execution;
         }
+
+        return coveringExecutions;
     }
 
     /**
@@ -101,34 +247,45 @@ public class CachingSULOracle<I, O> implements MealyMembershipOracle<I, O> {
 
     /**
      * Looks up {@link #cache} for an output to the given input.
+     * <p>
+     * An input passing through a terminating output is answered by repeating
+     * that output, which is done by {@link #cache} itself.
      *
      * @param  input the input to be answered if it is cached
      *
      * @return       the corresponding output or null
      */
     @Nullable protected Word<O> cacheAnswer(Word<I> input) {
-        if (terminatingOutputs.isEmpty()) {
-            return cache.answerQuery(input);
-        }
+        return cacheAnswer(input, false);
+    }
 
-        Word<O> output = cache.answerQuery(input, true);
+    /**
+     * Looks up {@link #cache} for an output to the given input, with the option
+     * to allow incomplete answers, as in {@link ObservationTree#answerQuery(Word, boolean)}.
+     *
+     * @param  input                 the input to be answered
+     * @param  allowIncompleteAnswer {@code true} to answer the longest cached prefix
+     *
+     * @return                       the corresponding output or null
+     */
+    @Nullable protected Word<O> cacheAnswer(Word<I> input, boolean allowIncompleteAnswer) {
+        return cache.answerQuery(input, allowIncompleteAnswer);
+    }
 
-        if (output == null || output.isEmpty()) {
-            return null;
-        }
+    /**
+     * Node of the trie used by {@link #planExecutions(List, List)}.
+     *
+     * @param <I> the type of inputs
+     */
+    protected static class PlanNode<I> {
 
-        if (output.length() >= input.length()) {
-            return output;
-        }
+        /** Marks a node not covered by any execution. */
+        protected static final int NO_EXECUTION = -1;
 
-        if (terminatingOutputs.contains(output.lastSymbol())) {
-            Word<O> extendedOutput = output;
-            while (extendedOutput.length() < input.length()) {
-                extendedOutput = extendedOutput.append(output.lastSymbol());
-            }
-            return extendedOutput;
-        }
+        /** Stores the children of the node. */
+        protected Map<I, PlanNode<I>> children = new HashMap<>();
 
-        return null;
+        /** The index of the first execution whose input passes through the node. */
+        protected int execution = NO_EXECUTION;
     }
 }
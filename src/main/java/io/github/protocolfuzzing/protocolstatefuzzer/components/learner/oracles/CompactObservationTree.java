@@ -0,0 +1,507 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.word.Word;
+import net.automatalib.word.WordBuilder;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Array-backed variant of the {@link ObservationTree}.
+ * <p>
+ * The whole tree is stored in the root instance using parallel primitive
+ * arrays. Nodes are identified by integer ids and inputs by their index in the
+ * fixed input alphabet, which is looked up in a hash map built once.
+ * A node is assigned a row of child ids, as long as the alphabet, only when its
+ * first child is added, so that leaves cost two integers. Outputs are interned
+ * in a table and edges refer to them by id.
+ * <p>
+ * The tree keeps the semantics of the operations of the {@link ObservationTree}.
+ * Since nodes are not stored as objects, {@link #addObservation(Object, Object)}
+ * returns a lightweight view of the reached node, which shares the arrays of the
+ * root and supports all operations starting from that node. A view must not be
+ * used after its node has been removed, since the id of the node may be reused.
+ * Inputs that are not contained in the alphabet result in an
+ * IllegalArgumentException.
+ *
+ * @param <I> the input type of the observations
+ * @param <O> the output type of the observations
+ */
+public class CompactObservationTree<I, O> extends ObservationTree<I, O> {
+
+    /** The id of the root node, which also marks the absence of a child. */
+    protected static final int ROOT = 0;
+
+    /** Marks a node without a row of children. */
+    protected static final int NO_ROW = -1;
+
+    /** The initial number of node slots. */
+    protected static final int INITIAL_CAPACITY = 64;
+
+    /** The root instance storing the arrays of the tree, which is this instance for the root. */
+    protected CompactObservationTree<I, O> root;
+
+    /** The id of the node of this instance. */
+    protected int node;
+
+    /** Stores the constructor parameter. */
+    protected Alphabet<I> alphabet;
+
+    /** Stores the index in {@link #alphabet} of each input. */
+    protected Map<I, Integer> inputIds;
+
+    /** The size of the alphabet, which is also the length of each row. */
+    protected int alphabetSize;
+
+    /** Stores the child id of each row and input index, or {@link #ROOT} if there is no child. */
+    protected int[] childTable;
+
+    /** Stores the row of each node in the {@link #childTable}, or {@link #NO_ROW}. */
+    protected int[] nodeRows;
+
+    /** Stores the output id of the edge leading to each node. */
+    protected int[] nodeOutputs;
+
+    /** The number of node slots in use, including the freed ones. */
+    protected int nodeCount;
+
+    /** The number of rows in use. */
+    protected int rowCount;
+
+    /** Stores the ids of the nodes freed by removals, which keep their cleared rows. */
+    protected int[] freeNodes;
+
+    /** The number of ids in {@link #freeNodes}. */
+    protected int freeNodeCount;
+
+    /** Stores the interned outputs indexed by their id. */
+    protected List<O> outputTable;
+
+    /** Stores the id of each interned output. */
+    protected Map<O, Integer> outputIds;
+
+    /**
+     * Constructs a new instance from the given parameter.
+     *
+     * @param alphabet the fixed input alphabet, used to index the inputs
+     */
+    public CompactObservationTree(Alphabet<I> alphabet) {
+        super();
+        this.root = this;
+        this.node = ROOT;
+        this.alphabet = alphabet;
+        this.alphabetSize = alphabet.size();
+        this.inputIds = new HashMap<>();
+        for (int i = 0; i < alphabetSize; i++) {
+            this.inputIds.put(alphabet.getSymbol(i), i);
+        }
+        this.childTable = new int[INITIAL_CAPACITY * alphabetSize];
+        this.nodeRows = new int[INITIAL_CAPACITY];
+        Arrays.fill(this.nodeRows, NO_ROW);
+        this.nodeOutputs = new int[INITIAL_CAPACITY];
+        this.nodeCount = 1;
+        this.rowCount = 0;
+        this.freeNodes = new int[INITIAL_CAPACITY];
+        this.freeNodeCount = 0;
+        this.outputTable = new ArrayList<>();
+        this.outputIds = new HashMap<>();
+    }
+
+    /**
+     * Constructs a view of a node, sharing the arrays of the root of its parent.
+     *
+     * @param parent       the view of the parent node
+     * @param parentInput  the parent input
+     * @param parentOutput the parent output
+     * @param node         the id of the node
+     */
+    protected CompactObservationTree(CompactObservationTree<I, O> parent, I parentInput, O parentOutput, int node) {
+        super(parent, parentInput, parentOutput, Collections.emptyMap(), Collections.emptyMap());
+        this.root = parent.root;
+        this.node = node;
+        this.alphabet = root.alphabet;
+        this.alphabetSize = root.alphabetSize;
+        this.inputIds = root.inputIds;
+    }
+
+    /**
+     * Returns the number of nodes stored in the tree, including the root.
+     *
+     * @return the number of nodes stored in the tree
+     */
+    public int size() {
+        return root.nodeCount - root.freeNodeCount;
+    }
+
+    @Override
+    public ObservationTree<I, O> addObservation(I input, O output) throws CacheInconsistencyException {
+        ObservationTree<I, O> child = addObservationStep(input, output);
+
+        if (child == null) {
+            // input is inconsistent with previous observations, throw exception
+            List<I> inputChain = getInputChain();
+            inputChain.add(input);
+            List<O> oldOutputChain = getOutputChain();
+            oldOutputChain.add(root.getNodeOutput(root.getChildNode(node, inputIndex(input))));
+            List<O> newOutputChain = getOutputChain();
+            newOutputChain.add(output);
+            throw new CacheInconsistencyException(toWord(inputChain), toWord(oldOutputChain), toWord(newOutputChain));
+        }
+
+        return child;
+    }
+
+    @Override
+    @Nullable protected ObservationTree<I, O> addObservationStep(I input, O output) {
+        int inputIndex = inputIndex(input);
+        int child = root.getChildNode(node, inputIndex);
+
+        if (child == ROOT) {
+            // input hasn't been queried before, make a new branch for it
+            child = root.newChildNode(node, inputIndex, root.internOutput(output));
+        } else if (!root.getNodeOutput(child).equals(output)) {
+            return null;
+        }
+
+        return new CompactObservationTree<>(this, input, output, child);
+    }
+
+    @Override
+    public void addObservation(Word<I> inputs, Word<O> outputs) throws CacheInconsistencyException {
+        addObservation(inputs.asList(), outputs.asList());
+    }
+
+    @Override
+    public void addObservation(List<I> inputs, List<O> outputs) throws CacheInconsistencyException {
+        checkSameLength(inputs.size(), outputs.size(), inputs, outputs);
+
+        int current = node;
+        for (int i = 0; i < inputs.size(); i++) {
+            int inputIndex = inputIndex(inputs.get(i));
+            int child = root.getChildNode(current, inputIndex);
+
+            if (child == ROOT && root.isTerminalNode(current)) {
+                // the rest of the observation extends a terminal node
+                terminalOutputs.refusedObservations.increment();
+                return;
+            }
+
+            if (child == ROOT) {
+                // input hasn't been queried before, make a new branch for it
+                child = root.newChildNode(current, inputIndex, root.internOutput(outputs.get(i)));
+            } else if (!root.getNodeOutput(child).equals(outputs.get(i))) {
+                // input is inconsistent with previous observations
+                Word<I> inputWord = toWord(inputs);
+                throw new CacheInconsistencyException(inputWord, answerQuery(inputWord.prefix(i + 1)),
+                    toWord(outputs));
+            }
+
+            current = child;
+        }
+    }
+
+    @Override
+    public void remove() {
+        if (this.parent == null) {
+            throw new RuntimeException("Cannot remove root node");
+        }
+
+        CompactObservationTree<I, O> parentView = (CompactObservationTree<I, O>) this.parent;
+        int inputIndex = inputIndex(parentInput);
+        if (root.getChildNode(parentView.node, inputIndex) == node) {
+            root.removeChildNode(parentView.node, inputIndex);
+        }
+    }
+
+    @Override
+    public void remove(List<I> accessSequence) throws RemovalException {
+        if (accessSequence.isEmpty()) {
+            this.remove();
+            return;
+        }
+
+        int parentNode = node;
+        int current = node;
+        int inputIndex = 0;
+        for (I input: accessSequence) {
+            parentNode = current;
+            inputIndex = inputIndex(input);
+            current = root.getChildNode(parentNode, inputIndex);
+
+            if (current == ROOT) {
+                throw new RemovalException("Cannot remove branch which is not present for input\n" + accessSequence);
+            }
+        }
+
+        root.removeChildNode(parentNode, inputIndex);
+    }
+
+    @Override
+    @Nullable public Word<O> answerQuery(Word<I> word, boolean allowIncompleteAnswer) {
+        WordBuilder<O> outputBuilder = new WordBuilder<>(word.length());
+        int current = node;
+
+        for (int i = 0; i < word.length(); i++) {
+            int child = root.getChildNode(current, inputIndex(word.getSymbol(i)));
+
+            if (child == ROOT) {
+                if (root.isTerminalNode(current)) {
+                    return outputBuilder.repeatAppend(word.length() - i, root.getNodeOutput(current)).toWord();
+                }
+                return allowIncompleteAnswer ? outputBuilder.toWord() : null;
+            }
+
+            outputBuilder.append(root.getNodeOutput(child));
+            current = child;
+        }
+
+        return outputBuilder.toWord();
+    }
+
+    @Override
+    public Cursor<I, O> cursor() {
+        return new Cursor<>() {
+            private int current = node;
+            private boolean left = false;
+
+            @Override
+            @Nullable public O next(I input) {
+                if (left) {
+                    return null;
+                }
+
+                int child = root.getChildNode(current, inputIndex(input));
+                if (child == ROOT) {
+                    if (root.isTerminalNode(current)) {
+                        return root.getNodeOutput(current);
+                    }
+                    left = true;
+                    return null;
+                }
+
+                current = child;
+                return root.getNodeOutput(child);
+            }
+        };
+    }
+
+    @Override
+    @Nullable public List<O> answerInputChain(List<I> inputs, boolean allowIncompleteAnswer) {
+        List<O> outputs = new ArrayList<>(inputs.size());
+        int current = node;
+
+        for (I input: inputs) {
+            int child = root.getChildNode(current, inputIndex(input));
+
+            if (child == ROOT) {
+                if (root.isTerminalNode(current)) {
+                    O terminatingOutput = root.getNodeOutput(current);
+                    outputs.addAll(Collections.nCopies(inputs.size() - outputs.size(), terminatingOutput));
+                    return outputs;
+                }
+                return allowIncompleteAnswer ? outputs : null;
+            }
+
+            outputs.add(root.getNodeOutput(child));
+            current = child;
+        }
+
+        return outputs;
+    }
+
+    @Override
+    protected void traverseDepthFirst(DepthFirstVisitor<I, O> visitor) throws IOException {
+        // parallel stacks of the visited nodes and of the next input index to visit
+        int[] nodeStack = new int[INITIAL_CAPACITY];
+        int[] indexStack = new int[INITIAL_CAPACITY];
+        int top = 0;
+        nodeStack[top++] = node;
+
+        while (top > 0) {
+            int row = root.nodeRows[nodeStack[top - 1]];
+            int inputIndex = indexStack[top - 1];
+            int child = ROOT;
+
+            if (row != NO_ROW) {
+                while (inputIndex < alphabetSize && child == ROOT) {
+                    child = root.childTable[row * alphabetSize + inputIndex++];
+                }
+            }
+
+            if (child != ROOT) {
+                indexStack[top - 1] = inputIndex;
+                visitor.enter(alphabet.getSymbol(inputIndex - 1), root.getNodeOutput(child));
+
+                if (top == nodeStack.length) {
+                    nodeStack = Arrays.copyOf(nodeStack, 2 * nodeStack.length);
+                    indexStack = Arrays.copyOf(indexStack, 2 * indexStack.length);
+                }
+                nodeStack[top] = child;
+                indexStack[top++] = 0;
+            } else {
+                top--;
+                if (top > 0) {
+                    visitor.leave();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the alphabet index of the given input.
+     *
+     * @param  input                    the input to be looked up
+     *
+     * @return                          the index of the input in {@link #alphabet}
+     *
+     * @throws IllegalArgumentException if the input is not contained in the alphabet
+     */
+    protected int inputIndex(I input) {
+        Integer inputIndex = inputIds.get(input);
+        if (inputIndex == null) {
+            throw new IllegalArgumentException("Input " + input + " is not contained in the alphabet");
+        }
+        return inputIndex;
+    }
+
+    /**
+     * Returns the child of a node for the given input index.
+     *
+     * @param  node       the id of the node
+     * @param  inputIndex the alphabet index of the input
+     *
+     * @return            the id of the child or {@link #ROOT} if there is no child
+     */
+    protected int getChildNode(int node, int inputIndex) {
+        int row = nodeRows[node];
+        return row == NO_ROW ? ROOT : childTable[row * alphabetSize + inputIndex];
+    }
+
+    /**
+     * Checks if a node has been reached through a terminating output.
+     *
+     * @param  node the id of the node
+     *
+     * @return      {@code true} if the node is terminal
+     */
+    protected boolean isTerminalNode(int node) {
+        return node != ROOT && !terminalOutputs.outputs.isEmpty()
+            && terminalOutputs.outputs.contains(getNodeOutput(node));
+    }
+
+    /**
+     * Returns the output of the edge leading to a node.
+     *
+     * @param  node the id of the node, other than the root
+     *
+     * @return      the output of the edge leading to the node
+     */
+    protected O getNodeOutput(int node) {
+        return outputTable.get(nodeOutputs[node]);
+    }
+
+    /**
+     * Creates a new child of a node for the given input index.
+     *
+     * @param  node       the id of the parent node
+     * @param  inputIndex the alphabet index of the input
+     * @param  outputId   the output id of the new edge
+     *
+     * @return            the id of the new child
+     */
+    protected int newChildNode(int node, int inputIndex, int outputId) {
+        if (nodeRows[node] == NO_ROW) {
+            if ((rowCount + 1) * alphabetSize > childTable.length) {
+                childTable = Arrays.copyOf(childTable, Math.max(2 * childTable.length, (rowCount + 1) * alphabetSize));
+            }
+            nodeRows[node] = rowCount++;
+        }
+
+        int child;
+        if (freeNodeCount > 0) {
+            child = freeNodes[--freeNodeCount];
+        } else {
+            if (nodeCount == nodeRows.length) {
+                int capacity = 2 * nodeRows.length;
+                nodeRows = Arrays.copyOf(nodeRows, capacity);
+                Arrays.fill(nodeRows, nodeCount, capacity, NO_ROW);
+                nodeOutputs = Arrays.copyOf(nodeOutputs, capacity);
+            }
+            child = nodeCount++;
+        }
+
+        nodeOutputs[child] = outputId;
+        childTable[nodeRows[node] * alphabetSize + inputIndex] = child;
+        return child;
+    }
+
+    /**
+     * Returns the id of the given output, interning it if needed.
+     *
+     * @param  output the output to be interned
+     *
+     * @return        the id of the output
+     */
+    protected int internOutput(O output) {
+        Integer outputId = outputIds.get(output);
+        if (outputId == null) {
+            outputId = outputTable.size();
+            outputTable.add(output);
+            outputIds.put(output, outputId);
+        }
+        return outputId;
+    }
+
+    /**
+     * Detaches the child of a node for the given input index and frees its subtree.
+     *
+     * @param node       the id of the parent node
+     * @param inputIndex the alphabet index of the input
+     */
+    protected void removeChildNode(int node, int inputIndex) {
+        int child = getChildNode(node, inputIndex);
+        childTable[nodeRows[node] * alphabetSize + inputIndex] = ROOT;
+        freeSubtree(child);
+    }
+
+    /**
+     * Frees the given node and all of its descendants, clearing their rows.
+     *
+     * @param node the id of the subtree root, already detached from its parent
+     */
+    protected void freeSubtree(int node) {
+        int[] stack = new int[INITIAL_CAPACITY];
+        int top = 0;
+        stack[top++] = node;
+
+        while (top > 0) {
+            int current = stack[--top];
+            int row = nodeRows[current];
+
+            if (row != NO_ROW) {
+                int offset = row * alphabetSize;
+                for (int i = offset; i < offset + alphabetSize; i++) {
+                    if (childTable[i] != ROOT) {
+                        if (top == stack.length) {
+                            stack = Arrays.copyOf(stack, 2 * stack.length);
+                        }
+                        stack[top++] = childTable[i];
+                        childTable[i] = ROOT;
+                    }
+                }
+            }
+
+            if (freeNodeCount == freeNodes.length) {
+                freeNodes = Arrays.copyOf(freeNodes, 2 * freeNodes.length);
+            }
+            freeNodes[freeNodeCount++] = current;
+        }
+    }
+}
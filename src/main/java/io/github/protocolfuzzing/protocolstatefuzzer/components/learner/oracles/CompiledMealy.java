@@ -0,0 +1,152 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import net.automatalib.automaton.concept.StateIDs;
+import net.automatalib.automaton.transducer.MealyMachine;
+import net.automatalib.word.Word;
+import net.automatalib.word.WordBuilder;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only copy of a Mealy machine, whose transitions and outputs are stored
+ * in dense tables indexed by state and input ids.
+ * <p>
+ * Compiling a hypothesis once per equivalence round makes computing its outputs
+ * a matter of array lookups, instead of walking the hypothesis through its
+ * generic interface for every test. An instance can be used by several threads
+ * at once.
+ *
+ * @param <I> the type of inputs
+ * @param <O> the type of outputs
+ */
+public class CompiledMealy<I, O> {
+
+    /** The id of the initial state, or -1 if there is none. */
+    protected int initialState;
+
+    /** The number of inputs. */
+    protected int alphabetSize;
+
+    /** The input id of each input. */
+    protected Map<I, Integer> inputIds;
+
+    /**
+     * The successor id of each transition, stored at index state id * {@link #alphabetSize}
+     * + input id, or -1 for undefined transitions.
+     */
+    protected int[] successors;
+
+    /** The output of each transition, stored at the same index as in {@link #successors}. */
+    protected List<O> outputs;
+
+    /**
+     * Constructs a new instance compiling the given Mealy machine.
+     *
+     * @param <S>     the type of states
+     * @param machine the Mealy machine to be compiled
+     * @param inputs  the inputs of the Mealy machine
+     */
+    public <S> CompiledMealy(MealyMachine<S, I, ?, O> machine, Collection<? extends I> inputs) {
+        StateIDs<S> stateIds = machine.stateIDs();
+        S init = machine.getInitialState();
+        this.initialState = init == null ? -1 : stateIds.getStateId(init);
+        this.inputIds = new HashMap<>();
+        for (I input: inputs) {
+            inputIds.putIfAbsent(input, inputIds.size());
+        }
+        this.alphabetSize = inputIds.size();
+
+        this.successors = new int[machine.size() * alphabetSize];
+        this.outputs = new ArrayList<>(Collections.nCopies(successors.length, null));
+        for (int state = 0; state < machine.size(); state++) {
+            S s = stateIds.getState(state);
+            for (Map.Entry<I, Integer> input: inputIds.entrySet()) {
+                int index = state * alphabetSize + input.getValue();
+                S succ = machine.getSuccessor(s, input.getKey());
+                successors[index] = succ == null ? -1 : stateIds.getStateId(succ);
+                if (succ != null) {
+                    outputs.set(index, machine.getOutput(s, input.getKey()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the id of the initial state.
+     *
+     * @return the id of the initial state or -1 if there is none
+     */
+    public int getInitialState() {
+        return initialState;
+    }
+
+    /**
+     * Returns the index of the transition of the given state and input.
+     *
+     * @param  state the id of the source state
+     * @param  input the input of the transition
+     *
+     * @return       the index of the transition in the tables or -1 if it is undefined
+     */
+    protected int getTransition(int state, I input) {
+        Integer inputId = inputIds.get(input);
+        if (state < 0 || inputId == null) {
+            return -1;
+        }
+        return state * alphabetSize + inputId;
+    }
+
+    /**
+     * Returns the successor of the given state and input.
+     *
+     * @param  state the id of the source state
+     * @param  input the input of the transition
+     *
+     * @return       the id of the successor or -1 if the transition is undefined
+     */
+    public int getSuccessor(int state, I input) {
+        int transition = getTransition(state, input);
+        return transition < 0 ? -1 : successors[transition];
+    }
+
+    /**
+     * Returns the output of the given state and input.
+     *
+     * @param  state the id of the source state
+     * @param  input the input of the transition
+     *
+     * @return       the output or null if the transition is undefined
+     */
+    public @Nullable O getOutput(int state, I input) {
+        int transition = getTransition(state, input);
+        return transition < 0 ? null : outputs.get(transition);
+    }
+
+    /**
+     * Computes the output of the given input from the initial state.
+     *
+     * @param  input the input to be run
+     *
+     * @return       the output, which is shorter than the input only if an
+     *                   undefined transition is reached
+     */
+    public Word<O> computeOutput(Word<I> input) {
+        WordBuilder<O> output = new WordBuilder<>(input.length());
+        int state = initialState;
+        for (I symbol: input) {
+            int transition = getTransition(state, symbol);
+            if (transition < 0 || successors[transition] < 0) {
+                break;
+            }
+            output.append(outputs.get(transition));
+            state = successors[transition];
+        }
+        return output.toWord();
+    }
+}
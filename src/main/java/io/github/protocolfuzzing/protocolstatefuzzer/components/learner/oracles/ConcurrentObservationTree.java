@@ -0,0 +1,79 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe variant of the {@link ObservationTree}, to be shared by oracles
+ * running in different threads.
+ * <p>
+ * The children and outputs of each node are stored in concurrent maps, so
+ * lookups do not lock and insertions only contend on the bins of a single
+ * node. A new branch is published atomically, so if threads race to observe
+ * the same input, exactly one output is stored. The other threads then check
+ * their outputs against it and detect any conflict. The output of an edge is
+ * read from the parent output of the child, which is set before the child is
+ * published.
+ * <p>
+ * Inputs and outputs must not be null.
+ *
+ * @param <I> the input type of the observations
+ * @param <O> the output type of the observations
+ */
+public class ConcurrentObservationTree<I, O> extends ObservationTree<I, O> {
+
+    /**
+     * Constructs a new instance using {@link #ConcurrentObservationTree(ObservationTree, Object, Object)}
+     * with null parameters.
+     */
+    public ConcurrentObservationTree() {
+        this(null, null, null);
+    }
+
+    /**
+     * Constructs a new instance from the given parameters.
+     *
+     * @param parent       the parent observation tree of this node
+     * @param parentInput  the parent input
+     * @param parentOutput the parent output
+     */
+    public ConcurrentObservationTree(ObservationTree<I, O> parent, I parentInput, O parentOutput) {
+        super(parent, parentInput, parentOutput, new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+    }
+
+    @Override
+    protected ObservationTree<I, O> createChild(I input, O output) {
+        return new ConcurrentObservationTree<>(this, input, output);
+    }
+
+    @Override
+    @Nullable protected ObservationTree<I, O> addObservationStep(I input, O output) {
+        ObservationTree<I, O> child = this.children.get(input);
+
+        if (child == null) {
+            // input hasn't been queried before, try to publish a new branch for it
+            ObservationTree<I, O> newChild = createChild(input, output);
+            child = this.children.putIfAbsent(input, newChild);
+
+            if (child == null) {
+                this.outputs.put(input, output);
+                return newChild;
+            }
+        }
+
+        // another branch is present, check the output against it
+        return child.getParentOutput().equals(output) ? child : null;
+    }
+
+    @Override
+    public void remove() {
+        if (this.parent == null) {
+            throw new RuntimeException("Cannot remove root node");
+        }
+
+        if (this.parent.children.remove(this.parentInput, this)) {
+            this.parent.outputs.remove(this.parentInput, this.parentOutput);
+        }
+    }
+}
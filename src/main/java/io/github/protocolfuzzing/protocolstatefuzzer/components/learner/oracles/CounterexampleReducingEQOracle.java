@@ -0,0 +1,318 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import de.learnlib.oracle.EquivalenceOracle;
+import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
+import de.learnlib.query.DefaultQuery;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.statistics.StatisticsTracker;
+import io.github.protocolfuzzing.protocolstatefuzzer.utils.AutomatonUtils;
+import net.automatalib.automaton.transducer.MealyMachine;
+import net.automatalib.word.Word;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Equivalence Oracle that shortens the counterexamples found by the wrapped
+ * Equivalence Oracle before they are used for refinement.
+ * <p>
+ * A counterexample is first cut after its first output that differs from the
+ * hypothesis. Then the loops it traverses in the hypothesis are removed and its
+ * prefixes are replaced by the shortest access sequences of the hypothesis
+ * states they reach, as long as the result remains a counterexample.
+ * <p>
+ * Each candidate is checked using the given sul oracle, which should answer from
+ * the cache wherever possible, e.g. by being wrapped by a {@link CachingSULOracle}.
+ * Since loops and prefixes are tried in quadratic many combinations, the number
+ * of candidates that turn out not to be counterexamples is bounded by
+ * {@link #maxRejected} per reduction, after which the counterexample reduced so
+ * far is returned.
+ *
+ * @param <I> the type of inputs
+ * @param <O> the type of outputs
+ */
+public class CounterexampleReducingEQOracle<I, O> implements EquivalenceOracle.MealyEquivalenceOracle<I, O> {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    /** The default maximum number of rejected candidates per reduction. */
+    public static final int DEFAULT_MAX_REJECTED = 200;
+
+    /** Stores the constructor parameter. */
+    protected EquivalenceOracle<MealyMachine<?, I, ?, O>, I, Word<O>> equivalenceOracle;
+
+    /** Stores the constructor parameter. */
+    protected MealyMembershipOracle<I, O> sulOracle;
+
+    /** Stores the constructor parameter. */
+    protected int maxRejected;
+
+    /** Stores the tracker to which the lengths of the reduced counterexamples are reported, or null. */
+    protected StatisticsTracker<?, ?, ?, ?> statisticsTracker;
+
+    /**
+     * Constructs a new instance from the given parameters, rejecting at most
+     * {@link #DEFAULT_MAX_REJECTED} candidates per reduction.
+     *
+     * @param equivalenceOracle the Equivalence Oracle finding the counterexamples
+     * @param sulOracle         the sul oracle checking the candidate counterexamples
+     */
+    public CounterexampleReducingEQOracle(EquivalenceOracle<MealyMachine<?, I, ?, O>, I, Word<O>> equivalenceOracle,
+        MealyMembershipOracle<I, O> sulOracle) {
+
+        this(equivalenceOracle, sulOracle, DEFAULT_MAX_REJECTED);
+    }
+
+    /**
+     * Constructs a new instance from the given parameters.
+     *
+     * @param equivalenceOracle the Equivalence Oracle finding the counterexamples
+     * @param sulOracle         the sul oracle checking the candidate counterexamples
+     * @param maxRejected       the maximum number of candidates per reduction
+     *                              that may turn out not to be counterexamples
+     */
+    public CounterexampleReducingEQOracle(EquivalenceOracle<MealyMachine<?, I, ?, O>, I, Word<O>> equivalenceOracle,
+        MealyMembershipOracle<I, O> sulOracle, int maxRejected) {
+
+        this.equivalenceOracle = equivalenceOracle;
+        this.sulOracle = sulOracle;
+        this.maxRejected = maxRejected;
+    }
+
+    /**
+     * Sets the tracker to which the lengths of the reduced counterexamples are reported.
+     *
+     * @param statisticsTracker the statistics tracker to be used
+     */
+    public void setStatisticsTracker(StatisticsTracker<?, ?, ?, ?> statisticsTracker) {
+        this.statisticsTracker = statisticsTracker;
+    }
+
+    /**
+     * Finds a counterexample using the wrapped Equivalence Oracle and reduces it.
+     *
+     * @param  hypothesis the hypothesis to be searched
+     * @param  inputs     the inputs to be used
+     *
+     * @return            the reduced counterexample or null
+     */
+    @Override
+    public @Nullable DefaultQuery<I, Word<O>> findCounterExample(
+        MealyMachine<?, I, ?, O> hypothesis, Collection<? extends I> inputs) {
+
+        DefaultQuery<I, Word<O>> counterexample = equivalenceOracle.findCounterExample(hypothesis, inputs);
+        if (counterexample == null) {
+            return null;
+        }
+
+        DefaultQuery<I, Word<O>> reduced = reduce(hypothesis, inputs, counterexample);
+        int originalLength = counterexample.getInput().length();
+        int reducedLength = reduced.getInput().length();
+        LOGGER.info("Reduced counterexample from {} to {} inputs", originalLength, reducedLength);
+
+        if (statisticsTracker != null) {
+            statisticsTracker.newReducedCounterExample(originalLength, reducedLength);
+        }
+        return reduced;
+    }
+
+    /**
+     * Reduces the given counterexample of the hypothesis.
+     *
+     * @param  hypothesis     the hypothesis refuted by the counterexample
+     * @param  inputs         the inputs of the hypothesis
+     * @param  counterexample the counterexample to be reduced
+     *
+     * @return                the reduced counterexample, which is answered in full
+     */
+    protected DefaultQuery<I, Word<O>> reduce(MealyMachine<?, I, ?, O> hypothesis, Collection<? extends I> inputs,
+        DefaultQuery<I, Word<O>> counterexample) {
+
+        Word<I> input = counterexample.getInput();
+        Word<O> output = counterexample.getPrefix().isEmpty()
+            ? counterexample.getOutput()
+            : sulOracle.answerQuery(input);
+
+        DefaultQuery<I, Word<O>> current = truncate(hypothesis, input, output);
+        if (current == null) {
+            // the counterexample was not reproduced, thus it is returned as it is
+            return counterexample;
+        }
+
+        // the candidates that are not counterexamples, so that they are not checked again
+        Set<Word<I>> rejected = new HashSet<>();
+        DefaultQuery<I, Word<O>> next;
+
+        do {
+            next = removeLoop(hypothesis, current.getInput(), rejected);
+            if (next == null) {
+                next = replacePrefix(hypothesis, inputs, current.getInput(), rejected);
+            }
+            if (next != null) {
+                current = next;
+            }
+        } while (next != null);
+
+        if (rejected.size() >= maxRejected) {
+            LOGGER.debug("Stopped reducing counterexample after {} rejected candidates", rejected.size());
+        }
+        return current;
+    }
+
+    /**
+     * Removes the first loop of the hypothesis traversed by the input whose
+     * removal leaves a counterexample, trying the longest loops first.
+     *
+     * @param  hypothesis the hypothesis refuted by the input
+     * @param  input      the input to be reduced
+     * @param  rejected   the candidates known not to be counterexamples
+     *
+     * @return            the reduced counterexample or null if no loop can be removed
+     */
+    protected @Nullable DefaultQuery<I, Word<O>> removeLoop(MealyMachine<?, I, ?, O> hypothesis, Word<I> input,
+        Set<Word<I>> rejected) {
+
+        List<?> states = stateTrace(hypothesis, input);
+        for (int i = 0; i < input.length(); i++) {
+            for (int j = input.length(); j > i; j--) {
+                if (Objects.equals(states.get(i), states.get(j))) {
+                    DefaultQuery<I, Word<O>> candidate = check(hypothesis,
+                        input.prefix(i).concat(input.subWord(j)), rejected);
+                    if (candidate != null) {
+                        return candidate;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replaces the longest prefix of the input that is longer than the shortest
+     * access sequence of the hypothesis state it reaches with this access
+     * sequence, provided that the result remains a counterexample.
+     *
+     * @param  hypothesis the hypothesis refuted by the input
+     * @param  inputs     the inputs of the hypothesis
+     * @param  input      the input to be reduced
+     * @param  rejected   the candidates known not to be counterexamples
+     *
+     * @return            the reduced counterexample or null if no prefix can be replaced
+     */
+    protected @Nullable DefaultQuery<I, Word<O>> replacePrefix(MealyMachine<?, I, ?, O> hypothesis,
+        Collection<? extends I> inputs, Word<I> input, Set<Word<I>> rejected) {
+
+        List<Word<I>> accessSequences = accessSequences(hypothesis, inputs, input);
+        for (int i = input.length() - 1; i > 0; i--) {
+            Word<I> accessSequence = accessSequences.get(i);
+            if (accessSequence.length() < i) {
+                DefaultQuery<I, Word<O>> candidate = check(hypothesis,
+                    accessSequence.concat(input.subWord(i)), rejected);
+                if (candidate != null) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the given candidate is a counterexample of the hypothesis.
+     *
+     * @param  hypothesis the hypothesis to be refuted
+     * @param  candidate  the candidate counterexample
+     * @param  rejected   the candidates known not to be counterexamples, to
+     *                        which the candidate is added if it is not one
+     *
+     * @return            the candidate cut after its first divergent output
+     *                        or null if it is not a counterexample or
+     *                        {@link #maxRejected} candidates have been rejected
+     */
+    protected @Nullable DefaultQuery<I, Word<O>> check(MealyMachine<?, I, ?, O> hypothesis, Word<I> candidate,
+        Set<Word<I>> rejected) {
+
+        if (candidate.isEmpty() || rejected.size() >= maxRejected || rejected.contains(candidate)) {
+            return null;
+        }
+
+        DefaultQuery<I, Word<O>> counterexample = truncate(hypothesis, candidate, sulOracle.answerQuery(candidate));
+        if (counterexample == null) {
+            rejected.add(candidate);
+        }
+        return counterexample;
+    }
+
+    /**
+     * Cuts the input after its first output that differs from the hypothesis.
+     *
+     * @param  hypothesis the hypothesis to be refuted
+     * @param  input      the input to be cut
+     * @param  output     the output of the sul to the input
+     *
+     * @return            the cut counterexample or null if the outputs do not differ
+     */
+    protected @Nullable DefaultQuery<I, Word<O>> truncate(MealyMachine<?, I, ?, O> hypothesis, Word<I> input,
+        Word<O> output) {
+
+        Word<O> hypOutput = hypothesis.computeOutput(input);
+        for (int i = 0; i < output.length() && i < hypOutput.length(); i++) {
+            if (!output.getSymbol(i).equals(hypOutput.getSymbol(i))) {
+                return new DefaultQuery<>(input.prefix(i + 1), output.prefix(i + 1));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the hypothesis states reached by each prefix of the input.
+     *
+     * @param  <S>        the type of states
+     * @param  <I>        the type of inputs
+     * @param  hypothesis the hypothesis to be traversed
+     * @param  input      the input to be traversed
+     *
+     * @return            the states reached by the prefixes, in order of length
+     */
+    protected static <S, I> List<S> stateTrace(MealyMachine<S, I, ?, ?> hypothesis, Word<I> input) {
+        List<S> states = new ArrayList<>(input.length() + 1);
+        S state = hypothesis.getInitialState();
+        states.add(state);
+        for (I symbol: input) {
+            state = hypothesis.getSuccessor(state, symbol);
+            states.add(state);
+        }
+        return states;
+    }
+
+    /**
+     * Returns the shortest access sequences of the hypothesis states reached by
+     * each prefix of the input.
+     *
+     * @param  <S>        the type of states
+     * @param  <I>        the type of inputs
+     * @param  hypothesis the hypothesis to be traversed
+     * @param  inputs     the inputs of the hypothesis
+     * @param  input      the input to be traversed
+     *
+     * @return            the access sequences, in order of prefix length
+     */
+    protected static <S, I> List<Word<I>> accessSequences(MealyMachine<S, I, ?, ?> hypothesis,
+        Collection<? extends I> inputs, Word<I> input) {
+
+        Map<S, Word<I>> shortest = AutomatonUtils.accessSequences(hypothesis, inputs);
+        List<Word<I>> accessSequences = new ArrayList<>(input.length() + 1);
+        int i = 0;
+        for (S state: stateTrace(hypothesis, input)) {
+            accessSequences.add(shortest.getOrDefault(state, input.prefix(i)));
+            i++;
+        }
+        return accessSequences;
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
+import de.learnlib.query.DefaultQuery;
+import de.learnlib.sul.SUL;
+import net.automatalib.word.Word;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Collections;
+import java.util.Objects;
+
+/**
+ * Runs equivalence tests and checks their outputs against a {@link CompiledMealy}
+ * hypothesis.
+ * <p>
+ * Without a sul, each test is answered by the sul oracle and its output is
+ * compared to the one of the hypothesis.
+ * <p>
+ * With a sul, each test is run on the sul one step at a time and each output
+ * is checked against the hypothesis as soon as it is received. The test is
+ * stopped at the first mismatch, so that the rest of the test is not run.
+ * Only the prefix up to the mismatch is then answered by the sul oracle, so
+ * that the counterexample passes through its wrappers, e.g. for sanitization
+ * and caching. Tests that pass are not seen by the sul oracle at all.
+ * <p>
+ * The sul should be the one wrapped by the sul oracle, and the executor should
+ * not be used concurrently with the oracle.
+ *
+ * @param <I> the type of inputs
+ * @param <O> the type of outputs
+ */
+public class HypothesisTestExecutor<I, O> {
+
+    /** Stores the constructor parameter. */
+    protected MealyMembershipOracle<I, O> sulOracle;
+
+    /** Stores the constructor parameter. */
+    @Nullable protected SUL<I, O> sul;
+
+    /**
+     * Constructs a new instance from the given parameter, answering each test
+     * by the sul oracle.
+     *
+     * @param sulOracle the sul oracle answering the tests
+     */
+    public HypothesisTestExecutor(MealyMembershipOracle<I, O> sulOracle) {
+        this(sulOracle, null);
+    }
+
+    /**
+     * Constructs a new instance from the given parameters.
+     *
+     * @param sulOracle the sul oracle answering the tests or their failing prefixes
+     * @param sul       the sul on which tests are run step by step, or null
+     *                      to answer each test by the sul oracle
+     */
+    public HypothesisTestExecutor(MealyMembershipOracle<I, O> sulOracle, @Nullable SUL<I, O> sul) {
+        this.sulOracle = sulOracle;
+        this.sul = sul;
+    }
+
+    /**
+     * Runs the given test and checks it against the given hypothesis.
+     *
+     * @param  hypothesis the compiled hypothesis
+     * @param  test       the test to be run
+     *
+     * @return            the counterexample found by the test or null if the
+     *                        outputs agree with the hypothesis
+     */
+    public @Nullable DefaultQuery<I, Word<O>> runTest(CompiledMealy<I, O> hypothesis, Word<I> test) {
+        Word<I> input = test;
+        if (sul != null) {
+            // the current hypothesis state and whether a mismatch was found
+            int[] state = {hypothesis.getInitialState()};
+            boolean[] mismatch = {false};
+            Word<O> output = MultipleRunsSULOracle.runWhileAccepted(sul, test, (symbol, received) -> {
+                mismatch[0] = !Objects.equals(received, hypothesis.getOutput(state[0], symbol));
+                state[0] = hypothesis.getSuccessor(state[0], symbol);
+                return !mismatch[0];
+            });
+
+            if (!mismatch[0]) {
+                return null;
+            }
+            // the failing prefix is checked again through the oracle
+            input = test.prefix(output.length());
+        }
+
+        DefaultQuery<I, Word<O>> query = new DefaultQuery<>(input);
+        sulOracle.processQueries(Collections.singleton(query));
+        return Objects.equals(hypothesis.computeOutput(input), query.getOutput()) ? null : query;
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
+import de.learnlib.query.Query;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.statistics.Histogram;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.statistics.MetricsRegistry;
+import net.automatalib.word.Word;
+
+import java.util.Collection;
+
+/**
+ * Measures the length and the latency of the queries that it forwards to the
+ * wrapped oracle.
+ * <p>
+ * The queries are forwarded one at a time and recorded to the histograms
+ * {@code <layer>.executions.length} and {@code <layer>.executions.latencyNanos}
+ * of the given registry, where the layer identifies the oracle chain, such as
+ * the one of the learner or of an equivalence thread.
+ *
+ * @param <I> the type of inputs
+ * @param <O> the type of outputs
+ */
+public class MetricsSULOracle<I, O> implements MealyMembershipOracle<I, O> {
+
+    /** Stores the constructor parameter. */
+    protected MealyMembershipOracle<I, O> sulOracle;
+
+    /** The histogram of the lengths of the forwarded queries. */
+    protected Histogram lengths;
+
+    /** The histogram of the latencies of the forwarded queries. */
+    protected Histogram latencies;
+
+    /**
+     * Constructs a new instance from the given parameters.
+     *
+     * @param sulOracle the sul oracle to be wrapped
+     * @param registry  the registry of the histograms
+     * @param layer     the name of the oracle chain, used as prefix of the histograms
+     */
+    public MetricsSULOracle(MealyMembershipOracle<I, O> sulOracle, MetricsRegistry registry, String layer) {
+        this.sulOracle = sulOracle;
+        this.lengths = registry.histogram(layer + ".executions.length");
+        this.latencies = registry.histogram(layer + ".executions.latencyNanos");
+    }
+
+    /**
+     * Processes the provided queries one at a time using the stored {@link #sulOracle}
+     * and records the length and the latency of each query.
+     *
+     * @param queries the queries to be processed
+     */
+    @Override
+    public void processQueries(Collection<? extends Query<I, Word<O>>> queries) {
+        for (Query<I, Word<O>> query: queries) {
+            long start = System.nanoTime();
+            try {
+                sulOracle.processQuery(query);
+            }
+            finally {
+                latencies.record(System.nanoTime() - start);
+                lengths.record(query.getPrefix().length() + query.getSuffix().length());
+            }
+        }
+    }
+}
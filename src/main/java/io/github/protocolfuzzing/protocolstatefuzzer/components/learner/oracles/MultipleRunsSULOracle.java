@@ -2,25 +2,41 @@ package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles
 
 import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
 import de.learnlib.query.Query;
+import de.learnlib.sul.SUL;
 import io.github.protocolfuzzing.protocolstatefuzzer.statefuzzer.testrunner.core.TestRunner;
 import io.github.protocolfuzzing.protocolstatefuzzer.statefuzzer.testrunner.core.TestRunnerResult;
 import net.automatalib.word.Word;
+import net.automatalib.word.WordBuilder;
 
 import java.io.PrintWriter;
 import java.io.Writer;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.Map.Entry;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.function.BiPredicate;
 
 /**
  * Executes each query multiple times in order to handle non-determinism
  * and in case the runs result in different outputs it can perform probabilistic sanitization.
  * <p>
  * Probabilistic sanitization entails running the query many times and
- * computing the answer with the highest likelihood. If the likelihood is
- * greater than a threshold the answer is returned otherwise {@link NonDeterminismException} is
- * thrown.
+ * computing the answer with the highest likelihood. After each run, the
+ * {@link ProbabilisticDecisionRule} decides whether the answer is returned, the
+ * query is run again or {@link NonDeterminismException} is thrown.
+ * <p>
+ * If a {@link SULOraclePool} is set, the runs of a query are spread over its
+ * oracles instead of being performed one after another on the wrapped oracle.
+ * <p>
+ * If an {@link AdaptiveRunsPolicy} is set, each query is run as many times as
+ * the policy decides, up to {@link #runs}, and the non-determinism observed is
+ * reported to the policy.
+ * <p>
+ * If a {@link NonDeterminismIndex} is set, the inputs that show non-determinism
+ * are recorded in it, together with their observed outputs.
  * <p>
  * This oracle provides a foundation for other oracles that want to re-run queries.
  *
@@ -30,16 +46,16 @@ import java.util.Map.Entry;
 public class MultipleRunsSULOracle<I, O> implements MealyMembershipOracle<I, O> {
 
     /** Minimum multiplier for {@link #runs} used in probabilistic sanitization. */
-    protected static final int PROBABILISTIC_MIN_MULTIPLIER = 2;
+    public static final int PROBABILISTIC_MIN_MULTIPLIER = 2;
 
     /** Maximum multiplier for {@link #runs} used in probabilistic sanitization. */
     protected static final int PROBABILISTIC_MAX_MULTIPLIER = 7;
 
     /** Acceptable threshold percentage for an answer after multiple runs. */
-    protected static final double ACCEPTABLE_PROBABILISTIC_THRESHOLD = 0.8;
+    public static final double ACCEPTABLE_PROBABILISTIC_THRESHOLD = 0.8;
 
     /** Passable threshold percentage (less than acceptable) for an answer after multiple runs. */
-    protected static final double PASSABLE_PROBABILISTIC_THRESHOLD = 0.4;
+    public static final double PASSABLE_PROBABILISTIC_THRESHOLD = 0.4;
 
     /** Stores the constructor parameter. */
     protected MealyMembershipOracle<I, O> sulOracle;
@@ -53,6 +69,18 @@ public class MultipleRunsSULOracle<I, O> implements MealyMembershipOracle<I, O>
     /** Stores the constructor parameter. */
     protected boolean probabilisticSanitization;
 
+    /** The rule deciding the outcome of probabilistic sanitization. */
+    protected ProbabilisticDecisionRule decisionRule;
+
+    /** The pool of oracles used for the runs, or null if the runs use the {@link #sulOracle}. */
+    protected SULOraclePool<I, O> pool;
+
+    /** The policy deciding the runs of each query, or null if each query is run {@link #runs} times. */
+    protected AdaptiveRunsPolicy<I> runsPolicy;
+
+    /** The index recording the non-deterministic inputs, or null if they are not recorded. */
+    protected NonDeterminismIndex<I, O> nonDetIndex;
+
     /**
      * Constructs a new instance from the given parameters.
      *
@@ -67,6 +95,50 @@ public class MultipleRunsSULOracle<I, O> implements MealyMembershipOracle<I, O>
         this.runs = runs;
         this.probabilisticSanitization = probabilisticSanitization;
         this.printWriter = new PrintWriter(writer);
+        this.decisionRule = new ThresholdDecisionRule(runs * PROBABILISTIC_MIN_MULTIPLIER,
+            ACCEPTABLE_PROBABILISTIC_THRESHOLD, PASSABLE_PROBABILISTIC_THRESHOLD);
+    }
+
+    /**
+     * Sets the rule deciding the outcome of probabilistic sanitization, which
+     * is by default a {@link ThresholdDecisionRule} using {@link #PROBABILISTIC_MIN_MULTIPLIER},
+     * {@link #ACCEPTABLE_PROBABILISTIC_THRESHOLD} and {@link #PASSABLE_PROBABILISTIC_THRESHOLD}.
+     *
+     * @param decisionRule the rule to be used
+     */
+    public void setDecisionRule(ProbabilisticDecisionRule decisionRule) {
+        this.decisionRule = decisionRule;
+    }
+
+    /**
+     * Sets the pool of oracles over which the runs of a query are spread.
+     * <p>
+     * The oracles of the pool should answer queries the same way as the
+     * {@link #sulOracle}, each using a different sul instance.
+     *
+     * @param pool the pool to be used
+     */
+    public void setPool(SULOraclePool<I, O> pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Sets the policy deciding how many times each query is run, up to {@link #runs}
+     * times, and to which the observed non-determinism is reported.
+     *
+     * @param runsPolicy the policy to be used
+     */
+    public void setRunsPolicy(AdaptiveRunsPolicy<I> runsPolicy) {
+        this.runsPolicy = runsPolicy;
+    }
+
+    /**
+     * Sets the index in which the inputs that show non-determinism are recorded.
+     *
+     * @param nonDetIndex the index to be used
+     */
+    public void setNonDeterminismIndex(NonDeterminismIndex<I, O> nonDetIndex) {
+        this.nonDetIndex = nonDetIndex;
     }
 
     /**
@@ -82,16 +154,58 @@ public class MultipleRunsSULOracle<I, O> implements MealyMembershipOracle<I, O>
     }
 
     /**
-     * Processes the given query using {@link #getMultipleRunOutput}.
+     * Processes the given query using {@link #getMultipleRunOutput(Word, int)},
+     * with the number of runs decided by the {@link #runsPolicy} if it is set.
      *
      * @param query the query to be processed
      */
     @Override
     public void processQuery(Query<I, Word<O>> query) {
-        Word<O> output = getMultipleRunOutput(query.getInput());
+        Word<I> input = query.getInput();
+        Word<O> output;
+
+        if (runsPolicy == null) {
+            output = getMultipleRunOutput(input);
+        } else {
+            output = getMultipleRunOutput(input, runsPolicy.getRuns(input, runs));
+            runsPolicy.recordRun(input);
+        }
         query.answer(output.suffix(query.getSuffix().length()));
     }
 
+    /**
+     * Executes the given input on the sul one step at a time, checking each
+     * output as soon as it is received and aborting the execution on the first
+     * output that is not accepted.
+     *
+     * @param  <I>      the type of inputs
+     * @param  <O>      the type of outputs
+     * @param  sul      the sul to be used
+     * @param  input    the input to be executed
+     * @param  accepted the check of each input and its received output
+     *
+     * @return          the received outputs, which are fewer than the inputs
+     *                      only if the execution was aborted
+     */
+    protected static <I, O> Word<O> runWhileAccepted(SUL<I, O> sul, Word<I> input, BiPredicate<I, O> accepted) {
+        WordBuilder<O> outputBuilder = new WordBuilder<>(input.length());
+        sul.pre();
+        try {
+            for (I symbol: input) {
+                O output = sul.step(symbol);
+                outputBuilder.append(output);
+
+                if (!accepted.test(symbol, output)) {
+                    break;
+                }
+            }
+        }
+        finally {
+            sul.post();
+        }
+        return outputBuilder.toWord();
+    }
+
     /**
      * Runs an input {@link #runs} times and also performs probabilistic sanitization if
      * multiple different answers are received and {@link #probabilisticSanitization} enables it.
@@ -106,16 +220,41 @@ public class MultipleRunsSULOracle<I, O> implements MealyMembershipOracle<I, O>
      *                                     but fails to find an answer
      */
     protected Word<O> getMultipleRunOutput(Word<I> input) throws NonDeterminismException {
-        TestRunnerResult<Word<I>, Word<O>> result = TestRunner.runTest(input, runs, sulOracle);
+        return getMultipleRunOutput(input, runs);
+    }
+
+    /**
+     * Runs an input the given number of times and also performs probabilistic sanitization if
+     * multiple different answers are received and {@link #probabilisticSanitization} enables it.
+     * <p>
+     * The non-determinism of the answers is reported using {@link #recordNonDeterminism}.
+     *
+     * @param  input                   the input to be used
+     * @param  times                   the number of runs
+     *
+     * @return                         the single output that corresponds to the input
+     *
+     * @throws NonDeterminismException if multiple different answers are received
+     *                                     and probabilistic sanitization is disabled
+     *                                     or if probabilistic sanitization is performed
+     *                                     but fails to find an answer
+     */
+    protected Word<O> getMultipleRunOutput(Word<I> input, int times) throws NonDeterminismException {
+        TestRunnerResult<Word<I>, Word<O>> result = pool == null
+            ? TestRunner.runTest(input, times, sulOracle)
+            : TestRunner.runTest(input, times, pool);
         Iterator<Word<O>> outputIter = result.getGeneratedOutputs().keySet().iterator();
 
         if (result.getGeneratedOutputs().size() > 1) {
-            printWriter.println("Non determinism when running test multiple times");
-            printWriter.write(result.toString());
+            printWriter.printf("Non determinism when running test multiple times%n%s", result);
             printWriter.flush();
 
+            NonDeterminismException nonDeterminism = new NonDeterminismException(input, outputIter.next(),
+                outputIter.next()).makeCompact();
+            recordNonDeterminism(input, nonDeterminism.getOldOutput().length() - 1, result.getGeneratedOutputs());
+
             if (!probabilisticSanitization) {
-                throw new NonDeterminismException(input, outputIter.next(), outputIter.next()).makeCompact();
+                throw nonDeterminism;
             }
 
             // use probabilistic sanitization
@@ -126,68 +265,101 @@ public class MultipleRunsSULOracle<I, O> implements MealyMembershipOracle<I, O>
         return outputIter.next();
     }
 
+    /**
+     * Reports non-determinism shown by the given input to the {@link #runsPolicy}
+     * and the {@link #nonDetIndex}, if they are set.
+     *
+     * @param input   the non-deterministic input
+     * @param index   the index of the first non-deterministic output
+     * @param outputs the number of runs per observed output of the input
+     */
+    protected void recordNonDeterminism(Word<I> input, int index, Map<Word<O>, Integer> outputs) {
+        if (runsPolicy != null) {
+            runsPolicy.recordNonDeterminism(input, index);
+        }
+
+        if (nonDetIndex != null) {
+            Word<I> unstableInput = input.prefix(index + 1);
+            for (Map.Entry<Word<O>, Integer> output: outputs.entrySet()) {
+                nonDetIndex.record(unstableInput, output.getKey().prefix(index + 1), output.getValue());
+            }
+        }
+    }
+
     /**
      * Runs an input many times and returns the most probable answer.
      * <p>
      * Specifically:
      * <ul>
      * <li>Runs the input at most {@link #runs} * {@link #PROBABILISTIC_MAX_MULTIPLIER} times
-     * <li>Checks the likelihood of the most common answer every time after {@link #runs} *
-     * {@link #PROBABILISTIC_MIN_MULTIPLIER} times
-     * <li>If the most common answer has likelihood over {@link #ACCEPTABLE_PROBABILISTIC_THRESHOLD}
-     * then it is returned
-     * <li>But if the most common answer has likelihood only over
-     * {@link #PASSABLE_PROBABILISTIC_THRESHOLD} then the process continues
+     * <li>Keeps track of the most common answer while counting the answers
+     * <li>After each run, returns the most common answer if the {@link #decisionRule} accepts it
+     * <li>Stops as soon as the {@link #decisionRule} rejects it
      * </ul>
+     * <p>
+     * If a {@link #pool} is set, the runs that are not needed once the decision
+     * is made are cancelled, and the ones that have started are waited for.
      *
      * @param  input                   the input to be used
      *
      * @return                         the single output that corresponds to the input
      *
      * @throws NonDeterminismException if no acceptable answer can be found or
-     *                                     if the most common answer has likelihood (anytime)
-     *                                     below {@link #PASSABLE_PROBABILISTIC_THRESHOLD}
+     *                                     if the {@link #decisionRule} rejects
+     *                                     the most common answer
      */
     protected Word<O> getProbabilisticOutput(Word<I> input) throws NonDeterminismException {
         printWriter.println("Performing probabilistic sanitization");
         printWriter.flush();
 
         LinkedHashMap<Word<O>, Integer> frequencyMap = new LinkedHashMap<>();
+        Word<O> mostCommonAnswer = null;
+        int mostCommonCount = 0;
+        Deque<Future<Word<O>>> pendingAnswers = new ArrayDeque<>();
 
-        for (int i = 0; i < runs * PROBABILISTIC_MAX_MULTIPLIER; i++) {
-            Word<O> answer = sulOracle.answerQuery(input);
+        try {
+            for (int i = 0; i < runs * PROBABILISTIC_MAX_MULTIPLIER; i++) {
+                Word<O> answer;
+                if (pool == null) {
+                    answer = sulOracle.answerQuery(input);
+                } else {
+                    // runs are submitted in rounds as large as the pool
+                    if (pendingAnswers.isEmpty()) {
+                        pendingAnswers.addAll(pool.submitRuns(input,
+                            Math.min(pool.size(), runs * PROBABILISTIC_MAX_MULTIPLIER - i)));
+                    }
+                    answer = SULOraclePool.await(pendingAnswers.poll());
+                }
 
-            // update frequency map
-            if (!frequencyMap.containsKey(answer)) {
-                frequencyMap.put(answer, 1);
-            } else {
-                frequencyMap.put(answer, frequencyMap.get(answer) + 1);
-            }
+                // update frequency map and most common answer
+                int count = frequencyMap.merge(answer, 1, Integer::sum);
+                if (count > mostCommonCount) {
+                    mostCommonAnswer = answer;
+                    mostCommonCount = count;
+                }
 
-            // after running enough tests, we can check whether we can return an acceptable answer
-            if (i >= runs * PROBABILISTIC_MIN_MULTIPLIER) {
-                Entry<Word<O>, Integer> mostCommonEntry = frequencyMap.entrySet().stream().max(Entry.comparingByValue())
-                    .orElseThrow();
-                double likelihood = (double) mostCommonEntry.getValue() / (i + 1);
-                printWriter.println("Most likely answer has likelihood " + likelihood + " after " + (i + 1) + " runs");
+                ProbabilisticDecisionRule.Decision decision = decisionRule.decide(mostCommonCount, i + 1);
 
-                if (likelihood >= ACCEPTABLE_PROBABILISTIC_THRESHOLD) {
-                    printWriter.println("Answer deemed to be in acceptable range, returning answer");
+                if (decision == ProbabilisticDecisionRule.Decision.ACCEPT) {
+                    printWriter.println("Most likely answer has likelihood " + (double) mostCommonCount / (i + 1)
+                        + " after " + (i + 1) + " runs, returning answer");
                     printWriter.flush();
-                    return mostCommonEntry.getKey();
+                    return mostCommonAnswer;
                 }
 
-                if (likelihood >= PASSABLE_PROBABILISTIC_THRESHOLD) {
-                    printWriter.println("Answer deemed to be in passable range, continuing execution");
-                    continue;
+                if (decision == ProbabilisticDecisionRule.Decision.REJECT) {
+                    printWriter.println("Most likely answer has likelihood " + (double) mostCommonCount / (i + 1)
+                        + " after " + (i + 1) + " runs, which is not acceptable");
+                    printWriter.flush();
+                    Iterator<Word<O>> outputIter = frequencyMap.keySet().iterator();
+                    throw new NonDeterminismException(input, outputIter.next(), outputIter.next()).makeCompact();
                 }
-
-                // Neither in acceptable not in passable range
-                printWriter.flush();
-                Iterator<Word<O>> outputIter = frequencyMap.keySet().iterator();
-                throw new NonDeterminismException(input, outputIter.next(), outputIter.next()).makeCompact();
             }
         }
+        finally {
+            // the runs that are not needed anymore are stopped before the suls are used again
+            SULOraclePool.cancel(pendingAnswers);
+        }
 
         // TODO NonDeterminismException should carry multiple outputs
         // exhausted the number of tests, without having found an acceptable answer
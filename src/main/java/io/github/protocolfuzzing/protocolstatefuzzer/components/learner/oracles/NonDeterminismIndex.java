@@ -0,0 +1,402 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import net.automatalib.word.Word;
+import net.automatalib.word.WordBuilder;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Index of the inputs known to be non-deterministic, stored as a prefix trie,
+ * together with the distribution of the outputs observed for each of them.
+ * <p>
+ * An input is unstable if it has shown different outputs, and any input
+ * extending an unstable input may show different outputs as well. Oracles can
+ * check the index before running a query, in order to route such queries to
+ * repeated runs or skip them without rediscovering their non-determinism.
+ * <p>
+ * The index can be written to a text file and read back in a later run. Each
+ * unstable input is written as a line starting with {@code I} and the number of
+ * its symbols, followed by one line per observed output, starting with
+ * {@code O}, the number of runs and the number of symbols of the output.
+ * Fields are separated by tabs. Symbols are written using their string form,
+ * in which backslashes, tabs and line breaks are escaped. If an output decoder
+ * is given, the outputs with symbols that it does not rebuild equal to
+ * themselves, such as outputs carrying the concrete messages of the SUL, are
+ * left out, so that the distributions read back only contain outputs equal to
+ * live ones. Their input is still written and read back as unstable.
+ * <p>
+ * The index can be shared by oracles used from different threads.
+ *
+ * @param <I> the type of inputs
+ * @param <O> the type of outputs
+ */
+public class NonDeterminismIndex<I, O> {
+
+    /** The tag of the lines with the unstable inputs. */
+    protected static final String INPUT_TAG = "I";
+
+    /** The tag of the lines with the observed outputs. */
+    protected static final String OUTPUT_TAG = "O";
+
+    /** The separator of the fields in a line. */
+    protected static final String SEPARATOR = "\t";
+
+    /** The root of the trie, which corresponds to the empty input. */
+    protected Node<I, O> root;
+
+    /** The number of unstable inputs in the index. */
+    protected int size;
+
+    /**
+     * A node of the trie.
+     *
+     * @param <I> the type of inputs
+     * @param <O> the type of outputs
+     */
+    protected static class Node<I, O> {
+
+        /** The children of the node, reached by each input symbol. */
+        protected Map<I, Node<I, O>> children = new HashMap<>();
+
+        /** The number of runs per observed output, or null if the input of the node is not unstable. */
+        protected Map<Word<O>, Integer> outputs;
+    }
+
+    /**
+     * Constructs a new empty instance.
+     */
+    public NonDeterminismIndex() {
+        this.root = new Node<>();
+        this.size = 0;
+    }
+
+    /**
+     * Records that the given input has shown the given output in the given
+     * number of runs, marking the input as unstable.
+     *
+     * @param  input                    the unstable input
+     * @param  output                   the observed output of the input
+     * @param  runs                     the number of runs that showed the output
+     *
+     * @throws IllegalArgumentException if the input is empty, since the empty
+     *                                      input cannot show different outputs
+     */
+    public synchronized void record(Word<I> input, Word<O> output, int runs) {
+        unstableNode(input).outputs.merge(output, runs, Integer::sum);
+    }
+
+    /**
+     * Marks the given input as unstable and returns its node.
+     *
+     * @param  input                    the unstable input
+     *
+     * @return                          the node of the input, whose outputs are not null
+     *
+     * @throws IllegalArgumentException if the input is empty
+     */
+    protected Node<I, O> unstableNode(Word<I> input) {
+        if (input.isEmpty()) {
+            throw new IllegalArgumentException("The empty input cannot be unstable");
+        }
+
+        Node<I, O> node = root;
+        for (I symbol: input) {
+            node = node.children.computeIfAbsent(symbol, s -> new Node<>());
+        }
+
+        if (node.outputs == null) {
+            node.outputs = new LinkedHashMap<>();
+            size++;
+        }
+        return node;
+    }
+
+    /**
+     * Returns the shortest prefix of the given input that is unstable.
+     *
+     * @param  input the input to be checked
+     *
+     * @return       the shortest unstable prefix or null if the input has none
+     */
+    public synchronized @Nullable Word<I> findUnstablePrefix(Word<I> input) {
+        Node<I, O> node = root;
+        for (int i = 0; i < input.length(); i++) {
+            node = node.children.get(input.getSymbol(i));
+            if (node == null) {
+                return null;
+            }
+            if (node.outputs != null) {
+                return input.prefix(i + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of runs per observed output of the given input.
+     *
+     * @param  input the input to be looked up
+     *
+     * @return       a copy of the distribution of the outputs, which is
+     *                   empty if the input is not unstable
+     */
+    public synchronized Map<Word<O>, Integer> getOutputDistribution(Word<I> input) {
+        Node<I, O> node = root;
+        for (I symbol: input) {
+            node = node.children.get(symbol);
+            if (node == null) {
+                return new LinkedHashMap<>();
+            }
+        }
+        return node.outputs == null ? new LinkedHashMap<>() : new LinkedHashMap<>(node.outputs);
+    }
+
+    /**
+     * Returns the number of unstable inputs in the index.
+     *
+     * @return the number of unstable inputs
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Writes all unstable inputs and their output distributions to the given writer.
+     *
+     * @param  writer      the writer to be used
+     *
+     * @throws IOException if the writer cannot be written
+     */
+    public void write(Writer writer) throws IOException {
+        write(writer, null);
+    }
+
+    /**
+     * Writes all unstable inputs and their output distributions to the given
+     * writer, leaving out the outputs that cannot be read back.
+     *
+     * @param  writer        the writer to be used
+     * @param  outputDecoder the function that rebuilds an output from its
+     *                           string form, or null to write all outputs
+     *
+     * @throws IOException   if the writer cannot be written
+     */
+    public synchronized void write(Writer writer, @Nullable Function<String, O> outputDecoder) throws IOException {
+        PrintWriter printWriter = new PrintWriter(writer);
+        write(printWriter, root, new ArrayList<>(), outputDecoder);
+        printWriter.flush();
+        if (printWriter.checkError()) {
+            throw new IOException("Could not write the non-determinism index");
+        }
+    }
+
+    /**
+     * Writes the unstable inputs in the subtree of the given node.
+     *
+     * @param printWriter   the writer to be used
+     * @param node          the root of the subtree
+     * @param input         the input of the node, which is restored before returning
+     * @param outputDecoder the function that rebuilds an output from its string
+     *                          form, or null to write all outputs
+     */
+    protected void write(PrintWriter printWriter, Node<I, O> node, List<I> input,
+        @Nullable Function<String, O> outputDecoder) {
+
+        if (node.outputs != null) {
+            printWriter.println(INPUT_TAG + join(input));
+            for (Map.Entry<Word<O>, Integer> entry: node.outputs.entrySet()) {
+                if (outputDecoder == null || entry.getKey().stream()
+                    .allMatch(symbol -> PersistentObservationTree.isRestorable(symbol, outputDecoder))) {
+                    printWriter.println(OUTPUT_TAG + SEPARATOR + entry.getValue() + join(entry.getKey().asList()));
+                }
+            }
+        }
+
+        for (Map.Entry<I, Node<I, O>> child: node.children.entrySet()) {
+            input.add(child.getKey());
+            write(printWriter, child.getValue(), input, outputDecoder);
+            input.remove(input.size() - 1);
+        }
+    }
+
+    /**
+     * Reads the unstable inputs written by {@link #write(Writer)} into this index.
+     * <p>
+     * Inputs with symbols that are not in the given alphabet are skipped.
+     *
+     * @param  reader        the reader to be used
+     * @param  alphabet      the input alphabet, whose symbols are identified by their string form
+     * @param  outputDecoder the function building an output from its string form
+     *
+     * @return               the number of inputs that were read
+     *
+     * @throws IOException   if the reader cannot be read or its content is malformed
+     */
+    public synchronized int read(Reader reader, Collection<I> alphabet, Function<String, O> outputDecoder)
+        throws IOException {
+
+        Map<String, I> inputs = new HashMap<>();
+        for (I input: alphabet) {
+            inputs.put(input.toString(), input);
+        }
+
+        BufferedReader bufferedReader = new BufferedReader(reader);
+        Word<I> input = null;
+        boolean skipped = false;
+        int read = 0;
+        String line;
+
+        while ((line = bufferedReader.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split(SEPARATOR, -1);
+
+            if (fields[0].equals(INPUT_TAG) && hasSymbols(fields, 1)) {
+                input = decodeInput(fields, inputs);
+                skipped = input == null;
+                if (!skipped) {
+                    // the input is unstable even if none of its outputs were written
+                    unstableNode(input);
+                    read++;
+                }
+            } else if (fields[0].equals(OUTPUT_TAG) && hasSymbols(fields, 2) && (input != null || skipped)) {
+                if (!skipped) {
+                    WordBuilder<O> output = new WordBuilder<>(fields.length - 3);
+                    for (int i = 3; i < fields.length; i++) {
+                        output.append(outputDecoder.apply(unescape(fields[i])));
+                    }
+                    record(input, output.toWord(), parseNumber(fields[1]));
+                }
+            } else {
+                throw new IOException("Malformed line in non-determinism index: " + line);
+            }
+        }
+        return read;
+    }
+
+    /**
+     * Checks that the field at the given index holds the number of the fields
+     * that follow it, i.e. of the symbols of the line.
+     *
+     * @param  fields      the fields of the line
+     * @param  countIndex  the index of the field with the number of symbols
+     *
+     * @return             {@code true} if the number of symbols is as stated
+     *
+     * @throws IOException if the number of symbols is not a number
+     */
+    protected static boolean hasSymbols(String[] fields, int countIndex) throws IOException {
+        return fields.length > countIndex && parseNumber(fields[countIndex]) == fields.length - countIndex - 1;
+    }
+
+    /**
+     * Decodes the input of a line starting with {@link #INPUT_TAG}, which is
+     * not empty.
+     *
+     * @param  fields the fields of the line
+     * @param  inputs the input symbols of the alphabet by string form
+     *
+     * @return        the input or null if it has symbols outside the alphabet
+     */
+    protected @Nullable Word<I> decodeInput(String[] fields, Map<String, I> inputs) {
+        if (fields.length < 3) {
+            return null;
+        }
+
+        WordBuilder<I> input = new WordBuilder<>(fields.length - 2);
+        for (int i = 2; i < fields.length; i++) {
+            I symbol = inputs.get(unescape(fields[i]));
+            if (symbol == null) {
+                return null;
+            }
+            input.append(symbol);
+        }
+        return input.toWord();
+    }
+
+    /**
+     * Parses a number of runs or symbols of a line.
+     *
+     * @param  field       the field with the number
+     *
+     * @return             the number
+     *
+     * @throws IOException if the field is not a number
+     */
+    protected static int parseNumber(String field) throws IOException {
+        try {
+            return Integer.parseInt(field);
+        }
+        catch (NumberFormatException e) {
+            throw new IOException("Malformed number in non-determinism index: " + field, e);
+        }
+    }
+
+    /**
+     * Joins the number of the given symbols and their escaped string forms,
+     * each preceded by the {@link #SEPARATOR}.
+     *
+     * @param  symbols the symbols to be joined
+     *
+     * @return         the joined string
+     */
+    protected static String join(List<?> symbols) {
+        StringBuilder joined = new StringBuilder().append(SEPARATOR).append(symbols.size());
+        for (Object symbol: symbols) {
+            joined.append(SEPARATOR).append(escape(String.valueOf(symbol)));
+        }
+        return joined.toString();
+    }
+
+    /**
+     * Escapes the backslashes, tabs and line breaks of the given string.
+     *
+     * @param  string the string to be escaped
+     *
+     * @return        the escaped string
+     */
+    protected static String escape(String string) {
+        return string.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    /**
+     * Reverts {@link #escape(String)}.
+     *
+     * @param  string the escaped string
+     *
+     * @return        the original string
+     */
+    protected static String unescape(String string) {
+        if (string.indexOf('\\') < 0) {
+            return string;
+        }
+
+        StringBuilder unescaped = new StringBuilder(string.length());
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c == '\\' && i + 1 < string.length()) {
+                c = switch (string.charAt(++i)) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> string.charAt(i);
+                };
+            }
+            unescaped.append(c);
+        }
+        return unescaped.toString();
+    }
+}
@@ -1,12 +1,22 @@
 package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
 
 import de.learnlib.query.Query;
+import de.learnlib.sul.SUL;
 import net.automatalib.word.Word;
+import net.automatalib.word.WordBuilder;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.io.Writer;
+import java.util.Map;
 
 /**
  * Checks and confirms a potential non-deterministic answer by re-running it.
+ * <p>
+ * If the sul underlying the wrapped oracle is provided, then each query is
+ * executed on it directly and each output is checked against the cache as soon
+ * as it is received. On the first output that is inconsistent with the cache,
+ * the execution is aborted and the query is re-run. Otherwise, the query is
+ * answered by the wrapped oracle and its whole answer is checked.
  *
  * @param <I> the type of inputs
  * @param <O> the type of outputs
@@ -16,6 +26,9 @@ public class NonDeterminismRetryingSULOracle<I, O> extends MultipleRunsSULOracle
     /** Stores the constructor parameter. */
     protected ObservationTree<I, O> cache;
 
+    /** Stores the constructor parameter, which is null if queries are not executed step by step. */
+    @Nullable protected SUL<I, O> sul;
+
     /** Stores the preceding input of the current query under processing. */
     protected Word<I> precedingInput;
 
@@ -32,13 +45,40 @@ public class NonDeterminismRetryingSULOracle<I, O> extends MultipleRunsSULOracle
         MealyMembershipOracle<I, O> sulOracle, boolean probabilisticSanitization,
         Writer writer, ObservationTree<I, O> cache) {
 
+        this(runs, sulOracle, probabilisticSanitization, writer, cache, null);
+    }
+
+    /**
+     * Constructs a new instance from the given parameters.
+     *
+     * @param runs                      the number of times that a query should be run
+     * @param sulOracle                 the sul Oracle that is being wrapped
+     * @param probabilisticSanitization {@code true} to enable the probabilistic sanitization
+     * @param writer                    the writer used to log results and information
+     * @param cache                     the external cache used for lookup
+     * @param sul                       the sul answering the queries of the sulOracle in a single run,
+     *                                      used for executing the queries step by step, or null
+     */
+    public NonDeterminismRetryingSULOracle(int runs,
+        MealyMembershipOracle<I, O> sulOracle, boolean probabilisticSanitization,
+        Writer writer, ObservationTree<I, O> cache, @Nullable SUL<I, O> sul) {
+
         super(runs, sulOracle, probabilisticSanitization, writer);
         this.cache = cache;
+        this.sul = sul;
     }
 
     /**
      * Processes the given query by comparing the {@link #sulOracle}'s answer with
      * the cached one and if they differ then {@link #getCheckedOutput(Word, Word)} is used.
+     * <p>
+     * If the {@link #sul} is provided, the answer is obtained by
+     * {@link #runUntilInconsistent(Word, WordBuilder)} instead, which stops at the
+     * first output that differs from the cached one and collects the cached
+     * outputs on the way, so that the cache is not walked again.
+     * <p>
+     * If the input has a prefix known to be unstable by the {@link #nonDetIndex},
+     * the single run is skipped and the input is rerun {@link #runs} times directly.
      *
      * @param  query                   the query to be processed
      *
@@ -46,19 +86,47 @@ public class NonDeterminismRetryingSULOracle<I, O> extends MultipleRunsSULOracle
      */
     @Override
     public void processQuery(Query<I, Word<O>> query) throws NonDeterminismException {
-        Word<O> originalOutput = sulOracle.answerQuery(query.getInput());
-        Word<O> outputFromCache = cache.answerQuery(query.getInput(), true);
+        Word<I> input = query.getInput();
+        Word<O> originalOutput;
+        Word<O> outputFromCache;
+
+        if (nonDetIndex != null && nonDetIndex.findUnstablePrefix(input) != null) {
+            try {
+                Word<O> output = getMultipleRunOutput(input);
+                query.answer(output.suffix(query.getSuffix().length()));
+                precedingInput = input;
+                return;
+            }
+            catch (NonDeterminismException e) {
+                e.setPrecedingInput(precedingInput);
+                throw e;
+            }
+        }
+
+        if (sul != null) {
+            WordBuilder<O> cachedOutputs = new WordBuilder<>(input.length());
+            originalOutput = runUntilInconsistent(input, cachedOutputs);
+            outputFromCache = cachedOutputs.toWord();
+        } else {
+            originalOutput = sulOracle.answerQuery(input);
+            outputFromCache = cache.answerQuery(input, true);
+        }
         Word<O> returnedOutput = originalOutput;
 
         if (outputFromCache != null && !outputFromCache.equals(originalOutput.prefix(outputFromCache.length()))) {
-            printWriter.println("Output inconsistent with cache, rerunning membership query");
-            printWriter.println("Input: " + query.getInput().prefix(outputFromCache.length()));
-            printWriter.println("Unexpected output: " + returnedOutput);
-            printWriter.println("Cached output: " + outputFromCache);
+            printWriter.printf("Output inconsistent with cache, rerunning membership query%n"
+                + "Input: %s%nUnexpected output: %s%nCached output: %s%n",
+                input.prefix(outputFromCache.length()), returnedOutput, outputFromCache);
             printWriter.flush();
 
+            int index = 0;
+            while (outputFromCache.getSymbol(index).equals(originalOutput.getSymbol(index))) {
+                index++;
+            }
+            recordNonDeterminism(input, index, Map.of(outputFromCache, 1, originalOutput, 1));
+
             try {
-                returnedOutput = getCheckedOutput(query.getInput(), originalOutput);
+                returnedOutput = getCheckedOutput(input, originalOutput);
             }
             catch (NonDeterminismException e) {
                 e.setPrecedingInput(precedingInput);
@@ -67,7 +135,31 @@ public class NonDeterminismRetryingSULOracle<I, O> extends MultipleRunsSULOracle
         }
 
         query.answer(returnedOutput.suffix(query.getSuffix().length()));
-        precedingInput = query.getInput();
+        precedingInput = input;
+    }
+
+    /**
+     * Executes the given input on the {@link #sul} step by step, following the
+     * cache with a cursor, and aborts the execution on the first output that
+     * differs from the cached one.
+     *
+     * @param  input         the input to be executed
+     * @param  cachedOutputs the builder to which the cached outputs met along
+     *                           the execution are appended
+     *
+     * @return               the received outputs, which end with the first
+     *                           inconsistent output if the execution was aborted
+     */
+    protected Word<O> runUntilInconsistent(Word<I> input, WordBuilder<O> cachedOutputs) {
+        ObservationTree.Cursor<I, O> cursor = cache.cursor();
+        return runWhileAccepted(sul, input, (symbol, output) -> {
+            O cachedOutput = cursor.next(symbol);
+            if (cachedOutput == null) {
+                return true;
+            }
+            cachedOutputs.append(cachedOutput);
+            return cachedOutput.equals(output);
+        });
     }
 
     /**
@@ -75,7 +167,9 @@ public class NonDeterminismRetryingSULOracle<I, O> extends MultipleRunsSULOracle
      * the given originalOutput.
      *
      * @param  input                   the input to be run multiple times
-     * @param  originalOutput          the original output of the sulOracle
+     * @param  originalOutput          the original output of the sulOracle, which
+     *                                     may be shorter than the input if its
+     *                                     execution was aborted
      *
      * @return                         the checked output
      *
@@ -84,11 +178,9 @@ public class NonDeterminismRetryingSULOracle<I, O> extends MultipleRunsSULOracle
     protected Word<O> getCheckedOutput(Word<I> input, Word<O> originalOutput) throws NonDeterminismException {
         Word<O> checkedOutput = super.getMultipleRunOutput(input);
 
-        if (!checkedOutput.equals(originalOutput)) {
-            printWriter.println("Output changed following rerun");
-            printWriter.println("Input: " + input);
-            printWriter.println("Original output: " + originalOutput);
-            printWriter.println("New output: " + checkedOutput);
+        if (!checkedOutput.prefix(originalOutput.length()).equals(originalOutput)) {
+            printWriter.printf("Output changed following rerun%nInput: %s%nOriginal output: %s%nNew output: %s%n",
+                input, originalOutput, checkedOutput);
             printWriter.flush();
         }
         return checkedOutput;
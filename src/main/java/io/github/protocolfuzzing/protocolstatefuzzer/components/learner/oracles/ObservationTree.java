@@ -1,19 +1,39 @@
 package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
 
 import net.automatalib.word.Word;
+import net.automatalib.word.WordBuilder;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Data Structure used for storing and querying inputs and outputs.
  * <p>
  * An instance of an Observation Tree represents a node of the tree.
  * <p>
+ * Lookups and insertions walk the tree iteratively, one symbol at a time,
+ * so that the depth of the stack does not depend on the length of the
+ * queries. The input and output chains of a node are only reconstructed
+ * when a {@link CacheInconsistencyException} needs to be thrown.
+ * <p>
+ * A node reached through a terminating output, set via
+ * {@link #setTerminatingOutputs(Collection)}, is terminal: the SUL is expected
+ * to repeat that output for any further input. Queries passing through a
+ * terminal node are answered by repeating its output, while word and list
+ * observations that would extend a terminal node are refused and counted.
+ * <p>
  * Adapted from
  * <a href="https://gitlab.science.ru.nl/ramonjanssen/basic-learning/">basic-learning</a>.
  *
@@ -37,6 +57,112 @@ public class ObservationTree<I, O> {
     /** Stores the outputs corresponding to the inputs of this node. */
     protected Map<I, O> outputs;
 
+    /** Stores the terminating outputs, shared by all nodes of the tree. */
+    protected TerminalOutputs<O> terminalOutputs;
+
+    /**
+     * The terminating outputs and the refused observations of a tree.
+     *
+     * @param <O> the output type of the observations
+     */
+    protected static class TerminalOutputs<O> {
+
+        /** The outputs after which the SUL repeats the same output, replaced as a whole. */
+        protected volatile Set<O> outputs = Collections.emptySet();
+
+        /** The number of observations refused because they extended a terminal node. */
+        protected LongAdder refusedObservations = new LongAdder();
+    }
+
+    /**
+     * Receives the edges of a tree visited in depth-first order.
+     *
+     * @param <I> the input type of the observations
+     * @param <O> the output type of the observations
+     */
+    protected interface DepthFirstVisitor<I, O> {
+
+        /**
+         * Called when an edge is followed downwards, before its subtree is visited.
+         *
+         * @param  input       the input labelling the edge
+         * @param  output      the output labelling the edge
+         *
+         * @throws IOException if the visitor fails to process the edge
+         */
+        void enter(I input, O output) throws IOException;
+
+        /**
+         * Called when an edge is followed upwards, after its subtree has been visited.
+         *
+         * @throws IOException if the visitor fails to process the edge
+         */
+        void leave() throws IOException;
+    }
+
+    /**
+     * Follows a path of the tree one input at a time, so that the outputs of
+     * an execution can be checked against the stored ones as they are received.
+     *
+     * @param <I> the input type of the observations
+     * @param <O> the output type of the observations
+     */
+    public interface Cursor<I, O> {
+
+        /**
+         * Advances the cursor with the given input.
+         * <p>
+         * Once an input is not stored, the cursor leaves the tree and returns
+         * null for all following inputs. A cursor on a terminal node stays on it
+         * and returns its output.
+         *
+         * @param  input the next input of the path
+         *
+         * @return       the stored output for the input or null if it is not stored
+         */
+        @Nullable O next(I input);
+    }
+
+    /**
+     * Cursor following the nodes of an {@link ObservationTree}.
+     *
+     * @param <I> the input type of the observations
+     * @param <O> the output type of the observations
+     */
+    protected static class NodeCursor<I, O> implements Cursor<I, O> {
+
+        /** The current node or null if the cursor has left the tree. */
+        protected ObservationTree<I, O> node;
+
+        /**
+         * Constructs a new instance from the given parameter.
+         *
+         * @param node the node from which the path starts
+         */
+        protected NodeCursor(ObservationTree<I, O> node) {
+            this.node = node;
+        }
+
+        @Override
+        @Nullable public O next(I input) {
+            if (node == null) {
+                return null;
+            }
+
+            ObservationTree<I, O> child = node.getChild(input);
+            if (child == null) {
+                if (node.isTerminal()) {
+                    return node.getParentOutput();
+                }
+                node = null;
+                return null;
+            }
+
+            node = child;
+            return child.getParentOutput();
+        }
+    }
+
     /**
      * Constructs a new instance using {@link #ObservationTree(ObservationTree, Object, Object)}
      * with null parameters.
@@ -53,11 +179,75 @@ public class ObservationTree<I, O> {
      * @param parentOutput the parent output
      */
     public ObservationTree(ObservationTree<I, O> parent, I parentInput, O parentOutput) {
-        this.children = new HashMap<>();
-        this.outputs = new HashMap<>();
+        this(parent, parentInput, parentOutput, new HashMap<>(), new HashMap<>());
+    }
+
+    /**
+     * Constructs a new instance from the given parameters, using the given maps
+     * for storing the children and the outputs of this node.
+     *
+     * @param parent       the parent observation tree of this node
+     * @param parentInput  the parent input
+     * @param parentOutput the parent output
+     * @param children     the empty map for the children nodes
+     * @param outputs      the empty map for the outputs
+     */
+    protected ObservationTree(ObservationTree<I, O> parent, I parentInput, O parentOutput,
+        Map<I, ObservationTree<I, O>> children, Map<I, O> outputs) {
+        this.children = children;
+        this.outputs = outputs;
         this.parent = parent;
         this.parentInput = parentInput;
         this.parentOutput = parentOutput;
+        this.terminalOutputs = parent == null ? new TerminalOutputs<>() : parent.terminalOutputs;
+    }
+
+    /**
+     * Sets the terminating outputs of the whole tree, replacing the previous ones.
+     * <p>
+     * The outputs are replaced at once, so that threads using the tree never
+     * see a partial set and setting the same outputs again has no effect.
+     *
+     * @param terminatingOutputs the outputs after which the SUL repeats the same output
+     */
+    public void setTerminatingOutputs(Collection<O> terminatingOutputs) {
+        terminalOutputs.outputs = Collections.unmodifiableSet(new HashSet<>(terminatingOutputs));
+    }
+
+    /**
+     * Returns the number of observations refused because they extended a terminal node.
+     *
+     * @return the number of refused observations
+     */
+    public long getRefusedObservationCount() {
+        return terminalOutputs.refusedObservations.sum();
+    }
+
+    /**
+     * Checks if this node has been reached through a terminating output.
+     *
+     * @return {@code true} if this node is terminal
+     */
+    protected boolean isTerminal() {
+        return parent != null && !terminalOutputs.outputs.isEmpty()
+            && terminalOutputs.outputs.contains(getParentOutput());
+    }
+
+    /**
+     * Checks if an observation continuing from the given node with the given
+     * input would extend a terminal node, and counts it as refused if so.
+     *
+     * @param  node  the node reached by the observation
+     * @param  input the next input of the observation
+     *
+     * @return       {@code true} if the rest of the observation is refused
+     */
+    protected boolean refuseUnderTerminal(ObservationTree<I, O> node, I input) {
+        if (node.isTerminal() && !node.children.containsKey(input)) {
+            terminalOutputs.refusedObservations.increment();
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -78,13 +268,12 @@ public class ObservationTree<I, O> {
      * @return the outputs observed from the root of the tree until this node
      */
     protected List<O> getOutputChain() {
-        if (this.parent == null) {
-            return new ArrayList<>();
+        List<O> outputChain = new ArrayList<>();
+        for (ObservationTree<I, O> node = this; node.parent != null; node = node.parent) {
+            outputChain.add(node.parentOutput);
         }
-
-        List<O> parentChain = this.parent.getOutputChain();
-        parentChain.add(parentOutput);
-        return parentChain;
+        Collections.reverse(outputChain);
+        return outputChain;
     }
 
     /**
@@ -93,13 +282,32 @@ public class ObservationTree<I, O> {
      * @return the inputs observed from the root of the tree until this node
      */
     protected List<I> getInputChain() {
-        if (this.parent == null) {
-            return new ArrayList<>();
+        List<I> inputChain = new ArrayList<>();
+        for (ObservationTree<I, O> node = this; node.parent != null; node = node.parent) {
+            inputChain.add(node.parentInput);
         }
+        Collections.reverse(inputChain);
+        return inputChain;
+    }
 
-        List<I> parentChain = this.parent.getInputChain();
-        parentChain.add(this.parentInput);
-        return parentChain;
+    /**
+     * Returns the child of this node corresponding to the given input.
+     *
+     * @param  input the input labelling the edge to the child
+     *
+     * @return       the child node or null if the input has not been observed
+     */
+    @Nullable protected ObservationTree<I, O> getChild(I input) {
+        return this.children.get(input);
+    }
+
+    /**
+     * Returns the output observed on the edge from the parent to this node.
+     *
+     * @return the output observed on the edge from the parent to this node
+     */
+    protected O getParentOutput() {
+        return this.parentOutput;
     }
 
     /**
@@ -113,24 +321,46 @@ public class ObservationTree<I, O> {
      * @throws CacheInconsistencyException on inconsistency with previous observations input
      */
     public ObservationTree<I, O> addObservation(I input, O output) throws CacheInconsistencyException {
+        ObservationTree<I, O> child;
+        while ((child = addObservationStep(input, output)) == null) {
+            // input is inconsistent with previous observations, throw exception
+            ObservationTree<I, O> conflictingChild = this.children.get(input);
+            if (conflictingChild != null) {
+                List<O> oldOutputChain = conflictingChild.getOutputChain();
+                List<O> newOutputChain = this.getOutputChain();
+                List<I> inputChain = this.getInputChain();
+                newOutputChain.add(output);
+                throw new CacheInconsistencyException(toWord(inputChain), toWord(oldOutputChain),
+                    toWord(newOutputChain));
+            }
+            // the conflicting branch has been removed concurrently, so the step is retried
+        }
+
+        return child;
+    }
+
+    /**
+     * Adds one input and output symbol without building any chains in case of inconsistency.
+     *
+     * @param  input  the input symbol to be added
+     * @param  output the output symbol to be added
+     *
+     * @return        the next node or null if the output is inconsistent with the
+     *                    previously observed one
+     */
+    @Nullable protected ObservationTree<I, O> addObservationStep(I input, O output) {
         O previousOutput = this.outputs.get(input);
-        boolean createNewBranch = previousOutput == null;
 
-        if (createNewBranch) {
+        if (previousOutput == null) {
             // input hasn't been queried before, make a new branch for it and traverse
             this.outputs.put(input, output);
-            ObservationTree<I, O> child = new ObservationTree<>(this, input, output);
+            ObservationTree<I, O> child = createChild(input, output);
             this.children.put(input, child);
             return child;
         }
 
         if (!previousOutput.equals(output)) {
-            // input is inconsistent with previous observations, throw exception
-            List<O> oldOutputChain = this.children.get(input).getOutputChain();
-            List<O> newOutputChain = this.getOutputChain();
-            List<I> inputChain = this.getInputChain();
-            newOutputChain.add(output);
-            throw new CacheInconsistencyException(toWord(inputChain), toWord(oldOutputChain), toWord(newOutputChain));
+            return null;
         }
 
         // input is consistent with previous observations, just traverse
@@ -138,7 +368,22 @@ public class ObservationTree<I, O> {
     }
 
     /**
-     * Add Observation of Words to the tree using {@link #addObservation(List, List)}.
+     * Creates a new child node of this node, which is not yet stored in {@link #children}.
+     *
+     * @param  input  the input labelling the edge to the child
+     * @param  output the output labelling the edge to the child
+     *
+     * @return        the new child node
+     */
+    protected ObservationTree<I, O> createChild(I input, O output) {
+        return new ObservationTree<>(this, input, output);
+    }
+
+    /**
+     * Add Observation of Words to the tree.
+     * <p>
+     * The part of the observation following a terminal node that has no child
+     * for the next input is refused.
      *
      * @param  inputs                      the word of inputs
      * @param  outputs                     the word of outputs
@@ -146,11 +391,30 @@ public class ObservationTree<I, O> {
      * @throws CacheInconsistencyException on inconsistency between new and stored observations
      */
     public void addObservation(Word<I> inputs, Word<O> outputs) throws CacheInconsistencyException {
-        addObservation(inputs.asList(), outputs.asList());
+        checkSameLength(inputs.length(), outputs.length(), inputs, outputs);
+
+        ObservationTree<I, O> node = this;
+        for (int i = 0; i < inputs.length(); i++) {
+            if (refuseUnderTerminal(node, inputs.getSymbol(i))) {
+                return;
+            }
+            ObservationTree<I, O> next;
+            while ((next = node.addObservationStep(inputs.getSymbol(i), outputs.getSymbol(i))) == null) {
+                CacheInconsistencyException inconsistency = newInconsistency(node, inputs.getSymbol(i), inputs,
+                    outputs);
+                if (inconsistency != null) {
+                    throw inconsistency;
+                }
+            }
+            node = next;
+        }
     }
 
     /**
      * Add Observation of Lists to the tree.
+     * <p>
+     * The part of the observation following a terminal node that has no child
+     * for the next input is refused.
      *
      * @param  inputs                      the list of inputs
      * @param  outputs                     the list of outputs
@@ -158,24 +422,63 @@ public class ObservationTree<I, O> {
      * @throws CacheInconsistencyException on inconsistency between new and stored observations
      */
     public void addObservation(List<I> inputs, List<O> outputs) throws CacheInconsistencyException {
-        if (inputs.isEmpty() && outputs.isEmpty()) {
-            return;
+        checkSameLength(inputs.size(), outputs.size(), inputs, outputs);
+
+        ObservationTree<I, O> node = this;
+        for (int i = 0; i < inputs.size(); i++) {
+            if (refuseUnderTerminal(node, inputs.get(i))) {
+                return;
+            }
+            ObservationTree<I, O> next;
+            while ((next = node.addObservationStep(inputs.get(i), outputs.get(i))) == null) {
+                CacheInconsistencyException inconsistency = newInconsistency(node, inputs.get(i), toWord(inputs),
+                    toWord(outputs));
+                if (inconsistency != null) {
+                    throw inconsistency;
+                }
+            }
+            node = next;
         }
+    }
 
-        if (inputs.isEmpty() || outputs.isEmpty()) {
+    /**
+     * Checks that the given input and output lengths are equal.
+     *
+     * @param inputLength  the length of the inputs
+     * @param outputLength the length of the outputs
+     * @param inputs       the inputs used in the error message
+     * @param outputs      the outputs used in the error message
+     */
+    protected static void checkSameLength(int inputLength, int outputLength, Object inputs, Object outputs) {
+        if (inputLength != outputLength) {
             throw new RuntimeException(
                 "Input and output words should have the same length:" + "\n" + inputs + "\n" + outputs);
         }
+    }
 
-        I firstInput = inputs.get(0);
-        O firstOutput = outputs.get(0);
-        try {
-            this.addObservation(firstInput, firstOutput)
-                .addObservation(inputs.subList(1, inputs.size()), outputs.subList(1, outputs.size()));
-        }
-        catch (CacheInconsistencyException e) {
-            throw new CacheInconsistencyException(toWord(inputs), e.getOldOutput(), toWord(outputs));
+    /**
+     * Builds the exception for an inconsistency found while adding an observation.
+     * <p>
+     * This is the only place where the output chain of a node is reconstructed.
+     * The conflicting branch may have been removed by another thread since the
+     * inconsistency was found, in which case there is no inconsistency anymore
+     * and the step can be retried.
+     *
+     * @param  node    the node at which the inconsistency was found
+     * @param  input   the input whose output is inconsistent
+     * @param  inputs  the full inputs of the observation
+     * @param  outputs the full outputs of the observation
+     *
+     * @return         the exception to be thrown, or null if the conflicting
+     *                     branch has been removed
+     */
+    @Nullable private CacheInconsistencyException newInconsistency(ObservationTree<I, O> node, I input,
+        Word<I> inputs, Word<O> outputs) {
+        ObservationTree<I, O> conflictingChild = node.children.get(input);
+        if (conflictingChild == null) {
+            return null;
         }
+        return new CacheInconsistencyException(inputs, toWord(conflictingChild.getOutputChain()), outputs);
     }
 
     /**
@@ -214,23 +517,53 @@ public class ObservationTree<I, O> {
      * @throws RemovalException if the sequence cannot be removed
      */
     public void remove(List<I> accessSequence) throws RemovalException {
-        if (accessSequence.isEmpty()) {
-            this.remove();
-            return;
+        ObservationTree<I, O> node = this;
+        for (I input: accessSequence) {
+            node = node.children.get(input);
+
+            if (node == null) {
+                throw new RemovalException("Cannot remove branch which is not present for input\n" + accessSequence);
+            }
         }
 
-        ObservationTree<I, O> child = this.children.get(accessSequence.get(0));
+        node.remove();
+    }
 
-        if (child == null) {
-            throw new RemovalException("Cannot remove branch which is not present for input\n" + accessSequence);
+    /**
+     * Visits the edges below this node in depth-first order, using an explicit
+     * stack instead of recursion.
+     *
+     * @param  visitor     the visitor receiving the edges
+     *
+     * @throws IOException if the visitor fails to process an edge
+     */
+    protected void traverseDepthFirst(DepthFirstVisitor<I, O> visitor) throws IOException {
+        Deque<Iterator<ObservationTree<I, O>>> stack = new ArrayDeque<>();
+        stack.push(this.children.values().iterator());
+
+        while (!stack.isEmpty()) {
+            Iterator<ObservationTree<I, O>> siblings = stack.peek();
+
+            if (siblings.hasNext()) {
+                ObservationTree<I, O> child = siblings.next();
+                visitor.enter(child.parentInput, child.getParentOutput());
+                stack.push(child.children.values().iterator());
+            } else {
+                stack.pop();
+                if (!stack.isEmpty()) {
+                    visitor.leave();
+                }
+            }
         }
+    }
 
-        try {
-            child.remove(accessSequence.subList(1, accessSequence.size()));
-        }
-        catch (RemovalException e) {
-            throw new RemovalException("Cannot remove branch which is not present for input\n" + accessSequence);
-        }
+    /**
+     * Returns a new cursor following a path from this node.
+     *
+     * @return the new cursor
+     */
+    public Cursor<I, O> cursor() {
+        return new NodeCursor<>(this);
     }
 
     /**
@@ -242,19 +575,15 @@ public class ObservationTree<I, O> {
      *                  otherwise null
      */
     @Nullable public Word<O> answerQuery(Word<I> word) {
-        List<I> inputChain = word.asList();
-        List<O> outputChain = answerInputChain(inputChain, false);
-        if (outputChain != null) {
-            return toWord(outputChain);
-        }
-        return null;
+        return answerQuery(word, false);
     }
 
     /**
      * Answers the given query with the option to allow incomplete answers.
      * <p>
      * Incomplete resolution captures the case when the input word is not
-     * completely stored in the tree.
+     * completely stored in the tree. A word whose stored prefix ends in a
+     * terminal node is completed with the output of that node.
      *
      * @param  word                  the input word to be answered
      * @param  allowIncompleteAnswer {@code true} to enable incomplete answers
@@ -264,19 +593,32 @@ public class ObservationTree<I, O> {
      *                                   {@code true} else null
      */
     @Nullable public Word<O> answerQuery(Word<I> word, boolean allowIncompleteAnswer) {
-        List<I> inputChain = word.asList();
-        List<O> outputChain = answerInputChain(inputChain, allowIncompleteAnswer);
-        if (outputChain != null) {
-            return toWord(outputChain);
+        WordBuilder<O> outputBuilder = new WordBuilder<>(word.length());
+        ObservationTree<I, O> node = this;
+
+        for (int i = 0; i < word.length(); i++) {
+            ObservationTree<I, O> child = node.getChild(word.getSymbol(i));
+
+            if (child == null) {
+                if (node.isTerminal()) {
+                    return outputBuilder.repeatAppend(word.length() - i, node.getParentOutput()).toWord();
+                }
+                return allowIncompleteAnswer ? outputBuilder.toWord() : null;
+            }
+
+            outputBuilder.append(child.getParentOutput());
+            node = child;
         }
-        return null;
+
+        return outputBuilder.toWord();
     }
 
     /**
      * Answers the given list of inputs with the option to allow incomplete answers.
      * <p>
      * Incomplete resolution captures the case when the input word is not
-     * completely stored in the tree.
+     * completely stored in the tree. A list whose stored prefix ends in a
+     * terminal node is completed with the output of that node.
      *
      * @param  inputs                the list of inputs to be answered
      * @param  allowIncompleteAnswer {@code true} to enable incomplete answers
@@ -284,28 +626,24 @@ public class ObservationTree<I, O> {
      * @return                       the list of answers or null
      */
     @Nullable public List<O> answerInputChain(List<I> inputs, boolean allowIncompleteAnswer) {
-        if (inputs.isEmpty()) {
-            return new ArrayList<O>();
-        }
-
-        I input = inputs.get(0);
-        O output = outputs.get(input);
-        ObservationTree<I, O> nextObservationTree = this.children.get(input);
+        List<O> outputs = new ArrayList<>(inputs.size());
+        ObservationTree<I, O> node = this;
 
-        if (output == null || nextObservationTree == null) {
-            return allowIncompleteAnswer ? Collections.emptyList() : null;
-        }
+        for (I input: inputs) {
+            ObservationTree<I, O> child = node.getChild(input);
 
-        List<I> nextInputs = inputs.subList(1, inputs.size());
-        List<O> nextOutputs = nextObservationTree.answerInputChain(nextInputs, allowIncompleteAnswer);
+            if (child == null) {
+                if (node.isTerminal()) {
+                    outputs.addAll(Collections.nCopies(inputs.size() - outputs.size(), node.getParentOutput()));
+                    return outputs;
+                }
+                return allowIncompleteAnswer ? outputs : null;
+            }
 
-        if (nextOutputs == null) {
-            return null;
+            outputs.add(child.getParentOutput());
+            node = child;
         }
 
-        List<O> outputs = new ArrayList<>(inputs.size());
-        outputs.add(output);
-        outputs.addAll(nextOutputs);
         return outputs;
     }
 }
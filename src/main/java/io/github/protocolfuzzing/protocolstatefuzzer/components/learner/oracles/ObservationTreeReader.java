@@ -0,0 +1,264 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Streaming reader of the observations written by an {@link ObservationTreeWriter}.
+ * <p>
+ * The observations are read one subtree of the root at a time and added to a
+ * target tree as the words leading to the leaves of the subtree, so that only
+ * the path to the current node is kept in memory. Inputs are matched by their
+ * string form against the given alphabet, while outputs are rebuilt using the
+ * given output decoder. Subtrees below inputs that are not contained in the
+ * alphabet are skipped.
+ *
+ * @param <I> the input type of the observations
+ * @param <O> the output type of the observations
+ */
+public class ObservationTreeReader<I, O> implements Closeable {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    /** The maximum length in bytes of the string form of a symbol. */
+    protected static final int MAX_SYMBOL_LENGTH = 1 << 16;
+
+    /** The reader of the stream. */
+    protected DataInputStream reader;
+
+    /** Stores the alphabet inputs by their string form. */
+    protected Map<String, I> alphabetInputs;
+
+    /** Stores the constructor parameter. */
+    protected Function<String, O> outputDecoder;
+
+    /** Stores the inputs indexed by their id, or null for inputs not in the alphabet. */
+    protected List<I> inputDictionary;
+
+    /** Stores the outputs indexed by their id. */
+    protected List<O> outputDictionary;
+
+    /** The number of subtrees skipped because of inputs not in the alphabet. */
+    protected long skippedSubtrees;
+
+    /** {@code true} if the end of the observations has been reached. */
+    protected boolean finished;
+
+    /**
+     * Constructs a new instance from the given parameters.
+     * <p>
+     * Invoke {@link #initialize()} afterwards.
+     *
+     * @param inputStream   the stream from which the observations are read
+     * @param alphabet      the inputs that can be read
+     * @param outputDecoder the function that rebuilds an output from its string form
+     */
+    public ObservationTreeReader(InputStream inputStream, Collection<I> alphabet, Function<String, O> outputDecoder) {
+        this.reader = new DataInputStream(new BufferedInputStream(inputStream));
+        this.alphabetInputs = new HashMap<>();
+        for (I input: alphabet) {
+            this.alphabetInputs.put(input.toString(), input);
+        }
+        this.outputDecoder = outputDecoder;
+        this.inputDictionary = new ArrayList<>();
+        this.outputDictionary = new ArrayList<>();
+        this.skippedSubtrees = 0;
+        this.finished = false;
+    }
+
+    /**
+     * Initializes the instance by reading the header; to be run after the constructor.
+     *
+     * @return             the same instance
+     *
+     * @throws IOException if the header cannot be read or is not supported
+     */
+    public ObservationTreeReader<I, O> initialize() throws IOException {
+        if (reader.readInt() != ObservationTreeWriter.MAGIC) {
+            throw new IOException("Not an observation tree file");
+        }
+
+        int version = readVarint();
+        if (version != ObservationTreeWriter.VERSION) {
+            throw new IOException("Unsupported observation tree format version " + version);
+        }
+        return this;
+    }
+
+    /**
+     * Reads the next subtree of the root and adds its observations to the target tree.
+     * <p>
+     * Observations inconsistent with the target tree are not added.
+     *
+     * @param  target      the tree to which the observations are added
+     *
+     * @return             {@code true} if a subtree was read, {@code false} if
+     *                         there are no more subtrees
+     *
+     * @throws IOException if the stream cannot be read or is malformed
+     */
+    public boolean readSubtree(ObservationTree<I, O> target) throws IOException {
+        if (finished) {
+            return false;
+        }
+
+        int tag = readVarint();
+        if (tag == ObservationTreeWriter.LEAVE) {
+            finished = true;
+            return false;
+        }
+
+        // the path to the current node and the depth below which inputs are unknown
+        List<I> inputs = new ArrayList<>();
+        List<O> outputs = new ArrayList<>();
+        int skippedDepth = 0;
+        boolean leaf = true;
+
+        while (true) {
+            if (tag == ObservationTreeWriter.LEAVE) {
+                if (leaf && skippedDepth == 0) {
+                    addObservation(target, inputs, outputs);
+                }
+                if (inputs.size() == skippedDepth) {
+                    skippedDepth = 0;
+                }
+                inputs.remove(inputs.size() - 1);
+                outputs.remove(outputs.size() - 1);
+                leaf = false;
+            } else {
+                I input = readSymbol(inputDictionary, tag - 1, alphabetInputs::get);
+                O output = readSymbol(outputDictionary, readVarint(), outputDecoder);
+                inputs.add(input);
+                outputs.add(output);
+                if (input == null && skippedDepth == 0) {
+                    skippedDepth = inputs.size();
+                    skippedSubtrees++;
+                }
+                leaf = true;
+            }
+
+            if (inputs.isEmpty()) {
+                return true;
+            }
+            tag = readVarint();
+        }
+    }
+
+    /**
+     * Reads all remaining subtrees and adds their observations to the target tree.
+     *
+     * @param  target      the tree to which the observations are added
+     *
+     * @return             the number of subtrees read
+     *
+     * @throws IOException if the stream cannot be read or is malformed
+     */
+    public long readAll(ObservationTree<I, O> target) throws IOException {
+        long subtrees = 0;
+        while (readSubtree(target)) {
+            subtrees++;
+        }
+
+        if (skippedSubtrees > 0) {
+            LOGGER.warn("Skipped {} subtrees with inputs not in the alphabet", skippedSubtrees);
+        }
+        return subtrees;
+    }
+
+    /**
+     * Returns the number of subtrees skipped because of inputs not in the alphabet.
+     *
+     * @return the number of skipped subtrees
+     */
+    public long getSkippedSubtrees() {
+        return skippedSubtrees;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Adds the observation leading to a leaf to the target tree.
+     *
+     * @param target  the tree to which the observation is added
+     * @param inputs  the inputs leading to the leaf
+     * @param outputs the corresponding outputs
+     */
+    protected void addObservation(ObservationTree<I, O> target, List<I> inputs, List<O> outputs) {
+        try {
+            target.addObservation(ObservationTree.toWord(inputs), ObservationTree.toWord(outputs));
+        }
+        catch (CacheInconsistencyException e) {
+            LOGGER.warn(e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the symbol with the given id, whose string form follows the id if
+     * it appears for the first time.
+     *
+     * @param  <T>         the type of the symbol
+     * @param  dictionary  the symbols read so far, indexed by their id
+     * @param  id          the id of the symbol
+     * @param  decoder     the function that rebuilds a symbol from its string form
+     *
+     * @return             the symbol, which may be null if the decoder returns null
+     *
+     * @throws IOException if the stream cannot be read or the id or the
+     *                         length of the string form is invalid
+     */
+    @Nullable protected <T> T readSymbol(List<T> dictionary, int id, Function<String, T> decoder) throws IOException {
+        if (id < dictionary.size()) {
+            return dictionary.get(id);
+        }
+
+        if (id != dictionary.size()) {
+            throw new IOException("Invalid symbol id " + id);
+        }
+
+        int length = readVarint();
+        if (length < 0 || length > MAX_SYMBOL_LENGTH) {
+            throw new IOException("Invalid symbol length " + length);
+        }
+
+        byte[] bytes = new byte[length];
+        reader.readFully(bytes);
+        T symbol = decoder.apply(new String(bytes, StandardCharsets.UTF_8));
+        dictionary.add(symbol);
+        return symbol;
+    }
+
+    /**
+     * Reads a non-negative integer encoded as an unsigned varint.
+     *
+     * @return             the value read
+     *
+     * @throws IOException if the stream cannot be read or the varint is too long
+     */
+    protected int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = reader.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,190 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Writes the observations of an {@link ObservationTree} to a stream in a
+ * compact binary format, which can be read back using an {@link ObservationTreeReader}.
+ * <p>
+ * The stream starts with a header containing a magic number and a format
+ * version. It is followed by the edges of the tree in depth-first order. Each
+ * edge is written as its input id plus one, followed by its output id, and its
+ * subtree is closed by a zero. The last zero closes the root. Ids and lengths
+ * are encoded as unsigned varints.
+ * <p>
+ * Inputs and outputs are identified by their string form and numbered in order
+ * of first appearance. The first time an id is used, it is followed by the
+ * length and the UTF-8 bytes of its string form, so that the dictionaries are
+ * built while streaming.
+ * <p>
+ * If an output decoder is given, the subtrees entered through outputs that the
+ * decoder does not rebuild equal to themselves, such as outputs carrying the
+ * concrete messages of the SUL, are not written, so that the observations read
+ * back never contradict live ones.
+ *
+ * @param <I> the input type of the observations
+ * @param <O> the output type of the observations
+ */
+public class ObservationTreeWriter<I, O> implements Closeable {
+
+    /** The magic number at the start of the stream. */
+    public static final int MAGIC = 0x50534f54;
+
+    /** The version of the format. */
+    public static final int VERSION = 1;
+
+    /** The tag that closes the subtree of an edge. */
+    public static final int LEAVE = 0;
+
+    /** The writer of the stream. */
+    protected DataOutputStream writer;
+
+    /** Stores the id of each input written so far. */
+    protected Map<I, Integer> inputIds;
+
+    /** Stores the id of each output written so far. */
+    protected Map<O, Integer> outputIds;
+
+    /** Stores the constructor parameter. */
+    @Nullable protected Function<String, O> outputDecoder;
+
+    /**
+     * Constructs a new instance from the given parameter, which writes all outputs.
+     *
+     * @param outputStream the stream to which the observations are written
+     */
+    public ObservationTreeWriter(OutputStream outputStream) {
+        this(outputStream, null);
+    }
+
+    /**
+     * Constructs a new instance from the given parameters.
+     *
+     * @param outputStream  the stream to which the observations are written
+     * @param outputDecoder the function that rebuilds an output from its string
+     *                          form, used to skip the outputs that cannot be
+     *                          read back, or null to write all outputs
+     */
+    public ObservationTreeWriter(OutputStream outputStream, @Nullable Function<String, O> outputDecoder) {
+        this.writer = new DataOutputStream(new BufferedOutputStream(outputStream));
+        this.inputIds = new HashMap<>();
+        this.outputIds = new HashMap<>();
+        this.outputDecoder = outputDecoder;
+    }
+
+    /**
+     * Writes the header and all observations of the given tree to the stream.
+     *
+     * @param  tree        the tree to be written
+     *
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(ObservationTree<I, O> tree) throws IOException {
+        writer.writeInt(MAGIC);
+        writeVarint(VERSION);
+
+        tree.traverseDepthFirst(new ObservationTree.DepthFirstVisitor<I, O>() {
+            // the depth of the current edge and the one of the skipped subtree, or zero
+            private int depth = 0;
+            private int skippedDepth = 0;
+
+            @Override
+            public void enter(I input, O output) throws IOException {
+                depth++;
+                if (skippedDepth == 0 && !isWritable(output)) {
+                    skippedDepth = depth;
+                }
+
+                if (skippedDepth == 0) {
+                    writeSymbol(inputIds, input, 1);
+                    writeSymbol(outputIds, output, 0);
+                }
+            }
+
+            @Override
+            public void leave() throws IOException {
+                if (skippedDepth == 0) {
+                    writeVarint(LEAVE);
+                } else if (skippedDepth == depth) {
+                    skippedDepth = 0;
+                }
+                depth--;
+            }
+        });
+
+        writeVarint(LEAVE);
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Indicates whether the given output can be read back, i.e. it has been
+     * written already, no {@link #outputDecoder} is set or the decoder rebuilds
+     * it equal to itself.
+     *
+     * @param  output the output to be checked
+     *
+     * @return        {@code true} if the output can be written
+     */
+    protected boolean isWritable(O output) {
+        return outputDecoder == null || outputIds.containsKey(output)
+            || PersistentObservationTree.isRestorable(output, outputDecoder);
+    }
+
+    /**
+     * Writes the id of a symbol shifted by the given offset, followed by its
+     * string form if it appears for the first time.
+     *
+     * @param  <T>         the type of the symbol
+     * @param  ids         the ids of the symbols written so far
+     * @param  symbol      the symbol to be written
+     * @param  offset      the offset added to the id
+     *
+     * @throws IOException if the stream cannot be written
+     */
+    protected <T> void writeSymbol(Map<T, Integer> ids, T symbol, int offset) throws IOException {
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            writeVarint(id + offset);
+            return;
+        }
+
+        id = ids.size();
+        ids.put(symbol, id);
+        writeVarint(id + offset);
+        byte[] bytes = symbol.toString().getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length);
+        writer.write(bytes);
+    }
+
+    /**
+     * Writes a non-negative integer as an unsigned varint, seven bits per byte
+     * starting from the least significant ones.
+     *
+     * @param  value       the value to be written
+     *
+     * @throws IOException if the stream cannot be written
+     */
+    protected void writeVarint(int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            writer.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        writer.writeByte(remaining);
+    }
+}
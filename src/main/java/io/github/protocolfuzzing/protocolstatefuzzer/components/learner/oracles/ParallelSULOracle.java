@@ -0,0 +1,95 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
+import de.learnlib.query.Query;
+import net.automatalib.word.Word;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Answers each batch of queries in parallel using the oracles of a {@link SULOraclePool}.
+ * <p>
+ * Each query of a batch is answered by the first oracle of the pool that
+ * becomes idle, so that long queries do not hold up the rest of the batch.
+ * The batch returns once all of its queries have been answered, after which
+ * the answers can be safely read by the calling thread.
+ * <p>
+ * The oracles of the pool are used concurrently, thus any cache they read
+ * should not be modified while a batch is processed. This holds when the
+ * oracle is wrapped by a {@link CachingSULOracle}, which updates its cache
+ * only after the batch returns.
+ *
+ * @param <I> the type of inputs
+ * @param <O> the type of outputs
+ */
+public class ParallelSULOracle<I, O> implements MealyMembershipOracle<I, O> {
+
+    /** Stores the constructor parameter. */
+    protected SULOraclePool<I, O> pool;
+
+    /**
+     * Constructs a new instance from the given parameter.
+     *
+     * @param pool the pool of oracles answering the queries
+     */
+    public ParallelSULOracle(SULOraclePool<I, O> pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Processes the given queries in parallel and waits until all of them are answered.
+     * <p>
+     * The first exception thrown by an oracle, such as a {@link NonDeterminismException},
+     * is rethrown once all queries of the batch have been processed.
+     *
+     * @param queries the queries to be processed
+     */
+    @Override
+    public void processQueries(Collection<? extends Query<I, Word<O>>> queries) {
+        if (queries.size() == 1) {
+            processQuery(queries.iterator().next());
+            return;
+        }
+
+        List<Future<Void>> answers = new ArrayList<>(queries.size());
+        for (Query<I, Word<O>> query: queries) {
+            answers.add(pool.submit(oracle -> {
+                oracle.processQuery(query);
+                return null;
+            }));
+        }
+
+        // all queries are waited for, so that none is running once the batch returns
+        RuntimeException failure = null;
+        for (Future<Void> answer: answers) {
+            try {
+                SULOraclePool.await(answer);
+            }
+            catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Processes the given query using an idle oracle of the pool.
+     *
+     * @param query the query to be processed
+     */
+    @Override
+    public void processQuery(Query<I, Word<O>> query) {
+        SULOraclePool.await(pool.submit(oracle -> {
+            oracle.processQuery(query);
+            return null;
+        }));
+    }
+}
@@ -0,0 +1,96 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
+import de.learnlib.query.DefaultQuery;
+import net.automatalib.automaton.transducer.MealyMachine;
+import net.automatalib.util.automaton.conformance.WMethodTestsIterator;
+import net.automatalib.util.automaton.conformance.WpMethodTestsIterator;
+import net.automatalib.word.Word;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Equivalence Oracle running a test suite generated from the hypothesis, such
+ * as the ones of the W-method and the Wp-method, over several sul oracles.
+ * <p>
+ * The tests are taken in the order of the test suite and split over the oracles
+ * as described in {@link AbstractParallelEQOracle}, so that the counterexample
+ * returned is the one of the first failing test, as with the sequential
+ * oracles of LearnLib.
+ *
+ * @param <I> the type of inputs
+ * @param <O> the type of outputs
+ */
+public class ParallelTestSuiteEQOracle<I, O> extends AbstractParallelEQOracle<I, O> {
+
+    /** Stores the constructor parameter. */
+    protected BiFunction<MealyMachine<?, I, ?, O>, Collection<? extends I>, Iterator<Word<I>>> testSuite;
+
+    /**
+     * Constructs a new instance from the given parameters.
+     *
+     * @param sulOracles the sul oracles over which the tests are split
+     * @param testSuite  the function returning the iterator over the tests of
+     *                       a hypothesis and its inputs
+     */
+    public ParallelTestSuiteEQOracle(List<MealyMembershipOracle<I, O>> sulOracles,
+        BiFunction<MealyMachine<?, I, ?, O>, Collection<? extends I>, Iterator<Word<I>>> testSuite) {
+
+        super(sulOracles);
+        this.testSuite = testSuite;
+    }
+
+    /**
+     * Creates a new instance running the W-method test suite.
+     *
+     * @param  <I>        the type of inputs
+     * @param  <O>        the type of outputs
+     * @param  sulOracles the sul oracles over which the tests are split
+     * @param  maxDepth   the maximum length of the middle sequences
+     *
+     * @return            the created oracle
+     */
+    public static <I, O> ParallelTestSuiteEQOracle<I, O> wMethod(List<MealyMembershipOracle<I, O>> sulOracles,
+        int maxDepth) {
+
+        return new ParallelTestSuiteEQOracle<>(sulOracles,
+            (hypothesis, inputs) -> new WMethodTestsIterator<>(hypothesis, inputs, maxDepth));
+    }
+
+    /**
+     * Creates a new instance running the Wp-method test suite.
+     *
+     * @param  <I>        the type of inputs
+     * @param  <O>        the type of outputs
+     * @param  sulOracles the sul oracles over which the tests are split
+     * @param  maxDepth   the maximum length of the middle sequences
+     *
+     * @return            the created oracle
+     */
+    public static <I, O> ParallelTestSuiteEQOracle<I, O> wpMethod(List<MealyMembershipOracle<I, O>> sulOracles,
+        int maxDepth) {
+
+        return new ParallelTestSuiteEQOracle<>(sulOracles,
+            (hypothesis, inputs) -> new WpMethodTestsIterator<>(hypothesis, inputs, maxDepth));
+    }
+
+    /**
+     * Tries to find a counterexample by running the test suite of the hypothesis.
+     *
+     * @param  hypothesis the hypothesis to be searched
+     * @param  inputs     the inputs to be used
+     *
+     * @return            the counterexample or null
+     */
+    @Override
+    public @Nullable DefaultQuery<I, Word<O>> findCounterExample(
+        MealyMachine<?, I, ?, O> hypothesis, Collection<? extends I> inputs) {
+
+        CompiledMealy<I, O> compiled = new CompiledMealy<>(hypothesis, inputs);
+        return runTests(compiled, numbered(testSuite.apply(hypothesis, inputs)));
+    }
+}
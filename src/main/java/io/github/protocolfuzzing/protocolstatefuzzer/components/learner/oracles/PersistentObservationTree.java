@@ -0,0 +1,536 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.word.Word;
+import net.automatalib.word.WordBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Observation Tree that persists the observations of another tree in a file,
+ * so that they can be reused across learning runs.
+ * <p>
+ * The file is an append-only log, which starts with a header containing a
+ * format version and a fingerprint of the learning setup. It is followed by
+ * records that define outputs, add observations or remove branches. Inputs are
+ * stored as their index in the alphabet and outputs as their string form,
+ * from which they are rebuilt using the given output decoder. Outputs that are
+ * not rebuilt equal to themselves, such as outputs carrying the concrete
+ * messages of the SUL, are not persisted, and neither are the observations
+ * following them, so that replayed observations never contradict live ones.
+ * <p>
+ * On initialization, the log is replayed through a read-only memory mapping into
+ * the delegate tree, which serves as the in-memory index. A file with a
+ * different version or fingerprint is considered stale and is overwritten. An
+ * incomplete or corrupt record at the end of the log, left by an interrupted
+ * run, is discarded. Afterwards, each new observation is appended to the log.
+ * <p>
+ * Records are buffered and flushed every {@link #FLUSH_INTERVAL} records and on
+ * {@link #close()}, so that an interrupted run loses at most the observations of
+ * the last unflushed records.
+ * <p>
+ * Additions and removals lock the stripe of their first input, so that an
+ * observation is looked up, stored and appended at once and is thus appended
+ * only once. Observations starting with inputs of different stripes are added
+ * concurrently, while queries are answered by the delegate without locking.
+ * The tree is thus as thread-safe as its delegate.
+ *
+ * @param <I> the input type of the observations
+ * @param <O> the output type of the observations
+ */
+public class PersistentObservationTree<I, O> extends ObservationTree<I, O> implements Closeable {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    /** The magic number at the start of the file. */
+    protected static final int MAGIC = 0x50534643;
+
+    /** The version of the file format. */
+    protected static final int VERSION = 1;
+
+    /** The size of the file header in bytes. */
+    protected static final int HEADER_SIZE = 16;
+
+    /** The record type that defines the next output id. */
+    protected static final byte OUTPUT_RECORD = 1;
+
+    /** The record type that adds an observation. */
+    protected static final byte OBSERVATION_RECORD = 2;
+
+    /** The record type that removes a branch. */
+    protected static final byte REMOVAL_RECORD = 3;
+
+    /** The number of observation and removal records after which the log is flushed. */
+    protected static final int FLUSH_INTERVAL = 256;
+
+    /** The number of locks over which additions and removals are striped by their first input. */
+    protected static final int LOCK_STRIPES = 16;
+
+    /** Stores the constructor parameter. */
+    protected ObservationTree<I, O> delegate;
+
+    /** Stores the constructor parameter. */
+    protected Alphabet<I> alphabet;
+
+    /** Stores the constructor parameter. */
+    protected Function<String, O> outputDecoder;
+
+    /** Stores the constructor parameter. */
+    protected File file;
+
+    /** Stores the constructor parameter. */
+    protected long fingerprint;
+
+    /** Stores the id of each output that is defined in the file. */
+    protected Map<O, Integer> outputIds;
+
+    /** The number of outputs defined in the file. */
+    protected int outputCount;
+
+    /** The writer of the log, which is null after it is closed or fails. */
+    @Nullable protected DataOutputStream logWriter;
+
+    /** The number of records appended since the last flush. */
+    protected int unflushedRecords;
+
+    /** The locks of additions and removals, chosen by their first input. */
+    protected Object[] locks;
+
+    /**
+     * Constructs a new instance from the given parameters.
+     * <p>
+     * Invoke {@link #initialize()} afterwards.
+     *
+     * @param delegate      the tree that stores the observations in memory
+     * @param alphabet      the fixed input alphabet, used to index the inputs
+     * @param outputDecoder the function that rebuilds an output from its string form
+     * @param file          the file used for persisting the observations
+     * @param fingerprint   the fingerprint of the learning setup, see
+     *                          {@link #fingerprint(Collection, InputStream)}
+     */
+    public PersistentObservationTree(ObservationTree<I, O> delegate, Alphabet<I> alphabet,
+        Function<String, O> outputDecoder, File file, long fingerprint) {
+        super();
+        this.delegate = delegate;
+        this.alphabet = alphabet;
+        this.outputDecoder = outputDecoder;
+        this.file = file;
+        this.fingerprint = fingerprint;
+        this.outputIds = new HashMap<>();
+        this.outputCount = 0;
+        this.logWriter = null;
+        this.unflushedRecords = 0;
+        this.locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            this.locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Initializes the instance; to be run after the constructor.
+     * <p>
+     * The contents of the file are replayed into the delegate if the file is
+     * not stale, and the file is opened for appending new observations.
+     *
+     * @return             the same instance
+     *
+     * @throws IOException if the file cannot be read or written
+     */
+    public synchronized PersistentObservationTree<I, O> initialize() throws IOException {
+        boolean replayed = false;
+        if (file.length() >= HEADER_SIZE) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+                if (buffer.getInt() == MAGIC && buffer.getInt() == VERSION && buffer.getLong() == fingerprint) {
+                    channel.truncate(replay(buffer));
+                    replayed = true;
+                    LOGGER.info("Loaded {} outputs from cache file {}", outputCount, file);
+                } else {
+                    LOGGER.warn("Discarding stale cache file {}", file);
+                }
+            }
+        }
+
+        this.logWriter = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, replayed)));
+        if (!replayed) {
+            logWriter.writeInt(MAGIC);
+            logWriter.writeInt(VERSION);
+            logWriter.writeLong(fingerprint);
+            logWriter.flush();
+        }
+
+        return this;
+    }
+
+    /**
+     * Computes the fingerprint of a learning setup, which consists of the
+     * alphabet and the mapper connection configuration.
+     *
+     * @param  alphabet               the input alphabet
+     * @param  mapperConnectionConfig the stream of the mapper connection configuration or null
+     *
+     * @return                        the fingerprint of the learning setup
+     *
+     * @throws IOException            if the configuration stream cannot be read
+     */
+    public static long fingerprint(Collection<?> alphabet, @Nullable InputStream mapperConnectionConfig)
+        throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available", e);
+        }
+
+        for (Object symbol: alphabet) {
+            digest.update(symbol.toString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+
+        if (mapperConnectionConfig != null) {
+            digest.update(mapperConnectionConfig.readAllBytes());
+        }
+
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+
+    /**
+     * Replays the records of the mapped file into the delegate.
+     *
+     * @param  buffer      the mapped file positioned after the header
+     *
+     * @return             the position after the last complete record
+     *
+     * @throws IOException if the file contains an unknown record
+     */
+    protected long replay(MappedByteBuffer buffer) throws IOException {
+        List<O> outputs = new ArrayList<>();
+        long end = buffer.position();
+
+        try {
+            while (buffer.hasRemaining()) {
+                byte recordType = buffer.get();
+                switch (recordType) {
+                    case OUTPUT_RECORD -> {
+                        byte[] bytes = new byte[readLength(buffer, 1)];
+                        buffer.get(bytes);
+                        O output = outputDecoder.apply(new String(bytes, StandardCharsets.UTF_8));
+                        outputIds.putIfAbsent(output, outputCount++);
+                        outputs.add(output);
+                    }
+
+                    case OBSERVATION_RECORD -> {
+                        int length = readLength(buffer, 2 * Integer.BYTES);
+                        WordBuilder<I> inputBuilder = new WordBuilder<>(length);
+                        WordBuilder<O> outputBuilder = new WordBuilder<>(length);
+                        for (int i = 0; i < length; i++) {
+                            inputBuilder.append(alphabet.getSymbol(buffer.getInt()));
+                            outputBuilder.append(outputs.get(buffer.getInt()));
+                        }
+                        delegate.addObservation(inputBuilder.toWord(), outputBuilder.toWord());
+                    }
+
+                    case REMOVAL_RECORD -> {
+                        int length = readLength(buffer, Integer.BYTES);
+                        WordBuilder<I> inputBuilder = new WordBuilder<>(length);
+                        for (int i = 0; i < length; i++) {
+                            inputBuilder.append(alphabet.getSymbol(buffer.getInt()));
+                        }
+                        delegate.remove(inputBuilder.toWord());
+                    }
+
+                    default -> throw new IOException("Unknown record type " + recordType + " in cache file " + file);
+                }
+
+                end = buffer.position();
+            }
+        }
+        catch (BufferUnderflowException e) {
+            LOGGER.warn("Discarding incomplete record at the end of cache file {}", file);
+        }
+
+        return end;
+    }
+
+    /**
+     * Reads the length of a record, checking that the rest of the record fits
+     * in the remaining bytes of the file.
+     *
+     * @param  buffer                   the mapped file positioned at the length
+     * @param  unitSize                 the number of bytes per unit of length
+     *
+     * @return                          the length read
+     *
+     * @throws BufferUnderflowException if the length is negative or the record
+     *                                      does not fit in the file
+     */
+    protected static int readLength(ByteBuffer buffer, int unitSize) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining() / unitSize) {
+            throw new BufferUnderflowException();
+        }
+        return length;
+    }
+
+    /**
+     * Adds one input and output symbol to the delegate and appends it to the
+     * file if it is new.
+     * <p>
+     * The returned node is the one of the delegate, thus observations added
+     * through it are kept only in memory.
+     *
+     * @param  input                       the input symbol to be added
+     * @param  output                      the output symbol to be added
+     *
+     * @return                             the next node of the delegate
+     *
+     * @throws CacheInconsistencyException on inconsistency with previous observations input
+     */
+    @Override
+    public ObservationTree<I, O> addObservation(I input, O output) throws CacheInconsistencyException {
+        Word<I> inputs = Word.fromLetter(input);
+        synchronized (lockOf(inputs.asList())) {
+            boolean stored = delegate.answerQuery(inputs) != null;
+            ObservationTree<I, O> child = delegate.addObservation(input, output);
+
+            if (!stored) {
+                appendObservation(inputs, Word.fromLetter(output));
+            }
+            return child;
+        }
+    }
+
+    @Override
+    public void addObservation(Word<I> inputs, Word<O> outputs) throws CacheInconsistencyException {
+        synchronized (lockOf(inputs.asList())) {
+            boolean stored = delegate.answerQuery(inputs) != null;
+            delegate.addObservation(inputs, outputs);
+
+            if (!stored) {
+                appendObservation(inputs, outputs);
+            }
+        }
+    }
+
+    @Override
+    public void addObservation(List<I> inputs, List<O> outputs) throws CacheInconsistencyException {
+        checkSameLength(inputs.size(), outputs.size(), inputs, outputs);
+        addObservation(toWord(inputs), toWord(outputs));
+    }
+
+    @Override
+    public void remove(List<I> accessSequence) throws RemovalException {
+        synchronized (lockOf(accessSequence)) {
+            delegate.remove(accessSequence);
+            appendRemoval(accessSequence);
+        }
+    }
+
+    /**
+     * Returns the lock of the additions and removals of the given inputs,
+     * chosen by their first input.
+     *
+     * @param  inputs the inputs to be added or removed
+     *
+     * @return        the lock of the inputs
+     */
+    protected Object lockOf(List<I> inputs) {
+        return inputs.isEmpty() ? locks[0] : locks[Math.floorMod(inputs.get(0).hashCode(), LOCK_STRIPES)];
+    }
+
+    /**
+     * Indicates whether the given output is rebuilt equal to itself from its
+     * string form by the given decoder, so that it can be persisted.
+     *
+     * @param  <O>           the type of the output
+     * @param  output        the output to be checked
+     * @param  outputDecoder the function that rebuilds an output from its string form
+     *
+     * @return               {@code true} if the output can be persisted
+     */
+    protected static <O> boolean isRestorable(O output, Function<String, O> outputDecoder) {
+        return output.equals(outputDecoder.apply(String.valueOf(output)));
+    }
+
+    @Override
+    public void setTerminatingOutputs(Collection<O> terminatingOutputs) {
+        delegate.setTerminatingOutputs(terminatingOutputs);
+    }
+
+    @Override
+    public long getRefusedObservationCount() {
+        return delegate.getRefusedObservationCount();
+    }
+
+    @Override
+    protected void traverseDepthFirst(DepthFirstVisitor<I, O> visitor) throws IOException {
+        delegate.traverseDepthFirst(visitor);
+    }
+
+    @Override
+    public Cursor<I, O> cursor() {
+        return delegate.cursor();
+    }
+
+    @Override
+    @Nullable public Word<O> answerQuery(Word<I> word, boolean allowIncompleteAnswer) {
+        return delegate.answerQuery(word, allowIncompleteAnswer);
+    }
+
+    @Override
+    @Nullable public List<O> answerInputChain(List<I> inputs, boolean allowIncompleteAnswer) {
+        return delegate.answerInputChain(inputs, allowIncompleteAnswer);
+    }
+
+    /**
+     * Appends an observation record to the file, preceded by the records of
+     * its outputs that have no id yet.
+     * <p>
+     * Only the prefix of the observation before the first output that is not
+     * {@link #isRestorable(Object, Function) restorable} is appended.
+     *
+     * @param inputs  the inputs of the observation
+     * @param outputs the outputs of the observation
+     */
+    protected synchronized void appendObservation(Word<I> inputs, Word<O> outputs) {
+        if (logWriter == null) {
+            return;
+        }
+
+        try {
+            int length = 0;
+            while (length < outputs.length() && writeOutputId(outputs.getSymbol(length))) {
+                length++;
+            }
+            if (length == 0) {
+                return;
+            }
+
+            logWriter.writeByte(OBSERVATION_RECORD);
+            logWriter.writeInt(length);
+            for (int i = 0; i < length; i++) {
+                logWriter.writeInt(alphabet.getSymbolIndex(inputs.getSymbol(i)));
+                logWriter.writeInt(outputIds.get(outputs.getSymbol(i)));
+            }
+            recordAppended();
+        }
+        catch (IOException e) {
+            disablePersistence(e);
+        }
+    }
+
+    /**
+     * Appends a removal record to the file.
+     *
+     * @param accessSequence the inputs of the removed branch
+     */
+    protected synchronized void appendRemoval(List<I> accessSequence) {
+        if (logWriter == null) {
+            return;
+        }
+
+        try {
+            logWriter.writeByte(REMOVAL_RECORD);
+            logWriter.writeInt(accessSequence.size());
+            for (I input: accessSequence) {
+                logWriter.writeInt(alphabet.getSymbolIndex(input));
+            }
+            recordAppended();
+        }
+        catch (IOException e) {
+            disablePersistence(e);
+        }
+    }
+
+    /**
+     * Counts an appended record and flushes the log every {@link #FLUSH_INTERVAL} records.
+     *
+     * @throws IOException if the log cannot be flushed
+     */
+    private void recordAppended() throws IOException {
+        if (++unflushedRecords >= FLUSH_INTERVAL) {
+            logWriter.flush();
+            unflushedRecords = 0;
+        }
+    }
+
+    /**
+     * Writes an output record if the given output has no id yet and it is
+     * {@link #isRestorable(Object, Function) restorable}.
+     *
+     * @param  output      the output to be defined
+     *
+     * @return             {@code true} if the output has an id
+     *
+     * @throws IOException if the record cannot be written
+     */
+    private boolean writeOutputId(O output) throws IOException {
+        if (outputIds.containsKey(output)) {
+            return true;
+        }
+        if (!isRestorable(output, outputDecoder)) {
+            return false;
+        }
+
+        byte[] bytes = String.valueOf(output).getBytes(StandardCharsets.UTF_8);
+        logWriter.writeByte(OUTPUT_RECORD);
+        logWriter.writeInt(bytes.length);
+        logWriter.write(bytes);
+        outputIds.put(output, outputCount++);
+        return true;
+    }
+
+    /**
+     * Stops persisting observations after a write failure, keeping the delegate usable.
+     *
+     * @param e the exception of the write failure
+     */
+    protected void disablePersistence(IOException e) {
+        LOGGER.error("Could not write to cache file {}, stopped persisting observations: {}", file,
+            e.getMessage());
+        close();
+    }
+
+    /**
+     * Flushes and closes the file; observations added afterwards are kept only in memory.
+     */
+    @Override
+    public synchronized void close() {
+        if (logWriter == null) {
+            return;
+        }
+
+        try {
+            logWriter.close();
+        }
+        catch (IOException e) {
+            LOGGER.error("Could not close cache file {}: {}", file, e.getMessage());
+        }
+        logWriter = null;
+    }
+}
@@ -0,0 +1,37 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+/**
+ * Decides after each run of a probabilistic sanitization whether the most
+ * common answer can be returned, whether the query should be run again or
+ * whether the query should be deemed non-deterministic.
+ * <p>
+ * The run limit of the sanitization is enforced by the
+ * {@link MultipleRunsSULOracle}, which deems the query non-deterministic if the
+ * rule has not decided before the limit is reached.
+ */
+public interface ProbabilisticDecisionRule {
+
+    /**
+     * The decisions of a rule.
+     */
+    enum Decision {
+        /** The most common answer is returned. */
+        ACCEPT,
+
+        /** The query is run again. */
+        CONTINUE,
+
+        /** The query is deemed non-deterministic. */
+        REJECT
+    }
+
+    /**
+     * Decides based on the number of occurrences of the most common answer.
+     *
+     * @param  mostCommonCount the number of runs that resulted in the most common answer
+     * @param  runCount        the number of runs performed so far
+     *
+     * @return                 the decision
+     */
+    Decision decide(int mostCommonCount, int runCount);
+}
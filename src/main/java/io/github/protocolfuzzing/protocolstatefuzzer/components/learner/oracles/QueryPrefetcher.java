@@ -0,0 +1,314 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
+import de.learnlib.query.DefaultQuery;
+import de.learnlib.query.Query;
+import io.github.protocolfuzzing.protocolstatefuzzer.utils.AutomatonUtils;
+import net.automatalib.automaton.transducer.MealyMachine;
+import net.automatalib.word.Word;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Membership Oracle wrapper that speculatively runs the queries the learner is
+ * likely to ask next, while the learner is idle, e.g. while a hypothesis is
+ * exported.
+ * <p>
+ * Prefetching only runs between {@link #start(MealyMachine, Word)} and
+ * {@link #stop()}, which the state fuzzer calls around the export of each
+ * hypothesis, since the suls are used by the equivalence oracle and by the
+ * learner at any other time. The gain is thus bounded by the export time, and
+ * {@link #stop()} additionally waits for the running batch, i.e. for at most
+ * one query per sul. If this wait takes longer than the export itself,
+ * prefetching is disabled, since the learner then loses more time than the
+ * suls could save it.
+ * <p>
+ * The predicted queries are the one-symbol extensions of the access sequences
+ * of the hypothesis states, followed by the suffixes of the last counterexample
+ * or by a single input. Predicted queries the cache can already answer are not
+ * run. The rest are run in batches on a background thread through the wrapped
+ * oracle, which should store the answers in the cache, e.g. by being wrapped by
+ * a {@link CachingSULOracle}, so that the learner is answered from the cache.
+ * <p>
+ * The queries of the learner are passed on to the wrapped oracle, while it is
+ * tracked which prefetched queries they use, i.e. which prefetched queries first
+ * stored their inputs in the cache. If fewer than {@link #MIN_USED_RATE} of the
+ * queries prefetched in a round are used by the learner, prefetching is
+ * disabled, since it only keeps the suls busy.
+ *
+ * @param <I> the type of inputs
+ * @param <O> the type of outputs
+ */
+public class QueryPrefetcher<I, O> implements MealyMembershipOracle<I, O> {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    /** The rate of the prefetched queries used by the learner, below which prefetching is disabled. */
+    public static final double MIN_USED_RATE = 0.1;
+
+    /** Stores the constructor parameter. */
+    protected MealyMembershipOracle<I, O> sulOracle;
+
+    /** Stores the constructor parameter. */
+    protected ObservationTree<I, O> cache;
+
+    /** Stores the constructor parameter. */
+    protected Collection<? extends I> inputs;
+
+    /** Stores the constructor parameter. */
+    protected int maxQueries;
+
+    /** Stores the constructor parameter. */
+    protected int batchSize;
+
+    /**
+     * Stores the index of the prefetched query in the current round that first
+     * stored each input in the cache, for the inputs of the prefetched queries
+     * and their prefixes.
+     */
+    protected Map<Word<I>, Integer> prefetched;
+
+    /** The number of queries prefetched in the current round. */
+    protected int prefetchedQueries;
+
+    /** The indices of the prefetched queries used by the learner in the current round. */
+    protected Set<Integer> usedQueries;
+
+    /** Indicates if prefetching is still enabled. */
+    protected boolean enabled;
+
+    /** The thread running the prefetched queries, or null if no round is running. */
+    protected Thread prefetchThread;
+
+    /** Indicates if the running round should stop. */
+    protected volatile boolean stopping;
+
+    /** The {@link System#nanoTime()} at which the running round was started. */
+    protected long startTime;
+
+    /**
+     * Constructs a new instance from the given parameters.
+     *
+     * @param sulOracle  the oracle answering both the learner and the prefetched queries
+     * @param cache      the cache filled by the sulOracle, used to skip known queries
+     * @param inputs     the inputs of the hypotheses
+     * @param maxQueries the maximum number of queries prefetched in a round
+     * @param batchSize  the number of queries run together, e.g. the number of suls
+     */
+    public QueryPrefetcher(MealyMembershipOracle<I, O> sulOracle, ObservationTree<I, O> cache,
+        Collection<? extends I> inputs, int maxQueries, int batchSize) {
+
+        this.sulOracle = sulOracle;
+        this.cache = cache;
+        this.inputs = inputs;
+        this.maxQueries = maxQueries;
+        this.batchSize = Math.max(1, batchSize);
+        this.prefetched = new HashMap<>();
+        this.usedQueries = new HashSet<>();
+        this.enabled = true;
+    }
+
+    /**
+     * Passes the given queries on to the wrapped oracle, noting the ones that were prefetched.
+     *
+     * @param queries the queries to be processed
+     */
+    @Override
+    public void processQueries(Collection<? extends Query<I, Word<O>>> queries) {
+        synchronized (this) {
+            for (Query<I, Word<O>> query: queries) {
+                Integer prefetchedQuery = prefetched.get(query.getInput());
+                if (prefetchedQuery != null) {
+                    usedQueries.add(prefetchedQuery);
+                }
+            }
+        }
+        sulOracle.processQueries(queries);
+    }
+
+    /**
+     * Starts prefetching the queries predicted for the given hypothesis in the
+     * background, unless prefetching has been disabled.
+     * <p>
+     * The queries are predicted before returning, so the hypothesis is not
+     * accessed in the background. The wrapped oracle must not be used until
+     * {@link #stop()} is called.
+     *
+     * @param hypothesis     the current hypothesis
+     * @param counterexample the input of the last counterexample or null
+     */
+    public synchronized void start(MealyMachine<?, I, ?, ?> hypothesis, @Nullable Word<I> counterexample) {
+        if (!enabled || prefetchThread != null) {
+            return;
+        }
+
+        if (prefetchedQueries > 0 && usedQueries.size() < MIN_USED_RATE * prefetchedQueries) {
+            LOGGER.info("Disabling prefetching, the learner used {} of {} prefetched queries",
+                usedQueries.size(), prefetchedQueries);
+            enabled = false;
+            prefetched.clear();
+            return;
+        }
+
+        List<Word<I>> predicted = predictQueries(hypothesis, counterexample);
+        prefetched.clear();
+        prefetchedQueries = 0;
+        usedQueries.clear();
+        if (predicted.isEmpty()) {
+            return;
+        }
+
+        stopping = false;
+        startTime = System.nanoTime();
+        prefetchThread = Thread.ofPlatform().name("query-prefetcher").daemon().start(() -> prefetch(predicted));
+    }
+
+    /**
+     * Stops prefetching, waiting for the running batch of queries to finish,
+     * after which the wrapped oracle can be used again.
+     * <p>
+     * Prefetching is disabled if the wait takes longer than the time since
+     * {@link #start(MealyMachine, Word)}.
+     */
+    public void stop() {
+        Thread thread;
+        long stopTime = System.nanoTime();
+        long idleTime;
+        synchronized (this) {
+            thread = prefetchThread;
+            idleTime = stopTime - startTime;
+            stopping = true;
+        }
+        if (thread == null) {
+            return;
+        }
+
+        try {
+            thread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long waitTime = System.nanoTime() - stopTime;
+
+        synchronized (this) {
+            prefetchThread = null;
+            LOGGER.debug("Prefetched {} queries", prefetchedQueries);
+            if (waitTime > idleTime) {
+                LOGGER.info("Disabling prefetching, stopping it took {} ms while the suls were idle for {} ms",
+                    waitTime / 1000000, idleTime / 1000000);
+                enabled = false;
+                prefetched.clear();
+            }
+        }
+    }
+
+    /**
+     * Indicates if prefetching is still enabled.
+     *
+     * @return {@code true} if prefetching has not been disabled
+     */
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Runs the given queries in batches, until all are run or the round is stopped.
+     *
+     * @param predicted the inputs of the queries to be run
+     */
+    protected void prefetch(List<Word<I>> predicted) {
+        for (int start = 0; start < predicted.size() && !stopping; start += batchSize) {
+            List<DefaultQuery<I, Word<O>>> batch = new ArrayList<>(batchSize);
+            List<Integer> knownLengths = new ArrayList<>(batchSize);
+            for (Word<I> input: predicted.subList(start, Math.min(start + batchSize, predicted.size()))) {
+                batch.add(new DefaultQuery<>(input));
+                knownLengths.add(knownLength(input));
+            }
+
+            try {
+                sulOracle.processQueries(batch);
+            }
+            catch (RuntimeException e) {
+                // the learner runs into the same problem once it asks the query itself
+                LOGGER.debug("Stopped prefetching after query failure: {}", e.getMessage());
+                return;
+            }
+
+            synchronized (this) {
+                // only the prefixes that were not already in the cache are prefetched
+                for (int i = 0; i < batch.size(); i++) {
+                    Word<I> input = batch.get(i).getInput();
+                    for (int length = knownLengths.get(i) + 1; length <= input.length(); length++) {
+                        prefetched.putIfAbsent(input.prefix(length), prefetchedQueries + i);
+                    }
+                }
+                prefetchedQueries += batch.size();
+            }
+        }
+    }
+
+    /**
+     * Returns the length of the longest prefix of the given input that the cache can answer.
+     *
+     * @param  input the input to be looked up
+     *
+     * @return       the length of the longest known prefix
+     */
+    protected int knownLength(Word<I> input) {
+        int length = input.length();
+        while (length > 0 && cache.answerQuery(input.prefix(length)) == null) {
+            length--;
+        }
+        return length;
+    }
+
+    /**
+     * Predicts the queries the learner is likely to ask after the given hypothesis,
+     * leaving out the ones the cache can already answer.
+     *
+     * @param  hypothesis     the current hypothesis
+     * @param  counterexample the input of the last counterexample or null
+     *
+     * @return                the inputs of the predicted queries, most likely first
+     */
+    protected List<Word<I>> predictQueries(MealyMachine<?, I, ?, ?> hypothesis, @Nullable Word<I> counterexample) {
+        // the suffixes of the last counterexample are likely to be used as distinguishing suffixes
+        List<Word<I>> suffixes = new ArrayList<>();
+        if (counterexample != null) {
+            for (int i = counterexample.length() - 1; i > 0; i--) {
+                suffixes.add(counterexample.suffix(counterexample.length() - i));
+            }
+        }
+        for (I input: inputs) {
+            suffixes.add(Word.fromLetter(input));
+        }
+
+        Collection<Word<I>> accessSequences = AutomatonUtils.accessSequences(hypothesis, inputs).values();
+        Set<Word<I>> predicted = new LinkedHashSet<>();
+        for (Word<I> suffix: suffixes) {
+            for (Word<I> accessSequence: accessSequences) {
+                for (I input: inputs) {
+                    Word<I> query = accessSequence.append(input).concat(suffix);
+                    if (cache.answerQuery(query) == null) {
+                        predicted.add(query);
+                        if (predicted.size() >= maxQueries) {
+                            return new ArrayList<>(predicted);
+                        }
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(predicted);
+    }
+}
@@ -1,6 +1,5 @@
 package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
 
-import de.learnlib.oracle.EquivalenceOracle;
 import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
 import de.learnlib.query.DefaultQuery;
 import net.automatalib.automaton.transducer.MealyMachine;
@@ -8,14 +7,10 @@ import net.automatalib.word.Word;
 import net.automatalib.word.WordBuilder;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
-import java.util.Random;
-import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * Implements an equivalence test by applying the WP-method test on the given
@@ -30,7 +25,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  * <p>
  * Instead of enumerating the test suite in order, this is a sampling implementation:
  * <ol>
- * <li>Sample uniformly from the states for a prefix
+ * <li>Sample from the states for a prefix, uniformly unless the oracle is incremental
  * <li>Sample geometrically a random word
  * <li>Sample a word from the set of suffixes / state identifiers (either local or global).
  * </ol>
@@ -44,14 +39,16 @@ import java.util.concurrent.atomic.AtomicInteger;
  * minimalSize + rndLength.
  * In the unbounded case it will not terminate for a correct hypothesis.
  * </ul>
+ * <p>
+ * The tests are split over the oracles as described in {@link AbstractParallelEQOracle},
+ * and each test is generated only from the seed and its ticket, see
+ * {@link #testRandom(long, int)}. Hence, the result for a given seed does not
+ * depend on the number of oracles or on thread scheduling.
  *
  * @param <I> input symbol type
  * @param <O> output symbol type
  */
-public class RandomWpMethodEQOracle<I, O> implements EquivalenceOracle.MealyEquivalenceOracle<I, O> {
-
-    /** Stores the constructor parameter. */
-    protected List<MealyMembershipOracle<I, O>> sulOracles;
+public class RandomWpMethodEQOracle<I, O> extends AbstractParallelEQOracle<I, O> {
 
     /** Stores the constructor parameter. */
     protected int minimalSize;
@@ -65,6 +62,15 @@ public class RandomWpMethodEQOracle<I, O> implements EquivalenceOracle.MealyEqui
     /** Stores the constructor parameter. */
     protected long seed;
 
+    /** The increment of the SplitMix64 counter, i.e. the odd integer closest to 2^64 divided by the golden ratio. */
+    protected static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /** Indicates if each round reuses the work of the previous one, see {@link #setIncremental(boolean)}. */
+    protected boolean incremental;
+
+    /** The sequence generator of the previous hypothesis, kept if {@link #incremental} is set, or null. */
+    @Nullable protected WpEQSequenceGenerator<I, Word<O>, ?> previousGenerator;
+
     /**
      * Constructs a new instance from the given parameters, which represents an unbounded testing
      * oracle.
@@ -77,7 +83,7 @@ public class RandomWpMethodEQOracle<I, O> implements EquivalenceOracle.MealyEqui
     public RandomWpMethodEQOracle(List<MealyMembershipOracle<I, O>> sulOracles,
         int minimalSize, int rndLength, long seed) {
 
-        this.sulOracles = sulOracles;
+        super(sulOracles);
         this.minimalSize = minimalSize;
         this.rndLength = rndLength;
         this.seed = seed;
@@ -96,13 +102,25 @@ public class RandomWpMethodEQOracle<I, O> implements EquivalenceOracle.MealyEqui
     public RandomWpMethodEQOracle(List<MealyMembershipOracle<I, O>> sulOracles,
         int minimalSize, int rndLength, int bound, long seed) {
 
-        this.sulOracles = sulOracles;
+        super(sulOracles);
         this.minimalSize = minimalSize;
         this.rndLength = rndLength;
         this.bound = bound;
         this.seed = seed;
     }
 
+    /**
+     * Sets whether each round reuses the suffixes computed for the previous
+     * hypothesis and tests more often the states that are new or changed since
+     * then, see {@link WpEQSequenceGenerator}.
+     *
+     * @param incremental {@code true} to reuse the previous round
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        this.previousGenerator = null;
+    }
+
     /**
      * Tries to find a counterexample using {@link #doFindCounterExample(MealyMachine, Collection)}.
      *
@@ -129,56 +147,54 @@ public class RandomWpMethodEQOracle<I, O> implements EquivalenceOracle.MealyEqui
      */
     public <S> @Nullable DefaultQuery<I, Word<O>> doFindCounterExample(MealyMachine<S, I, ?, O> hypothesis,
         Collection<? extends I> inputs) {
-        WpEQSequenceGenerator<I, Word<O>, S> generator = new WpEQSequenceGenerator<>(hypothesis, inputs);
-
-        Random rand = new Random(seed);
-        List<S> states = new ArrayList<>(hypothesis.getStates());
-
-        AtomicInteger globalCounter = new AtomicInteger(0);
-        Object lockObject = new Object();
-        ConcurrentMap<Integer, DefaultQuery<I, Word<O>>> counterExamples = new ConcurrentHashMap<>();
-
-        List<Thread> threads = new ArrayList<>();
-
-        for (MealyMembershipOracle<I, O> oracle: sulOracles) {
-            Thread thread = new Thread(() -> {
-                while (globalCounter.get() < bound) {
-                    DefaultQuery<I, Word<O>> query;
-                    int ticket;
-                    synchronized (lockObject) {
-                        ticket = globalCounter.getAndIncrement();
-                        if (ticket >= bound) {
-                            break;
-                        }
-                        WordBuilder<I> wb = new WordBuilder<>(minimalSize + rndLength + 1);
-                        wb.append(generator.getRandomAccessSequence(
-                            states.get(rand.nextInt(states.size())), rand));
-                        wb.append(generator.getRandomMiddleSequence(minimalSize, rndLength, rand));
-                        wb.append(generator.getRandomCharacterizingSequence(wb, rand));
-
-                        query = new DefaultQuery<>(wb.toWord());
-                    }
-                    oracle.processQueries(Collections.singleton(query));
-                    Word<O> hypOutput = hypothesis.computeOutput(query.getInput());
-                    if (!Objects.equals(hypOutput, query.getOutput())) {
-                        counterExamples.put(ticket, query);
-                        globalCounter.set(bound);
-                    }
-                }
-            });
-            threads.add(thread);
-            thread.start();
+        WpEQSequenceGenerator<I, Word<O>, S> generator = new WpEQSequenceGenerator<>(hypothesis, inputs,
+            previousGenerator);
+        if (incremental) {
+            previousGenerator = generator;
         }
+        CompiledMealy<I, O> compiled = new CompiledMealy<>(hypothesis, inputs);
 
-        for (Thread thread: threads) {
-            try {
-                thread.join();
-            }
-            catch (InterruptedException e) {
-                throw new RuntimeException(e);
+        return runTests(compiled, ticket -> {
+            if (ticket >= bound) {
+                return null;
             }
-        }
+            // the test depends only on its ticket, whichever task generates it
+            RandomGenerator rand = testRandom(seed, ticket);
+            WordBuilder<I> wb = new WordBuilder<>(minimalSize + rndLength + 1);
+            wb.append(generator.getRandomAccessSequence(generator.getRandomState(rand), rand));
+            wb.append(generator.getRandomMiddleSequence(minimalSize, rndLength, rand));
+            wb.append(generator.getRandomCharacterizingSequence(wb, rand));
+            return wb.toWord();
+        });
+    }
+
+    /**
+     * Returns the random generator of the test with the given ticket.
+     * <p>
+     * The generator is seeded with the output of a SplitMix64 generator started
+     * from the seed, at the position of the ticket. Hence, tests are independent
+     * of each other and can be generated in any order, on any thread.
+     *
+     * @param  seed   the seed of the oracle
+     * @param  ticket the ticket of the test
+     *
+     * @return        the random generator of the test
+     */
+    protected static RandomGenerator testRandom(long seed, int ticket) {
+        return new SplittableRandom(mix64(seed + (ticket + 1L) * GOLDEN_GAMMA));
+    }
 
-        return counterExamples.isEmpty() ? null : counterExamples.get(Collections.min(counterExamples.keySet()));
+    /**
+     * Scrambles the given value using the SplitMix64 output function.
+     *
+     * @param  value the value to be scrambled
+     *
+     * @return       the scrambled value
+     */
+    protected static long mix64(long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
     }
 }
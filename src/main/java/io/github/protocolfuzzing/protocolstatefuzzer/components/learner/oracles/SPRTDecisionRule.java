@@ -0,0 +1,53 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+/**
+ * Decides using Wald's sequential probability ratio test on the likelihood of
+ * the most common answer.
+ * <p>
+ * The test weighs the hypothesis that the likelihood is the acceptable one
+ * against the hypothesis that it is only the passable one, and stops as soon
+ * as the log-likelihood ratio of the runs crosses one of the bounds given by
+ * the error rates. The ratio is updated in constant time per run.
+ */
+public class SPRTDecisionRule implements ProbabilisticDecisionRule {
+
+    /** The default probability of both accepting and rejecting wrongly. */
+    public static final double DEFAULT_ERROR_RATE = 0.05;
+
+    /** The log-likelihood ratio contributed by a run resulting in the most common answer. */
+    protected double matchWeight;
+
+    /** The log-likelihood ratio contributed by a run resulting in another answer. */
+    protected double mismatchWeight;
+
+    /** The log-likelihood ratio from which the answer is accepted. */
+    protected double acceptBound;
+
+    /** The log-likelihood ratio up to which the answer is rejected. */
+    protected double rejectBound;
+
+    /**
+     * Constructs a new instance from the given parameters.
+     *
+     * @param acceptableLikelihood the likelihood under the hypothesis to be accepted
+     * @param passableLikelihood   the likelihood under the hypothesis to be rejected,
+     *                                 which is less than the acceptable one
+     * @param errorRate            the probability of both accepting and rejecting wrongly
+     */
+    public SPRTDecisionRule(double acceptableLikelihood, double passableLikelihood, double errorRate) {
+        this.matchWeight = Math.log(acceptableLikelihood / passableLikelihood);
+        this.mismatchWeight = Math.log((1 - acceptableLikelihood) / (1 - passableLikelihood));
+        this.acceptBound = Math.log((1 - errorRate) / errorRate);
+        this.rejectBound = Math.log(errorRate / (1 - errorRate));
+    }
+
+    @Override
+    public Decision decide(int mostCommonCount, int runCount) {
+        double ratio = mostCommonCount * matchWeight + (runCount - mostCommonCount) * mismatchWeight;
+
+        if (ratio >= acceptBound) {
+            return Decision.ACCEPT;
+        }
+        return ratio <= rejectBound ? Decision.REJECT : Decision.CONTINUE;
+    }
+}
@@ -0,0 +1,240 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
+import net.automatalib.word.Word;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+
+/**
+ * Pool of sul oracles, each wrapping a different sul instance, which runs
+ * tasks on the oracles that are idle.
+ * <p>
+ * A task submitted to the pool waits for an idle oracle, uses it exclusively
+ * while it runs and then returns it to the pool. The suls of the oracles should
+ * not be used outside the pool while the pool is in use, so tasks whose results
+ * are not needed anymore should be stopped using {@link #cancel(Iterable)}.
+ *
+ * @param <I> the type of inputs
+ * @param <O> the type of outputs
+ */
+public class SULOraclePool<I, O> implements Closeable {
+
+    /** Stores the oracles that are not used by any task. */
+    protected BlockingQueue<MealyMembershipOracle<I, O>> idleOracles;
+
+    /** Stores the number of oracles in the pool. */
+    protected int size;
+
+    /** Stores the executor running the tasks. */
+    protected ExecutorService executor;
+
+    /**
+     * Constructs a new instance from the given parameter, running the tasks
+     * on one daemon platform thread per oracle.
+     *
+     * @param oracles the oracles of the pool, each wrapping a different sul instance
+     */
+    public SULOraclePool(List<? extends MealyMembershipOracle<I, O>> oracles) {
+        this(oracles, false);
+    }
+
+    /**
+     * Constructs a new instance from the given parameters.
+     *
+     * @param oracles        the oracles of the pool, each wrapping a different sul instance
+     * @param virtualThreads {@code true} to run each task on its own virtual thread,
+     *                           {@code false} to run the tasks on one platform thread per oracle
+     */
+    public SULOraclePool(List<? extends MealyMembershipOracle<I, O>> oracles, boolean virtualThreads) {
+        this.idleOracles = new LinkedBlockingQueue<>(oracles);
+        this.size = oracles.size();
+        this.executor = newExecutor(size, virtualThreads);
+    }
+
+    /**
+     * Creates an executor for tasks dispatching queries to suls.
+     * <p>
+     * Such tasks spend most of their time blocked waiting for the responses of
+     * the suls. Virtual threads are unmounted from their carrier while blocked,
+     * so that many suls can be driven concurrently by a few platform threads.
+     *
+     * @param  threads        the number of platform threads, if virtual threads are not used
+     * @param  virtualThreads {@code true} to run each task on its own virtual thread
+     *
+     * @return                the new executor
+     */
+    public static ExecutorService newExecutor(int threads, boolean virtualThreads) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("sul-task-", 0).factory());
+        }
+        return Executors.newFixedThreadPool(threads, Thread.ofPlatform().name("sul-task-", 0).daemon().factory());
+    }
+
+    /**
+     * Returns the number of oracles in the pool.
+     *
+     * @return the number of oracles in the pool
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Submits a task to be run with an idle oracle.
+     *
+     * @param  <T>  the type of the result of the task
+     * @param  task the task to be run, which receives the oracle to be used
+     *
+     * @return      the future result of the task
+     */
+    public <T> Future<T> submit(Function<MealyMembershipOracle<I, O>, T> task) {
+        PoolTask<T> poolTask = new PoolTask<>(() -> {
+            MealyMembershipOracle<I, O> oracle = idleOracles.take();
+            try {
+                return task.apply(oracle);
+            }
+            finally {
+                idleOracles.add(oracle);
+            }
+        });
+        executor.execute(poolTask);
+        return poolTask;
+    }
+
+    /**
+     * Answers the given input the given number of times, spreading the runs
+     * over the idle oracles.
+     *
+     * @param  input the input to be answered
+     * @param  times the number of runs
+     *
+     * @return       the futures of the answers, in the order of submission
+     */
+    public List<Future<Word<O>>> submitRuns(Word<I> input, int times) {
+        List<Future<Word<O>>> answers = new ArrayList<>(times);
+        for (int i = 0; i < times; i++) {
+            answers.add(submit(oracle -> oracle.answerQuery(input)));
+        }
+        return answers;
+    }
+
+    /**
+     * Waits for the result of a task submitted to the pool.
+     * <p>
+     * Runtime exceptions thrown by the task, such as the ones of the suls, are
+     * rethrown unwrapped.
+     *
+     * @param  <T>    the type of the result of the task
+     * @param  future the future result of the task
+     *
+     * @return        the result of the task
+     */
+    public static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a sul", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Cancels the given tasks of the pool that have not started yet and waits
+     * for the ones that have started to finish, ignoring their results.
+     * <p>
+     * Once it returns, none of the tasks uses an oracle of the pool, so the
+     * suls can be used by the caller again.
+     *
+     * @param futures the future results of tasks submitted to the pool
+     */
+    public static void cancel(Iterable<? extends Future<?>> futures) {
+        for (Future<?> future: futures) {
+            future.cancel(false);
+        }
+
+        boolean interrupted = false;
+        for (Future<?> future: futures) {
+            if (future instanceof PoolTask<?> poolTask) {
+                while (true) {
+                    try {
+                        poolTask.finished.await();
+                        break;
+                    }
+                    catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops the threads of the pool, interrupting the running tasks and
+     * cancelling the ones that have not started.
+     */
+    @Override
+    public void close() {
+        for (Runnable task: executor.shutdownNow()) {
+            if (task instanceof PoolTask<?> poolTask) {
+                poolTask.cancel(false);
+                poolTask.finished.countDown();
+            }
+        }
+    }
+
+    /**
+     * Task of the pool, which signals when it is no longer running.
+     * <p>
+     * Cancelling a running {@link FutureTask} does not wait for it to finish,
+     * so the end of its run is signalled separately.
+     *
+     * @param <T> the type of the result of the task
+     */
+    private static class PoolTask<T> extends FutureTask<T> {
+
+        /** Counted down once the task has finished or has been skipped. */
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        /**
+         * Constructs a new instance from the given parameter.
+         *
+         * @param callable the task to be run
+         */
+        private PoolTask(Callable<T> callable) {
+            super(callable);
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            }
+            finally {
+                finished.countDown();
+            }
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
 
-import de.learnlib.oracle.EquivalenceOracle;
 import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
 import de.learnlib.query.DefaultQuery;
 import net.automatalib.automaton.transducer.MealyMachine;
@@ -8,25 +7,23 @@ import net.automatalib.word.Word;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
 
 /**
  * Equivalence Oracle for the
  * {@link io.github.protocolfuzzing.protocolstatefuzzer.components.learner.factory.EquivalenceAlgorithmName#SAMPLED_TESTS}.
+ * <p>
+ * The tests are split over the oracles as described in {@link AbstractParallelEQOracle},
+ * so that the counterexample returned is the one of the first failing test.
  *
  * @param <I> the type of inputs
  * @param <O> the type of outputs
  */
-public class SampledTestsEQOracle<I, O> implements EquivalenceOracle.MealyEquivalenceOracle<I, O> {
+public class SampledTestsEQOracle<I, O> extends AbstractParallelEQOracle<I, O> {
 
     /** Stores the constructor parameter. */
     protected List<Word<I>> tests;
 
-    /** Stores the constructor parameter. */
-    protected MealyMembershipOracle<I, O> sulOracle;
-
     /**
      * Constructs a new instance from the given parameters.
      *
@@ -34,8 +31,18 @@ public class SampledTestsEQOracle<I, O> implements EquivalenceOracle.MealyEquiva
      * @param sulOracle the sul oracle to be used
      */
     public SampledTestsEQOracle(List<Word<I>> tests, MealyMembershipOracle<I, O> sulOracle) {
+        this(tests, List.of(sulOracle));
+    }
+
+    /**
+     * Constructs a new instance from the given parameters.
+     *
+     * @param tests      the list of tests to be sampled
+     * @param sulOracles the sul oracles over which the tests are split
+     */
+    public SampledTestsEQOracle(List<Word<I>> tests, List<MealyMembershipOracle<I, O>> sulOracles) {
+        super(sulOracles);
         this.tests = tests;
-        this.sulOracle = sulOracle;
     }
 
     /**
@@ -50,17 +57,7 @@ public class SampledTestsEQOracle<I, O> implements EquivalenceOracle.MealyEquiva
     public @Nullable DefaultQuery<I, Word<O>> findCounterExample(
         MealyMachine<?, I, ?, O> hypothesis, Collection<? extends I> inputs) {
 
-        for (Word<I> test: tests) {
-            DefaultQuery<I, Word<O>> query = new DefaultQuery<>(test);
-            Word<O> hypOutput = hypothesis.computeOutput(test);
-
-            sulOracle.processQueries(Collections.singleton(query));
-
-            if (!Objects.equals(hypOutput, query.getOutput())) {
-                return query;
-            }
-        }
-
-        return null;
+        CompiledMealy<I, O> compiled = new CompiledMealy<>(hypothesis, inputs);
+        return runTests(compiled, ticket -> ticket < tests.size() ? tests.get(ticket) : null);
     }
 }
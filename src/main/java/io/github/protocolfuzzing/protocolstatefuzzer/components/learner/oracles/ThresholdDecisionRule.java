@@ -0,0 +1,47 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+/**
+ * Decides by comparing the likelihood of the most common answer with fixed
+ * thresholds, once a minimum number of runs has been performed.
+ * <p>
+ * An answer whose likelihood is at least the acceptable threshold is
+ * accepted, while one whose likelihood is below the passable threshold is
+ * rejected.
+ */
+public class ThresholdDecisionRule implements ProbabilisticDecisionRule {
+
+    /** Stores the constructor parameter. */
+    protected int minRuns;
+
+    /** Stores the constructor parameter. */
+    protected double acceptableThreshold;
+
+    /** Stores the constructor parameter. */
+    protected double passableThreshold;
+
+    /**
+     * Constructs a new instance from the given parameters.
+     *
+     * @param minRuns             the number of runs after which the likelihood is checked
+     * @param acceptableThreshold the likelihood from which an answer is accepted
+     * @param passableThreshold   the likelihood below which an answer is rejected
+     */
+    public ThresholdDecisionRule(int minRuns, double acceptableThreshold, double passableThreshold) {
+        this.minRuns = minRuns;
+        this.acceptableThreshold = acceptableThreshold;
+        this.passableThreshold = passableThreshold;
+    }
+
+    @Override
+    public Decision decide(int mostCommonCount, int runCount) {
+        if (runCount <= minRuns) {
+            return Decision.CONTINUE;
+        }
+
+        double likelihood = (double) mostCommonCount / runCount;
+        if (likelihood >= acceptableThreshold) {
+            return Decision.ACCEPT;
+        }
+        return likelihood >= passableThreshold ? Decision.CONTINUE : Decision.REJECT;
+    }
+}
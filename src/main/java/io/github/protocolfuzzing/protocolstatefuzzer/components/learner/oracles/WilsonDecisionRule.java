@@ -0,0 +1,46 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+/**
+ * Decides using the Wilson score interval of the likelihood of the most
+ * common answer.
+ * <p>
+ * The answer is accepted as soon as the lower bound of the interval reaches
+ * the given likelihood and rejected as soon as the upper bound falls below
+ * it, so that clear-cut cases are decided after few runs.
+ */
+public class WilsonDecisionRule implements ProbabilisticDecisionRule {
+
+    /** The z-score of the 95% confidence interval. */
+    public static final double DEFAULT_Z = 1.96;
+
+    /** Stores the constructor parameter. */
+    protected double likelihood;
+
+    /** Stores the constructor parameter. */
+    protected double z;
+
+    /**
+     * Constructs a new instance from the given parameters.
+     *
+     * @param likelihood the likelihood that the most common answer should exceed
+     * @param z          the z-score of the confidence interval
+     */
+    public WilsonDecisionRule(double likelihood, double z) {
+        this.likelihood = likelihood;
+        this.z = z;
+    }
+
+    @Override
+    public Decision decide(int mostCommonCount, int runCount) {
+        double p = (double) mostCommonCount / runCount;
+        double z2 = z * z;
+        double center = p + z2 / (2.0 * runCount);
+        double margin = z * Math.sqrt(p * (1 - p) / runCount + z2 / (4.0 * runCount * runCount));
+        double denominator = 1 + z2 / runCount;
+
+        if ((center - margin) / denominator >= likelihood) {
+            return Decision.ACCEPT;
+        }
+        return (center + margin) / denominator < likelihood ? Decision.REJECT : Decision.CONTINUE;
+    }
+}
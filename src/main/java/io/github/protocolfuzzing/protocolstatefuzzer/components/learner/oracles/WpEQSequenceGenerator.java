@@ -1,21 +1,20 @@
 package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
 
-import io.github.protocolfuzzing.protocolstatefuzzer.utils.AutomatonUtils.PredStruct;
 import net.automatalib.automaton.UniversalDeterministicAutomaton;
-import net.automatalib.common.util.mapping.MutableMapping;
+import net.automatalib.automaton.concept.StateIDs;
 import net.automatalib.util.automaton.Automata;
 import net.automatalib.word.Word;
 import net.automatalib.word.WordBuilder;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.Set;
+import java.util.Objects;
+import java.util.random.RandomGenerator;
 
 /**
  * Sequence generation method that randomizes access sequences.
@@ -25,6 +24,25 @@ import java.util.Set;
  * "https://github.com/mtf90/learnlib/blob/develop/eqtests/basic-eqtests/src/main/java/de/learnlib/eqtests/basic/RandomWpMethodEQOracle.java">RandomWpMethodEQOracle</a>.
  * <p>
  * The key difference is that we randomize access sequences.
+ * <p>
+ * The transitions, predecessors and suffixes of the automaton are computed once
+ * into arrays indexed by state and input ids. Generating sequences only reads
+ * these arrays, so an instance can be used by several threads at once without
+ * locking, provided that each thread uses its own random generator.
+ * <p>
+ * Each access sequence is the path to its state in a fresh spanning tree, drawn
+ * by a depth-first search from the initial state that tries the inputs of each
+ * state starting from a random one. As in the original, any path without repeated
+ * states can be returned, but each state is visited at most once, so that the
+ * search takes at most linear time in the number of transitions instead of
+ * backtracking over all such paths.
+ * <p>
+ * If the generator of the previous hypothesis is given, the two hypotheses are
+ * compared. The suffixes computed for the previous hypothesis are then reused,
+ * extended only where they no longer tell states apart. Moreover, the states
+ * that are new or changed, along with their predecessors, are picked more often
+ * by {@link #getRandomState(RandomGenerator)}, as counterexamples are most likely
+ * found around them.
  *
  * @param <I> the type of inputs
  * @param <D> the type of output domain
@@ -38,14 +56,57 @@ public class WpEQSequenceGenerator<I, D, S> {
     /** Stores the constructor parameter. */
     protected Collection<? extends I> inputs;
 
+    /** The state ids of the {@link #automaton}. */
+    protected StateIDs<S> stateIds;
+
+    /** The inputs indexed by their input id. */
+    protected List<I> inputArray;
+
+    /** The input id of each input. */
+    protected Map<I, Integer> inputIds;
+
+    /** The id of the initial state. */
+    protected int initialState;
+
+    /**
+     * The successor id of each transition, stored at index state id * number
+     * of inputs + input id, or -1 for undefined transitions.
+     */
+    protected int[] successors;
+
+    /**
+     * The start of the predecessors of each state in {@link #predStates} and
+     * {@link #predInputs}, indexed by state id, followed by the total number of
+     * predecessors.
+     */
+    protected int[] predOffsets;
+
+    /** The state ids of the predecessors, grouped by the state they precede. */
+    protected int[] predStates;
+
+    /** The input ids from the predecessors, aligned with {@link #predStates}. */
+    protected int[] predInputs;
+
+    /** The property of each transition, stored at the same index as in {@link #successors}. */
+    protected List<@Nullable Object> transitionProperties;
+
+    /** The property of each state, indexed by state id. */
+    protected List<@Nullable Object> stateProperties;
+
+    /**
+     * The ids of the states that are new or changed since the previous hypothesis
+     * and of their predecessors, or an empty array if there is no previous hypothesis.
+     */
+    protected int[] focusStates;
+
+    /** The probability that {@link #getRandomState(RandomGenerator)} picks one of the {@link #focusStates}. */
+    protected static final double FOCUS_RATE = 0.5;
+
     /** The list of global suffixes. */
     protected List<Word<I>> globalSuffixes;
 
-    /** The set of local suffixes. */
-    protected MutableMapping<S, List<Word<I>>> localSuffixSets;
-
-    /** The map holding the predecessors of {@link #inputs}. */
-    protected Map<S, List<PredStruct<S, I>>> predMap;
+    /** The local suffixes, indexed by state id. */
+    protected List<List<Word<I>>> localSuffixSets;
 
     /**
      * Constructs a new instance from the given parameters.
@@ -57,38 +118,104 @@ public class WpEQSequenceGenerator<I, D, S> {
         UniversalDeterministicAutomaton<S, I, ?, ?, ?> automaton,
         Collection<? extends I> inputs) {
 
+        this(automaton, inputs, null);
+    }
+
+    /**
+     * Constructs a new instance from the given parameters, reusing the suffixes
+     * of the previous hypothesis.
+     *
+     * @param automaton the automaton to be used
+     * @param inputs    the inputs of the automaton
+     * @param previous  the generator of the previous hypothesis or null
+     */
+    public WpEQSequenceGenerator(
+        UniversalDeterministicAutomaton<S, I, ?, ?, ?> automaton,
+        Collection<? extends I> inputs,
+        @Nullable WpEQSequenceGenerator<I, D, ?> previous) {
+
         this.automaton = automaton;
         this.inputs = inputs;
-        globalSuffixes = computeGlobalSuffixes(automaton, inputs);
-        localSuffixSets = computeLocalSuffixSets(automaton, inputs);
-        predMap = computePredecessorMap(automaton, inputs);
+        this.stateIds = automaton.stateIDs();
+        this.inputArray = List.copyOf(inputs);
+        this.inputIds = new HashMap<>();
+        for (int i = 0; i < inputArray.size(); i++) {
+            inputIds.put(inputArray.get(i), i);
+        }
+
+        int size = automaton.size();
+        S init = automaton.getInitialState();
+        this.initialState = init == null ? -1 : stateIds.getStateId(init);
+        this.transitionProperties = new ArrayList<>(size * inputArray.size());
+        this.stateProperties = new ArrayList<>(size);
+        this.successors = computeSuccessors(size);
+        computePredecessors(size);
+
+        if (previous == null) {
+            this.focusStates = new int[0];
+            this.globalSuffixes = computeGlobalSuffixes(automaton, inputs);
+            this.localSuffixSets = computeLocalSuffixSets(automaton, inputs);
+        } else {
+            int[] previousStates = computePreviousStates(previous);
+            this.focusStates = computeFocusStates(previousStates);
+            this.globalSuffixes = new ArrayList<>(previous.globalSuffixes);
+            Automata.incrementalCharacterizingSet(automaton, inputs, previous.globalSuffixes, globalSuffixes);
+            this.localSuffixSets = computeLocalSuffixSets(automaton, inputs, previous, previousStates);
+        }
     }
 
     /**
-     * Computes the predecessor map of automaton inputs.
+     * Computes the successor table of the {@link #automaton}, also filling
+     * the {@link #transitionProperties} and the {@link #stateProperties}.
      *
-     * @param  <S>       the type of states
-     * @param  <I>       the type of inputs
-     * @param  automaton the automaton to be used
-     * @param  inputs    the inputs of the automaton
+     * @param  size the number of states
      *
-     * @return           the predecessor map
+     * @return      the successor table, as described in {@link #successors}
      */
-    public static <S, I> Map<S, List<PredStruct<S, I>>> computePredecessorMap(
-        UniversalDeterministicAutomaton<S, I, ?, ?, ?> automaton,
-        Collection<? extends I> inputs) {
+    private int[] computeSuccessors(int size) {
+        int[] table = new int[size * inputArray.size()];
+        for (int state = 0; state < size; state++) {
+            S s = stateIds.getState(state);
+            stateProperties.add(automaton.getStateProperty(s));
+            for (int input = 0; input < inputArray.size(); input++) {
+                S succ = automaton.getSuccessor(s, inputArray.get(input));
+                table[state * inputArray.size() + input] = succ == null ? -1 : stateIds.getStateId(succ);
+                transitionProperties.add(succ == null ? null
+                    : automaton.getTransitionProperty(s, inputArray.get(input)));
+            }
+        }
+        return table;
+    }
 
-        Map<S, List<PredStruct<S, I>>> predMap = new HashMap<>();
-        for (S s: automaton.getStates()) {
-            for (I input: inputs) {
-                S succ = automaton.getSuccessor(s, input);
-                if (succ != null) {
-                    predMap.putIfAbsent(succ, new ArrayList<>());
-                    predMap.get(succ).add(new PredStruct<>(s, input));
-                }
+    /**
+     * Computes the {@link #predOffsets}, {@link #predStates} and {@link #predInputs}
+     * from the {@link #successors}.
+     *
+     * @param size the number of states
+     */
+    private void computePredecessors(int size) {
+        int alphabetSize = inputArray.size();
+        predOffsets = new int[size + 1];
+        for (int succ: successors) {
+            if (succ >= 0) {
+                predOffsets[succ + 1]++;
+            }
+        }
+        for (int state = 0; state < size; state++) {
+            predOffsets[state + 1] += predOffsets[state];
+        }
+
+        predStates = new int[predOffsets[size]];
+        predInputs = new int[predOffsets[size]];
+        int[] filled = new int[size];
+        for (int i = 0; i < successors.length; i++) {
+            int succ = successors[i];
+            if (succ >= 0) {
+                int index = predOffsets[succ] + filled[succ]++;
+                predStates[index] = i / alphabetSize;
+                predInputs[index] = i % alphabetSize;
             }
         }
-        return predMap;
     }
 
     /**
@@ -114,37 +241,236 @@ public class WpEQSequenceGenerator<I, D, S> {
      * @param  automaton the automaton to be used
      * @param  inputs    the inputs of the automaton
      *
-     * @return           the list of local suffixes
+     * @return           the list of local suffixes, indexed by state id
      */
-    private MutableMapping<S, List<Word<I>>> computeLocalSuffixSets(
+    private List<List<Word<I>>> computeLocalSuffixSets(
         UniversalDeterministicAutomaton<S, I, ?, ?, ?> automaton,
         Collection<? extends I> inputs) {
 
-        MutableMapping<S, List<Word<I>>> localSuffixSets = automaton.createStaticStateMapping();
-        for (S state: automaton.getStates()) {
+        List<List<Word<I>>> localSuffixSets = new ArrayList<>(automaton.size());
+        for (int state = 0; state < automaton.size(); state++) {
             List<Word<I>> suffixSet = new ArrayList<>();
-            Automata.stateCharacterizingSet(automaton, inputs, state, suffixSet);
-            localSuffixSets.put(state, suffixSet);
+            Automata.stateCharacterizingSet(automaton, inputs, stateIds.getState(state), suffixSet);
+            localSuffixSets.add(suffixSet);
         }
         return localSuffixSets;
     }
 
+    /**
+     * Computes the local suffixes of the automaton, reusing the ones of the
+     * unchanged states of the previous hypothesis.
+     * <p>
+     * The reused suffixes are extended with separating words for the states
+     * they no longer tell apart, e.g. the ones that are new.
+     *
+     * @param  automaton      the automaton to be used
+     * @param  inputs         the inputs of the automaton
+     * @param  previous       the generator of the previous hypothesis
+     * @param  previousStates the previous state id of each state, as computed
+     *                            by {@link #computePreviousStates(WpEQSequenceGenerator)}
+     *
+     * @return                the list of local suffixes, indexed by state id
+     */
+    private List<List<Word<I>>> computeLocalSuffixSets(
+        UniversalDeterministicAutomaton<S, I, ?, ?, ?> automaton,
+        Collection<? extends I> inputs,
+        WpEQSequenceGenerator<I, D, ?> previous,
+        int[] previousStates) {
+
+        List<List<Word<I>>> localSuffixSets = new ArrayList<>(automaton.size());
+        for (int state = 0; state < automaton.size(); state++) {
+            S s = stateIds.getState(state);
+            List<Word<I>> suffixSet = new ArrayList<>();
+            if (previousStates[state] < 0) {
+                Automata.stateCharacterizingSet(automaton, inputs, s, suffixSet);
+            } else {
+                suffixSet.addAll(previous.localSuffixSets.get(previousStates[state]));
+                for (int other = 0; other < automaton.size(); other++) {
+                    if (other != state && !isSeparated(state, other, suffixSet)) {
+                        Word<I> separatingWord = Automata.findSeparatingWord(automaton, s,
+                            stateIds.getState(other), inputs);
+                        if (separatingWord != null) {
+                            suffixSet.add(separatingWord);
+                        }
+                    }
+                }
+            }
+            localSuffixSets.add(suffixSet);
+        }
+        return localSuffixSets;
+    }
+
+    /**
+     * Matches the states of the automaton with the ones of the previous hypothesis.
+     * <p>
+     * Each state is matched with the previous state reached by its shortest
+     * access sequence. A state is unchanged if no other state is matched with
+     * the same previous state, if it has the same properties and if its
+     * successors are matched with the successors of the previous state.
+     *
+     * @param  previous the generator of the previous hypothesis
+     *
+     * @return          the previous state id of each unchanged state, indexed
+     *                      by state id, or -1 for the new or changed states
+     */
+    private int[] computePreviousStates(WpEQSequenceGenerator<I, D, ?> previous) {
+        int size = stateProperties.size();
+        int alphabetSize = inputArray.size();
+        int previousAlphabetSize = previous.inputArray.size();
+        int[] previousInputs = new int[alphabetSize];
+        for (int input = 0; input < alphabetSize; input++) {
+            previousInputs[input] = previous.inputIds.getOrDefault(inputArray.get(input), -1);
+        }
+
+        // breadth-first search over both hypotheses at once
+        int[] matched = new int[size];
+        Arrays.fill(matched, -1);
+        int[] queue = new int[size];
+        int queued = 0;
+        if (initialState >= 0 && previous.initialState >= 0) {
+            matched[initialState] = previous.initialState;
+            queue[queued++] = initialState;
+        }
+        for (int head = 0; head < queued; head++) {
+            int state = queue[head];
+            for (int input = 0; input < alphabetSize; input++) {
+                int succ = successors[state * alphabetSize + input];
+                int previousSucc = previousInputs[input] < 0 ? -1
+                    : previous.successors[matched[state] * previousAlphabetSize + previousInputs[input]];
+                if (succ >= 0 && matched[succ] < 0 && previousSucc >= 0) {
+                    matched[succ] = previousSucc;
+                    queue[queued++] = succ;
+                }
+            }
+        }
+
+        int[] matches = new int[previous.stateProperties.size()];
+        for (int state = 0; state < size; state++) {
+            if (matched[state] >= 0) {
+                matches[matched[state]]++;
+            }
+        }
+
+        int[] previousStates = new int[size];
+        for (int state = 0; state < size; state++) {
+            int previousState = matched[state];
+            boolean unchanged = previousState >= 0 && matches[previousState] == 1
+                && Objects.equals(stateProperties.get(state), previous.stateProperties.get(previousState));
+            for (int input = 0; unchanged && input < alphabetSize; input++) {
+                int index = state * alphabetSize + input;
+                if (previousInputs[input] < 0) {
+                    unchanged = false;
+                } else {
+                    int previousIndex = previousState * previousAlphabetSize + previousInputs[input];
+                    int succ = successors[index];
+                    unchanged = (succ < 0 ? -1 : matched[succ]) == previous.successors[previousIndex]
+                        && Objects.equals(transitionProperties.get(index),
+                            previous.transitionProperties.get(previousIndex));
+                }
+            }
+            previousStates[state] = unchanged ? previousState : -1;
+        }
+        return previousStates;
+    }
+
+    /**
+     * Computes the {@link #focusStates}, i.e. the new or changed states and
+     * their predecessors.
+     *
+     * @param  previousStates the previous state id of each state, as computed
+     *                            by {@link #computePreviousStates(WpEQSequenceGenerator)}
+     *
+     * @return                the ids of the focus states
+     */
+    private int[] computeFocusStates(int[] previousStates) {
+        boolean[] focus = new boolean[previousStates.length];
+        for (int state = 0; state < previousStates.length; state++) {
+            if (previousStates[state] < 0) {
+                focus[state] = true;
+                for (int i = predOffsets[state]; i < predOffsets[state + 1]; i++) {
+                    focus[predStates[i]] = true;
+                }
+            }
+        }
+
+        int[] focusStates = new int[previousStates.length];
+        int count = 0;
+        for (int state = 0; state < focus.length; state++) {
+            if (focus[state]) {
+                focusStates[count++] = state;
+            }
+        }
+        return Arrays.copyOf(focusStates, count);
+    }
+
+    /**
+     * Checks if one of the given suffixes tells the given states apart, i.e. if
+     * they yield different properties when run from the two states.
+     *
+     * @param  state    the id of the first state
+     * @param  other    the id of the second state
+     * @param  suffixes the suffixes to be run
+     *
+     * @return          {@code true} if the states are told apart
+     */
+    private boolean isSeparated(int state, int other, List<Word<I>> suffixes) {
+        if (!Objects.equals(stateProperties.get(state), stateProperties.get(other))) {
+            return true;
+        }
+        for (Word<I> suffix: suffixes) {
+            int s1 = state;
+            int s2 = other;
+            for (I input: suffix) {
+                Integer inputId = inputIds.get(input);
+                if (inputId == null || s1 < 0 || s2 < 0) {
+                    break;
+                }
+                int t1 = s1 * inputArray.size() + inputId;
+                int t2 = s2 * inputArray.size() + inputId;
+                s1 = successors[t1];
+                s2 = successors[t2];
+                if ((s1 < 0) != (s2 < 0)
+                    || !Objects.equals(transitionProperties.get(t1), transitionProperties.get(t2))
+                    || s1 >= 0 && !Objects.equals(stateProperties.get(s1), stateProperties.get(s2))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a random state of the automaton.
+     * <p>
+     * If there are {@link #focusStates}, one of them is picked with probability
+     * {@link #FOCUS_RATE}. Otherwise, all states are equally likely.
+     *
+     * @param  rand a random generator to be used
+     *
+     * @return      the random state
+     */
+    public S getRandomState(RandomGenerator rand) {
+        if (focusStates.length > 0 && rand.nextDouble() < FOCUS_RATE) {
+            return stateIds.getState(focusStates[rand.nextInt(focusStates.length)]);
+        }
+        return stateIds.getState(rand.nextInt(stateProperties.size()));
+    }
+
     /**
      * Constructs the random middle sequence of an expected length.
      *
      * @param  minimalSize the minimal size of the sequence
      * @param  rndLength   length used for the random length generation
-     * @param  rand        a Random instance used for the random length generation
+     * @param  rand        a random generator used for the random length generation
      *
      * @return             the constructed middle sequence
      */
-    public Word<I> getRandomMiddleSequence(int minimalSize, int rndLength, Random rand) {
-        List<I> arrayAlphabet = new ArrayList<>(inputs);
-        WordBuilder<I> wb = new WordBuilder<>();
+    public Word<I> getRandomMiddleSequence(int minimalSize, int rndLength, RandomGenerator rand) {
+        WordBuilder<I> wb = new WordBuilder<>(minimalSize + rndLength);
         int size = minimalSize;
 
         while ((size > 0) || (rand.nextDouble() > 1 / (rndLength + 1.0))) {
-            wb.append(arrayAlphabet.get(rand.nextInt(arrayAlphabet.size())));
+            wb.append(inputArray.get(rand.nextInt(inputArray.size())));
             if (size > 0) {
                 size--;
             }
@@ -154,156 +480,113 @@ public class WpEQSequenceGenerator<I, D, S> {
     }
 
     /**
-     * Returns a random characterizing sequence of the given sequence using
-     * {@link #getRandomCharacterizingSequence(UniversalDeterministicAutomaton, Collection, Iterable, Random)}.
+     * Returns a random characterizing sequence of the state reached by the given sequence.
      * <p>
-     * The {@link #automaton} and {@link #inputs} are also used.
-     *
-     * @param  fromSequence the initial sequence to be used
-     * @param  rand         a Random instance to be used
-     *
-     * @return              the random characterizing sequence
-     */
-    public Word<I> getRandomCharacterizingSequence(Iterable<I> fromSequence, Random rand) {
-        return getRandomCharacterizingSequence(automaton, inputs, fromSequence, rand);
-    }
-
-    /**
-     * Returns a random characterizing sequence of the given sequence.
+     * With equal chance, a global suffix or a local suffix of the state is picked.
      *
-     * @param  automaton    the automaton to be used
-     * @param  inputs       the inputs of the automaton
      * @param  fromSequence the initial sequence to be used
-     * @param  rand         a Random instance to be used
+     * @param  rand         a random generator to be used
      *
      * @return              the random characterizing sequence
      */
-    protected Word<I> getRandomCharacterizingSequence(
-        UniversalDeterministicAutomaton<S, I, ?, ?, ?> automaton,
-        Collection<? extends I> inputs,
-        Iterable<I> fromSequence,
-        Random rand) {
-
-        WordBuilder<I> wb = new WordBuilder<>();
-
+    public Word<I> getRandomCharacterizingSequence(Iterable<I> fromSequence, RandomGenerator rand) {
         // pick a random suffix for this state
         // 50% chance for state testing, 50% chance for transition testing
+        List<Word<I>> suffixes;
         if (rand.nextBoolean()) {
             // global
-            if (!globalSuffixes.isEmpty()) {
-                wb.append(globalSuffixes.get(rand.nextInt(globalSuffixes.size())));
-            }
+            suffixes = globalSuffixes;
         } else {
             // local
-            S state2 = automaton.getState(fromSequence);
-            List<Word<I>> localSuffixes = localSuffixSets.get(state2);
-            if (!localSuffixes.isEmpty()) {
-                wb.append(localSuffixes.get(rand.nextInt(localSuffixes.size())));
-            }
+            int state = getStateId(fromSequence);
+            suffixes = state < 0 ? List.of() : localSuffixSets.get(state);
         }
 
-        return wb.toWord();
+        return suffixes.isEmpty() ? Word.epsilon() : suffixes.get(rand.nextInt(suffixes.size()));
     }
 
     /**
-     * Returns a random access sequence of the given state using
-     * {@link #getRandomAccessSequence(UniversalDeterministicAutomaton, Collection, Object, Random)}.
-     * <p>
-     * The {@link #automaton} and {@link #inputs} are also used.
+     * Returns the id of the state reached by the given sequence.
      *
-     * @param  toState               the target state to be used
-     * @param  rand                  a Random instance to be used
-     *
-     * @return                       the random access sequence
+     * @param  sequence the sequence to be run from the initial state
      *
-     * @throws IllegalStateException if the access sequence cannot be generated
+     * @return          the id of the reached state or -1 if it is undefined
      */
-    public Word<I> getRandomAccessSequence(S toState, Random rand) {
-        return getRandomAccessSequence(automaton, inputs, toState, rand);
+    protected int getStateId(Iterable<I> sequence) {
+        int state = initialState;
+        for (I input: sequence) {
+            Integer inputId = inputIds.get(input);
+            if (state < 0 || inputId == null) {
+                return -1;
+            }
+            state = successors[state * inputArray.size() + inputId];
+        }
+        return state;
     }
 
     /**
-     * Returns a random access sequence of the given state using
-     * {@link #getRandomAccessSequence(UniversalDeterministicAutomaton, Collection, Object, Random, Object, Set, List)}.
+     * Returns a random access sequence of the given state, i.e. the inputs of the
+     * path from the initial state to the given state in a random spanning tree.
+     * <p>
+     * The tree is built by a depth-first search, which tries the inputs of each
+     * state starting from a random one and stops when the given state is reached.
+     * The path has no repeated states.
      *
-     * @param  automaton             the automaton to be used
-     * @param  inputs                the inputs of the automaton
      * @param  toState               the target state to be used
-     * @param  rand                  a Random instance to be used
+     * @param  rand                  a random generator to be used
      *
      * @return                       the random access sequence
      *
      * @throws IllegalStateException if the access sequence cannot be generated
      */
-    protected Word<I> getRandomAccessSequence(
-        UniversalDeterministicAutomaton<S, I, ?, ?, ?> automaton,
-        Collection<? extends I> inputs,
-        S toState,
-        Random rand) {
-
-        Set<S> hs = new HashSet<>();
-        hs.add(toState);
-
-        Word<I> accessSequence = getRandomAccessSequence(automaton, inputs, toState, rand, toState, hs,
-            new ArrayList<>());
-
-        if (accessSequence == null) {
-            throw new IllegalStateException("Access sequence could not be generated");
+    public Word<I> getRandomAccessSequence(S toState, RandomGenerator rand) {
+        int target = stateIds.getStateId(toState);
+        if (target == initialState) {
+            return Word.epsilon();
         }
 
-        return accessSequence;
-    }
-
-    /**
-     * Returns a random access sequence of the given state.
-     *
-     * @param  automaton the automaton to be used
-     * @param  inputs    the inputs of the automaton
-     * @param  toState   the target state to be used
-     * @param  rand      a Random instance to be used
-     * @param  visiting  the state that is being visited
-     * @param  visited   the set of visited states
-     * @param  sequence  an external list of input sequence
-     *
-     * @return           the random access sequence or null
-     */
-    protected Word<I> getRandomAccessSequence(
-        UniversalDeterministicAutomaton<S, I, ?, ?, ?> automaton,
-        Collection<? extends I> inputs,
-        S toState,
-        Random rand,
-        S visiting,
-        Set<S> visited,
-        List<I> sequence) {
-
-        if (visiting.equals(automaton.getInitialState())) {
-            return Word.fromList(sequence);
+        int size = stateProperties.size();
+        int alphabetSize = inputArray.size();
+        if (initialState < 0 || alphabetSize == 0) {
+            throw new IllegalStateException("Access sequence could not be generated");
         }
 
-        List<PredStruct<S, I>> predStructs = predMap.get(visiting);
-
-        if (predStructs != null) {
-            predStructs = new ArrayList<>(predStructs);
-            Collections.shuffle(predStructs, rand);
-
-            for (PredStruct<S, I> predStruct: predStructs) {
-                if (!visited.contains(predStruct.getState())) {
-                    visited.add(predStruct.getState());
-                    sequence.add(0, predStruct.getInput());
-
-                    Word<I> result = getRandomAccessSequence(
-                        automaton, inputs, toState, rand, predStruct.getState(), visited, sequence);
+        // the states on the current path, with the input taken from each, the offset and number of inputs tried
+        int[] pathStates = new int[size];
+        int[] pathInputs = new int[size];
+        int[] startOffsets = new int[size];
+        int[] tried = new int[size];
+        boolean[] visited = new boolean[size];
+        visited[initialState] = true;
+        pathStates[0] = initialState;
+        startOffsets[0] = rand.nextInt(alphabetSize);
+        int depth = 0;
+
+        while (depth >= 0) {
+            if (tried[depth] == alphabetSize) {
+                depth--;
+                continue;
+            }
 
-                    if (result != null) {
-                        return result;
+            int state = pathStates[depth];
+            int input = (startOffsets[depth] + tried[depth]++) % alphabetSize;
+            int succ = successors[state * alphabetSize + input];
+            if (succ >= 0 && !visited[succ]) {
+                visited[succ] = true;
+                pathInputs[depth] = input;
+                if (succ == target) {
+                    WordBuilder<I> wb = new WordBuilder<>(depth + 1);
+                    for (int i = 0; i <= depth; i++) {
+                        wb.append(inputArray.get(pathInputs[i]));
                     }
-
-                    visited.remove(predStruct.getState());
-                    sequence.remove(0);
+                    return wb.toWord();
                 }
+                depth++;
+                pathStates[depth] = succ;
+                startOffsets[depth] = rand.nextInt(alphabetSize);
+                tried[depth] = 0;
             }
         }
-
-        return null;
+        throw new IllegalStateException("Access sequence could not be generated");
     }
 }
@@ -1,18 +1,14 @@
 package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
 
-import de.learnlib.oracle.EquivalenceOracle;
 import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
 import de.learnlib.query.DefaultQuery;
 import net.automatalib.automaton.transducer.MealyMachine;
 import net.automatalib.word.Word;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Equivalence Oracle for the
@@ -22,30 +18,41 @@ import java.util.Random;
  * middle sequence is derived from a set of logs. Specifically, the middle
  * sequence is obtained by selecting a suffix of arbitrary length from an
  * arbitrarily chosen log.
+ * <p>
+ * The tests are split over the oracles as described in {@link AbstractParallelEQOracle},
+ * and each test is generated only from the seed, the round and its ticket.
+ * Hence, the tests do not depend on the number of oracles, while each round
+ * samples new tests rather than replaying the ones of the previous rounds.
  *
  * @param <I> the type of inputs
  * @param <O> the type of outputs
  */
-public class WpSampledTestsEQOracle<I, O> implements EquivalenceOracle.MealyEquivalenceOracle<I, O> {
+public class WpSampledTestsEQOracle<I, O> extends AbstractParallelEQOracle<I, O> {
 
     /** Stores the constructor parameter. */
     protected List<Word<I>> tests;
 
-    /** Stores the constructor parameter. */
-    MealyMembershipOracle<I, O> sulOracle;
-
     /** Stores the constructor parameter. */
     protected int minimalSize;
 
     /** Stores the constructor parameter. */
     protected int rndLength;
 
-    /** Stores the constructor parameter seed wrapped in {@link Random}. */
-    protected Random rand;
+    /** Stores the constructor parameter. */
+    protected long seed;
 
     /** Stores the constructor parameter. */
     protected int bound;
 
+    /** The number of rounds performed, mixed into the seed of the tests of each round. */
+    protected long round;
+
+    /** Indicates if each round reuses the work of the previous one, see {@link #setIncremental(boolean)}. */
+    protected boolean incremental;
+
+    /** The sequence generator of the previous hypothesis, kept if {@link #incremental} is set, or null. */
+    @Nullable protected WpEQSequenceGenerator<I, Word<O>, ?> previousGenerator;
+
     /**
      * Constructs a new instance from the given parameters.
      *
@@ -60,14 +67,43 @@ public class WpSampledTestsEQOracle<I, O> implements EquivalenceOracle.MealyEqui
         MealyMembershipOracle<I, O> sulOracle, int minimalSize,
         int rndLength, long seed, int bound) {
 
+        this(tests, List.of(sulOracle), minimalSize, rndLength, seed, bound);
+    }
+
+    /**
+     * Constructs a new instance from the given parameters.
+     *
+     * @param tests       the list of tests to be sampled
+     * @param sulOracles  the sul oracles over which the tests are split
+     * @param minimalSize the minimal size of middle sequence
+     * @param rndLength   the random length of middle sequence
+     * @param seed        the seed used for randomness
+     * @param bound       the upper bound of sampling iterations
+     */
+    public WpSampledTestsEQOracle(List<Word<I>> tests,
+        List<MealyMembershipOracle<I, O>> sulOracles, int minimalSize,
+        int rndLength, long seed, int bound) {
+
+        super(sulOracles);
         this.tests = tests;
-        this.sulOracle = sulOracle;
         this.minimalSize = minimalSize;
         this.rndLength = rndLength;
-        this.rand = new Random(seed);
+        this.seed = seed;
         this.bound = bound;
     }
 
+    /**
+     * Sets whether each round reuses the suffixes computed for the previous
+     * hypothesis and tests more often the states that are new or changed since
+     * then, see {@link WpEQSequenceGenerator}.
+     *
+     * @param incremental {@code true} to reuse the previous round
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        this.previousGenerator = null;
+    }
+
     /**
      * Tries to find a counterexample using {@link #doFindCounterExample(MealyMachine, Collection)}.
      *
@@ -92,14 +128,25 @@ public class WpSampledTestsEQOracle<I, O> implements EquivalenceOracle.MealyEqui
      *
      * @return            the counterexample or null
      */
-    protected <S> DefaultQuery<I, Word<O>> doFindCounterExample(
+    protected <S> @Nullable DefaultQuery<I, Word<O>> doFindCounterExample(
         MealyMachine<S, I, ?, O> hypothesis, Collection<? extends I> inputs) {
 
-        WpEQSequenceGenerator<I, Word<O>, S> generator = new WpEQSequenceGenerator<>(hypothesis, inputs);
-        List<S> states = new ArrayList<>(hypothesis.getStates());
+        WpEQSequenceGenerator<I, Word<O>, S> generator = new WpEQSequenceGenerator<>(hypothesis, inputs,
+            previousGenerator);
+        if (incremental) {
+            previousGenerator = generator;
+        }
+        CompiledMealy<I, O> compiled = new CompiledMealy<>(hypothesis, inputs);
+        long roundSeed = RandomWpMethodEQOracle.mix64(seed + round * RandomWpMethodEQOracle.GOLDEN_GAMMA);
+        round++;
 
-        for (int i = 0; i < bound; i++) {
-            S randState = states.get(rand.nextInt(states.size()));
+        return runTests(compiled, ticket -> {
+            if (ticket >= bound) {
+                return null;
+            }
+            // the test depends only on the round and its ticket, as in RandomWpMethodEQOracle
+            RandomGenerator rand = RandomWpMethodEQOracle.testRandom(roundSeed, ticket);
+            S randState = generator.getRandomState(rand);
             Word<I> randAccSeq = generator.getRandomAccessSequence(randState, rand);
             Word<I> middlePart;
 
@@ -111,17 +158,7 @@ public class WpSampledTestsEQOracle<I, O> implements EquivalenceOracle.MealyEqui
             }
 
             Word<I> distSequence = generator.getRandomCharacterizingSequence(randAccSeq.concat(middlePart), rand);
-            Word<I> test = randAccSeq.concat(middlePart, distSequence);
-            Word<O> hypOutput = hypothesis.computeOutput(test);
-            DefaultQuery<I, Word<O>> query = new DefaultQuery<>(test);
-
-            sulOracle.processQueries(Collections.singleton(query));
-
-            if (!Objects.equals(hypOutput, query.getOutput())) {
-                return query;
-            }
-        }
-
-        return null;
+            return randAccSeq.concat(middlePart, distSequence);
+        });
     }
 }
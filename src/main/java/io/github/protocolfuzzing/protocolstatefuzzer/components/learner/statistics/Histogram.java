@@ -0,0 +1,150 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.statistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe histogram of non-negative values, such as query lengths or
+ * latencies, with buckets of exponentially growing width.
+ * <p>
+ * Bucket 0 counts the zero values and bucket {@code i > 0} counts the values
+ * in {@code [2^(i-1), 2^i - 1]}, so that recording a value only costs a few
+ * atomic updates and no allocation. Negative values are recorded as zero.
+ */
+public class Histogram {
+
+    /** The number of buckets, enough for any non-negative long. */
+    public static final int BUCKETS = 64;
+
+    /** Stores the number of values recorded in each bucket. */
+    protected AtomicLongArray buckets;
+
+    /** The number of recorded values. */
+    protected LongAdder count;
+
+    /** The sum of the recorded values. */
+    protected LongAdder sum;
+
+    /** The minimum recorded value. */
+    protected AtomicLong min;
+
+    /** The maximum recorded value. */
+    protected AtomicLong max;
+
+    /**
+     * Constructs a new empty instance.
+     */
+    public Histogram() {
+        this.buckets = new AtomicLongArray(BUCKETS);
+        this.count = new LongAdder();
+        this.sum = new LongAdder();
+        this.min = new AtomicLong(Long.MAX_VALUE);
+        this.max = new AtomicLong(0);
+    }
+
+    /**
+     * Records the given value.
+     *
+     * @param value the value to be recorded
+     */
+    public void record(long value) {
+        long recorded = Math.max(value, 0);
+        buckets.incrementAndGet(bucketOf(recorded));
+        count.increment();
+        sum.add(recorded);
+        min.accumulateAndGet(recorded, Math::min);
+        max.accumulateAndGet(recorded, Math::max);
+    }
+
+    /**
+     * Returns the bucket of the given non-negative value.
+     *
+     * @param  value the value
+     *
+     * @return       the index of the bucket counting the value
+     */
+    public static int bucketOf(long value) {
+        return Math.min(BUCKETS - Long.numberOfLeadingZeros(value), BUCKETS - 1);
+    }
+
+    /**
+     * Returns the largest value counted by the given bucket.
+     *
+     * @param  bucket the index of the bucket
+     *
+     * @return        the upper bound of the bucket
+     */
+    public static long upperBoundOf(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    /**
+     * Returns the number of values recorded in the given bucket.
+     *
+     * @param  bucket the index of the bucket
+     *
+     * @return        the number of values in the bucket
+     */
+    public long getBucketCount(int bucket) {
+        return buckets.get(bucket);
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the sum of the recorded values.
+     *
+     * @return the sum of the recorded values
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Returns the minimum recorded value or 0 if no value has been recorded.
+     *
+     * @return the minimum recorded value
+     */
+    public long getMin() {
+        long value = min.get();
+        return value == Long.MAX_VALUE ? 0 : value;
+    }
+
+    /**
+     * Returns the maximum recorded value or 0 if no value has been recorded.
+     *
+     * @return the maximum recorded value
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the smallest bucket upper bound that is at least the given
+     * quantile of the recorded values, or 0 if no value has been recorded.
+     *
+     * @param  quantile the quantile in [0, 1]
+     *
+     * @return          an upper bound of the quantile
+     */
+    public long getQuantileUpperBound(double quantile) {
+        long total = getCount();
+        long threshold = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS && total > 0; i++) {
+            seen += buckets.get(i);
+            if (seen >= threshold) {
+                return Math.min(upperBoundOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+}
@@ -0,0 +1,140 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.statistics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Thread-safe registry of named counters, gauges and histograms, which are
+ * updated by the instrumented oracles and SUL wrappers of a learning run.
+ * <p>
+ * Names are dot-separated, starting with the component they belong to, such
+ * as {@code learning.cache.hits} or {@code sul0.step.latencyNanos}. The
+ * components should look up their metrics once, when they are constructed,
+ * so that recording does not involve the registry.
+ * <p>
+ * A snapshot of all metrics can be written in JSON format using
+ * {@link #exportJson(Writer)}.
+ */
+public class MetricsRegistry {
+
+    /** Stores the counters by name. */
+    protected Map<String, LongAdder> counters;
+
+    /** Stores the gauges by name. */
+    protected Map<String, LongSupplier> gauges;
+
+    /** Stores the histograms by name. */
+    protected Map<String, Histogram> histograms;
+
+    /**
+     * Constructs a new empty instance.
+     */
+    public MetricsRegistry() {
+        this.counters = new ConcurrentHashMap<>();
+        this.gauges = new ConcurrentHashMap<>();
+        this.histograms = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the counter with the given name, creating it if needed.
+     *
+     * @param  name the name of the counter
+     *
+     * @return      the counter
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    /**
+     * Registers a gauge, whose value is read when a snapshot is taken.
+     *
+     * @param name  the name of the gauge
+     * @param gauge the supplier of the value of the gauge
+     */
+    public void gauge(String name, LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Returns the histogram with the given name, creating it if needed.
+     *
+     * @param  name the name of the histogram
+     *
+     * @return      the histogram
+     */
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new Histogram());
+    }
+
+    /**
+     * Writes a snapshot of all metrics in JSON format, with the metrics of
+     * each kind sorted by name.
+     * <p>
+     * Each histogram is written with its count, sum, minimum, maximum, upper
+     * bounds of its median and 99th percentile, and its non-empty buckets as
+     * pairs of bucket upper bound and count.
+     *
+     * @param  writer      the writer to be used
+     *
+     * @throws IOException if an error occurs while writing
+     */
+    public void exportJson(Writer writer) throws IOException {
+        writer.write("{\n  \"counters\": {");
+        String separator = "\n";
+        for (Map.Entry<String, LongAdder> entry: new TreeMap<>(counters).entrySet()) {
+            writer.write(separator + "    " + quote(entry.getKey()) + ": " + entry.getValue().sum());
+            separator = ",\n";
+        }
+
+        writer.write("\n  },\n  \"gauges\": {");
+        separator = "\n";
+        for (Map.Entry<String, LongSupplier> entry: new TreeMap<>(gauges).entrySet()) {
+            writer.write(separator + "    " + quote(entry.getKey()) + ": " + entry.getValue().getAsLong());
+            separator = ",\n";
+        }
+
+        writer.write("\n  },\n  \"histograms\": {");
+        separator = "\n";
+        for (Map.Entry<String, Histogram> entry: new TreeMap<>(histograms).entrySet()) {
+            Histogram histogram = entry.getValue();
+            writer.write(separator + "    " + quote(entry.getKey()) + ": {"
+                + "\"count\": " + histogram.getCount()
+                + ", \"sum\": " + histogram.getSum()
+                + ", \"min\": " + histogram.getMin()
+                + ", \"max\": " + histogram.getMax()
+                + ", \"p50\": " + histogram.getQuantileUpperBound(0.5)
+                + ", \"p99\": " + histogram.getQuantileUpperBound(0.99)
+                + ", \"buckets\": [");
+
+            String bucketSeparator = "";
+            for (int i = 0; i < Histogram.BUCKETS; i++) {
+                long bucketCount = histogram.getBucketCount(i);
+                if (bucketCount > 0) {
+                    writer.write(bucketSeparator + "[" + Histogram.upperBoundOf(i) + ", " + bucketCount + "]");
+                    bucketSeparator = ", ";
+                }
+            }
+            writer.write("]}");
+            separator = ",\n";
+        }
+        writer.write("\n  }\n}\n");
+        writer.flush();
+    }
+
+    /**
+     * Quotes the given name as a JSON string.
+     *
+     * @param  name the name to be quoted
+     *
+     * @return      the quoted name
+     */
+    protected static String quote(String name) {
+        return "\"" + name.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
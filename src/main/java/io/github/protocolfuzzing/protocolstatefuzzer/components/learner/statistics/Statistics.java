@@ -46,6 +46,12 @@ public class Statistics<I, ID, OD, CE> {
     /** Stores the list of counterexamples found. */
     protected List<CE> counterexamples;
 
+    /** Stores the lengths of the counterexamples found, before they were reduced. */
+    protected List<Integer> originalCounterexampleLengths;
+
+    /** Stores the lengths of the counterexamples found, after they were reduced. */
+    protected List<Integer> reducedCounterexampleLengths;
+
     /** Stores the time (ms) for the learning to finish. */
     protected long duration;
 
@@ -64,6 +70,12 @@ public class Statistics<I, ID, OD, CE> {
     /** Stores a list with statistics for all hypotheses found. */
     protected List<HypothesisStatistics<ID, OD, CE>> hypStats;
 
+    /** Stores the number of nodes resident in a bounded cache or null if the cache is unbounded. */
+    protected Long cacheNodes;
+
+    /** Stores the number of nodes evicted from a bounded cache or null if the cache is unbounded. */
+    protected Long cacheEvictions;
+
     /**
      * Constructs a new instance with empty {@link #runDescription}.
      */
@@ -106,6 +118,10 @@ public class Statistics<I, ID, OD, CE> {
         pw.println("Number of inputs up to last hypothesis: " + lastHypInputs);
         pw.println("Number of tests up to last hypothesis: " + lastHypTests);
         pw.println("Time (ms) to learn model: " + duration);
+        if (cacheNodes != null && cacheEvictions != null) {
+            pw.println("Number of resident cache nodes: " + cacheNodes);
+            pw.println("Number of evicted cache nodes: " + cacheEvictions);
+        }
 
         pw.println("Counterexamples:");
         int ind = 1;
@@ -114,6 +130,11 @@ public class Statistics<I, ID, OD, CE> {
             ind++;
         }
 
+        if (originalCounterexampleLengths != null && !originalCounterexampleLengths.isEmpty()) {
+            pw.println("Counterexample lengths before reduction: " + originalCounterexampleLengths);
+            pw.println("Counterexample lengths after reduction: " + reducedCounterexampleLengths);
+        }
+
         if (!hypStats.isEmpty()) {
             pw.println("Number of inputs when hypothesis was generated: "
                 + hypStats.stream().map(s -> s.getSnapshot().getInputs()).toList());
@@ -376,6 +397,42 @@ public class Statistics<I, ID, OD, CE> {
         return counterexamples.get(counterexamples.size() - 1);
     }
 
+    /**
+     * Returns the stored value of {@link #originalCounterexampleLengths}.
+     *
+     * @return the stored value of {@link #originalCounterexampleLengths}
+     */
+    public List<Integer> getOriginalCounterexampleLengths() {
+        return originalCounterexampleLengths;
+    }
+
+    /**
+     * Sets the value of {@link #originalCounterexampleLengths}.
+     *
+     * @param originalCounterexampleLengths the lengths of the counterexamples before they were reduced
+     */
+    public void setOriginalCounterexampleLengths(List<Integer> originalCounterexampleLengths) {
+        this.originalCounterexampleLengths = originalCounterexampleLengths;
+    }
+
+    /**
+     * Returns the stored value of {@link #reducedCounterexampleLengths}.
+     *
+     * @return the stored value of {@link #reducedCounterexampleLengths}
+     */
+    public List<Integer> getReducedCounterexampleLengths() {
+        return reducedCounterexampleLengths;
+    }
+
+    /**
+     * Sets the value of {@link #reducedCounterexampleLengths}.
+     *
+     * @param reducedCounterexampleLengths the lengths of the counterexamples after they were reduced
+     */
+    public void setReducedCounterexampleLengths(List<Integer> reducedCounterexampleLengths) {
+        this.reducedCounterexampleLengths = reducedCounterexampleLengths;
+    }
+
     /**
      * Sets the value of {@link #finished} and {@link #notFinishedReason}.
      *
@@ -416,4 +473,40 @@ public class Statistics<I, ID, OD, CE> {
         }
         return hypStats.get(hypStats.size() - 1);
     }
+
+    /**
+     * Returns the stored value of {@link #cacheNodes}.
+     *
+     * @return the stored value of {@link #cacheNodes}
+     */
+    public Long getCacheNodes() {
+        return cacheNodes;
+    }
+
+    /**
+     * Sets the value of {@link #cacheNodes}.
+     *
+     * @param cacheNodes the number of nodes resident in a bounded cache
+     */
+    public void setCacheNodes(Long cacheNodes) {
+        this.cacheNodes = cacheNodes;
+    }
+
+    /**
+     * Returns the stored value of {@link #cacheEvictions}.
+     *
+     * @return the stored value of {@link #cacheEvictions}
+     */
+    public Long getCacheEvictions() {
+        return cacheEvictions;
+    }
+
+    /**
+     * Sets the value of {@link #cacheEvictions}.
+     *
+     * @param cacheEvictions the number of nodes evicted from a bounded cache
+     */
+    public void setCacheEvictions(Long cacheEvictions) {
+        this.cacheEvictions = cacheEvictions;
+    }
 }
@@ -4,11 +4,14 @@ import de.learnlib.filter.statistic.Counter;
 import io.github.protocolfuzzing.protocolstatefuzzer.statefuzzer.core.config.StateFuzzerEnabler;
 import net.automatalib.alphabet.Alphabet;
 
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.function.LongSupplier;
 
 /**
  * Tracks learning related statistics during the learning process.
@@ -41,6 +44,15 @@ public abstract class StatisticsTracker<I, ID, OD, CE> {
     /** Time (ms) relative to the start of the learning experiment. */
     protected long startTime;
 
+    /** Supplies the number of nodes resident in a bounded cache, if one is used. */
+    protected LongSupplier cacheNodesSupplier;
+
+    /** Supplies the number of nodes evicted from a bounded cache, if one is used. */
+    protected LongSupplier cacheEvictionsSupplier;
+
+    /** The registry of the metrics of the learning run, or null if metrics are disabled. */
+    protected MetricsRegistry metrics;
+
     /**
      * The states of the learning process.
      */
@@ -67,6 +79,54 @@ public abstract class StatisticsTracker<I, ID, OD, CE> {
         this.testCounter = testCounter;
     }
 
+    /**
+     * Enables the tracking of a bounded cache, whose resident and evicted nodes
+     * are included in the statistics.
+     *
+     * @param cacheNodesSupplier     supplies the number of nodes resident in the cache
+     * @param cacheEvictionsSupplier supplies the number of nodes evicted from the cache
+     */
+    public void setCacheTracking(LongSupplier cacheNodesSupplier, LongSupplier cacheEvictionsSupplier) {
+        this.cacheNodesSupplier = cacheNodesSupplier;
+        this.cacheEvictionsSupplier = cacheEvictionsSupplier;
+    }
+
+    /**
+     * Enables the export of the given metrics, to which the total numbers of
+     * inputs and tests are added as the gauges {@code total.inputs} and
+     * {@code total.tests}.
+     *
+     * @param metrics the registry of the metrics of the learning run
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+        metrics.gauge("total.inputs", inputCounter::getCount);
+        metrics.gauge("total.tests", testCounter::getCount);
+    }
+
+    /**
+     * Returns the registry of the metrics of the learning run.
+     *
+     * @return the registry of the metrics or null if metrics are disabled
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Writes a machine-readable snapshot of the current metrics in JSON format,
+     * if metrics are enabled.
+     *
+     * @param  writer      the writer to be used
+     *
+     * @throws IOException if an error occurs while writing
+     */
+    public void exportMetrics(Writer writer) throws IOException {
+        if (metrics != null) {
+            metrics.exportJson(writer);
+        }
+    }
+
     /**
      * Enables the logging of learning states to the specified output stream
      * by initializing {@link #stateWriter}.
@@ -167,6 +227,8 @@ public abstract class StatisticsTracker<I, ID, OD, CE> {
         statistics.setAllTests(0);
         statistics.setAllInputs(0);
         statistics.setCounterexamples(new ArrayList<>());
+        statistics.setOriginalCounterexampleLengths(new ArrayList<>());
+        statistics.setReducedCounterexampleLengths(new ArrayList<>());
         statistics.setLastHypTests(0);
         statistics.setLastHypInputs(0);
         statistics.setFinished(false, null);
@@ -225,6 +287,17 @@ public abstract class StatisticsTracker<I, ID, OD, CE> {
         logStateChange(State.REFINEMENT);
     }
 
+    /**
+     * Should be called every time a counterexample is reduced before refinement.
+     *
+     * @param originalLength the length of the counterexample before it was reduced
+     * @param reducedLength  the length of the counterexample after it was reduced
+     */
+    public void newReducedCounterExample(int originalLength, int reducedLength) {
+        statistics.getOriginalCounterexampleLengths().add(originalLength);
+        statistics.getReducedCounterexampleLengths().add(reducedLength);
+    }
+
     /**
      * Should be called once learning finishes with a learned model or when it
      * is abruptly terminated yet statistics are desired. In the latter
@@ -245,6 +318,11 @@ public abstract class StatisticsTracker<I, ID, OD, CE> {
         statistics.setDuration(System.currentTimeMillis() - startTime);
         statistics.setFinished(finished, notFinishedReason);
 
+        if (cacheNodesSupplier != null && cacheEvictionsSupplier != null) {
+            statistics.setCacheNodes(cacheNodesSupplier.getAsLong());
+            statistics.setCacheEvictions(cacheEvictionsSupplier.getAsLong());
+        }
+
         logStateChange(State.FINISHED);
     }
 
@@ -0,0 +1,94 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.sul.core.sulwrappers;
+
+import de.learnlib.sul.SUL;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.statistics.Histogram;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.statistics.MetricsRegistry;
+
+/**
+ * SUL Wrapper used for measuring the latency of the resets and steps of the inner sul.
+ * <p>
+ * The latencies are recorded in nanoseconds to the histograms
+ * {@code <name>.pre.latencyNanos}, {@code <name>.step.latencyNanos} and
+ * {@code <name>.post.latencyNanos} of the given registry. The reset of the
+ * inner sul, which may include launching a new process, happens in its
+ * {@code pre} and {@code post} methods.
+ *
+ * @param <I> the type of inputs
+ * @param <O> the type of outputs
+ */
+public class MetricsWrapper<I, O> implements SUL<I, O> {
+
+    /** Stores the constructor parameter. */
+    protected SUL<I, O> sul;
+
+    /** The histogram of the latency of {@link #pre()}. */
+    protected Histogram preLatency;
+
+    /** The histogram of the latency of {@link #step(Object)}. */
+    protected Histogram stepLatency;
+
+    /** The histogram of the latency of {@link #post()}. */
+    protected Histogram postLatency;
+
+    /**
+     * Constructs a new instance from the given parameters.
+     *
+     * @param sul      the inner sul to be wrapped
+     * @param registry the registry of the histograms
+     * @param name     the name of the inner sul, used as prefix of the histograms
+     */
+    public MetricsWrapper(SUL<I, O> sul, MetricsRegistry registry, String name) {
+        this.sul = sul;
+        this.preLatency = registry.histogram(name + ".pre.latencyNanos");
+        this.stepLatency = registry.histogram(name + ".step.latencyNanos");
+        this.postLatency = registry.histogram(name + ".post.latencyNanos");
+    }
+
+    /**
+     * Runs before each test; used for setup.
+     */
+    @Override
+    public void pre() {
+        long start = System.nanoTime();
+        try {
+            sul.pre();
+        }
+        finally {
+            preLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Runs after each test; used for shutdown.
+     */
+    @Override
+    public void post() {
+        long start = System.nanoTime();
+        try {
+            sul.post();
+        }
+        finally {
+            postLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Propagates the inputs of a test to the inner {@link #sul}.
+     *
+     * @param  input                              the input of the test
+     *
+     * @return                                    the corresponding output
+     *
+     * @throws de.learnlib.exception.SULException from the step method of the {@link #sul}
+     */
+    @Override
+    public O step(I input) {
+        long start = System.nanoTime();
+        try {
+            return sul.step(input);
+        }
+        finally {
+            stepLatency.record(System.nanoTime() - start);
+        }
+    }
+}
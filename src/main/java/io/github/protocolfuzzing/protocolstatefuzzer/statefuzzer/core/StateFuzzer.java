@@ -15,6 +15,9 @@ public interface StateFuzzer<M> {
     /** The filename, where the statistics will be stored. */
     String STATISTICS_FILENAME = "statistics.txt";
 
+    /** The filename, where the metrics will be stored, if they are collected. */
+    String METRICS_FILENAME = "metrics.json";
+
     /** The filename, where the mapper connection configuration will be stored. */
     String MAPPER_CONNECTION_CONFIG_FILENAME = "mapper_connection.config";
 
@@ -1,9 +1,11 @@
 package io.github.protocolfuzzing.protocolstatefuzzer.statefuzzer.core;
 
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.QueryPrefetcher;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.statistics.StatisticsTracker;
 import io.github.protocolfuzzing.protocolstatefuzzer.statefuzzer.core.config.StateFuzzerEnabler;
 import io.github.protocolfuzzing.protocolstatefuzzer.utils.CleanupTasks;
 import net.automatalib.alphabet.Alphabet;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.io.File;
 import java.io.InputStream;
@@ -21,6 +23,9 @@ public interface StateFuzzerComposer<I, ST extends StatisticsTracker<?, ?, ?, ?>
     /** The filename, where the non-determinism example will be stored, if it occurs. */
     String NON_DET_FILENAME = "nondet.log";
 
+    /** The filename, where the non-deterministic inputs will be stored, if the non-determinism index is enabled. */
+    String NON_DET_INDEX_FILENAME = "nondet.index";
+
     /** The filename, where the queries will be logged, if query logging is enabled. */
     String QUERY_FILENAME = "query.log";
 
@@ -45,6 +50,16 @@ public interface StateFuzzerComposer<I, ST extends StatisticsTracker<?, ?, ?, ?>
      */
     EQ getEquivalenceOracle();
 
+    /**
+     * Returns the prefetcher of the membership queries, which is started while
+     * each hypothesis is exported, or null if queries are not prefetched.
+     *
+     * @return the prefetcher of the membership queries or null
+     */
+    default @Nullable QueryPrefetcher<I, ?> getQueryPrefetcher() {
+        return null;
+    }
+
     /**
      * Returns the alphabet that will be used during the state fuzzing.
      *
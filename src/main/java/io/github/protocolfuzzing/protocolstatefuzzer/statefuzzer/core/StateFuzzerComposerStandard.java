@@ -10,30 +10,56 @@ import de.learnlib.sul.SUL;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.alphabet.AlphabetBuilder;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.config.LearnerConfig;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.factory.LearningSetupFactory;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.AdaptiveRunsPolicy;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.BoundedObservationTree;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.CESanitizingSULOracle;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.CachingSULOracle;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.CompactObservationTree;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.CounterexampleReducingEQOracle;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.ConcurrentObservationTree;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.LoggingSULOracle;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.MetricsSULOracle;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.MultipleRunsSULOracle;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.NonDeterminismIndex;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.NonDeterminismRetryingSULOracle;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.ObservationTree;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.ObservationTreeReader;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.ObservationTreeWriter;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.ParallelSULOracle;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.PersistentObservationTree;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.QueryPrefetcher;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.SULOraclePool;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.statistics.AggregatedCounter;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.statistics.MetricsRegistry;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.statistics.StatisticsTracker;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.statistics.StatisticsTrackerStandard;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.sul.core.AbstractSUL;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.sul.core.SULBuilder;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.sul.core.SULWrapper;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.sul.core.config.SULConfig;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.sul.core.sulwrappers.MetricsWrapper;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.sul.mapper.abstractsymbols.OutputBuilder;
 import io.github.protocolfuzzing.protocolstatefuzzer.statefuzzer.core.config.StateFuzzerEnabler;
+import io.github.protocolfuzzing.protocolstatefuzzer.utils.AsyncWriter;
 import io.github.protocolfuzzing.protocolstatefuzzer.utils.CleanupTasks;
 import net.automatalib.alphabet.Alphabet;
 import net.automatalib.automaton.transducer.MealyMachine;
+import net.automatalib.util.automaton.Automata;
 import net.automatalib.word.Word;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -48,6 +74,7 @@ import java.util.List;
 public class StateFuzzerComposerStandard<I, O, E>
     implements
     StateFuzzerComposer<I, StatisticsTracker<I, Word<I>, Word<O>, DefaultQuery<I, Word<O>>>, MealyLearner<I, O>, EquivalenceOracle<MealyMachine<?, I, ?, O>, I, Word<O>>> {
+    private static final Logger LOGGER = LogManager.getLogger();
 
     /** Stores the constructor parameter. */
     protected StateFuzzerEnabler stateFuzzerEnabler;
@@ -64,17 +91,42 @@ public class StateFuzzerComposerStandard<I, O, E>
     /** The suls that are built and wrapped using the SULBuilder constructor parameter. */
     protected List<SUL<I, O>> suls;
 
+    /**
+     * The pool of oracles over the {@link #suls} other than the first one, which
+     * is used by the learner, used for the re-runs of the learning queries, or
+     * null if there are fewer than three suls.
+     */
+    protected SULOraclePool<I, O> sulOraclePool;
+
+    /**
+     * The policy deciding the runs of each learning query, shared by all learning
+     * oracle chains, or null if each query is run a fixed number of times.
+     */
+    protected AdaptiveRunsPolicy<I> runsPolicy;
+
     /** The cache used by the learning oracles. */
     protected ObservationTree<I, O> cache;
 
+    /** The bounded cache underlying the {@link #cache} if a node limit is set, otherwise null. */
+    protected BoundedObservationTree<I, O> boundedCache;
+
+    /** The index of the non-deterministic inputs shared by all oracles, or null if it is disabled. */
+    protected NonDeterminismIndex<I, O> nonDetIndex;
+
+    /** The registry of the collected metrics, or null if metrics are disabled. */
+    protected MetricsRegistry metrics;
+
     /** The output for socket closed. */
     protected O socketClosedOutput;
 
+    /** The output builder of the first sul, used to rebuild outputs from their string form. */
+    protected OutputBuilder<O> outputBuilder;
+
     /** The output directory from the {@link #stateFuzzerEnabler}. */
     protected File outputDir;
 
     /** The file writer of the non determinism case. */
-    protected FileWriter nonDetWriter;
+    protected Writer nonDetWriter;
 
     /** The cleanup tasks of the composer. */
     protected CleanupTasks cleanupTasks;
@@ -85,6 +137,12 @@ public class StateFuzzerComposerStandard<I, O, E>
     /** The learner that is composed. */
     protected MealyLearner<I, O> learner;
 
+    /** The membership oracle through which the learner answers its queries. */
+    protected MembershipOracle.MealyMembershipOracle<I, O> membershipOracle;
+
+    /** The prefetcher wrapping the {@link #membershipOracle}, or null if queries are not prefetched. */
+    protected QueryPrefetcher<I, O> queryPrefetcher;
+
     /** The equivalence oracle that is composed. */
     protected EquivalenceOracle<MealyMachine<?, I, ?, O>, I, Word<O>> equivalenceOracle;
 
@@ -123,6 +181,8 @@ public class StateFuzzerComposerStandard<I, O, E>
         List<Counter> inputCounters = new ArrayList<>();
         List<Counter> testCounters = new ArrayList<>();
 
+        this.metrics = learnerConfig.isMetrics() ? new MetricsRegistry() : null;
+
         // set up wrapped SUL (System Under Learning)
         SULConfig sulConfig = stateFuzzerEnabler.getSULConfig();
         for (int i = 0; i < learnerConfig.getEquivalenceThreadCount(); i++) {
@@ -131,8 +191,8 @@ public class StateFuzzerComposerStandard<I, O, E>
 
             if (i == 0) {
                 // initialize the output for the socket closed
-                this.socketClosedOutput = abstractSUL.getMapper().getOutputBuilder()
-                    .buildOutputExact(OutputBuilder.SOCKET_CLOSED);
+                this.outputBuilder = abstractSUL.getMapper().getOutputBuilder();
+                this.socketClosedOutput = outputBuilder.buildOutputExact(OutputBuilder.SOCKET_CLOSED);
             }
 
             SULWrapper<I, O, E> sulWrapper = sulBuilder.buildWrapper();
@@ -143,18 +203,121 @@ public class StateFuzzerComposerStandard<I, O, E>
                 .setLoggingWrapper("")
                 .getWrappedSUL();
 
+            if (metrics != null) {
+                sul = new MetricsWrapper<>(sul, metrics, "sul" + i);
+            }
+
             this.suls.add(sul);
             inputCounters.add(sulWrapper.getInputCounter());
             testCounters.add(sulWrapper.getTestCounter());
         }
 
-        // initialize cache as observation tree
-        this.cache = new ObservationTree<>();
+        // initialize cache as observation tree, which is shared by the
+        // equivalence oracles of all threads if there are more than one,
+        // thus the bounded and the concurrent caches are thread-safe
+        if (learnerConfig.isCompactCache()
+            && (learnerConfig.getCacheNodeLimit() != null || learnerConfig.getEquivalenceThreadCount() > 1)) {
+            LOGGER.warn("Ignoring -compactCache, which cannot be combined with -cacheNodeLimit or -eqvThreads > 1");
+        }
+        if (learnerConfig.getCacheNodeLimit() != null) {
+            this.boundedCache = new BoundedObservationTree<>(learnerConfig.getCacheNodeLimit());
+            this.cache = boundedCache;
+        } else if (learnerConfig.getEquivalenceThreadCount() > 1) {
+            this.cache = new ConcurrentObservationTree<>();
+        } else if (learnerConfig.isCompactCache()) {
+            this.cache = new CompactObservationTree<>(alphabet);
+        } else {
+            this.cache = new ObservationTree<>();
+        }
+
+        // persist the cache across learning runs
+        if (learnerConfig.getCacheFile() != null && outputBuilder != null) {
+            try (InputStream mapperConnectionConfig = sulConfig.getMapperConfig()
+                .getMapperConnectionConfigInputStream()) {
+                long fingerprint = PersistentObservationTree.fingerprint(alphabet, mapperConnectionConfig);
+                PersistentObservationTree<I, O> persistentCache = new PersistentObservationTree<>(cache, alphabet,
+                    outputBuilder::buildOutputExact, new File(learnerConfig.getCacheFile()), fingerprint).initialize();
+                cleanupTasks.submit(persistentCache::close);
+                this.cache = persistentCache;
+            }
+            catch (IOException e) {
+                throw new RuntimeException("Could not load cache file: " + e.getMessage(), e);
+            }
+        }
+
+        // seed the cache with the observations exported by a previous run
+        if (learnerConfig.getCacheSeedFile() != null && outputBuilder != null) {
+            try (ObservationTreeReader<I, O> reader = new ObservationTreeReader<>(
+                new FileInputStream(learnerConfig.getCacheSeedFile()), alphabet, outputBuilder::buildOutputExact)) {
+                reader.initialize().readAll(cache);
+            }
+            catch (IOException e) {
+                throw new RuntimeException("Could not load cache seed file: " + e.getMessage(), e);
+            }
+        }
+
+        // keep track of the non-deterministic inputs, starting from the ones found by a previous run
+        if (learnerConfig.isNonDetIndex()) {
+            this.nonDetIndex = new NonDeterminismIndex<>();
+            if (learnerConfig.getNonDetIndexSeedFile() != null && outputBuilder != null) {
+                try (Reader reader = new InputStreamReader(
+                    new FileInputStream(learnerConfig.getNonDetIndexSeedFile()), StandardCharsets.UTF_8)) {
+                    int read = nonDetIndex.read(reader, alphabet, outputBuilder::buildOutputExact);
+                    LOGGER.info("Loaded {} non-deterministic inputs", read);
+                }
+                catch (IOException e) {
+                    throw new RuntimeException("Could not load non-determinism index seed file: " + e.getMessage(), e);
+                }
+            }
+        }
 
         // initialize statistics tracker
         AggregatedCounter aggregatedInputCounter = new AggregatedCounter(inputCounters);
         AggregatedCounter aggregatedTestCounter = new AggregatedCounter(testCounters);
         this.statisticsTracker = new StatisticsTrackerStandard<>(aggregatedInputCounter, aggregatedTestCounter);
+        if (boundedCache != null) {
+            this.statisticsTracker.setCacheTracking(boundedCache::getNodeCount, boundedCache::getEvictionCount);
+        }
+        if (metrics != null) {
+            this.statisticsTracker.setMetrics(metrics);
+            metrics.gauge("cache.refusedObservations", cache::getRefusedObservationCount);
+            if (boundedCache != null) {
+                metrics.gauge("cache.nodes", boundedCache::getNodeCount);
+                metrics.gauge("cache.evictions", boundedCache::getEvictionCount);
+            }
+        }
+    }
+
+    /**
+     * Exports the observations of the {@link #cache} to the given file using
+     * an {@link ObservationTreeWriter}, leaving out the outputs that the
+     * {@link #outputBuilder} does not rebuild equal to themselves.
+     *
+     * @param exportFile the file to which the cache is exported
+     */
+    protected void exportCache(File exportFile) {
+        try (ObservationTreeWriter<I, O> writer = new ObservationTreeWriter<>(new FileOutputStream(exportFile),
+            outputBuilder == null ? null : outputBuilder::buildOutputExact)) {
+            writer.write(cache);
+        }
+        catch (IOException e) {
+            LOGGER.error("Could not export cache to {}: {}", exportFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Saves the {@link #nonDetIndex} to the given file, leaving out the outputs
+     * that the {@link #outputBuilder} does not rebuild equal to themselves.
+     *
+     * @param indexFile the file to which the index is saved
+     */
+    protected void saveNonDetIndex(File indexFile) {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(indexFile), StandardCharsets.UTF_8)) {
+            nonDetIndex.write(writer, outputBuilder == null ? null : outputBuilder::buildOutputExact);
+        }
+        catch (IOException e) {
+            LOGGER.error("Could not save non-determinism index to {}: {}", indexFile, e.getMessage());
+        }
     }
 
     /**
@@ -180,7 +343,7 @@ public class StateFuzzerComposerStandard<I, O, E>
 
         // TODO the LOGGER instances should handle this, instead of passing non det writers as arguments.
         try {
-            this.nonDetWriter = new FileWriter(new File(outputDir, NON_DET_FILENAME), StandardCharsets.UTF_8);
+            this.nonDetWriter = createLogWriter(new File(outputDir, NON_DET_FILENAME));
         }
         catch (IOException e) {
             throw new RuntimeException("Could not create non-determinism file writer");
@@ -197,6 +360,18 @@ public class StateFuzzerComposerStandard<I, O, E>
         composeLearner(cacheTerminatingOutputs);
         composeEquivalenceOracle(cacheTerminatingOutputs);
 
+        // export the cache once learning is over
+        if (learnerConfig.getCacheExportFile() != null) {
+            File exportFile = new File(learnerConfig.getCacheExportFile());
+            cleanupTasks.submit(() -> exportCache(exportFile));
+        }
+
+        // save the non-deterministic inputs once learning is over
+        if (nonDetIndex != null) {
+            File indexFile = new File(outputDir, NON_DET_INDEX_FILENAME);
+            cleanupTasks.submit(() -> saveNonDetIndex(indexFile));
+        }
+
         return this;
     }
 
@@ -215,6 +390,11 @@ public class StateFuzzerComposerStandard<I, O, E>
         return equivalenceOracle;
     }
 
+    @Override
+    public @Nullable QueryPrefetcher<I, O> getQueryPrefetcher() {
+        return queryPrefetcher;
+    }
+
     @Override
     public Alphabet<I> getAlphabet() {
         return alphabet;
@@ -245,32 +425,89 @@ public class StateFuzzerComposerStandard<I, O, E>
         return cleanupTasks;
     }
 
+    /**
+     * Creates a writer for the given log file.
+     * <p>
+     * If asynchronous logging is enabled, the writer hands the logs over to a
+     * background thread, which is stopped by the {@link #cleanupTasks}.
+     *
+     * @param  logFile     the log file to be written
+     *
+     * @return             the writer for the log file
+     *
+     * @throws IOException if the log file cannot be opened
+     */
+    protected Writer createLogWriter(File logFile) throws IOException {
+        Writer writer = new FileWriter(logFile, StandardCharsets.UTF_8);
+        if (!learnerConfig.isAsyncLogging()) {
+            return writer;
+        }
+
+        AsyncWriter asyncWriter = new AsyncWriter(writer, learnerConfig.getAsyncLogCapacity()).initialize();
+        cleanupTasks.submit(() -> {
+            try {
+                asyncWriter.close();
+            }
+            catch (IOException e) {
+                LOGGER.error("Could not close log file {}: {}", logFile, e.getMessage());
+            }
+        });
+        return asyncWriter;
+    }
+
     /**
      * Composes the Learner and stores it in the {@link #learner}.
+     * <p>
+     * If membership queries are answered in parallel, each sul is given its own
+     * oracle chain, built by {@link #composeLearningSULOracle(SUL, SULOraclePool)},
+     * and the chains are used through a {@link ParallelSULOracle}. Otherwise, the
+     * first sul answers the queries and the re-runs of a query are spread over
+     * the other suls using the {@link #sulOraclePool}, if there are at least two.
      *
      * @param terminatingOutputs the terminating outputs used by the {@link CachingSULOracle}
      */
     protected void composeLearner(List<O> terminatingOutputs) {
+        MembershipOracle.MealyMembershipOracle<I, O> learningSULOracle;
 
-        MembershipOracle.MealyMembershipOracle<I, O> learningSULOracle = new SULOracle<>(suls.get(0));
-
-        if (learnerConfig.getRunsPerMembershipQuery() > 1) {
-            learningSULOracle = new MultipleRunsSULOracle<>(learnerConfig.getRunsPerMembershipQuery(),
-                learningSULOracle, true, nonDetWriter);
+        if (learnerConfig.isAdaptiveRuns() && learnerConfig.getRunsPerMembershipQuery() > 1) {
+            runsPolicy = new AdaptiveRunsPolicy<>(nonDetWriter);
         }
 
-        // an oracle which uses the cache to check for non-determinism
-        // and re-runs queries if non-determinism is detected
-        learningSULOracle = new NonDeterminismRetryingSULOracle<>(
-            learnerConfig.getMembershipQueryRetries(), learningSULOracle, true, nonDetWriter, cache);
+        if (learnerConfig.isParallelMembershipQueries() && suls.size() > 1) {
+            // the chains only read the shared cache, which is updated by the caching oracle between batches
+            // they also share the nonDetWriter, to which each report is written by a single call, so reports do not mix
+            List<MembershipOracle.MealyMembershipOracle<I, O>> chains = new ArrayList<>();
+            for (SUL<I, O> sul: suls) {
+                chains.add(composeLearningSULOracle(sul, null));
+            }
+            SULOraclePool<I, O> queryPool = new SULOraclePool<>(chains, learnerConfig.isVirtualThreads());
+            cleanupTasks.submit(queryPool::close);
+            learningSULOracle = new ParallelSULOracle<>(queryPool);
+        } else {
+            // the re-runs of a query are spread over the other suls, which are idle while learning
+            if (suls.size() > 2) {
+                List<MembershipOracle.MealyMembershipOracle<I, O>> poolOracles = new ArrayList<>();
+                for (SUL<I, O> sul: suls.subList(1, suls.size())) {
+                    poolOracles.add(new SULOracle<>(sul));
+                }
+                sulOraclePool = new SULOraclePool<>(poolOracles, learnerConfig.isVirtualThreads());
+                cleanupTasks.submit(sulOraclePool::close);
+            }
+            learningSULOracle = composeLearningSULOracle(suls.get(0), sulOraclePool);
+        }
 
         // we are adding a cache so that executions of same inputs aren't repeated
-        learningSULOracle = new CachingSULOracle<>(learningSULOracle, cache, false, terminatingOutputs);
+        CachingSULOracle<I, O> cachingSULOracle = new CachingSULOracle<>(learningSULOracle, cache, false,
+            terminatingOutputs);
+        if (metrics != null) {
+            cachingSULOracle.enableMetrics(metrics, "learning");
+        }
+        learningSULOracle = cachingSULOracle;
 
-        FileWriter queryWriter = null;
+        Writer queryWriter = null;
         if (learnerConfig.isLogQueries()) {
             try {
-                queryWriter = new FileWriter(new File(outputDir, QUERY_FILENAME), StandardCharsets.UTF_8);
+                queryWriter = createLogWriter(new File(outputDir, QUERY_FILENAME));
             }
             catch (IOException e1) {
                 throw new RuntimeException("Could not create queryfile writer");
@@ -278,9 +515,78 @@ public class StateFuzzerComposerStandard<I, O, E>
         }
         learningSULOracle = new LoggingSULOracle<>(learningSULOracle, queryWriter);
 
+        // the prefetched queries are answered like the ones of the learner, spread over the suls if possible
+        if (learnerConfig.getPrefetchQueries() > 0) {
+            int batchSize = learnerConfig.isParallelMembershipQueries() ? suls.size() : 1;
+            queryPrefetcher = new QueryPrefetcher<>(learningSULOracle, cache, alphabet,
+                learnerConfig.getPrefetchQueries(), batchSize);
+            learningSULOracle = queryPrefetcher;
+        }
+
+        this.membershipOracle = learningSULOracle;
         this.learner = LearningSetupFactory.createMealyLearner(learnerConfig, learningSULOracle, alphabet);
     }
 
+    /**
+     * Composes the oracle chain through which the given sul answers the learning
+     * queries, which re-runs queries to handle non-determinism.
+     *
+     * @param  sul       the sul answering the queries
+     * @param  rerunPool the pool over which the re-runs of a query are spread,
+     *                       or null if the re-runs use the given sul
+     *
+     * @return           the composed oracle chain
+     */
+    protected MembershipOracle.MealyMembershipOracle<I, O> composeLearningSULOracle(SUL<I, O> sul,
+        SULOraclePool<I, O> rerunPool) {
+
+        MembershipOracle.MealyMembershipOracle<I, O> learningSULOracle = new SULOracle<>(sul);
+
+        // queries answered in a single run are checked against the cache step by step
+        SUL<I, O> streamingSUL = sul;
+
+        if (learnerConfig.getRunsPerMembershipQuery() > 1) {
+            MultipleRunsSULOracle<I, O> multipleRunsSULOracle = new MultipleRunsSULOracle<>(
+                learnerConfig.getRunsPerMembershipQuery(), learningSULOracle, true, nonDetWriter);
+            multipleRunsSULOracle.setDecisionRule(LearningSetupFactory.createDecisionRule(learnerConfig,
+                learnerConfig.getRunsPerMembershipQuery()));
+            if (rerunPool != null) {
+                multipleRunsSULOracle.setPool(rerunPool);
+            }
+            if (runsPolicy != null) {
+                multipleRunsSULOracle.setRunsPolicy(runsPolicy);
+            }
+            if (nonDetIndex != null) {
+                multipleRunsSULOracle.setNonDeterminismIndex(nonDetIndex);
+            }
+            learningSULOracle = multipleRunsSULOracle;
+            streamingSUL = null;
+        }
+
+        // an oracle which uses the cache to check for non-determinism
+        // and re-runs queries if non-determinism is detected
+        NonDeterminismRetryingSULOracle<I, O> retryingSULOracle = new NonDeterminismRetryingSULOracle<>(
+            learnerConfig.getMembershipQueryRetries(), learningSULOracle, true, nonDetWriter, cache, streamingSUL);
+        retryingSULOracle.setDecisionRule(LearningSetupFactory.createDecisionRule(learnerConfig,
+            learnerConfig.getMembershipQueryRetries()));
+        if (rerunPool != null && learnerConfig.getRunsPerMembershipQuery() == 1) {
+            retryingSULOracle.setPool(rerunPool);
+        }
+        if (runsPolicy != null) {
+            // inconsistencies with the cache are reported to the policy as well
+            retryingSULOracle.setRunsPolicy(runsPolicy);
+        }
+        if (nonDetIndex != null) {
+            retryingSULOracle.setNonDeterminismIndex(nonDetIndex);
+        }
+        learningSULOracle = retryingSULOracle;
+
+        if (metrics != null) {
+            learningSULOracle = new MetricsSULOracle<>(learningSULOracle, metrics, "learning");
+        }
+        return learningSULOracle;
+    }
+
     /**
      * Composes the Equivalence Oracle and stores it in the {@link #equivalenceOracle}.
      *
@@ -288,25 +594,60 @@ public class StateFuzzerComposerStandard<I, O, E>
      */
     protected void composeEquivalenceOracle(List<O> terminatingOutputs) {
         List<MembershipOracle.MealyMembershipOracle<I, O>> equivalenceSULOracles = new ArrayList<>();
-        for (SUL<I, O> sul: suls) {
-            MembershipOracle.MealyMembershipOracle<I, O> equivalenceSULOracle = new SULOracle<>(sul);
+        for (int i = 0; i < suls.size(); i++) {
+            MembershipOracle.MealyMembershipOracle<I, O> equivalenceSULOracle = new SULOracle<>(suls.get(i));
 
             // in case sanitization is enabled, we apply a CE verification wrapper
             // to check counterexamples before they are returned to the EQ oracle
             if (learnerConfig.isCeSanitization()) {
-                equivalenceSULOracle = new CESanitizingSULOracle<MealyMachine<?, I, ?, O>, I, O>(
-                    learnerConfig.getCeReruns(), equivalenceSULOracle, learnerConfig.isProbabilisticSanitization(),
-                    nonDetWriter, learner::getHypothesisModel, cache, learnerConfig.isSkipNonDetTests());
+                CESanitizingSULOracle<MealyMachine<?, I, ?, O>, I, O> sanitizingSULOracle =
+                    new CESanitizingSULOracle<>(learnerConfig.getCeReruns(), equivalenceSULOracle,
+                        learnerConfig.isProbabilisticSanitization(), nonDetWriter, learner::getHypothesisModel, cache,
+                        learnerConfig.isSkipNonDetTests(), suls.get(i));
+                sanitizingSULOracle.setDecisionRule(LearningSetupFactory.createDecisionRule(learnerConfig,
+                    learnerConfig.getCeReruns()));
+                if (nonDetIndex != null) {
+                    sanitizingSULOracle.setNonDeterminismIndex(nonDetIndex);
+                }
+                equivalenceSULOracle = sanitizingSULOracle;
+            }
+
+            if (metrics != null) {
+                equivalenceSULOracle = new MetricsSULOracle<>(equivalenceSULOracle, metrics, "equivalence" + i);
             }
 
             // we are adding a cache and a logging oracle
-            equivalenceSULOracle = new CachingSULOracle<>(equivalenceSULOracle, cache, !learnerConfig.isCacheTests(),
-                terminatingOutputs);
-            equivalenceSULOracle = new LoggingSULOracle<>(equivalenceSULOracle);
+            CachingSULOracle<I, O> cachingSULOracle = new CachingSULOracle<>(equivalenceSULOracle, cache,
+                !learnerConfig.isCacheTests(), terminatingOutputs);
+            if (metrics != null) {
+                cachingSULOracle.enableMetrics(metrics, "equivalence" + i);
+            }
+            equivalenceSULOracle = new LoggingSULOracle<>(cachingSULOracle);
             equivalenceSULOracles.add(equivalenceSULOracle);
         }
 
-        this.equivalenceOracle = LearningSetupFactory.createEquivalenceOracle(learnerConfig, suls,
-            equivalenceSULOracles, alphabet);
+        EquivalenceOracle<MealyMachine<?, I, ?, O>, I, Word<O>> testOracle = LearningSetupFactory
+            .createEquivalenceOracle(learnerConfig, suls, equivalenceSULOracles, alphabet);
+
+        if (boundedCache != null) {
+            // pin the access sequences of each hypothesis in the bounded cache before testing it
+            BoundedObservationTree<I, O> pinningCache = boundedCache;
+            EquivalenceOracle<MealyMachine<?, I, ?, O>, I, Word<O>> unpinnedOracle = testOracle;
+            testOracle = (hypothesis, inputs) -> {
+                pinningCache.setPinnedWords(Automata.stateCover(hypothesis, inputs));
+                return unpinnedOracle.findCounterExample(hypothesis, inputs);
+            };
+        }
+
+        if (learnerConfig.isCeReduction()) {
+            // the candidates are checked through the caching oracle of the learner,
+            // so that they are answered from the cache and later refinement reuses them
+            CounterexampleReducingEQOracle<I, O> reducingOracle = new CounterexampleReducingEQOracle<>(testOracle,
+                membershipOracle);
+            reducingOracle.setStatisticsTracker(statisticsTracker);
+            testOracle = reducingOracle;
+        }
+
+        this.equivalenceOracle = testOracle;
     }
 }
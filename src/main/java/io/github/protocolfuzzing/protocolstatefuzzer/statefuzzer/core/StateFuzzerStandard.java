@@ -8,6 +8,7 @@ import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.config.R
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.config.TestLimitReachedException;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.config.TimeLimitReachedException;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.factory.EquivalenceAlgorithmName;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.QueryPrefetcher;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.statistics.MealyMachineWrapper;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.statistics.Statistics;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.statistics.StatisticsTracker;
@@ -109,6 +110,8 @@ public class StateFuzzerStandard<I, O> implements StateFuzzer<MealyMachineWrappe
         EquivalenceOracle<MealyMachine<?, I, ?, O>, I, Word<O>> equivalenceOracle = stateFuzzerComposer
             .getEquivalenceOracle();
 
+        QueryPrefetcher<I, ?> queryPrefetcher = stateFuzzerComposer.getQueryPrefetcher();
+
         MealyMachine<?, I, ?, O> hypothesis = null;
         DefaultQuery<I, Word<O>> counterExample = null;
         MealyMachineWrapper<I, O> mealyMachineWrapper = null;
@@ -137,12 +140,27 @@ public class StateFuzzerStandard<I, O> implements StateFuzzer<MealyMachineWrappe
 
             do {
                 hypothesis = learner.getHypothesisModel();
+                String hypName = "hyp" + current_round + ".dot";
+
                 mealyMachineWrapper = new MealyMachineWrapper<>(hypothesis, alphabet);
                 learnerResult.addHypothesis(mealyMachineWrapper);
-                // it is useful to print intermediate hypothesis as learning is running
-                String hypName = "hyp" + current_round + ".dot";
-                exportHypothesis(mealyMachineWrapper, new File(outputDir, hypName));
+                // the sul counters are read before prefetched queries update them,
+                // so the prefetched queries are counted with the testing of this hypothesis
                 statisticsTracker.newHypothesis(mealyMachineWrapper);
+
+                // the suls are idle while the hypothesis is exported, so they can run prefetched queries
+                if (queryPrefetcher != null) {
+                    queryPrefetcher.start(hypothesis, counterExample == null ? null : counterExample.getInput());
+                }
+                try {
+                    // it is useful to print intermediate hypothesis as learning is running
+                    exportHypothesis(mealyMachineWrapper, new File(outputDir, hypName));
+                }
+                finally {
+                    if (queryPrefetcher != null) {
+                        queryPrefetcher.stop();
+                    }
+                }
                 LOGGER.info("Generated new hypothesis: " + hypName);
 
                 if (current_round == round_limit) {
@@ -232,6 +250,16 @@ public class StateFuzzerStandard<I, O> implements StateFuzzer<MealyMachineWrappe
             LOGGER.error("Could not copy statistics to output directory");
         }
 
+        if (statisticsTracker.getMetrics() != null) {
+            try (FileWriter metricsWriter = new FileWriter(new File(outputDir, METRICS_FILENAME),
+                StandardCharsets.UTF_8)) {
+                statisticsTracker.exportMetrics(metricsWriter);
+            }
+            catch (IOException e) {
+                LOGGER.error("Could not copy metrics to output directory");
+            }
+        }
+
         return learnerResult;
     }
 
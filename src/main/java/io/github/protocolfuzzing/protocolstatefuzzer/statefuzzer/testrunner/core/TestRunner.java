@@ -1,9 +1,12 @@
 package io.github.protocolfuzzing.protocolstatefuzzer.statefuzzer.testrunner.core;
 
 import de.learnlib.oracle.MembershipOracle;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.SULOraclePool;
 import net.automatalib.word.Word;
 
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Future;
 
 /**
  * Interface for the test running process.
@@ -35,6 +38,35 @@ public interface TestRunner {
         return new TestRunnerResult<>(test, answerMap);
     }
 
+    /**
+     * Runs a single test multiple times, spreading the runs over the oracles
+     * of the given pool, so that the runs take place in parallel.
+     *
+     * @param  <I>   the type of inputs
+     * @param  <O>   the type of outputs
+     * @param  test  the test to be run in an input word format
+     * @param  times the number of times to repeat the test
+     * @param  pool  the pool of oracles against which the test will be run
+     *
+     * @return       the corresponding {@link TestRunnerResult}
+     */
+    static <I, O> TestRunnerResult<Word<I>, Word<O>> runTest(Word<I> test, int times, SULOraclePool<I, O> pool) {
+        HashMap<Word<O>, Integer> answerMap = new HashMap<>();
+
+        List<Future<Word<O>>> answers = pool.submitRuns(test, times);
+        try {
+            for (Future<Word<O>> answer: answers) {
+                answerMap.merge(SULOraclePool.await(answer), 1, Integer::sum);
+            }
+        }
+        finally {
+            // if a run fails, the remaining ones are stopped before the suls are used again
+            SULOraclePool.cancel(answers);
+        }
+
+        return new TestRunnerResult<>(test, answerMap);
+    }
+
     /**
      * Runs the implemented test runner.
      */
@@ -3,6 +3,7 @@ package io.github.protocolfuzzing.protocolstatefuzzer.statefuzzer.testrunner.cor
 import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
 import de.learnlib.oracle.membership.SULOracle;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.alphabet.AlphabetBuilder;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.SULOraclePool;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.sul.core.AbstractSUL;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.sul.core.SULBuilder;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.sul.core.config.SULConfig;
@@ -48,6 +49,12 @@ public class TestRunnerStandard<I, O extends MapperOutput<O, P>, P, E> implement
     /** The Oracle that contains the sul built and wrapped via SULBuilder constructor parameter. */
     protected MealyMembershipOracle<I, O> sulOracle;
 
+    /**
+     * The pool of oracles over which the repetitions of a test are spread, or
+     * null if a single sul is used.
+     */
+    protected SULOraclePool<I, O> sulOraclePool;
+
     /** Stores the Mealy Machine specification built if provided in the TestRunnerConfig. */
     protected MealyMachine<?, I, ?, O> testSpec;
 
@@ -57,7 +64,9 @@ public class TestRunnerStandard<I, O extends MapperOutput<O, P>, P, E> implement
     /**
      * Constructs a new instance from the given parameters.
      * <p>
-     * The {@link #sulOracle} contains the wrapped (and built) sul.
+     * The {@link #sulOracle} contains the wrapped (and built) sul. If tests are
+     * run multiple times and more than one equivalence thread is configured,
+     * then as many suls are built and the {@link #sulOraclePool} is created.
      * Invoke {@link #initialize()} afterwards.
      *
      * @param testRunnerEnabler the configuration that enables the testing
@@ -76,6 +85,21 @@ public class TestRunnerStandard<I, O extends MapperOutput<O, P>, P, E> implement
         this.mapper = abstractSUL.getMapper();
         this.sulOracle = new SULOracle<>(sulBuilder.buildWrapper().wrap(abstractSUL).getWrappedSUL());
 
+        // one sul per equivalence thread is built for running the repetitions in parallel
+        int sulCount = testRunnerEnabler.getLearnerConfig().getEquivalenceThreadCount();
+        if (sulCount > 1 && testRunnerEnabler.getTestRunnerConfig().getTimes() > 1) {
+            List<MealyMembershipOracle<I, O>> poolOracles = new ArrayList<>();
+            poolOracles.add(sulOracle);
+            for (int i = 1; i < sulCount; i++) {
+                SULConfig config = testRunnerEnabler.getSULConfig().cloneWithThreadId(i);
+                AbstractSUL<I, O, E> poolSUL = sulBuilder.buildSUL(config, cleanupTasks);
+                poolOracles.add(new SULOracle<>(sulBuilder.buildWrapper().wrap(poolSUL).getWrappedSUL()));
+            }
+            this.sulOraclePool = new SULOraclePool<>(poolOracles,
+                testRunnerEnabler.getLearnerConfig().isVirtualThreads());
+            cleanupTasks.submit(sulOraclePool::close);
+        }
+
         this.testSpec = null;
     }
 
@@ -190,12 +214,15 @@ public class TestRunnerStandard<I, O extends MapperOutput<O, P>, P, E> implement
      * is computed and stored also in the TestRunnerResult as the expected output.
      *
      * @param  test the test to be run against the stored {@link #sulOracle}
+     *                 or the {@link #sulOraclePool} if present
      *
      * @return      the result of the test
      */
     protected TestRunnerResult<Word<I>, Word<O>> runTest(Word<I> test) {
-        TestRunnerResult<Word<I>, Word<O>> result = TestRunner.runTest(test,
-            testRunnerEnabler.getTestRunnerConfig().getTimes(), sulOracle);
+        int times = testRunnerEnabler.getTestRunnerConfig().getTimes();
+        TestRunnerResult<Word<I>, Word<O>> result = sulOraclePool == null
+            ? TestRunner.runTest(test, times, sulOracle)
+            : TestRunner.runTest(test, times, sulOraclePool);
 
         if (testSpec != null) {
             Word<O> outputWord = testSpec.computeOutput(test);
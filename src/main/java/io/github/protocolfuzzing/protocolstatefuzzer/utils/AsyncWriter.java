@@ -0,0 +1,311 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writer that hands the written text over to a background thread, which writes
+ * it in batches to the underlying Writer.
+ * <p>
+ * The text written by each thread is buffered until it completes a line or the
+ * thread flushes, upon which it is submitted as a single record to a lock-free
+ * queue without waiting for any I/O. The background thread drains the queue,
+ * writing the available records as one batch before flushing the underlying
+ * Writer. The incomplete lines left in the buffers of all threads are submitted
+ * on {@link #close()}, after which the queue is drained once more, so that no
+ * text written before closing is lost.
+ * <p>
+ * If a capacity is set, records submitted while the queue is full are dropped
+ * and their number is noted in the output, so that a slow Writer never holds up
+ * the writing threads. Otherwise, no records are dropped.
+ * <p>
+ * The background thread is started by {@link #initialize()}.
+ */
+public class AsyncWriter extends Writer {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    /** The maximum time (ms) the background thread waits before checking for records. */
+    protected static final long IDLE_WAIT_MS = 100;
+
+    /** Stores the constructor parameter. */
+    protected Writer writer;
+
+    /** Stores the constructor parameter. */
+    protected int capacity;
+
+    /** The records waiting to be written. */
+    protected ConcurrentLinkedQueue<String> records;
+
+    /** The number of records waiting to be written. */
+    protected AtomicInteger pendingRecords;
+
+    /** The number of records dropped since the last batch was written. */
+    protected AtomicLong droppedRecords;
+
+    /** The text written by each thread since it last submitted a record. */
+    protected ThreadLocal<StringBuilder> buffers;
+
+    /** The buffers holding text that has not been submitted yet, i.e. incomplete lines. */
+    protected Set<StringBuilder> pendingBuffers;
+
+    /** Indicates if writing to the underlying Writer has failed. */
+    protected boolean failed;
+
+    /** The background thread writing the records, set by {@link #initialize()}. */
+    protected Thread writerThread;
+
+    /** Indicates if the writer is closed. */
+    protected volatile boolean closed;
+
+    /**
+     * Constructs a new instance from the given parameters.
+     *
+     * @param writer   the underlying Writer, which is closed when this writer is closed
+     * @param capacity the maximum number of records waiting to be written,
+     *                     beyond which records are dropped, or 0 to never drop records
+     */
+    public AsyncWriter(Writer writer, int capacity) {
+        this.writer = writer;
+        this.capacity = capacity;
+        this.records = new ConcurrentLinkedQueue<>();
+        this.pendingRecords = new AtomicInteger();
+        this.droppedRecords = new AtomicLong();
+        this.buffers = ThreadLocal.withInitial(StringBuilder::new);
+        this.pendingBuffers = ConcurrentHashMap.newKeySet();
+        this.failed = false;
+        this.closed = false;
+    }
+
+    /**
+     * Starts the background thread writing the records.
+     *
+     * @return the same instance
+     */
+    public AsyncWriter initialize() {
+        writerThread = Thread.ofPlatform().name("async-writer").daemon().start(this::writeRecords);
+        return this;
+    }
+
+    /**
+     * Appends the given characters to the buffer of the calling thread, submitting
+     * the complete lines of the buffer.
+     *
+     * @param  cbuf        the array of characters
+     * @param  off         the offset of the first character to be written
+     * @param  len         the number of characters to be written
+     *
+     * @throws IOException if the writer is closed
+     */
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        StringBuilder buffer = buffers.get();
+        synchronized (buffer) {
+            buffer.append(cbuf, off, len);
+            submitLines(buffer);
+        }
+    }
+
+    /**
+     * Appends the given string to the buffer of the calling thread, submitting
+     * the complete lines of the buffer.
+     *
+     * @param  str         the string to be written
+     *
+     * @throws IOException if the writer is closed
+     */
+    @Override
+    public void write(String str) throws IOException {
+        ensureOpen();
+        StringBuilder buffer = buffers.get();
+        synchronized (buffer) {
+            buffer.append(str);
+            submitLines(buffer);
+        }
+    }
+
+    /**
+     * Submits the text buffered by the calling thread as a record to be written
+     * by the background thread, without waiting for it to be written.
+     *
+     * @throws IOException if the writer is closed
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        StringBuilder buffer = buffers.get();
+        synchronized (buffer) {
+            submitBuffer(buffer);
+        }
+    }
+
+    /**
+     * Submits the text buffered by all threads, waits until all records are
+     * written and closes the underlying Writer.
+     * <p>
+     * The records submitted by writes racing with closing are written by the
+     * calling thread, after the background thread has finished.
+     *
+     * @throws IOException if the underlying Writer cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        submitPendingBuffers();
+        closed = true;
+
+        if (writerThread != null) {
+            LockSupport.unpark(writerThread);
+            try {
+                writerThread.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // writes that passed the closed check before closing may have submitted more records
+        submitPendingBuffers();
+        writeBatch(new StringBuilder());
+        writer.close();
+    }
+
+    /**
+     * Submits the complete lines of the given buffer as a record; to be called
+     * while holding the lock of the buffer.
+     *
+     * @param buffer the buffer of a thread
+     */
+    protected void submitLines(StringBuilder buffer) {
+        int end = buffer.lastIndexOf("\n") + 1;
+        if (end > 0) {
+            submit(buffer.substring(0, end));
+            buffer.delete(0, end);
+        }
+
+        if (buffer.length() > 0) {
+            pendingBuffers.add(buffer);
+        } else {
+            pendingBuffers.remove(buffer);
+        }
+    }
+
+    /**
+     * Submits the whole text of the given buffer as a record; to be called while
+     * holding the lock of the buffer.
+     *
+     * @param buffer the buffer of a thread
+     */
+    protected void submitBuffer(StringBuilder buffer) {
+        if (buffer.length() > 0) {
+            submit(buffer.toString());
+            buffer.setLength(0);
+        }
+        pendingBuffers.remove(buffer);
+    }
+
+    /**
+     * Submits the text left in the buffers of all threads.
+     */
+    protected void submitPendingBuffers() {
+        for (StringBuilder buffer: pendingBuffers) {
+            synchronized (buffer) {
+                submitBuffer(buffer);
+            }
+        }
+    }
+
+    /**
+     * Adds the given record to the queue, unless the queue is full.
+     *
+     * @param record the record to be written
+     */
+    protected void submit(String record) {
+        if (capacity > 0 && pendingRecords.get() >= capacity) {
+            droppedRecords.incrementAndGet();
+            return;
+        }
+
+        records.add(record);
+        if (pendingRecords.getAndIncrement() == 0) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * Throws an exception if the writer is closed.
+     *
+     * @throws IOException if the writer is closed
+     */
+    protected void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Writer closed");
+        }
+    }
+
+    /**
+     * Writes the submitted records in batches until the writer is closed and
+     * all records are written.
+     */
+    protected void writeRecords() {
+        StringBuilder batch = new StringBuilder();
+
+        while (true) {
+            // the closed flag is read before polling, so that no record submitted before closing is missed
+            boolean lastBatch = closed;
+            writeBatch(batch);
+
+            if (lastBatch) {
+                return;
+            }
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(IDLE_WAIT_MS));
+        }
+    }
+
+    /**
+     * Drains the queue and writes the drained records as one batch, followed by
+     * the number of dropped records, if any.
+     * <p>
+     * Called only by one thread at a time: the background thread while it runs,
+     * and the closing thread afterwards.
+     *
+     * @param batch the empty builder used for the batch, which is left empty
+     */
+    protected void writeBatch(StringBuilder batch) {
+        String record = records.poll();
+        while (record != null) {
+            batch.append(record);
+            pendingRecords.decrementAndGet();
+            record = records.poll();
+        }
+
+        long dropped = droppedRecords.getAndSet(0);
+        if (dropped > 0) {
+            batch.append("[").append(dropped).append(" records dropped]").append(System.lineSeparator());
+        }
+
+        if (batch.length() > 0 && !failed) {
+            try {
+                writer.write(batch.toString());
+                writer.flush();
+            }
+            catch (IOException e) {
+                LOGGER.error("Could not write records, subsequent records are discarded", e);
+                failed = true;
+            }
+        }
+        batch.setLength(0);
+    }
+}
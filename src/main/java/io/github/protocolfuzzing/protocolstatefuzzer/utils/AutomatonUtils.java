@@ -9,6 +9,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 
@@ -182,6 +183,44 @@ public class AutomatonUtils {
         return predMap;
     }
 
+    /**
+     * Provides the shortest access sequence of each reachable state of the
+     * automaton, found by a breadth-first search from the initial state.
+     *
+     * @param  <S>       the type of states
+     * @param  <I>       the type of inputs
+     * @param  automaton the automaton to be used
+     * @param  inputs    the inputs to be used
+     *
+     * @return           the access sequence of each reachable state, in
+     *                       breadth-first order
+     */
+    public static <S, I> Map<S, Word<I>> accessSequences(
+        UniversalDeterministicAutomaton<S, I, ?, ?, ?> automaton,
+        Collection<? extends I> inputs) {
+
+        Map<S, Word<I>> accessSequences = new LinkedHashMap<>();
+        Queue<S> toVisit = new ArrayDeque<>();
+        S initialState = automaton.getInitialState();
+        if (initialState == null) {
+            return accessSequences;
+        }
+        accessSequences.put(initialState, Word.epsilon());
+        toVisit.add(initialState);
+
+        while (!toVisit.isEmpty()) {
+            S state = toVisit.poll();
+            for (I input: inputs) {
+                S succ = automaton.getSuccessor(state, input);
+                if (succ != null && !accessSequences.containsKey(succ)) {
+                    accessSequences.put(succ, accessSequences.get(state).append(input));
+                    toVisit.add(succ);
+                }
+            }
+        }
+        return accessSequences;
+    }
+
     /**
      * Contains information about a specific state, like the word leading to it
      * and the states that are visited from it.
@@ -2,6 +2,7 @@ package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.config;
 
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.factory.EquivalenceAlgorithmName;
 import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.factory.LearningAlgorithmName;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.factory.SanitizationRuleName;
 import io.github.protocolfuzzing.protocolstatefuzzer.entrypoints.CommandLineParser;
 import io.github.protocolfuzzing.protocolstatefuzzer.entrypoints.CommandLineParserTest;
 import io.github.protocolfuzzing.protocolstatefuzzer.statefuzzer.core.config.StateFuzzerClientConfig;
@@ -49,8 +50,16 @@ public class LearnerConfigTest<M> {
         int memQueryRetries = 9;
         double probReset = 10.0;
         String testFile = "testFile";
+        String cacheFile = "cacheFile";
+        Long cacheNodeLimit = 15L;
+        String cacheSeedFile = "cacheSeedFile";
+        String cacheExportFile = "cacheExportFile";
+        String nonDetIndexSeedFile = "nonDetIndexSeedFile";
         long seed = 11L;
         int ceReruns = 12;
+        int asyncLogCapacity = 16;
+        int prefetchQueries = 17;
+        SanitizationRuleName sanitizationRule = SanitizationRuleName.SPRT;
         Duration timeLimit = Duration.parse("P1DT2H3M4.5S"); // 1 day, 2 hours, 3 minutes, 4.5 seconds
         Long testLimit = 13L;
         Integer roundLimit = 14;
@@ -67,18 +76,34 @@ public class LearnerConfigTest<M> {
                 "-randLength", String.valueOf(randLength),
                 "-equivalenceQueryBound", String.valueOf(equivalenceQueryBound),
                 "-memQueryRuns", String.valueOf(memQueryRuns),
+                "-adaptiveRuns",
                 "-memQueryRetries", String.valueOf(memQueryRetries),
-                "-logQueries", "-probReset", String.valueOf(probReset),
+                "-parallelMemQueries",
+                "-logQueries", "-metrics", "-probReset", String.valueOf(probReset),
+                "-asyncLogging", "-asyncLogCapacity", String.valueOf(asyncLogCapacity),
                 "-testFile", testFile,
                 "-seed", String.valueOf(seed),
                 "-cacheTests",
+                "-compactCache",
+                "-cacheFile", cacheFile,
+                "-cacheNodeLimit", String.valueOf(cacheNodeLimit),
+                "-cacheSeedFile", cacheSeedFile,
+                "-cacheExportFile", cacheExportFile,
+                "-nonDetIndex",
+                "-nonDetIndexSeedFile", nonDetIndexSeedFile,
                 "-ceSanitizationDisable",
                 "-skipNonDetTests",
                 "-ceReruns", String.valueOf(ceReruns),
+                "-ceReduction",
+                "-prefetchQueries", String.valueOf(prefetchQueries),
                 "-probabilisticSanitizationDisable",
+                "-sanitizationRule", sanitizationRule.name(),
                 "-timeLimit", timeLimit.toString(),
                 "-testLimit", String.valueOf(testLimit),
                 "-roundLimit", String.valueOf(roundLimit),
+                "-virtualThreads",
+                "-streamingTests",
+                "-incrementalTests",
             });
         // @formatter:on
 
@@ -93,19 +118,37 @@ public class LearnerConfigTest<M> {
             Assert.assertEquals(randLength, learnerConfig.getRandLength());
             Assert.assertEquals(equivalenceQueryBound, learnerConfig.getEquivQueryBound());
             Assert.assertEquals(memQueryRuns, learnerConfig.getRunsPerMembershipQuery());
+            Assert.assertTrue(learnerConfig.isAdaptiveRuns());
             Assert.assertEquals(memQueryRetries, learnerConfig.getMembershipQueryRetries());
+            Assert.assertTrue(learnerConfig.isParallelMembershipQueries());
             Assert.assertTrue(learnerConfig.isLogQueries());
+            Assert.assertTrue(learnerConfig.isAsyncLogging());
+            Assert.assertEquals(asyncLogCapacity, learnerConfig.getAsyncLogCapacity());
+            Assert.assertTrue(learnerConfig.isMetrics());
             Assert.assertEquals(probReset, learnerConfig.getProbReset(), 0.0);
             Assert.assertEquals(testFile, learnerConfig.getTestFile());
             Assert.assertEquals(seed, learnerConfig.getSeed());
             Assert.assertTrue(learnerConfig.isCacheTests());
+            Assert.assertTrue(learnerConfig.isCompactCache());
+            Assert.assertEquals(cacheFile, learnerConfig.getCacheFile());
+            Assert.assertEquals(cacheNodeLimit, learnerConfig.getCacheNodeLimit());
+            Assert.assertEquals(cacheSeedFile, learnerConfig.getCacheSeedFile());
+            Assert.assertEquals(cacheExportFile, learnerConfig.getCacheExportFile());
+            Assert.assertTrue(learnerConfig.isNonDetIndex());
+            Assert.assertEquals(nonDetIndexSeedFile, learnerConfig.getNonDetIndexSeedFile());
             Assert.assertFalse(learnerConfig.isCeSanitization());
             Assert.assertTrue(learnerConfig.isSkipNonDetTests());
             Assert.assertEquals(ceReruns, learnerConfig.getCeReruns());
+            Assert.assertTrue(learnerConfig.isCeReduction());
+            Assert.assertEquals(prefetchQueries, learnerConfig.getPrefetchQueries());
             Assert.assertFalse(learnerConfig.isProbabilisticSanitization());
+            Assert.assertEquals(sanitizationRule, learnerConfig.getSanitizationRule());
             Assert.assertEquals(timeLimit, learnerConfig.getTimeLimit());
             Assert.assertEquals(testLimit, learnerConfig.getTestLimit());
             Assert.assertEquals(roundLimit, learnerConfig.getRoundLimit());
+            Assert.assertTrue(learnerConfig.isVirtualThreads());
+            Assert.assertTrue(learnerConfig.isStreamingTests());
+            Assert.assertTrue(learnerConfig.isIncrementalTests());
         }
     }
 
@@ -0,0 +1,74 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
+import de.learnlib.query.Query;
+import net.automatalib.word.Word;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Collection;
+import java.util.Locale;
+
+public class AdaptiveRunsPolicyTest {
+
+    @Test
+    public void raiseRunsOnlyInSuspiciousContexts() {
+        StringWriter writer = new StringWriter();
+        AdaptiveRunsPolicy<String> policy = new AdaptiveRunsPolicy<>(writer, 0.1);
+
+        policy.recordRun(Word.fromSymbols("a", "b"));
+        Assert.assertEquals(1, policy.getRuns(Word.fromSymbols("a", "b", "c"), 5));
+
+        policy.recordNonDeterminism(Word.fromSymbols("a", "b", "c"), 2);
+        Assert.assertEquals(5, policy.getRuns(Word.fromSymbols("c"), 5));
+        Assert.assertEquals(5, policy.getRuns(Word.fromSymbols("a", "b", "a"), 5));
+        Assert.assertEquals(1, policy.getRuns(Word.fromSymbols("b", "a"), 5));
+        Assert.assertTrue(writer.toString().contains("Raising repetitions after input c"));
+        Assert.assertTrue(writer.toString().contains("Raising repetitions after prefix length 3"));
+    }
+
+    @Test
+    public void returnToSingleRunsWhenRateDrops() {
+        StringWriter writer = new StringWriter();
+        AdaptiveRunsPolicy<String> policy = new AdaptiveRunsPolicy<>(writer, 0.1);
+
+        policy.recordNonDeterminism(Word.fromSymbols("c"), 0);
+        for (int i = 0; i < 11; i++) {
+            Assert.assertEquals(5, policy.getRuns(Word.fromSymbols("c"), 5));
+            policy.recordRun(Word.fromSymbols("c"));
+        }
+
+        Assert.assertEquals(1, policy.getRuns(Word.fromSymbols("c"), 5));
+        Assert.assertTrue(writer.toString().contains("Returning to single runs after input c"));
+    }
+
+    @Test
+    public void adaptRunsOfMultipleRunsOracle() {
+        CountingOracle sulOracle = new CountingOracle();
+        MultipleRunsSULOracle<String, String> oracle = new MultipleRunsSULOracle<>(4, sulOracle, false,
+            new StringWriter());
+        AdaptiveRunsPolicy<String> policy = new AdaptiveRunsPolicy<>(new StringWriter());
+        oracle.setRunsPolicy(policy);
+
+        Assert.assertEquals(Word.fromSymbols("A", "B"), oracle.answerQuery(Word.fromSymbols("a", "b")));
+        Assert.assertEquals(1, sulOracle.queries);
+
+        policy.recordNonDeterminism(Word.fromSymbols("b"), 0);
+        Assert.assertEquals(Word.fromSymbols("A", "B"), oracle.answerQuery(Word.fromSymbols("a", "b")));
+        Assert.assertEquals(1 + 4, sulOracle.queries);
+    }
+
+    /** Answers each input in uppercase, counting the queries. */
+    private static class CountingOracle implements MealyMembershipOracle<String, String> {
+        private int queries = 0;
+
+        @Override
+        public void processQueries(Collection<? extends Query<String, Word<String>>> queries) {
+            for (Query<String, Word<String>> query: queries) {
+                this.queries++;
+                query.answer(query.getSuffix().transform(input -> input.toUpperCase(Locale.ROOT)));
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import net.automatalib.word.Word;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class BoundedObservationTreeTest {
+
+    @Test
+    public void evictLeastRecentlyUsed() {
+        BoundedObservationTree<String, String> tree = new BoundedObservationTree<>(10);
+        tree.addObservation(Word.fromSymbols("a", "a", "a"), Word.fromSymbols("x", "x", "x"));
+        tree.addObservation(Word.fromSymbols("b", "b", "b"), Word.fromSymbols("y", "y", "y"));
+        tree.addObservation(Word.fromSymbols("c", "c", "c"), Word.fromSymbols("z", "z", "z"));
+        Assert.assertEquals(9, tree.getNodeCount());
+
+        // the "a" branch becomes more recent than the "b" branch
+        Assert.assertNotNull(tree.answerQuery(Word.fromSymbols("a", "a", "a")));
+
+        // exceeding the limit evicts the coldest nodes, down to 9 nodes
+        tree.addObservation(Word.fromSymbols("d", "d"), Word.fromSymbols("w", "w"));
+        Assert.assertEquals(9, tree.getNodeCount());
+        Assert.assertEquals(2, tree.getEvictionCount());
+        Assert.assertEquals(Word.fromSymbols("y"), tree.answerQuery(Word.fromSymbols("b", "b", "b"), true));
+        Assert.assertEquals(Word.fromSymbols("x", "x", "x"), tree.answerQuery(Word.fromSymbols("a", "a", "a")));
+        Assert.assertEquals(Word.fromSymbols("w", "w"), tree.answerQuery(Word.fromSymbols("d", "d")));
+    }
+
+    @Test
+    public void keepPinnedWords() {
+        BoundedObservationTree<String, String> tree = new BoundedObservationTree<>(4);
+        tree.addObservation(Word.fromSymbols("a", "a"), Word.fromSymbols("x", "x"));
+        tree.setPinnedWords(List.of(Word.fromSymbols("a", "a")));
+
+        for (String input: List.of("b", "c", "d", "e")) {
+            tree.addObservation(Word.fromSymbols(input, input), Word.fromSymbols("y", "y"));
+        }
+
+        Assert.assertEquals(Word.fromSymbols("x", "x"), tree.answerQuery(Word.fromSymbols("a", "a")));
+        Assert.assertTrue(tree.getNodeCount() <= 4);
+    }
+
+    @Test
+    public void evictAfterStepwiseObservations() {
+        BoundedObservationTree<String, String> tree = new BoundedObservationTree<>(5);
+        tree.addObservation(Word.fromSymbols("a", "a"), Word.fromSymbols("x", "x"));
+        tree.addObservation(Word.fromSymbols("b", "b"), Word.fromSymbols("y", "y"));
+
+        // a walk continued step by step from a node below the root
+        ObservationTree<String, String> node = tree.addObservation("a", "x");
+        node = node.addObservation("a", "x");
+        node.addObservation("c", "z");
+        Assert.assertEquals(5, tree.getNodeCount());
+
+        // the b branch is the coldest, the a branch is kept whole
+        tree.addObservation(Word.fromSymbols("d"), Word.fromSymbols("w"));
+        Assert.assertEquals(4, tree.getNodeCount());
+        Assert.assertEquals(Word.fromSymbols("x", "x", "z"), tree.answerQuery(Word.fromSymbols("a", "a", "c")));
+        Assert.assertNull(tree.answerQuery(Word.fromSymbols("b")));
+        assertConsistent(tree);
+    }
+
+    @Test
+    public void keepListConsistentWithTree() {
+        BoundedObservationTree<Integer, Integer> tree = new BoundedObservationTree<>(50);
+        Random random = new Random(0);
+        for (int i = 0; i < 2000; i++) {
+            Word<Integer> word = TestWords.randomWord(random, 1, 8, 3);
+            switch (random.nextInt(4)) {
+                case 0 -> tree.answerQuery(word, true);
+                case 1 -> tree.setPinnedWords(List.of(word));
+                default -> tree.addObservation(word, TestWords.outputsOf(word, 5));
+            }
+            Assert.assertTrue(tree.getNodeCount() <= 50);
+            assertConsistent(tree);
+        }
+        Assert.assertTrue(tree.getEvictionCount() > 0);
+    }
+
+    // the list holds exactly the nodes of the tree, each before its ancestors
+    private static <I, O> void assertConsistent(BoundedObservationTree<I, O> tree) {
+        Set<ObservationTree<I, O>> listed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (BoundedObservationTree<I, O> node = tree.budget.leastRecent; node != null; node = node.moreRecent) {
+            Assert.assertFalse(node.evicted);
+            for (ObservationTree<I, O> child: node.children.values()) {
+                Assert.assertTrue(listed.contains(child));
+            }
+            listed.add(node);
+        }
+
+        Deque<ObservationTree<I, O>> stack = new ArrayDeque<>(tree.children.values());
+        long nodes = 0;
+        while (!stack.isEmpty()) {
+            ObservationTree<I, O> node = stack.pop();
+            Assert.assertTrue(listed.contains(node));
+            stack.addAll(node.children.values());
+            nodes++;
+        }
+        Assert.assertEquals(nodes, listed.size());
+        Assert.assertEquals(nodes, tree.getNodeCount());
+    }
+
+    @Test
+    public void countRemovedNodes() {
+        BoundedObservationTree<String, String> tree = new BoundedObservationTree<>(100);
+        tree.addObservation(Word.fromSymbols("a", "b", "c"), Word.fromSymbols("x", "y", "z"));
+        tree.addObservation(Word.fromSymbols("a", "c"), Word.fromSymbols("x", "z"));
+        tree.remove(Word.fromSymbols("a", "b"));
+
+        Assert.assertEquals(2, tree.getNodeCount());
+        Assert.assertEquals(0, tree.getEvictionCount());
+        Assert.assertNull(tree.answerQuery(Word.fromSymbols("a", "b")));
+        assertConsistent(tree);
+    }
+
+    @Test
+    public void detectInconsistency() {
+        BoundedObservationTree<String, String> tree = new BoundedObservationTree<>(100);
+        tree.addObservation(Word.fromSymbols("a", "b"), Word.fromSymbols("x", "y"));
+
+        try {
+            tree.addObservation(Word.fromSymbols("a", "b"), Word.fromSymbols("x", "z"));
+            Assert.fail("Expected CacheInconsistencyException");
+        }
+        catch (CacheInconsistencyException e) {
+            Assert.assertEquals(Word.fromSymbols("x", "y"), e.getOldOutput());
+        }
+    }
+}
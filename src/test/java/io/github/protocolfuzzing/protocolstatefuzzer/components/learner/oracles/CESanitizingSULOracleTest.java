@@ -0,0 +1,92 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import de.learnlib.oracle.membership.SULOracle;
+import de.learnlib.query.DefaultQuery;
+import de.learnlib.sul.SUL;
+import net.automatalib.alphabet.impl.Alphabets;
+import net.automatalib.automaton.transducer.MealyMachine;
+import net.automatalib.automaton.transducer.impl.CompactMealy;
+import net.automatalib.word.Word;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Locale;
+
+public class CESanitizingSULOracleTest {
+
+    @Test
+    public void rerunOnlyDivergentPrefix() {
+        LowercaseSUL sul = new LowercaseSUL(Integer.MAX_VALUE);
+        CESanitizingSULOracle<MealyMachine<?, String, ?, String>, String, String> oracle = createOracle(sul, false);
+
+        DefaultQuery<String, Word<String>> query = new DefaultQuery<>(Word.fromSymbols("a", "c", "b", "b"));
+        oracle.processQuery(query);
+
+        Assert.assertEquals(Word.fromSymbols("A", "c", "B", "B"), query.getOutput());
+        // one complete run and three reruns of the prefix up to the divergent c
+        Assert.assertEquals(4, sul.runs);
+        Assert.assertEquals(4 + 3 * 2, sul.steps);
+    }
+
+    @Test
+    public void abortRerunOnFirstChangedOutput() {
+        // only the original run answers c in lowercase
+        LowercaseSUL sul = new LowercaseSUL(1);
+        CESanitizingSULOracle<MealyMachine<?, String, ?, String>, String, String> oracle = createOracle(sul, true);
+
+        DefaultQuery<String, Word<String>> query = new DefaultQuery<>(Word.fromSymbols("a", "c", "b", "b"));
+        oracle.processQuery(query);
+
+        Assert.assertEquals(Word.fromSymbols("A", "C", "B", "B"), query.getOutput());
+        Assert.assertEquals(2, sul.runs);
+        Assert.assertEquals(4 + 2, sul.steps);
+    }
+
+    @Test(expected = NonDeterminismException.class)
+    public void throwOnChangedOutput() {
+        LowercaseSUL sul = new LowercaseSUL(1);
+        createOracle(sul, false).answerQuery(Word.fromSymbols("a", "c", "b", "b"));
+    }
+
+    private static CESanitizingSULOracle<MealyMachine<?, String, ?, String>, String, String> createOracle(
+        LowercaseSUL sul, boolean skipNonDetTests) {
+
+        // the hypothesis answers each input in uppercase
+        CompactMealy<String, String> hypothesis = new CompactMealy<>(Alphabets.fromArray("a", "b", "c"));
+        int state = hypothesis.addInitialState();
+        for (String input: hypothesis.getInputAlphabet()) {
+            hypothesis.addTransition(state, input, state, input.toUpperCase(Locale.ROOT));
+        }
+
+        return new CESanitizingSULOracle<>(3, new SULOracle<>(sul), false, new StringWriter(),
+            () -> hypothesis, new ObservationTree<>(), skipNonDetTests, sul);
+    }
+
+    /** Answers each input in uppercase, except for c in the first runs, which is answered in lowercase. */
+    private static class LowercaseSUL implements SUL<String, String> {
+        private int lowercaseRuns;
+        private int runs = 0;
+        private int steps = 0;
+
+        private LowercaseSUL(int lowercaseRuns) {
+            this.lowercaseRuns = lowercaseRuns;
+        }
+
+        @Override
+        public void pre() {
+            runs++;
+        }
+
+        @Override
+        public void post() {
+            lowercaseRuns--;
+        }
+
+        @Override
+        public String step(String input) {
+            steps++;
+            return input.equals("c") && lowercaseRuns > 0 ? input : input.toUpperCase(Locale.ROOT);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import de.learnlib.oracle.MembershipOracle;
+import de.learnlib.query.DefaultQuery;
+import de.learnlib.query.Query;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.statistics.MetricsRegistry;
+import net.automatalib.word.Word;
+import net.automatalib.word.WordBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class CachingSULOracleTest {
+
+    @Test
+    public void executeOnlyMaximalQueries() {
+        ExecutionCounter sulOracle = new ExecutionCounter();
+        ObservationTree<String, String> cache = new ObservationTree<>();
+        CachingSULOracle<String, String> oracle = new CachingSULOracle<>(sulOracle, cache, false, List.of());
+
+        List<DefaultQuery<String, Word<String>>> queries = List.of(
+            new DefaultQuery<>(Word.fromSymbols("a"), Word.fromSymbols("b")),
+            new DefaultQuery<>(Word.fromSymbols("a", "b", "c")),
+            new DefaultQuery<>(Word.fromSymbols("a"), Word.fromSymbols("b", "c")),
+            new DefaultQuery<>(Word.fromSymbols("b")),
+            new DefaultQuery<>(Word.epsilon(), Word.fromSymbols("a")));
+        oracle.processQueries(queries);
+
+        Assert.assertEquals(List.of(Word.fromSymbols("a", "b", "c"), Word.fromSymbols("b")), sulOracle.executed);
+        assertAnswered(queries);
+        Assert.assertEquals(Word.fromSymbols("a0", "b1", "c2"), cache.answerQuery(Word.fromSymbols("a", "b", "c")));
+        Assert.assertEquals(Word.fromSymbols("b0"), cache.answerQuery(Word.fromSymbols("b")));
+    }
+
+    @Test
+    public void setTerminatingOutputsToCache() {
+        ObservationTree<String, String> cache = new ObservationTree<>();
+        new CachingSULOracle<>(new ExecutionCounter(), cache, false, List.of("closed"));
+        new CachingSULOracle<>(new ExecutionCounter(), cache, true, List.of("closed"));
+
+        cache.addObservation(Word.fromSymbols("a", "b"), Word.fromSymbols("x", "closed"));
+        Assert.assertEquals(Word.fromSymbols("x", "closed", "closed"),
+            cache.answerQuery(Word.fromSymbols("a", "b", "c")));
+    }
+
+    @Test
+    public void answerCachedQueriesWithoutExecution() {
+        ExecutionCounter sulOracle = new ExecutionCounter();
+        ObservationTree<String, String> cache = new ObservationTree<>();
+        CachingSULOracle<String, String> oracle = new CachingSULOracle<>(sulOracle, cache, false, List.of());
+
+        oracle.processQueries(List.of(new DefaultQuery<>(Word.fromSymbols("a", "b"))));
+        sulOracle.executed.clear();
+
+        List<DefaultQuery<String, Word<String>>> queries = List.of(
+            new DefaultQuery<>(Word.fromSymbols("a"), Word.fromSymbols("b")),
+            new DefaultQuery<>(Word.fromSymbols("a", "c")),
+            new DefaultQuery<>(Word.fromSymbols("a", "c", "d")));
+        oracle.processQueries(queries);
+
+        Assert.assertEquals(List.of(Word.fromSymbols("a", "c", "d")), sulOracle.executed);
+        assertAnswered(queries);
+    }
+
+    @Test
+    public void answerCoveredQueriesInLookupMode() {
+        ExecutionCounter sulOracle = new ExecutionCounter();
+        ObservationTree<String, String> cache = new ObservationTree<>();
+        CachingSULOracle<String, String> oracle = new CachingSULOracle<>(sulOracle, cache, true, List.of());
+
+        List<DefaultQuery<String, Word<String>>> queries = List.of(
+            new DefaultQuery<>(Word.fromSymbols("a", "b")),
+            new DefaultQuery<>(Word.fromSymbols("a"), Word.fromSymbols("b")),
+            new DefaultQuery<>(Word.fromSymbols("a")));
+        oracle.processQueries(queries);
+
+        Assert.assertEquals(List.of(Word.fromSymbols("a", "b")), sulOracle.executed);
+        assertAnswered(queries);
+        Assert.assertNull(cache.answerQuery(Word.fromSymbols("a")));
+    }
+
+    @Test
+    public void countHitsAndMisses() {
+        ExecutionCounter sulOracle = new ExecutionCounter();
+        ObservationTree<String, String> cache = new ObservationTree<>();
+        CachingSULOracle<String, String> oracle = new CachingSULOracle<>(sulOracle, cache, false, List.of());
+        MetricsRegistry registry = new MetricsRegistry();
+        oracle.enableMetrics(registry, "learning");
+
+        oracle.processQueries(List.of(new DefaultQuery<>(Word.fromSymbols("a", "b"))));
+        oracle.processQueries(List.of(
+            new DefaultQuery<>(Word.fromSymbols("a")),
+            new DefaultQuery<>(Word.fromSymbols("a", "c")),
+            new DefaultQuery<>(Word.fromSymbols("b"))));
+
+        Assert.assertEquals(1, registry.counter("learning.cache.hits").sum());
+        Assert.assertEquals(1, registry.counter("learning.cache.partialHits").sum());
+        Assert.assertEquals(2, registry.counter("learning.cache.misses").sum());
+        Assert.assertEquals(4, registry.histogram("learning.queries.length").getCount());
+        Assert.assertEquals(6, registry.histogram("learning.queries.length").getSum());
+    }
+
+    private static void assertAnswered(List<DefaultQuery<String, Word<String>>> queries) {
+        for (DefaultQuery<String, Word<String>> query: queries) {
+            Word<String> expected = ExecutionCounter.outputOf(query.getInput()).suffix(query.getSuffix().length());
+            Assert.assertEquals(expected, query.getOutput());
+        }
+    }
+
+    /** Answers each input with itself followed by its position, recording the executed inputs. */
+    private static class ExecutionCounter implements MembershipOracle<String, Word<String>> {
+        private List<Word<String>> executed = new ArrayList<>();
+
+        private static Word<String> outputOf(Word<String> input) {
+            WordBuilder<String> output = new WordBuilder<>();
+            for (int i = 0; i < input.length(); i++) {
+                output.append(input.getSymbol(i) + i);
+            }
+            return output.toWord();
+        }
+
+        @Override
+        public void processQueries(Collection<? extends Query<String, Word<String>>> queries) {
+            for (Query<String, Word<String>> query: queries) {
+                Word<String> input = query.getPrefix().concat(query.getSuffix());
+                executed.add(input);
+                query.answer(outputOf(input).suffix(query.getSuffix().length()));
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import net.automatalib.alphabet.impl.ListAlphabet;
+import net.automatalib.word.Word;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class CompactObservationTreeTest {
+    private static final ListAlphabet<String> ALPHABET = new ListAlphabet<>(List.of("a", "b", "c", "d"));
+
+    @Test
+    public void answerStoredQueries() {
+        CompactObservationTree<String, String> tree = new CompactObservationTree<>(ALPHABET);
+        tree.addObservation(Word.fromSymbols("a", "b", "c"), Word.fromSymbols("x", "y", "z"));
+        tree.addObservation(Word.fromSymbols("a", "c"), Word.fromSymbols("x", "x"));
+
+        Assert.assertEquals(Word.fromSymbols("x", "y", "z"), tree.answerQuery(Word.fromSymbols("a", "b", "c")));
+        Assert.assertEquals(Word.fromSymbols("x", "x"), tree.answerQuery(Word.fromSymbols("a", "c")));
+        Assert.assertEquals(Word.epsilon(), tree.answerQuery(Word.epsilon()));
+        Assert.assertNull(tree.answerQuery(Word.fromSymbols("a", "d")));
+        Assert.assertEquals(Word.fromSymbols("x"), tree.answerQuery(Word.fromSymbols("a", "d"), true));
+        Assert.assertEquals(List.of("x", "y"), tree.answerInputChain(List.of("a", "b", "d"), true));
+        Assert.assertEquals(5, tree.size());
+    }
+
+    @Test
+    public void answerThroughTerminalNodes() {
+        CompactObservationTree<String, String> tree = new CompactObservationTree<>(ALPHABET);
+        tree.setTerminatingOutputs(List.of("closed"));
+        tree.addObservation(Word.fromSymbols("a", "b", "c"), Word.fromSymbols("x", "closed", "closed"));
+
+        Assert.assertEquals(Word.fromSymbols("x", "closed", "closed", "closed"),
+            tree.answerQuery(Word.fromSymbols("a", "b", "d", "a")));
+        Assert.assertEquals(List.of("x", "closed", "closed"), tree.answerInputChain(List.of("a", "b", "a"), false));
+        Assert.assertNull(tree.answerQuery(Word.fromSymbols("a", "a")));
+        Assert.assertEquals(1, tree.getRefusedObservationCount());
+        Assert.assertEquals(3, tree.size());
+    }
+
+    @Test
+    public void followPathsWithCursor() {
+        CompactObservationTree<String, String> tree = new CompactObservationTree<>(ALPHABET);
+        tree.setTerminatingOutputs(List.of("closed"));
+        tree.addObservation(Word.fromSymbols("a", "b"), Word.fromSymbols("x", "closed"));
+
+        ObservationTree.Cursor<String, String> cursor = tree.cursor();
+        Assert.assertEquals("x", cursor.next("a"));
+        Assert.assertEquals("closed", cursor.next("b"));
+        Assert.assertEquals("closed", cursor.next("c"));
+
+        cursor = tree.cursor();
+        Assert.assertNull(cursor.next("b"));
+        Assert.assertNull(cursor.next("a"));
+    }
+
+    @Test
+    public void detectInconsistency() {
+        CompactObservationTree<String, String> tree = new CompactObservationTree<>(ALPHABET);
+        tree.addObservation(Word.fromSymbols("a", "b", "c"), Word.fromSymbols("x", "y", "z"));
+
+        try {
+            tree.addObservation(Word.fromSymbols("a", "b", "d"), Word.fromSymbols("x", "w", "z"));
+            Assert.fail("Expected CacheInconsistencyException");
+        }
+        catch (CacheInconsistencyException e) {
+            Assert.assertEquals(Word.fromSymbols("x", "y"), e.getOldOutput());
+            Assert.assertEquals(Word.fromSymbols("x", "w", "z"), e.getNewOutput());
+        }
+    }
+
+    @Test
+    public void removeAndReuseNodes() {
+        CompactObservationTree<String, String> tree = new CompactObservationTree<>(ALPHABET);
+        tree.addObservation(Word.fromSymbols("a", "b", "c"), Word.fromSymbols("x", "y", "z"));
+        tree.addObservation(Word.fromSymbols("a", "c"), Word.fromSymbols("x", "z"));
+        tree.remove(Word.fromSymbols("a", "b"));
+
+        Assert.assertNull(tree.answerQuery(Word.fromSymbols("a", "b")));
+        Assert.assertEquals(Word.fromSymbols("x", "z"), tree.answerQuery(Word.fromSymbols("a", "c")));
+        Assert.assertEquals(3, tree.size());
+
+        // freed nodes must not keep their former children
+        tree.addObservation(Word.fromSymbols("d", "d"), Word.fromSymbols("y", "y"));
+        Assert.assertNull(tree.answerQuery(Word.fromSymbols("d", "c")));
+        Assert.assertNull(tree.answerQuery(Word.fromSymbols("d", "d", "c")));
+        Assert.assertEquals(Word.fromSymbols("y", "y"), tree.answerQuery(Word.fromSymbols("d", "d")));
+        Assert.assertEquals(5, tree.size());
+    }
+
+    @Test
+    public void growBeyondInitialCapacity() {
+        CompactObservationTree<String, Integer> tree = new CompactObservationTree<>(ALPHABET);
+        for (int i = 0; i < 1000; i++) {
+            Word<String> inputs = Word.fromSymbols(ALPHABET.getSymbol(i % 4), ALPHABET.getSymbol(i / 4 % 4),
+                ALPHABET.getSymbol(i / 16 % 4), ALPHABET.getSymbol(i / 64 % 4), ALPHABET.getSymbol(i / 256 % 4));
+            tree.addObservation(inputs, inputs.transform(ALPHABET::getSymbolIndex));
+        }
+
+        Word<String> inputs = Word.fromSymbols("d", "c", "b", "a", "b");
+        Assert.assertEquals(Word.fromSymbols(3, 2, 1, 0, 1), tree.answerQuery(inputs));
+    }
+
+    @Test(expected = RemovalException.class)
+    public void removeMissingBranch() {
+        CompactObservationTree<String, String> tree = new CompactObservationTree<>(ALPHABET);
+        tree.addObservation(Word.fromSymbols("a"), Word.fromSymbols("x"));
+        tree.remove(Word.fromSymbols("a", "b"));
+    }
+
+    @Test
+    public void addSingleObservations() {
+        CompactObservationTree<String, String> tree = new CompactObservationTree<>(ALPHABET);
+        ObservationTree<String, String> node = tree.addObservation("a", "x").addObservation("b", "y");
+        node.addObservation(Word.fromSymbols("c"), Word.fromSymbols("z"));
+
+        Assert.assertEquals(Word.fromSymbols("x", "y", "z"), tree.answerQuery(Word.fromSymbols("a", "b", "c")));
+        Assert.assertEquals(Word.fromSymbols("z"), node.answerQuery(Word.fromSymbols("c")));
+        Assert.assertEquals(4, tree.size());
+
+        CacheInconsistencyException e = Assert.assertThrows(CacheInconsistencyException.class,
+            () -> tree.addObservation("a", "x").addObservation("b", "x"));
+        Assert.assertEquals(Word.fromSymbols("x", "y"), e.getOldOutput());
+        Assert.assertEquals(Word.fromSymbols("x", "x"), e.getNewOutput());
+
+        node.remove();
+        Assert.assertNull(tree.answerQuery(Word.fromSymbols("a", "b")));
+        Assert.assertEquals(2, tree.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectUnknownInput() {
+        new CompactObservationTree<String, String>(ALPHABET).answerQuery(Word.fromSymbols("e"));
+    }
+}
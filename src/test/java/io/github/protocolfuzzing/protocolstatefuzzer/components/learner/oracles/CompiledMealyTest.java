@@ -0,0 +1,48 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.alphabet.impl.Alphabets;
+import net.automatalib.automaton.transducer.impl.CompactMealy;
+import net.automatalib.word.Word;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class CompiledMealyTest {
+
+    private static final Alphabet<String> ALPHABET = Alphabets.fromArray("a", "b");
+
+    @Test
+    public void computeSameOutputsAsMachine() {
+        CompactMealy<String, String> machine = new CompactMealy<>(ALPHABET);
+        int initial = machine.addInitialState();
+        int other = machine.addState();
+        machine.addTransition(initial, "a", other, "A");
+        machine.addTransition(initial, "b", initial, "B");
+        machine.addTransition(other, "a", initial, "C");
+        machine.addTransition(other, "b", other, "D");
+
+        CompiledMealy<String, String> compiled = new CompiledMealy<>(machine, ALPHABET);
+        for (Word<String> input: List.of(Word.<String>epsilon(), Word.fromSymbols("b", "a", "b", "b"),
+            Word.fromSymbols("a", "a", "a", "b"))) {
+            Assert.assertEquals(machine.computeOutput(input), compiled.computeOutput(input));
+        }
+
+        Assert.assertEquals(other, compiled.getSuccessor(compiled.getInitialState(), "a"));
+        Assert.assertEquals("D", compiled.getOutput(other, "b"));
+    }
+
+    @Test
+    public void stopAtUndefinedTransition() {
+        CompactMealy<String, String> machine = new CompactMealy<>(ALPHABET);
+        int initial = machine.addInitialState();
+        machine.addTransition(initial, "a", initial, "A");
+
+        CompiledMealy<String, String> compiled = new CompiledMealy<>(machine, ALPHABET);
+        Assert.assertEquals(Word.fromSymbols("A", "A"), compiled.computeOutput(Word.fromSymbols("a", "a", "b", "a")));
+        Assert.assertEquals(-1, compiled.getSuccessor(initial, "b"));
+        Assert.assertNull(compiled.getOutput(initial, "b"));
+        Assert.assertNull(compiled.getOutput(initial, "c"));
+    }
+}
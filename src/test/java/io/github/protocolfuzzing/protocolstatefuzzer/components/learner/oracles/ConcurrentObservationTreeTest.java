@@ -0,0 +1,201 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import net.automatalib.word.Word;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class ConcurrentObservationTreeTest {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final int THREADS = 16;
+    private static final int WORDS_PER_THREAD = 2000;
+    private static final int INPUTS = 4;
+    private static final int STATES = 7;
+
+    private static final int TIMING_WORDS = 20000;
+    private static final int TIMING_ROUNDS = 5;
+
+    @Test
+    public void concurrentLookupsAndInsertions() throws Exception {
+        ConcurrentObservationTree<Integer, Integer> tree = new ConcurrentObservationTree<>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            // threads share seeds pairwise, so the same words are inserted concurrently
+            long seed = t / 2;
+            results.add(executor.submit(() -> {
+                start.await();
+                Random random = new Random(seed);
+                int wrongAnswers = 0;
+                for (int i = 0; i < WORDS_PER_THREAD; i++) {
+                    Word<Integer> inputs = TestWords.randomWord(random, 1, 12, INPUTS);
+                    Word<Integer> answer = tree.answerQuery(inputs, true);
+                    if (!TestWords.outputsOf(inputs, STATES).prefix(answer.length()).equals(answer)) {
+                        wrongAnswers++;
+                    }
+                    tree.addObservation(inputs, TestWords.outputsOf(inputs, STATES));
+                }
+                return wrongAnswers;
+            }));
+        }
+
+        start.countDown();
+        for (Future<Integer> result: results) {
+            Assert.assertEquals(0, (int) result.get());
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        for (long seed = 0; seed < THREADS / 2; seed++) {
+            Random random = new Random(seed);
+            for (int i = 0; i < WORDS_PER_THREAD; i++) {
+                Word<Integer> inputs = TestWords.randomWord(random, 1, 12, INPUTS);
+                Assert.assertEquals(TestWords.outputsOf(inputs, STATES), tree.answerQuery(inputs));
+            }
+        }
+    }
+
+    @Test
+    public void detectConcurrentConflicts() throws Exception {
+        int rounds = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        for (int round = 0; round < rounds; round++) {
+            ConcurrentObservationTree<Integer, Integer> tree = new ConcurrentObservationTree<>();
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicInteger conflicts = new AtomicInteger();
+            List<Future<?>> results = new ArrayList<>();
+
+            for (int t = 0; t < THREADS; t++) {
+                int output = t;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        tree.addObservation(Word.fromSymbols(0, 1), Word.fromSymbols(0, output));
+                    }
+                    catch (CacheInconsistencyException e) {
+                        conflicts.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> result: results) {
+                result.get();
+            }
+
+            // exactly one of the conflicting observations is stored
+            Assert.assertEquals(THREADS - 1, conflicts.get());
+            Assert.assertNotNull(tree.answerQuery(Word.fromSymbols(0, 1)));
+        }
+
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void removeBranch() {
+        ConcurrentObservationTree<String, String> tree = new ConcurrentObservationTree<>();
+        tree.addObservation(Word.fromSymbols("a", "b"), Word.fromSymbols("x", "y"));
+        tree.addObservation(Word.fromSymbols("a", "c"), Word.fromSymbols("x", "z"));
+        tree.remove(Word.fromSymbols("a", "b"));
+
+        Assert.assertNull(tree.answerQuery(Word.fromSymbols("a", "b")));
+        Assert.assertEquals(Word.fromSymbols("x", "z"), tree.answerQuery(Word.fromSymbols("a", "c")));
+    }
+
+    @Test
+    public void retryAfterConflictingBranchIsRemoved() {
+        // the conflicting branch is removed right after the conflict is found, as by another thread
+        ConcurrentObservationTree<String, String> tree = new ConcurrentObservationTree<>() {
+            @Override
+            protected ObservationTree<String, String> addObservationStep(String input, String output) {
+                ObservationTree<String, String> child = super.addObservationStep(input, output);
+                if (child == null) {
+                    remove(List.of(input));
+                }
+                return child;
+            }
+        };
+        tree.addObservation(Word.fromSymbols("a"), Word.fromSymbols("x"));
+        tree.addObservation(Word.fromSymbols("a", "b"), Word.fromSymbols("y", "z"));
+        Assert.assertEquals(Word.fromSymbols("y", "z"), tree.answerQuery(Word.fromSymbols("a", "b")));
+
+        tree.addObservation("a", "w");
+        Assert.assertEquals(Word.fromSymbols("w"), tree.answerQuery(Word.fromSymbols("a")));
+    }
+
+    // coarse timings, skipped unless run with -Dtiming=true, of the concurrent tree
+    // against a single tree behind one lock, as the cache was shared before
+    @Test
+    public void timeConcurrentInsertions() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("timing"));
+        for (int threads = 1; threads <= THREADS; threads *= 2) {
+            List<List<Word<Integer>>> perThread = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                perThread.add(TestWords.randomWords(t, TIMING_WORDS / threads, 30, 60, 8));
+            }
+
+            long locked = 0;
+            long concurrent = 0;
+            // the first rounds warm up the JIT
+            for (int round = 0; round < TIMING_ROUNDS; round++) {
+                ObservationTree<Integer, Integer> lockedTree = new ObservationTree<>();
+                locked = timeInsertions(perThread, word -> {
+                    synchronized (lockedTree) {
+                        if (lockedTree.answerQuery(word) == null) {
+                            lockedTree.addObservation(word, TestWords.outputsOf(word, 31));
+                        }
+                    }
+                });
+
+                ConcurrentObservationTree<Integer, Integer> tree = new ConcurrentObservationTree<>();
+                concurrent = timeInsertions(perThread, word -> {
+                    if (tree.answerQuery(word) == null) {
+                        tree.addObservation(word, TestWords.outputsOf(word, 31));
+                    }
+                });
+            }
+
+            int words = threads * (TIMING_WORDS / threads);
+            LOGGER.info("{} threads: {} ns/word behind one lock, {} ns/word concurrent",
+                threads, locked / words, concurrent / words);
+        }
+    }
+
+    private static long timeInsertions(List<List<Word<Integer>>> perThread, Consumer<Word<Integer>> insertion)
+        throws Exception {
+
+        ExecutorService executor = Executors.newFixedThreadPool(perThread.size());
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> results = new ArrayList<>();
+            for (List<Word<Integer>> words: perThread) {
+                results.add(executor.submit(() -> words.forEach(insertion)));
+            }
+            for (Future<?> result: results) {
+                result.get();
+            }
+            return System.nanoTime() - start;
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import de.learnlib.oracle.membership.MealySimulatorOracle;
+import de.learnlib.query.DefaultQuery;
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.alphabet.impl.Alphabets;
+import net.automatalib.automaton.transducer.impl.CompactMealy;
+import net.automatalib.word.Word;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CounterexampleReducingEQOracleTest {
+
+    private static final Alphabet<String> ALPHABET = Alphabets.fromArray("a", "b", "c");
+
+    // the sul answers b with x after c
+    private static CompactMealy<String, String> buildTarget() {
+        CompactMealy<String, String> target = new CompactMealy<>(ALPHABET);
+        int initial = target.addInitialState();
+        int afterC = target.addState();
+        target.addTransition(initial, "a", initial, "A");
+        target.addTransition(initial, "b", initial, "B");
+        target.addTransition(initial, "c", afterC, "C");
+        target.addTransition(afterC, "a", afterC, "A");
+        target.addTransition(afterC, "b", initial, "x");
+        target.addTransition(afterC, "c", afterC, "C");
+        return target;
+    }
+
+    // the hypothesis always answers in uppercase
+    private static CompactMealy<String, String> buildHypothesis() {
+        CompactMealy<String, String> hypothesis = new CompactMealy<>(ALPHABET);
+        int state = hypothesis.addInitialState();
+        for (String input: ALPHABET) {
+            hypothesis.addTransition(state, input, state, input.toUpperCase(Locale.ROOT));
+        }
+        return hypothesis;
+    }
+
+    @Test
+    public void reduceCounterexample() {
+        CompactMealy<String, String> target = buildTarget();
+        CompactMealy<String, String> hypothesis = buildHypothesis();
+
+        Word<String> input = Word.fromSymbols("a", "a", "b", "a", "c", "a", "a", "a", "b", "a", "c");
+        CounterexampleReducingEQOracle<String, String> oracle = new CounterexampleReducingEQOracle<>(
+            (hyp, inputs) -> new DefaultQuery<>(Word.epsilon(), input, target.computeOutput(input)),
+            new MealySimulatorOracle<>(target));
+
+        DefaultQuery<String, Word<String>> counterexample = oracle.findCounterExample(hypothesis, ALPHABET);
+
+        Assert.assertNotNull(counterexample);
+        Assert.assertEquals(Word.fromSymbols("c", "b"), counterexample.getInput());
+        Assert.assertEquals(Word.fromSymbols("C", "x"), counterexample.getOutput());
+    }
+
+    @Test
+    public void stopAfterMaxRejectedCandidates() {
+        CompactMealy<String, String> target = buildTarget();
+        CompactMealy<String, String> hypothesis = buildHypothesis();
+        MealySimulatorOracle<String, String> targetOracle = new MealySimulatorOracle<>(target);
+        Word<String> input = Word.fromSymbols("a", "a", "b", "a", "c", "a", "a", "a", "b", "a", "c");
+
+        for (int maxRejected = 0; maxRejected <= 3; maxRejected++) {
+            AtomicInteger queries = new AtomicInteger();
+            CounterexampleReducingEQOracle<String, String> oracle = new CounterexampleReducingEQOracle<>(
+                (hyp, inputs) -> new DefaultQuery<>(Word.epsilon(), input, target.computeOutput(input)),
+                batch -> {
+                    queries.addAndGet(batch.size());
+                    targetOracle.processQueries(batch);
+                }, maxRejected);
+
+            DefaultQuery<String, Word<String>> counterexample = oracle.findCounterExample(hypothesis, ALPHABET);
+
+            Assert.assertNotNull(counterexample);
+            Assert.assertEquals(target.computeOutput(counterexample.getInput()), counterexample.getOutput());
+            if (maxRejected == 0) {
+                // the counterexample is only truncated
+                Assert.assertEquals(0, queries.get());
+                Assert.assertEquals(9, counterexample.getInput().length());
+            } else {
+                // each accepted candidate shortens the truncated counterexample of 9 inputs
+                Assert.assertTrue(queries.get() <= maxRejected + 9);
+            }
+        }
+    }
+
+    @Test
+    public void returnNoCounterexample() {
+        CompactMealy<String, String> hypothesis = new CompactMealy<>(ALPHABET);
+        hypothesis.addInitialState();
+        CounterexampleReducingEQOracle<String, String> oracle = new CounterexampleReducingEQOracle<>(
+            (hyp, inputs) -> null, new MealySimulatorOracle<>(hypothesis));
+
+        Assert.assertNull(oracle.findCounterExample(hypothesis, ALPHABET));
+    }
+}
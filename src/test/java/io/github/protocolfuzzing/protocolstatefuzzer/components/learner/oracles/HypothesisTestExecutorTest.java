@@ -0,0 +1,113 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
+import de.learnlib.oracle.membership.SULOracle;
+import de.learnlib.query.DefaultQuery;
+import de.learnlib.query.Query;
+import de.learnlib.sul.SUL;
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.alphabet.impl.Alphabets;
+import net.automatalib.automaton.transducer.impl.CompactMealy;
+import net.automatalib.word.Word;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Locale;
+
+public class HypothesisTestExecutorTest {
+
+    private static final Alphabet<String> ALPHABET = Alphabets.fromArray("a", "b", "c");
+
+    @Test
+    public void stopStreamedTestAtFirstMismatch() {
+        StepCountingSUL sul = new StepCountingSUL();
+        CountingOracle sulOracle = new CountingOracle(sul);
+        HypothesisTestExecutor<String, String> executor = new HypothesisTestExecutor<>(sulOracle, sul);
+
+        DefaultQuery<String, Word<String>> counterexample =
+            executor.runTest(hypothesis(), Word.fromSymbols("a", "b", "c", "c", "c"));
+
+        // the test is stopped after b and only its prefix is asked to the oracle
+        Assert.assertNotNull(counterexample);
+        Assert.assertEquals(Word.fromSymbols("a", "b"), counterexample.getInput());
+        Assert.assertEquals(Word.fromSymbols("A", "b"), counterexample.getOutput());
+        Assert.assertEquals(1, sulOracle.queries);
+        Assert.assertEquals(2 + 2, sul.steps);
+    }
+
+    @Test
+    public void passStreamedTestWithoutOracle() {
+        StepCountingSUL sul = new StepCountingSUL();
+        CountingOracle sulOracle = new CountingOracle(sul);
+        HypothesisTestExecutor<String, String> executor = new HypothesisTestExecutor<>(sulOracle, sul);
+
+        Assert.assertNull(executor.runTest(hypothesis(), Word.fromSymbols("b", "a", "a", "c")));
+        Assert.assertEquals(0, sulOracle.queries);
+        Assert.assertEquals(4, sul.steps);
+    }
+
+    @Test
+    public void runWholeTestThroughOracleWithoutSUL() {
+        StepCountingSUL sul = new StepCountingSUL();
+        CountingOracle sulOracle = new CountingOracle(sul);
+        HypothesisTestExecutor<String, String> executor = new HypothesisTestExecutor<>(sulOracle);
+
+        DefaultQuery<String, Word<String>> counterexample =
+            executor.runTest(hypothesis(), Word.fromSymbols("a", "b", "c"));
+
+        Assert.assertNotNull(counterexample);
+        Assert.assertEquals(Word.fromSymbols("a", "b", "c"), counterexample.getInput());
+        Assert.assertEquals(Word.fromSymbols("A", "b", "C"), counterexample.getOutput());
+        Assert.assertEquals(1, sulOracle.queries);
+        Assert.assertEquals(3, sul.steps);
+    }
+
+    /** Returns a compiled hypothesis answering each input in uppercase. */
+    private static CompiledMealy<String, String> hypothesis() {
+        CompactMealy<String, String> hypothesis = new CompactMealy<>(ALPHABET);
+        int state = hypothesis.addInitialState();
+        for (String input: ALPHABET) {
+            hypothesis.addTransition(state, input, state, input.toUpperCase(Locale.ROOT));
+        }
+        return new CompiledMealy<>(hypothesis, ALPHABET);
+    }
+
+    /** Answers b in lowercase right after a and every other input in uppercase, counting the steps. */
+    private static class StepCountingSUL implements SUL<String, String> {
+        private String previous = "";
+        private int steps = 0;
+
+        @Override
+        public void pre() {
+            previous = "";
+        }
+
+        @Override
+        public void post() {}
+
+        @Override
+        public String step(String input) {
+            steps++;
+            String output = input.equals("b") && previous.equals("a") ? input : input.toUpperCase(Locale.ROOT);
+            previous = input;
+            return output;
+        }
+    }
+
+    /** Answers each query on the sul, counting the queries. */
+    private static class CountingOracle implements MealyMembershipOracle<String, String> {
+        private SULOracle<String, String> sulOracle;
+        private int queries = 0;
+
+        private CountingOracle(SUL<String, String> sul) {
+            this.sulOracle = new SULOracle<>(sul);
+        }
+
+        @Override
+        public void processQueries(Collection<? extends Query<String, Word<String>>> queries) {
+            this.queries += queries.size();
+            sulOracle.processQueries(queries);
+        }
+    }
+}
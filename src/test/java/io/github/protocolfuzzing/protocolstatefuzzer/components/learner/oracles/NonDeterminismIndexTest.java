@@ -0,0 +1,106 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import net.automatalib.word.Word;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+public class NonDeterminismIndexTest {
+
+    @Test
+    public void findShortestUnstablePrefix() {
+        NonDeterminismIndex<String, String> index = new NonDeterminismIndex<>();
+        index.record(Word.fromSymbols("a", "b", "c"), Word.fromSymbols("A", "B", "C"), 2);
+        index.record(Word.fromSymbols("a", "b"), Word.fromSymbols("A", "X"), 1);
+
+        Assert.assertEquals(2, index.size());
+        Assert.assertEquals(Word.fromSymbols("a", "b"), index.findUnstablePrefix(Word.fromSymbols("a", "b", "c")));
+        Assert.assertEquals(Word.fromSymbols("a", "b"), index.findUnstablePrefix(Word.fromSymbols("a", "b", "d")));
+        Assert.assertNull(index.findUnstablePrefix(Word.fromSymbols("a")));
+        Assert.assertNull(index.findUnstablePrefix(Word.fromSymbols("b", "a", "b")));
+    }
+
+    @Test
+    public void accumulateOutputDistribution() {
+        NonDeterminismIndex<String, String> index = new NonDeterminismIndex<>();
+        index.record(Word.fromSymbols("a"), Word.fromSymbols("A"), 2);
+        index.record(Word.fromSymbols("a"), Word.fromSymbols("X"), 1);
+        index.record(Word.fromSymbols("a"), Word.fromSymbols("A"), 3);
+
+        Assert.assertEquals(Map.of(Word.fromSymbols("A"), 5, Word.fromSymbols("X"), 1),
+            index.getOutputDistribution(Word.fromSymbols("a")));
+        Assert.assertTrue(index.getOutputDistribution(Word.fromSymbols("b")).isEmpty());
+    }
+
+    @Test
+    public void readWrittenIndex() throws IOException {
+        NonDeterminismIndex<String, String> index = new NonDeterminismIndex<>();
+        index.record(Word.fromSymbols("a", "b"), Word.fromSymbols("A", "B"), 4);
+        index.record(Word.fromSymbols("a", "b"), Word.fromSymbols("A", "X"), 1);
+        index.record(Word.fromSymbols("c"), Word.fromSymbols("C"), 1);
+        StringWriter writer = new StringWriter();
+        index.write(writer);
+
+        // inputs with symbols outside the alphabet are skipped
+        NonDeterminismIndex<String, String> readIndex = new NonDeterminismIndex<>();
+        int read = readIndex.read(new StringReader(writer.toString()), List.of("a", "b"), Function.identity());
+
+        Assert.assertEquals(1, read);
+        Assert.assertEquals(1, readIndex.size());
+        Assert.assertEquals(index.getOutputDistribution(Word.fromSymbols("a", "b")),
+            readIndex.getOutputDistribution(Word.fromSymbols("a", "b")));
+        Assert.assertNull(readIndex.findUnstablePrefix(Word.fromSymbols("c")));
+    }
+
+    @Test
+    public void readEscapedSymbolsAndEmptyOutputs() throws IOException {
+        NonDeterminismIndex<String, String> index = new NonDeterminismIndex<>();
+        index.record(Word.fromSymbols("a\tb", "c\\"), Word.epsilon(), 2);
+        index.record(Word.fromSymbols("a\tb", "c\\"), Word.fromSymbols("line\nbreak", ""), 1);
+        StringWriter writer = new StringWriter();
+        index.write(writer);
+
+        NonDeterminismIndex<String, String> readIndex = new NonDeterminismIndex<>();
+        int read = readIndex.read(new StringReader(writer.toString()), List.of("a\tb", "c\\"), Function.identity());
+
+        Assert.assertEquals(1, read);
+        Assert.assertEquals(Map.of(Word.epsilon(), 2, Word.fromSymbols("line\nbreak", ""), 1),
+            readIndex.getOutputDistribution(Word.fromSymbols("a\tb", "c\\")));
+    }
+
+    @Test
+    public void leaveOutUnrestorableOutputs() throws IOException {
+        NonDeterminismIndex<String, String> index = new NonDeterminismIndex<>();
+        index.record(Word.fromSymbols("a"), Word.fromSymbols("A"), 3);
+        index.record(Word.fromSymbols("a"), Word.fromSymbols("M"), 1);
+        index.record(Word.fromSymbols("b"), Word.fromSymbols("M"), 2);
+        StringWriter writer = new StringWriter();
+
+        // M is decoded to a different output, as an output whose messages are lost
+        Function<String, String> decoder = output -> output.equals("M") ? "M'" : output;
+        index.write(writer, decoder);
+
+        NonDeterminismIndex<String, String> readIndex = new NonDeterminismIndex<>();
+        Assert.assertEquals(2, readIndex.read(new StringReader(writer.toString()), List.of("a", "b"), decoder));
+        Assert.assertEquals(Map.of(Word.fromSymbols("A"), 3), readIndex.getOutputDistribution(Word.fromSymbols("a")));
+        Assert.assertTrue(readIndex.getOutputDistribution(Word.fromSymbols("b")).isEmpty());
+        Assert.assertEquals(Word.fromSymbols("b"), readIndex.findUnstablePrefix(Word.fromSymbols("b", "a")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectEmptyInput() {
+        new NonDeterminismIndex<String, String>().record(Word.epsilon(), Word.epsilon(), 1);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectMalformedIndex() throws IOException {
+        new NonDeterminismIndex<String, String>().read(new StringReader("I\ta\nO\tmany\tA\n"), List.of("a"),
+            Function.identity());
+    }
+}
@@ -0,0 +1,160 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import de.learnlib.oracle.membership.SULOracle;
+import de.learnlib.query.DefaultQuery;
+import de.learnlib.sul.SUL;
+import net.automatalib.word.Word;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class NonDeterminismRetryingSULOracleTest {
+
+    @Test
+    public void answerConsistentQueriesInSingleRun() {
+        FlakySUL sul = new FlakySUL(0);
+        ObservationTree<String, String> cache = new ObservationTree<>();
+        cache.addObservation(Word.fromSymbols("a", "b"), Word.fromSymbols("A", "B"));
+        NonDeterminismRetryingSULOracle<String, String> oracle = new NonDeterminismRetryingSULOracle<>(
+            3, new SULOracle<>(sul), true, new StringWriter(), cache, sul);
+
+        DefaultQuery<String, Word<String>> query = new DefaultQuery<>(Word.fromSymbols("a", "b", "c"));
+        oracle.processQuery(query);
+
+        Assert.assertEquals(Word.fromSymbols("A", "B", "C"), query.getOutput());
+        Assert.assertEquals(1, sul.runs);
+        Assert.assertEquals(3, sul.steps);
+    }
+
+    @Test
+    public void abortRunOnFirstInconsistency() {
+        // the first run answers the first step in lowercase
+        FlakySUL sul = new FlakySUL(1);
+        ObservationTree<String, String> cache = new ObservationTree<>();
+        cache.addObservation(Word.fromSymbols("a", "b"), Word.fromSymbols("A", "B"));
+        NonDeterminismRetryingSULOracle<String, String> oracle = new NonDeterminismRetryingSULOracle<>(
+            3, new SULOracle<>(sul), true, new StringWriter(), cache, sul);
+
+        DefaultQuery<String, Word<String>> query = new DefaultQuery<>(Word.fromSymbols("a"),
+            Word.fromSymbols("b", "c", "d"));
+        oracle.processQuery(query);
+
+        Assert.assertEquals(Word.fromSymbols("B", "C", "D"), query.getOutput());
+        // one aborted step and three complete reruns
+        Assert.assertEquals(4, sul.runs);
+        Assert.assertEquals(1 + 3 * 4, sul.steps);
+    }
+
+    @Test
+    public void runKnownUnstableQueriesRepeatedly() {
+        FlakySUL sul = new FlakySUL(0);
+        NonDeterminismIndex<String, String> index = new NonDeterminismIndex<>();
+        index.record(Word.fromSymbols("a"), Word.fromSymbols("A"), 1);
+        NonDeterminismRetryingSULOracle<String, String> oracle = new NonDeterminismRetryingSULOracle<>(
+            3, new SULOracle<>(sul), true, new StringWriter(), new ObservationTree<>(), sul);
+        oracle.setNonDeterminismIndex(index);
+
+        DefaultQuery<String, Word<String>> query = new DefaultQuery<>(Word.fromSymbols("a", "b"));
+        oracle.processQuery(query);
+
+        Assert.assertEquals(Word.fromSymbols("A", "B"), query.getOutput());
+        Assert.assertEquals(3, sul.runs);
+
+        query = new DefaultQuery<>(Word.fromSymbols("b", "a"));
+        oracle.processQuery(query);
+        Assert.assertEquals(3 + 1, sul.runs);
+    }
+
+    @Test
+    public void recordInconsistenciesInIndex() {
+        FlakySUL sul = new FlakySUL(1);
+        ObservationTree<String, String> cache = new ObservationTree<>();
+        cache.addObservation(Word.fromSymbols("a"), Word.fromSymbols("A"));
+        NonDeterminismIndex<String, String> index = new NonDeterminismIndex<>();
+        NonDeterminismRetryingSULOracle<String, String> oracle = new NonDeterminismRetryingSULOracle<>(
+            3, new SULOracle<>(sul), true, new StringWriter(), cache, sul);
+        oracle.setNonDeterminismIndex(index);
+
+        oracle.processQuery(new DefaultQuery<>(Word.fromSymbols("a", "b")));
+
+        Assert.assertEquals(Word.fromSymbols("a"), index.findUnstablePrefix(Word.fromSymbols("a", "b")));
+        Assert.assertEquals(Map.of(Word.fromSymbols("A"), 1, Word.fromSymbols("a"), 1),
+            index.getOutputDistribution(Word.fromSymbols("a")));
+    }
+
+    @Test
+    public void keepReportsOfParallelChainsTogether() throws Exception {
+        // each thread has its own oracle chain, all logging to the same writer
+        StringWriter writer = new StringWriter();
+        int threads = 4;
+        int queries = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                for (int i = 0; i < queries; i++) {
+                    FlakySUL sul = new FlakySUL(1);
+                    ObservationTree<String, String> cache = new ObservationTree<>();
+                    cache.addObservation(Word.fromSymbols("a"), Word.fromSymbols("A"));
+                    new NonDeterminismRetryingSULOracle<>(3, new SULOracle<>(sul), true, writer, cache, sul)
+                        .processQuery(new DefaultQuery<>(Word.fromSymbols("a", "b")));
+                }
+            }));
+        }
+        for (Future<?> result: results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        List<String> lines = writer.toString().lines().toList();
+        int reports = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).startsWith("Output inconsistent with cache")) {
+                Assert.assertTrue(lines.get(i + 1).startsWith("Input: "));
+                Assert.assertTrue(lines.get(i + 2).startsWith("Unexpected output: "));
+                Assert.assertTrue(lines.get(i + 3).startsWith("Cached output: "));
+                reports++;
+            }
+        }
+        Assert.assertEquals(threads * queries, reports);
+    }
+
+    /** Answers each input in uppercase, except for the first step of the first flaky runs. */
+    private static class FlakySUL implements SUL<String, String> {
+        private int flakyRuns;
+        private int runs = 0;
+        private int steps = 0;
+        private boolean firstStep;
+
+        private FlakySUL(int flakyRuns) {
+            this.flakyRuns = flakyRuns;
+        }
+
+        @Override
+        public void pre() {
+            runs++;
+            firstStep = true;
+        }
+
+        @Override
+        public void post() {
+            flakyRuns--;
+        }
+
+        @Override
+        public String step(String input) {
+            steps++;
+            boolean flaky = firstStep && flakyRuns > 0;
+            firstStep = false;
+            return flaky ? input : input.toUpperCase(Locale.ROOT);
+        }
+    }
+}
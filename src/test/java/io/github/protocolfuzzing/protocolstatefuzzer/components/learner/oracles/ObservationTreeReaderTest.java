@@ -0,0 +1,138 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import net.automatalib.alphabet.impl.ListAlphabet;
+import net.automatalib.word.Word;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+public class ObservationTreeReaderTest {
+    private static final ListAlphabet<String> ALPHABET = new ListAlphabet<>(List.of("a", "b", "c"));
+
+    @Test
+    public void restoreExportedTree() throws IOException {
+        ObservationTree<String, String> tree = new ObservationTree<>();
+        tree.addObservation(Word.fromSymbols("a", "b", "c"), Word.fromSymbols("x", "y", "z"));
+        tree.addObservation(Word.fromSymbols("a", "c"), Word.fromSymbols("x", "x"));
+        tree.addObservation(Word.fromSymbols("b"), Word.fromSymbols("y"));
+
+        CompactObservationTree<String, String> restored = new CompactObservationTree<>(ALPHABET);
+        try (ObservationTreeReader<String, String> reader = newReader(export(tree), ALPHABET)) {
+            Assert.assertEquals(2, reader.readAll(restored));
+        }
+
+        Assert.assertEquals(Word.fromSymbols("x", "y", "z"), restored.answerQuery(Word.fromSymbols("a", "b", "c")));
+        Assert.assertEquals(Word.fromSymbols("x", "x"), restored.answerQuery(Word.fromSymbols("a", "c")));
+        Assert.assertEquals(Word.fromSymbols("y"), restored.answerQuery(Word.fromSymbols("b")));
+        Assert.assertEquals(6, restored.size());
+
+        // the compact tree exports the same observations
+        ObservationTree<String, String> reimported = new ObservationTree<>();
+        try (ObservationTreeReader<String, String> reader = newReader(export(restored), ALPHABET)) {
+            Assert.assertEquals(2, reader.readAll(reimported));
+        }
+        Assert.assertEquals(Word.fromSymbols("x", "y", "z"), reimported.answerQuery(Word.fromSymbols("a", "b", "c")));
+        Assert.assertEquals(Word.fromSymbols("x", "x"), reimported.answerQuery(Word.fromSymbols("a", "c")));
+    }
+
+    @Test
+    public void readOneSubtreeAtATime() throws IOException {
+        ObservationTree<String, String> tree = new ObservationTree<>();
+        tree.addObservation(Word.fromSymbols("a", "a"), Word.fromSymbols("x", "x"));
+        tree.addObservation(Word.fromSymbols("b", "b"), Word.fromSymbols("y", "y"));
+
+        ObservationTree<String, String> restored = new ObservationTree<>();
+        try (ObservationTreeReader<String, String> reader = newReader(export(tree), ALPHABET)) {
+            Assert.assertTrue(reader.readSubtree(restored));
+            Assert.assertEquals(1, restored.children.size());
+            Assert.assertTrue(reader.readSubtree(restored));
+            Assert.assertFalse(reader.readSubtree(restored));
+            Assert.assertFalse(reader.readSubtree(restored));
+        }
+
+        Assert.assertEquals(Word.fromSymbols("x", "x"), restored.answerQuery(Word.fromSymbols("a", "a")));
+        Assert.assertEquals(Word.fromSymbols("y", "y"), restored.answerQuery(Word.fromSymbols("b", "b")));
+    }
+
+    @Test
+    public void skipUnknownInputs() throws IOException {
+        ObservationTree<String, String> tree = new ObservationTree<>();
+        tree.addObservation(Word.fromSymbols("a", "d", "a"), Word.fromSymbols("x", "y", "z"));
+        tree.addObservation(Word.fromSymbols("a", "b"), Word.fromSymbols("x", "y"));
+
+        ObservationTree<String, String> restored = new ObservationTree<>();
+        try (ObservationTreeReader<String, String> reader = newReader(export(tree), ALPHABET)) {
+            reader.readAll(restored);
+            Assert.assertEquals(1, reader.getSkippedSubtrees());
+        }
+
+        Assert.assertEquals(Word.fromSymbols("x", "y"), restored.answerQuery(Word.fromSymbols("a", "b")));
+        Assert.assertEquals(1, restored.getChild("a").children.size());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectForeignFiles() throws IOException {
+        newReader(new byte[] {1, 2, 3, 4, 5}, ALPHABET);
+    }
+
+    @Test
+    public void skipUnrestorableOutputs() throws IOException {
+        ObservationTree<String, String> tree = new ObservationTree<>();
+        tree.addObservation(Word.fromSymbols("a", "b", "c"), Word.fromSymbols("x", "y", "z"));
+        tree.addObservation(Word.fromSymbols("a", "c"), Word.fromSymbols("x", "x"));
+        tree.addObservation(Word.fromSymbols("b"), Word.fromSymbols("y"));
+
+        // y is decoded to a different output, as an output whose messages are lost
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ObservationTreeWriter<String, String> writer = new ObservationTreeWriter<>(outputStream,
+            output -> output.equals("y") ? "y'" : output)) {
+            writer.write(tree);
+        }
+
+        ObservationTree<String, String> restored = new ObservationTree<>();
+        try (ObservationTreeReader<String, String> reader = newReader(outputStream.toByteArray(), ALPHABET)) {
+            Assert.assertEquals(1, reader.readAll(restored));
+        }
+        Assert.assertEquals(Word.fromSymbols("x", "x"), restored.answerQuery(Word.fromSymbols("a", "c")));
+        Assert.assertNull(restored.answerQuery(Word.fromSymbols("a", "b")));
+        Assert.assertNull(restored.answerQuery(Word.fromSymbols("b")));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectOversizedSymbols() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ObservationTreeWriter<String, String> writer = new ObservationTreeWriter<>(outputStream)) {
+            writer.write(new ObservationTree<>());
+        }
+        byte[] header = outputStream.toByteArray();
+
+        // the first input is followed by a string form of about 2 GiB
+        byte[] bytes = Arrays.copyOf(header, header.length + 6);
+        byte[] input = {1, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07};
+        System.arraycopy(input, 0, bytes, header.length - 1, input.length);
+
+        try (ObservationTreeReader<String, String> reader = newReader(bytes, ALPHABET)) {
+            reader.readAll(new ObservationTree<>());
+        }
+    }
+
+    private static byte[] export(ObservationTree<String, String> tree) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ObservationTreeWriter<String, String> writer = new ObservationTreeWriter<>(outputStream)) {
+            writer.write(tree);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static ObservationTreeReader<String, String> newReader(byte[] bytes, List<String> alphabet)
+        throws IOException {
+        return new ObservationTreeReader<>(new ByteArrayInputStream(bytes), alphabet, Function.identity())
+            .initialize();
+    }
+}
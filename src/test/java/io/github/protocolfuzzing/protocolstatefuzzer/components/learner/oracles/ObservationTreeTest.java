@@ -0,0 +1,222 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import net.automatalib.word.Word;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+public class ObservationTreeTest {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final int TIMING_WORDS = 20000;
+    private static final int TIMING_ROUNDS = 5;
+
+    @Test
+    public void answerStoredQueries() {
+        ObservationTree<String, String> tree = new ObservationTree<>();
+        tree.addObservation(Word.fromSymbols("a", "b", "c"), Word.fromSymbols("x", "y", "z"));
+
+        Assert.assertEquals(Word.fromSymbols("x", "y", "z"), tree.answerQuery(Word.fromSymbols("a", "b", "c")));
+        Assert.assertEquals(Word.fromSymbols("x", "y"), tree.answerQuery(Word.fromSymbols("a", "b")));
+        Assert.assertEquals(Word.epsilon(), tree.answerQuery(Word.epsilon()));
+        Assert.assertNull(tree.answerQuery(Word.fromSymbols("a", "c")));
+        Assert.assertEquals(List.of("x", "y"), tree.answerInputChain(List.of("a", "b"), false));
+    }
+
+    @Test
+    public void answerIncompleteQueries() {
+        ObservationTree<String, String> tree = new ObservationTree<>();
+        tree.addObservation(Word.fromSymbols("a", "b"), Word.fromSymbols("x", "y"));
+
+        Assert.assertEquals(Word.fromSymbols("x", "y"), tree.answerQuery(Word.fromSymbols("a", "b", "c"), true));
+        Assert.assertEquals(Word.epsilon(), tree.answerQuery(Word.fromSymbols("c"), true));
+        Assert.assertNull(tree.answerQuery(Word.fromSymbols("a", "b", "c"), false));
+        Assert.assertEquals(List.of("x"), tree.answerInputChain(List.of("a", "c"), true));
+    }
+
+    @Test
+    public void answerLongQueries() {
+        int length = 100000;
+        ObservationTree<Integer, Integer> tree = new ObservationTree<>();
+        Word<Integer> inputs = Word.fromList(IntStream.range(0, length).boxed().toList());
+        Word<Integer> outputs = inputs.transform(i -> i % 3);
+        tree.addObservation(inputs, outputs);
+
+        Assert.assertEquals(outputs, tree.answerQuery(inputs));
+        tree.remove(inputs.prefix(length / 2));
+        Assert.assertEquals(outputs.prefix(length / 2 - 1), tree.answerQuery(inputs, true));
+    }
+
+    @Test
+    public void answerThroughTerminalNodes() {
+        ObservationTree<String, String> tree = new ObservationTree<>();
+        tree.setTerminatingOutputs(List.of("closed"));
+        tree.addObservation(Word.fromSymbols("a", "b", "c"), Word.fromSymbols("x", "closed", "closed"));
+        tree.addObservation(Word.fromSymbols("a", "a"), Word.fromSymbols("x", "y"));
+
+        Assert.assertEquals(Word.fromSymbols("x", "closed", "closed", "closed"),
+            tree.answerQuery(Word.fromSymbols("a", "b", "d", "a")));
+        Assert.assertEquals(List.of("x", "closed", "closed"), tree.answerInputChain(List.of("a", "b", "a"), false));
+        Assert.assertNull(tree.answerQuery(Word.fromSymbols("a", "a", "b")));
+        Assert.assertEquals(1, tree.getRefusedObservationCount());
+
+        tree.addObservation(Word.fromSymbols("b", "a", "a"), Word.fromSymbols("closed", "closed", "closed"));
+        Assert.assertEquals(2, tree.getRefusedObservationCount());
+        Assert.assertTrue(tree.getChild("a").getChild("b").children.isEmpty());
+        Assert.assertTrue(tree.getChild("b").children.isEmpty());
+    }
+
+    @Test
+    public void followPathsWithCursor() {
+        ObservationTree<String, String> tree = new ObservationTree<>();
+        tree.setTerminatingOutputs(List.of("closed"));
+        tree.addObservation(Word.fromSymbols("a", "b"), Word.fromSymbols("x", "closed"));
+
+        ObservationTree.Cursor<String, String> cursor = tree.cursor();
+        Assert.assertEquals("x", cursor.next("a"));
+        Assert.assertEquals("closed", cursor.next("b"));
+        Assert.assertEquals("closed", cursor.next("c"));
+
+        cursor = tree.cursor();
+        Assert.assertNull(cursor.next("b"));
+        Assert.assertNull(cursor.next("a"));
+    }
+
+    @Test
+    public void detectInconsistency() {
+        ObservationTree<String, String> tree = new ObservationTree<>();
+        tree.addObservation(Word.fromSymbols("a", "b", "c"), Word.fromSymbols("x", "y", "z"));
+
+        try {
+            tree.addObservation(Word.fromSymbols("a", "b", "d"), Word.fromSymbols("x", "w", "z"));
+            Assert.fail("Expected CacheInconsistencyException");
+        }
+        catch (CacheInconsistencyException e) {
+            Assert.assertEquals(Word.fromSymbols("x", "y"), e.getOldOutput());
+            Assert.assertEquals(Word.fromSymbols("x", "w", "z"), e.getNewOutput());
+        }
+
+        // the consistent prefix remains stored
+        Assert.assertEquals(Word.fromSymbols("x", "y", "z"), tree.answerQuery(Word.fromSymbols("a", "b", "c")));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void rejectDifferentLengths() {
+        new ObservationTree<String, String>().addObservation(Word.fromSymbols("a", "b"), Word.fromSymbols("x"));
+    }
+
+    @Test
+    public void removeBranch() {
+        ObservationTree<String, String> tree = new ObservationTree<>();
+        tree.addObservation(Word.fromSymbols("a", "b"), Word.fromSymbols("x", "y"));
+        tree.addObservation(Word.fromSymbols("a", "c"), Word.fromSymbols("x", "z"));
+        tree.remove(Word.fromSymbols("a", "b"));
+
+        Assert.assertNull(tree.answerQuery(Word.fromSymbols("a", "b")));
+        Assert.assertEquals(Word.fromSymbols("x", "z"), tree.answerQuery(Word.fromSymbols("a", "c")));
+    }
+
+    @Test(expected = RemovalException.class)
+    public void removeMissingBranch() {
+        ObservationTree<String, String> tree = new ObservationTree<>();
+        tree.addObservation(Word.fromSymbols("a"), Word.fromSymbols("x"));
+        tree.remove(Word.fromSymbols("a", "b"));
+    }
+
+    // coarse timings, skipped unless run with -Dtiming=true, of the iterative walk
+    // against the recursive walk the tree used before
+    @Test
+    public void timeAgainstRecursiveWalk() {
+        Assume.assumeTrue(Boolean.getBoolean("timing"));
+        List<Word<Integer>> words = TestWords.randomWords(0, TIMING_WORDS, 30, 60, 8);
+        List<Word<Integer>> outputs = new ArrayList<>(TIMING_WORDS);
+        for (Word<Integer> word: words) {
+            outputs.add(TestWords.outputsOf(word, 31));
+        }
+
+        long[] recursive = new long[2];
+        long[] iterative = new long[2];
+        // the first rounds warm up the JIT
+        for (int round = 0; round < TIMING_ROUNDS; round++) {
+            RecursiveTree<Integer, Integer> recursiveTree = new RecursiveTree<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < TIMING_WORDS; i++) {
+                recursiveTree.addObservation(words.get(i).asList(), outputs.get(i).asList());
+            }
+            long inserted = System.nanoTime();
+            for (int i = 0; i < TIMING_WORDS; i++) {
+                List<Integer> answer = recursiveTree.answerInputChain(words.get(i).asList());
+                Assert.assertEquals(outputs.get(i).asList(), answer);
+            }
+            recursive[0] = inserted - start;
+            recursive[1] = System.nanoTime() - inserted;
+
+            ObservationTree<Integer, Integer> tree = new ObservationTree<>();
+            start = System.nanoTime();
+            for (int i = 0; i < TIMING_WORDS; i++) {
+                tree.addObservation(words.get(i), outputs.get(i));
+            }
+            inserted = System.nanoTime();
+            for (int i = 0; i < TIMING_WORDS; i++) {
+                Assert.assertEquals(outputs.get(i), tree.answerQuery(words.get(i)));
+            }
+            iterative[0] = inserted - start;
+            iterative[1] = System.nanoTime() - inserted;
+        }
+
+        LOGGER.info("Insertion: {} ns/word recursive, {} ns/word iterative",
+            recursive[0] / TIMING_WORDS, iterative[0] / TIMING_WORDS);
+        LOGGER.info("Lookup: {} ns/word recursive, {} ns/word iterative",
+            recursive[1] / TIMING_WORDS, iterative[1] / TIMING_WORDS);
+    }
+
+    /** The recursive walk over subLists that the tree used before, as the baseline of the timings. */
+    private static class RecursiveTree<I, O> {
+        private Map<I, RecursiveTree<I, O>> children = new HashMap<>();
+        private Map<I, O> outputs = new HashMap<>();
+
+        private void addObservation(List<I> inputs, List<O> outputs) {
+            if (inputs.isEmpty()) {
+                return;
+            }
+
+            RecursiveTree<I, O> child = children.get(inputs.get(0));
+            if (child == null) {
+                child = new RecursiveTree<>();
+                children.put(inputs.get(0), child);
+                this.outputs.put(inputs.get(0), outputs.get(0));
+            }
+            child.addObservation(inputs.subList(1, inputs.size()), outputs.subList(1, outputs.size()));
+        }
+
+        private @Nullable List<O> answerInputChain(List<I> inputs) {
+            if (inputs.isEmpty()) {
+                return new ArrayList<>();
+            }
+
+            RecursiveTree<I, O> child = children.get(inputs.get(0));
+            if (child == null) {
+                return null;
+            }
+
+            List<O> nextOutputs = child.answerInputChain(inputs.subList(1, inputs.size()));
+            if (nextOutputs == null) {
+                return null;
+            }
+
+            List<O> outputs = new ArrayList<>(inputs.size());
+            outputs.add(this.outputs.get(inputs.get(0)));
+            outputs.addAll(nextOutputs);
+            return outputs;
+        }
+    }
+}
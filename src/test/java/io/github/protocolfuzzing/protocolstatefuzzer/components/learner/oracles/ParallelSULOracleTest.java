@@ -0,0 +1,75 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
+import de.learnlib.query.DefaultQuery;
+import de.learnlib.query.Query;
+import net.automatalib.word.Word;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+public class ParallelSULOracleTest {
+
+    @Test
+    public void answerBatchInParallel() {
+        // both oracles wait for each other, so the batch completes only if they run concurrently
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        try (SULOraclePool<String, String> pool = new SULOraclePool<>(
+            List.of(new UppercaseOracle(barrier), new UppercaseOracle(barrier)))) {
+
+            List<DefaultQuery<String, Word<String>>> queries = List.of(
+                new DefaultQuery<>(Word.fromSymbols("a", "b")),
+                new DefaultQuery<>(Word.fromSymbols("c"), Word.fromSymbols("d")));
+            new ParallelSULOracle<>(pool).processQueries(queries);
+
+            Assert.assertEquals(Word.fromSymbols("A", "B"), queries.get(0).getOutput());
+            Assert.assertEquals(Word.fromSymbols("D"), queries.get(1).getOutput());
+        }
+    }
+
+    @Test(expected = NonDeterminismException.class)
+    public void rethrowOracleExceptions() {
+        try (SULOraclePool<String, String> pool = new SULOraclePool<>(
+            List.of(new UppercaseOracle(null), new UppercaseOracle(null)))) {
+
+            new ParallelSULOracle<>(pool).processQueries(List.of(
+                new DefaultQuery<>(Word.fromSymbols("a")),
+                new DefaultQuery<>(Word.fromSymbols("?"))));
+        }
+    }
+
+    /** Answers each input in uppercase, optionally waiting at a barrier, and fails on the input ?. */
+    private static class UppercaseOracle implements MealyMembershipOracle<String, String> {
+        private CyclicBarrier barrier;
+
+        private UppercaseOracle(CyclicBarrier barrier) {
+            this.barrier = barrier;
+        }
+
+        @Override
+        public void processQueries(Collection<? extends Query<String, Word<String>>> queries) {
+            for (Query<String, Word<String>> query: queries) {
+                if (barrier != null) {
+                    try {
+                        barrier.await(10, TimeUnit.SECONDS);
+                    }
+                    catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+
+                Word<String> input = query.getPrefix().concat(query.getSuffix());
+                if (input.asList().contains("?")) {
+                    throw new NonDeterminismException(input, Word.epsilon(), Word.epsilon());
+                }
+                query.answer(input.transform(symbol -> symbol.toUpperCase(Locale.ROOT))
+                    .suffix(query.getSuffix().length()));
+            }
+        }
+    }
+}
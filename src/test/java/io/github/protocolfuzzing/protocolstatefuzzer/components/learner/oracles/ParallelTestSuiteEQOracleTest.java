@@ -0,0 +1,65 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
+import de.learnlib.oracle.equivalence.MealyWMethodEQOracle;
+import de.learnlib.oracle.equivalence.MealyWpMethodEQOracle;
+import de.learnlib.oracle.membership.MealySimulatorOracle;
+import de.learnlib.query.DefaultQuery;
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.alphabet.impl.Alphabets;
+import net.automatalib.automaton.transducer.impl.CompactMealy;
+import net.automatalib.word.Word;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class ParallelTestSuiteEQOracleTest {
+
+    private static final Alphabet<String> ALPHABET = Alphabets.fromArray("a", "b", "c");
+
+    @Test
+    public void findSameCounterexampleAsSequentialOracles() {
+        // the sul answers c in lowercase after a b, which the hypothesis misses
+        CompactMealy<String, String> target = new CompactMealy<>(ALPHABET);
+        int initial = target.addInitialState();
+        int afterA = target.addState();
+        int afterAB = target.addState();
+        for (int state: List.of(initial, afterA, afterAB)) {
+            target.addTransition(state, "a", afterA, "A");
+            target.addTransition(state, "b", state == afterA ? afterAB : initial, "B");
+            target.addTransition(state, "c", initial, state == afterAB ? "c" : "C");
+        }
+
+        CompactMealy<String, String> hypothesis = new CompactMealy<>(ALPHABET);
+        int state = hypothesis.addInitialState();
+        for (String input: ALPHABET) {
+            hypothesis.addTransition(state, input, state, input.toUpperCase(Locale.ROOT));
+        }
+
+        DefaultQuery<String, Word<String>> wExpected =
+            new MealyWMethodEQOracle<>(new MealySimulatorOracle<>(target), 2).findCounterExample(hypothesis, ALPHABET);
+        DefaultQuery<String, Word<String>> wpExpected =
+            new MealyWpMethodEQOracle<>(new MealySimulatorOracle<>(target), 2).findCounterExample(hypothesis, ALPHABET);
+        Assert.assertNotNull(wExpected);
+        Assert.assertNotNull(wpExpected);
+
+        for (int oracles: List.of(1, 4)) {
+            List<MealyMembershipOracle<String, String>> sulOracles = new ArrayList<>();
+            for (int i = 0; i < oracles; i++) {
+                sulOracles.add(new MealySimulatorOracle<>(target));
+            }
+
+            DefaultQuery<String, Word<String>> counterexample =
+                ParallelTestSuiteEQOracle.wMethod(sulOracles, 2).findCounterExample(hypothesis, ALPHABET);
+            Assert.assertNotNull(counterexample);
+            Assert.assertEquals(wExpected.getInput(), counterexample.getInput());
+
+            counterexample = ParallelTestSuiteEQOracle.wpMethod(sulOracles, 2).findCounterExample(hypothesis, ALPHABET);
+            Assert.assertNotNull(counterexample);
+            Assert.assertEquals(wpExpected.getInput(), counterexample.getInput());
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import net.automatalib.alphabet.impl.ListAlphabet;
+import net.automatalib.word.Word;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.function.Function;
+
+public class PersistentObservationTreeTest {
+    private static final ListAlphabet<String> ALPHABET = new ListAlphabet<>(List.of("a", "b", "c"));
+
+    private static PersistentObservationTree<String, String> open(File file, long fingerprint) throws IOException {
+        return new PersistentObservationTree<>(new ObservationTree<String, String>(), ALPHABET,
+            Function.identity(), file, fingerprint).initialize();
+    }
+
+    private static File newCacheFile() throws IOException {
+        File file = File.createTempFile("cache", ".bin");
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void replayObservations() throws IOException {
+        File file = newCacheFile();
+        long fingerprint = PersistentObservationTree.fingerprint(ALPHABET, null);
+
+        PersistentObservationTree<String, String> tree = open(file, fingerprint);
+        tree.addObservation(Word.fromSymbols("a", "b", "c"), Word.fromSymbols("x", "y", "z"));
+        tree.addObservation(Word.fromSymbols("a", "c"), Word.fromSymbols("x", "x"));
+        tree.addObservation(Word.fromSymbols("b"), Word.fromSymbols("y"));
+        tree.remove(Word.fromSymbols("b"));
+        tree.addObservation("c", "w");
+        tree.close();
+
+        PersistentObservationTree<String, String> reopened = open(file, fingerprint);
+        Assert.assertEquals(Word.fromSymbols("x", "y", "z"), reopened.answerQuery(Word.fromSymbols("a", "b", "c")));
+        Assert.assertEquals(Word.fromSymbols("x", "x"), reopened.answerQuery(Word.fromSymbols("a", "c")));
+        Assert.assertNull(reopened.answerQuery(Word.fromSymbols("b")));
+        Assert.assertEquals(Word.fromSymbols("w"), reopened.answerQuery(Word.fromSymbols("c")));
+
+        // new observations are appended to the replayed ones
+        reopened.addObservation(Word.fromSymbols("c", "c"), Word.fromSymbols("w", "x"));
+        reopened.close();
+
+        PersistentObservationTree<String, String> again = open(file, fingerprint);
+        Assert.assertEquals(Word.fromSymbols("w", "x"), again.answerQuery(Word.fromSymbols("c", "c")));
+        Assert.assertEquals(Word.fromSymbols("x", "y"), again.answerQuery(Word.fromSymbols("a", "b")));
+        again.close();
+    }
+
+    @Test
+    public void discardStaleFile() throws IOException {
+        File file = newCacheFile();
+
+        PersistentObservationTree<String, String> tree = open(file, 1L);
+        tree.addObservation(Word.fromSymbols("a"), Word.fromSymbols("x"));
+        tree.close();
+
+        PersistentObservationTree<String, String> reopened = open(file, 2L);
+        Assert.assertNull(reopened.answerQuery(Word.fromSymbols("a")));
+        reopened.close();
+    }
+
+    @Test
+    public void discardIncompleteRecord() throws IOException {
+        File file = newCacheFile();
+
+        PersistentObservationTree<String, String> tree = open(file, 1L);
+        tree.addObservation(Word.fromSymbols("a"), Word.fromSymbols("x"));
+        tree.addObservation(Word.fromSymbols("b", "b"), Word.fromSymbols("y", "y"));
+        tree.close();
+
+        // simulate a run interrupted while writing the last record
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        PersistentObservationTree<String, String> reopened = open(file, 1L);
+        Assert.assertEquals(Word.fromSymbols("x"), reopened.answerQuery(Word.fromSymbols("a")));
+        Assert.assertNull(reopened.answerQuery(Word.fromSymbols("b", "b")));
+        reopened.addObservation(Word.fromSymbols("c"), Word.fromSymbols("z"));
+        reopened.close();
+
+        PersistentObservationTree<String, String> again = open(file, 1L);
+        Assert.assertEquals(Word.fromSymbols("z"), again.answerQuery(Word.fromSymbols("c")));
+        again.close();
+    }
+
+    @Test
+    public void discardCorruptRecord() throws IOException {
+        File file = newCacheFile();
+
+        PersistentObservationTree<String, String> tree = open(file, 1L);
+        tree.addObservation(Word.fromSymbols("a"), Word.fromSymbols("x"));
+        tree.close();
+
+        // an output record whose length exceeds the file
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length());
+            raf.writeByte(PersistentObservationTree.OUTPUT_RECORD);
+            raf.writeInt(Integer.MAX_VALUE);
+            raf.writeInt(0);
+        }
+        long corruptLength = file.length();
+
+        PersistentObservationTree<String, String> reopened = open(file, 1L);
+        Assert.assertEquals(Word.fromSymbols("x"), reopened.answerQuery(Word.fromSymbols("a")));
+        reopened.close();
+        Assert.assertTrue(file.length() < corruptLength);
+    }
+
+    @Test
+    public void persistOnlyRestorableOutputs() throws IOException {
+        File file = newCacheFile();
+
+        // y is decoded to a different output, as an output whose messages are lost
+        Function<String, String> decoder = output -> output.equals("y") ? "y'" : output;
+        PersistentObservationTree<String, String> tree = new PersistentObservationTree<>(
+            new ObservationTree<String, String>(), ALPHABET, decoder, file, 1L).initialize();
+        tree.addObservation(Word.fromSymbols("a", "b", "c"), Word.fromSymbols("x", "y", "z"));
+        tree.addObservation(Word.fromSymbols("b"), Word.fromSymbols("y"));
+        Assert.assertEquals(Word.fromSymbols("x", "y", "z"), tree.answerQuery(Word.fromSymbols("a", "b", "c")));
+        tree.close();
+
+        PersistentObservationTree<String, String> reopened = new PersistentObservationTree<>(
+            new ObservationTree<String, String>(), ALPHABET, decoder, file, 1L).initialize();
+        Assert.assertEquals(Word.fromSymbols("x"), reopened.answerQuery(Word.fromSymbols("a")));
+        Assert.assertNull(reopened.answerQuery(Word.fromSymbols("a", "b")));
+        Assert.assertNull(reopened.answerQuery(Word.fromSymbols("b")));
+        reopened.close();
+    }
+
+    @Test
+    public void fingerprintDependsOnSetup() throws IOException {
+        long fingerprint = PersistentObservationTree.fingerprint(ALPHABET, null);
+        Assert.assertEquals(fingerprint, PersistentObservationTree.fingerprint(List.of("a", "b", "c"), null));
+        Assert.assertNotEquals(fingerprint, PersistentObservationTree.fingerprint(List.of("a", "c", "b"), null));
+        Assert.assertNotEquals(fingerprint, PersistentObservationTree.fingerprint(ALPHABET,
+            new ByteArrayInputStream(new byte[] {1})));
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
+import de.learnlib.query.Query;
+import io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles.ProbabilisticDecisionRule.Decision;
+import net.automatalib.word.Word;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Collection;
+
+public class ProbabilisticDecisionRuleTest {
+
+    @Test
+    public void decideWithThresholds() {
+        ThresholdDecisionRule rule = new ThresholdDecisionRule(6, 0.8, 0.4);
+
+        Assert.assertEquals(Decision.CONTINUE, rule.decide(6, 6));
+        Assert.assertEquals(Decision.ACCEPT, rule.decide(6, 7));
+        Assert.assertEquals(Decision.CONTINUE, rule.decide(4, 7));
+        Assert.assertEquals(Decision.REJECT, rule.decide(2, 7));
+    }
+
+    @Test
+    public void decideWithWilsonInterval() {
+        WilsonDecisionRule rule = new WilsonDecisionRule(0.6, WilsonDecisionRule.DEFAULT_Z);
+
+        Assert.assertEquals(Decision.CONTINUE, rule.decide(5, 5));
+        Assert.assertEquals(Decision.ACCEPT, rule.decide(6, 6));
+        Assert.assertEquals(Decision.CONTINUE, rule.decide(5, 10));
+        Assert.assertEquals(Decision.REJECT, rule.decide(10, 40));
+    }
+
+    @Test
+    public void decideWithSPRT() {
+        SPRTDecisionRule rule = new SPRTDecisionRule(0.8, 0.4, SPRTDecisionRule.DEFAULT_ERROR_RATE);
+
+        Assert.assertEquals(Decision.CONTINUE, rule.decide(4, 4));
+        Assert.assertEquals(Decision.ACCEPT, rule.decide(5, 5));
+        Assert.assertEquals(Decision.CONTINUE, rule.decide(3, 5));
+        Assert.assertEquals(Decision.REJECT, rule.decide(2, 6));
+    }
+
+    @Test
+    public void stopSanitizationOnceSettled() {
+        RunCounter sulOracle = new RunCounter();
+        MultipleRunsSULOracle<String, String> oracle = new MultipleRunsSULOracle<>(3, sulOracle, true,
+            new StringWriter());
+        oracle.setDecisionRule(new SPRTDecisionRule(0.8, 0.4, SPRTDecisionRule.DEFAULT_ERROR_RATE));
+
+        Assert.assertEquals(Word.fromSymbols("x"), oracle.getProbabilisticOutput(Word.fromSymbols("a")));
+        Assert.assertEquals(5, sulOracle.runs);
+    }
+
+    /** Answers each query with the same output, counting the runs. */
+    private static class RunCounter implements MealyMembershipOracle<String, String> {
+        private int runs = 0;
+
+        @Override
+        public void processQueries(Collection<? extends Query<String, Word<String>>> queries) {
+            for (Query<String, Word<String>> query: queries) {
+                runs++;
+                query.answer(Word.fromSymbols("x"));
+            }
+        }
+    }
+}
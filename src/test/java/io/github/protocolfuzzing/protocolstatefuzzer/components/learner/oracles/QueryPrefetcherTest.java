@@ -0,0 +1,132 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
+import de.learnlib.query.Query;
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.alphabet.impl.Alphabets;
+import net.automatalib.automaton.transducer.impl.CompactMealy;
+import net.automatalib.word.Word;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class QueryPrefetcherTest {
+
+    private static final Alphabet<String> ALPHABET = Alphabets.fromArray("a", "b");
+
+    @Test
+    public void prefetchPredictedQueriesIntoCache() throws InterruptedException {
+        ObservationTree<String, String> cache = new ObservationTree<>();
+        CachingOracle sulOracle = new CachingOracle(cache);
+        QueryPrefetcher<String, String> prefetcher = new QueryPrefetcher<>(sulOracle, cache, ALPHABET, 100, 2);
+
+        prefetcher.start(hypothesis(), Word.fromSymbols("b", "a", "a"));
+        awaitQueries(sulOracle, 6);
+        prefetcher.stop();
+
+        // the one-symbol extensions of the initial state, followed by a, a a and b
+        Assert.assertEquals(6, sulOracle.getQueries());
+        Assert.assertEquals(Word.fromSymbols("B", "A", "A"), cache.answerQuery(Word.fromSymbols("b", "a", "a")));
+        Assert.assertEquals(Word.fromSymbols("A", "B"), cache.answerQuery(Word.fromSymbols("a", "b")));
+
+        // the learner is answered by the wrapped oracle
+        Assert.assertEquals(Word.fromSymbols("B", "A", "A"), prefetcher.answerQuery(Word.fromSymbols("b", "a", "a")));
+        Assert.assertEquals(7, sulOracle.getQueries());
+    }
+
+    @Test
+    public void disablePrefetchingWhenUnused() throws InterruptedException {
+        ObservationTree<String, String> cache = new ObservationTree<>();
+        CachingOracle sulOracle = new CachingOracle(cache);
+        QueryPrefetcher<String, String> prefetcher = new QueryPrefetcher<>(sulOracle, cache, ALPHABET, 100, 1);
+
+        prefetcher.start(hypothesis(), null);
+        awaitQueries(sulOracle, 4);
+        prefetcher.stop();
+        prefetcher.answerQuery(Word.fromSymbols("a", "b"));
+
+        prefetcher.start(hypothesis(), Word.fromSymbols("b", "b", "b"));
+        awaitQueries(sulOracle, 4 + 1 + 2);
+        prefetcher.stop();
+        Assert.assertTrue(prefetcher.isEnabled());
+
+        // none of the queries prefetched in the second round have been used
+        prefetcher.start(hypothesis(), null);
+        prefetcher.stop();
+        Assert.assertFalse(prefetcher.isEnabled());
+        Assert.assertEquals(4 + 1 + 2, sulOracle.getQueries());
+    }
+
+    @Test
+    public void disablePrefetchingWhenStoppingTakesLonger() throws InterruptedException {
+        ObservationTree<String, String> cache = new ObservationTree<>();
+        CachingOracle cachingOracle = new CachingOracle(cache);
+        CountDownLatch running = new CountDownLatch(1);
+        MealyMembershipOracle<String, String> slowOracle = queries -> {
+            running.countDown();
+            try {
+                Thread.sleep(200);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            cachingOracle.processQueries(queries);
+        };
+        QueryPrefetcher<String, String> prefetcher = new QueryPrefetcher<>(slowOracle, cache, ALPHABET, 100, 1);
+
+        // the first query is still running when prefetching is stopped right away
+        prefetcher.start(hypothesis(), null);
+        Assert.assertTrue(running.await(10, TimeUnit.SECONDS));
+        prefetcher.stop();
+        Assert.assertFalse(prefetcher.isEnabled());
+        Assert.assertEquals(1, cachingOracle.getQueries());
+
+        prefetcher.start(hypothesis(), null);
+        prefetcher.stop();
+        Assert.assertEquals(1, cachingOracle.getQueries());
+    }
+
+    private static CompactMealy<String, String> hypothesis() {
+        CompactMealy<String, String> hypothesis = new CompactMealy<>(ALPHABET);
+        int state = hypothesis.addInitialState();
+        for (String input: ALPHABET) {
+            hypothesis.addTransition(state, input, state, input.toUpperCase(Locale.ROOT));
+        }
+        return hypothesis;
+    }
+
+    private static void awaitQueries(CachingOracle sulOracle, int queries) throws InterruptedException {
+        for (int i = 0; i < 500 && sulOracle.getQueries() < queries; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    /** Answers each input in uppercase and stores the answers in the cache, counting the queries. */
+    private static class CachingOracle implements MealyMembershipOracle<String, String> {
+        private ObservationTree<String, String> cache;
+        private AtomicInteger queries = new AtomicInteger();
+
+        private CachingOracle(ObservationTree<String, String> cache) {
+            this.cache = cache;
+        }
+
+        private int getQueries() {
+            return queries.get();
+        }
+
+        @Override
+        public void processQueries(Collection<? extends Query<String, Word<String>>> queries) {
+            for (Query<String, Word<String>> query: queries) {
+                Word<String> output = query.getInput().transform(input -> input.toUpperCase(Locale.ROOT));
+                cache.addObservation(query.getInput(), output);
+                this.queries.incrementAndGet();
+                query.answer(output.suffix(query.getSuffix().length()));
+            }
+        }
+    }
+}
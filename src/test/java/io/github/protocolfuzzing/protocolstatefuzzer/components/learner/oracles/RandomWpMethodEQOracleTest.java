@@ -0,0 +1,70 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
+import de.learnlib.oracle.membership.MealySimulatorOracle;
+import de.learnlib.query.DefaultQuery;
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.alphabet.impl.Alphabets;
+import net.automatalib.automaton.transducer.impl.CompactMealy;
+import net.automatalib.word.Word;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class RandomWpMethodEQOracleTest {
+
+    private static final Alphabet<String> ALPHABET = Alphabets.fromArray("a", "b", "c");
+
+    @Test
+    public void findSameCounterexampleWithAnyNumberOfOracles() {
+        // the sul answers b in lowercase right after a, while the hypothesis always answers in uppercase
+        CompactMealy<String, String> target = new CompactMealy<>(ALPHABET);
+        int initial = target.addInitialState();
+        int afterA = target.addState();
+        for (int state: List.of(initial, afterA)) {
+            target.addTransition(state, "a", afterA, "A");
+            target.addTransition(state, "b", initial, state == afterA ? "b" : "B");
+            target.addTransition(state, "c", initial, "C");
+        }
+
+        CompactMealy<String, String> hypothesis = new CompactMealy<>(ALPHABET);
+        int state = hypothesis.addInitialState();
+        for (String input: ALPHABET) {
+            hypothesis.addTransition(state, input, state, input.toUpperCase(Locale.ROOT));
+        }
+
+        DefaultQuery<String, Word<String>> expected = findCounterExample(target, hypothesis, 1);
+        Assert.assertNotNull(expected);
+        Assert.assertNotEquals(hypothesis.computeOutput(expected.getInput()), expected.getOutput());
+
+        for (int i = 0; i < 10; i++) {
+            DefaultQuery<String, Word<String>> counterexample = findCounterExample(target, hypothesis, 4);
+            Assert.assertNotNull(counterexample);
+            Assert.assertEquals(expected.getInput(), counterexample.getInput());
+        }
+    }
+
+    @Test
+    public void findNoCounterexampleForCorrectHypothesis() {
+        CompactMealy<String, String> hypothesis = new CompactMealy<>(ALPHABET);
+        int state = hypothesis.addInitialState();
+        for (String input: ALPHABET) {
+            hypothesis.addTransition(state, input, state, input.toUpperCase(Locale.ROOT));
+        }
+
+        Assert.assertNull(findCounterExample(hypothesis, hypothesis, 3));
+    }
+
+    private static DefaultQuery<String, Word<String>> findCounterExample(CompactMealy<String, String> target,
+        CompactMealy<String, String> hypothesis, int oracles) {
+
+        List<MealyMembershipOracle<String, String>> sulOracles = new ArrayList<>();
+        for (int i = 0; i < oracles; i++) {
+            sulOracles.add(new MealySimulatorOracle<>(target));
+        }
+        return new RandomWpMethodEQOracle<>(sulOracles, 2, 4, 200, 7L).findCounterExample(hypothesis, ALPHABET);
+    }
+}
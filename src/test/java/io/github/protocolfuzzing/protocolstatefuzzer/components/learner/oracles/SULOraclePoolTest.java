@@ -0,0 +1,116 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import de.learnlib.exception.SULException;
+import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
+import de.learnlib.query.Query;
+import io.github.protocolfuzzing.protocolstatefuzzer.statefuzzer.testrunner.core.TestRunner;
+import io.github.protocolfuzzing.protocolstatefuzzer.statefuzzer.testrunner.core.TestRunnerResult;
+import net.automatalib.word.Word;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SULOraclePoolTest {
+
+    @Test
+    public void spreadRunsOverOracles() {
+        try (SULOraclePool<String, String> pool = new SULOraclePool<>(
+            List.of(new ConstantOracle("x"), new ConstantOracle("x"), new ConstantOracle("y")))) {
+
+            TestRunnerResult<Word<String>, Word<String>> result = TestRunner.runTest(Word.fromSymbols("a"), 30, pool);
+
+            Map<Word<String>, Integer> outputs = result.getGeneratedOutputs();
+            Assert.assertEquals(30, outputs.values().stream().mapToInt(Integer::intValue).sum());
+            Assert.assertTrue(outputs.keySet().stream().allMatch(
+                output -> output.equals(Word.fromSymbols("x")) || output.equals(Word.fromSymbols("y"))));
+        }
+    }
+
+    @Test
+    public void answerMultipleRunsWithPool() {
+        try (SULOraclePool<String, String> pool = new SULOraclePool<>(
+            List.of(new ConstantOracle("x"), new ConstantOracle("x")))) {
+
+            MultipleRunsSULOracle<String, String> oracle = new MultipleRunsSULOracle<>(3, new ConstantOracle("y"),
+                true, new StringWriter());
+            oracle.setPool(pool);
+
+            Assert.assertEquals(Word.fromSymbols("x"), oracle.answerQuery(Word.fromSymbols("a")));
+        }
+    }
+
+    @Test
+    public void runTasksOnVirtualThreads() {
+        try (SULOraclePool<String, String> pool = new SULOraclePool<>(
+            List.of(new ConstantOracle("x"), new ConstantOracle("x")), true)) {
+
+            Assert.assertTrue(SULOraclePool.await(pool.submit(oracle -> Thread.currentThread().isVirtual())));
+            TestRunnerResult<Word<String>, Word<String>> result = TestRunner.runTest(Word.fromSymbols("a"), 10, pool);
+            Assert.assertEquals(Map.of(Word.fromSymbols("x"), 10), result.getGeneratedOutputs());
+        }
+    }
+
+    @Test(expected = SULException.class)
+    public void rethrowSULExceptions() {
+        try (SULOraclePool<String, String> pool = new SULOraclePool<>(List.of(new ConstantOracle(null)))) {
+            TestRunner.runTest(Word.fromSymbols("a"), 2, pool);
+        }
+    }
+
+    @Test
+    public void cancelWaitsForStartedTasks() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger started = new AtomicInteger();
+        try (SULOraclePool<String, String> pool = new SULOraclePool<>(
+            List.of(new ConstantOracle("x"), new ConstantOracle("x")))) {
+
+            List<Future<Word<String>>> answers = pool.submitRuns(Word.fromSymbols("a"), 2);
+            for (int i = 0; i < 10; i++) {
+                answers.add(pool.submit(oracle -> {
+                    started.incrementAndGet();
+                    running.incrementAndGet();
+                    try {
+                        Thread.sleep(20);
+                        return oracle.answerQuery(Word.fromSymbols("a"));
+                    }
+                    catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    finally {
+                        running.decrementAndGet();
+                    }
+                }));
+            }
+            SULOraclePool.await(answers.get(0));
+
+            SULOraclePool.cancel(answers);
+            Assert.assertEquals(0, running.get());
+            Assert.assertTrue(started.get() < 10);
+        }
+    }
+
+    /** Answers each query with a constant output, or fails if the output is null. */
+    private static class ConstantOracle implements MealyMembershipOracle<String, String> {
+        private String output;
+
+        private ConstantOracle(String output) {
+            this.output = output;
+        }
+
+        @Override
+        public void processQueries(Collection<? extends Query<String, Word<String>>> queries) {
+            for (Query<String, Word<String>> query: queries) {
+                if (output == null) {
+                    throw new SULException(new IllegalStateException("no output"));
+                }
+                query.answer(Word.fromSymbols(output));
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import de.learnlib.oracle.MembershipOracle.MealyMembershipOracle;
+import de.learnlib.query.DefaultQuery;
+import de.learnlib.query.Query;
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.alphabet.impl.Alphabets;
+import net.automatalib.automaton.transducer.impl.CompactMealy;
+import net.automatalib.word.Word;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SampledTestsEQOracleTest {
+
+    private static final Alphabet<String> ALPHABET = Alphabets.fromArray("a", "b", "c");
+
+    @Test
+    public void findFirstFailingTestOverAllOracles() {
+        List<Word<String>> tests = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            tests.add(Word.fromSymbols("c", "a", "c"));
+        }
+        tests.set(20, Word.fromSymbols("c", "a", "b"));
+        tests.set(30, Word.fromSymbols("a", "b"));
+
+        for (int oracles: List.of(1, 4)) {
+            AtomicInteger queries = new AtomicInteger();
+            List<MealyMembershipOracle<String, String>> sulOracles = new ArrayList<>();
+            for (int i = 0; i < oracles; i++) {
+                sulOracles.add(new TargetOracle(queries));
+            }
+
+            DefaultQuery<String, Word<String>> counterexample =
+                new SampledTestsEQOracle<>(tests, sulOracles).findCounterExample(hypothesis(), ALPHABET);
+
+            Assert.assertNotNull(counterexample);
+            Assert.assertEquals(Word.fromSymbols("c", "a", "b"), counterexample.getInput());
+            Assert.assertEquals(Word.fromSymbols("C", "A", "b"), counterexample.getOutput());
+            // the tests following the counterexample are cancelled
+            if (oracles == 1) {
+                Assert.assertEquals(21, queries.get());
+            }
+        }
+    }
+
+    @Test
+    public void runAllTestsForCorrectHypothesis() {
+        List<Word<String>> tests = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            tests.add(Word.fromSymbols("c", "b", "a"));
+        }
+
+        AtomicInteger queries = new AtomicInteger();
+        List<MealyMembershipOracle<String, String>> sulOracles =
+            List.of(new TargetOracle(queries), new TargetOracle(queries), new TargetOracle(queries));
+
+        Assert.assertNull(new SampledTestsEQOracle<>(tests, sulOracles).findCounterExample(hypothesis(), ALPHABET));
+        Assert.assertEquals(tests.size(), queries.get());
+    }
+
+    @Test
+    public void sampleNewTestsEachRound() {
+        List<Word<String>> tests = List.of(Word.fromSymbols("c", "b", "a"), Word.fromSymbols("a", "c", "c"));
+        List<Set<Word<String>>> rounds = new ArrayList<>();
+        for (int oracles: List.of(1, 3, 1)) {
+            List<Word<String>> executed = Collections.synchronizedList(new ArrayList<>());
+            List<MealyMembershipOracle<String, String>> sulOracles = new ArrayList<>();
+            for (int i = 0; i < oracles; i++) {
+                sulOracles.add(queries -> {
+                    for (Query<String, Word<String>> query: queries) {
+                        executed.add(query.getInput());
+                        query.answer(hypothesis().computeSuffixOutput(query.getPrefix(), query.getSuffix()));
+                    }
+                });
+            }
+
+            WpSampledTestsEQOracle<String, String> oracle =
+                new WpSampledTestsEQOracle<>(tests, sulOracles, 1, 3, 7, 20);
+            for (int round = 0; round < 2; round++) {
+                executed.clear();
+                Assert.assertNull(oracle.findCounterExample(hypothesis(), ALPHABET));
+                rounds.add(new HashSet<>(executed));
+            }
+        }
+
+        // the rounds differ, while the same round is sampled alike with any number of oracles
+        Assert.assertNotEquals(rounds.get(0), rounds.get(1));
+        Assert.assertEquals(rounds.get(0), rounds.get(2));
+        Assert.assertEquals(rounds.get(1), rounds.get(3));
+    }
+
+    /** Returns a hypothesis answering each input in uppercase. */
+    private static CompactMealy<String, String> hypothesis() {
+        CompactMealy<String, String> hypothesis = new CompactMealy<>(ALPHABET);
+        int state = hypothesis.addInitialState();
+        for (String input: ALPHABET) {
+            hypothesis.addTransition(state, input, state, input.toUpperCase(Locale.ROOT));
+        }
+        return hypothesis;
+    }
+
+    /** Answers b in lowercase right after a and every other input in uppercase, counting the queries. */
+    private static class TargetOracle implements MealyMembershipOracle<String, String> {
+        private AtomicInteger queries;
+
+        private TargetOracle(AtomicInteger queries) {
+            this.queries = queries;
+        }
+
+        @Override
+        public void processQueries(Collection<? extends Query<String, Word<String>>> queries) {
+            for (Query<String, Word<String>> query: queries) {
+                this.queries.incrementAndGet();
+                List<String> output = new ArrayList<>();
+                String previous = "";
+                for (String input: query.getInput()) {
+                    output.add(input.equals("b") && previous.equals("a") ? input : input.toUpperCase(Locale.ROOT));
+                    previous = input;
+                }
+                query.answer(Word.fromList(output).suffix(query.getSuffix().length()));
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import net.automatalib.word.Word;
+import net.automatalib.word.WordBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Random input words and the outputs of a fixed integer Mealy machine, shared
+ * by the observation tree tests.
+ */
+public final class TestWords {
+
+    private TestWords() {
+    }
+
+    /**
+     * Returns a random word over the inputs {@code 0..inputs-1}.
+     *
+     * @param random the source of randomness
+     * @param minLength the minimum length of the word
+     * @param maxLength the maximum length of the word
+     * @param inputs the number of input symbols
+     * @return the random word
+     */
+    public static Word<Integer> randomWord(Random random, int minLength, int maxLength, int inputs) {
+        int length = minLength + random.nextInt(maxLength - minLength + 1);
+        WordBuilder<Integer> builder = new WordBuilder<>(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(random.nextInt(inputs));
+        }
+        return builder.toWord();
+    }
+
+    /**
+     * Returns {@code count} random words generated from the given seed.
+     *
+     * @param seed the seed of the words
+     * @param count the number of words
+     * @param minLength the minimum length of each word
+     * @param maxLength the maximum length of each word
+     * @param inputs the number of input symbols
+     * @return the random words
+     */
+    public static List<Word<Integer>> randomWords(long seed, int count, int minLength, int maxLength, int inputs) {
+        Random random = new Random(seed);
+        List<Word<Integer>> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            words.add(randomWord(random, minLength, maxLength, inputs));
+        }
+        return words;
+    }
+
+    /**
+     * Returns the outputs of a fixed Mealy machine with the given number of
+     * states, whose output on each step is the state it moves to.
+     *
+     * @param inputs the input word
+     * @param states the number of states of the machine
+     * @return the output word
+     */
+    public static Word<Integer> outputsOf(Word<Integer> inputs, int states) {
+        WordBuilder<Integer> builder = new WordBuilder<>(inputs.length());
+        int state = 0;
+        for (Integer input: inputs) {
+            state = (state * 3 + input) % states;
+            builder.append(state);
+        }
+        return builder.toWord();
+    }
+}
@@ -0,0 +1,216 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.oracles;
+
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.alphabet.impl.Alphabets;
+import net.automatalib.automaton.transducer.impl.CompactMealy;
+import net.automatalib.word.Word;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class WpEQSequenceGeneratorTest {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final int TIMING_TESTS = 20000;
+    private static final int TIMING_ROUNDS = 5;
+
+    private static final Alphabet<String> ALPHABET = Alphabets.fromArray("a", "b");
+
+    @Test
+    public void generateRandomAccessSequences() {
+        // a ring of states, where a moves forward and b moves backward
+        int size = 5;
+        CompactMealy<String, String> hypothesis = new CompactMealy<>(ALPHABET);
+        hypothesis.addInitialState();
+        for (int i = 1; i < size; i++) {
+            hypothesis.addState();
+        }
+        for (int i = 0; i < size; i++) {
+            hypothesis.addTransition(i, "a", (i + 1) % size, "A");
+            hypothesis.addTransition(i, "b", (i + size - 1) % size, "B");
+        }
+
+        WpEQSequenceGenerator<String, Word<String>, Integer> generator = new WpEQSequenceGenerator<>(hypothesis,
+            ALPHABET);
+        Random rand = new Random(0);
+        Set<Word<String>> accessSequences = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            Word<String> accessSequence = generator.getRandomAccessSequence(2, rand);
+            Assert.assertEquals(Integer.valueOf(2), hypothesis.getState(accessSequence));
+            Assert.assertTrue(accessSequence.length() < size);
+            accessSequences.add(accessSequence);
+        }
+
+        // both directions around the ring are taken
+        Assert.assertEquals(Set.of(Word.fromSymbols("a", "a"), Word.fromSymbols("b", "b", "b")), accessSequences);
+        Assert.assertEquals(Word.epsilon(), generator.getRandomAccessSequence(0, rand));
+    }
+
+    @Test
+    public void sampleFreshAccessSequences() {
+        // each input k moves from state i to state i + k + 1, so there are many paths without repeated states
+        int size = 8;
+        Alphabet<Integer> alphabet = Alphabets.integers(0, 3);
+        CompactMealy<Integer, Integer> hypothesis = new CompactMealy<>(alphabet);
+        hypothesis.addInitialState();
+        for (int i = 1; i < size; i++) {
+            hypothesis.addState();
+        }
+        for (int i = 0; i < size; i++) {
+            for (Integer input: alphabet) {
+                hypothesis.addTransition(i, input, (i + input + 1) % size, 0);
+            }
+        }
+
+        WpEQSequenceGenerator<Integer, Word<Integer>, Integer> generator = new WpEQSequenceGenerator<>(hypothesis,
+            alphabet);
+        Random rand = new Random(0);
+        Set<Word<Integer>> accessSequences = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            Word<Integer> accessSequence = generator.getRandomAccessSequence(size - 1, rand);
+            Assert.assertEquals(Integer.valueOf(size - 1), hypothesis.getState(accessSequence));
+            Set<Integer> states = new HashSet<>();
+            for (int j = 0; j <= accessSequence.length(); j++) {
+                Assert.assertTrue(states.add(hypothesis.getState(accessSequence.prefix(j))));
+            }
+            accessSequences.add(accessSequence);
+        }
+
+        // the access sequences are not limited to a fixed number of spanning trees
+        Assert.assertTrue(accessSequences.size() > 16);
+    }
+
+    @Test
+    public void generateMiddleAndCharacterizingSequences() {
+        CompactMealy<String, String> hypothesis = new CompactMealy<>(ALPHABET);
+        int initial = hypothesis.addInitialState();
+        int other = hypothesis.addState();
+        hypothesis.addTransition(initial, "a", other, "A");
+        hypothesis.addTransition(initial, "b", initial, "B");
+        hypothesis.addTransition(other, "a", other, "A");
+        hypothesis.addTransition(other, "b", initial, "C");
+
+        WpEQSequenceGenerator<String, Word<String>, Integer> generator = new WpEQSequenceGenerator<>(hypothesis,
+            ALPHABET);
+        Random rand = new Random(0);
+        for (int i = 0; i < 100; i++) {
+            Word<String> middle = generator.getRandomMiddleSequence(3, 2, rand);
+            Assert.assertTrue(middle.length() >= 3);
+            Assert.assertTrue(ALPHABET.containsAll(middle.asList()));
+
+            // the states are only told apart by b
+            Assert.assertEquals(Word.fromSymbols("b"), generator.getRandomCharacterizingSequence(middle, rand));
+        }
+    }
+
+    @Test
+    public void reuseSuffixesOfPreviousHypothesis() {
+        // the last state of the chain is split in the second hypothesis
+        CompactMealy<String, String> previous = chain(3);
+        CompactMealy<String, String> hypothesis = chain(4);
+
+        WpEQSequenceGenerator<String, Word<String>, Integer> previousGenerator = new WpEQSequenceGenerator<>(
+            previous, ALPHABET);
+        WpEQSequenceGenerator<String, Word<String>, Integer> generator = new WpEQSequenceGenerator<>(hypothesis,
+            ALPHABET, previousGenerator);
+
+        Assert.assertTrue(generator.globalSuffixes.containsAll(previousGenerator.globalSuffixes));
+        Assert.assertTrue(generator.localSuffixSets.get(0).containsAll(previousGenerator.localSuffixSets.get(0)));
+        for (int state = 0; state < hypothesis.size(); state++) {
+            for (int other = 0; other < hypothesis.size(); other++) {
+                if (state != other) {
+                    Assert.assertTrue(isSeparated(hypothesis, state, other, generator.globalSuffixes));
+                    Assert.assertTrue(isSeparated(hypothesis, state, other, generator.localSuffixSets.get(state)));
+                }
+            }
+        }
+
+        // the split states and the predecessor of the first one are picked more often
+        Assert.assertEquals("[1, 2, 3]", Arrays.toString(generator.focusStates));
+        Random rand = new Random(0);
+        int[] picked = new int[hypothesis.size()];
+        for (int i = 0; i < 1000; i++) {
+            picked[generator.getRandomState(rand)]++;
+        }
+        Assert.assertTrue(picked[0] < picked[3]);
+
+        WpEQSequenceGenerator<String, Word<String>, Integer> unchanged = new WpEQSequenceGenerator<>(hypothesis,
+            ALPHABET, generator);
+        Assert.assertEquals(0, unchanged.focusStates.length);
+    }
+
+    // coarse timings, skipped unless run with -Dtiming=true, of building the
+    // generator and sampling test sequences on a random hypothesis
+    @Test
+    public void timeTestGeneration() {
+        Assume.assumeTrue(Boolean.getBoolean("timing"));
+        int size = 500;
+        Alphabet<Integer> alphabet = Alphabets.integers(0, 7);
+        Random rand = new Random(0);
+        CompactMealy<Integer, Integer> hypothesis = new CompactMealy<>(alphabet);
+        hypothesis.addInitialState();
+        for (int i = 1; i < size; i++) {
+            hypothesis.addState();
+        }
+        for (int i = 0; i < size; i++) {
+            for (Integer input: alphabet) {
+                hypothesis.addTransition(i, input, rand.nextInt(size), rand.nextInt(4));
+            }
+        }
+
+        long constructed = 0;
+        long sampled = 0;
+        // the first rounds warm up the JIT
+        for (int round = 0; round < TIMING_ROUNDS; round++) {
+            long start = System.nanoTime();
+            WpEQSequenceGenerator<Integer, Word<Integer>, Integer> generator = new WpEQSequenceGenerator<>(
+                hypothesis, alphabet);
+            constructed = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < TIMING_TESTS; i++) {
+                Integer state = generator.getRandomState(rand);
+                Word<Integer> accessSequence = generator.getRandomAccessSequence(state, rand);
+                Word<Integer> middle = generator.getRandomMiddleSequence(5, 10, rand);
+                generator.getRandomCharacterizingSequence(accessSequence.concat(middle), rand);
+            }
+            sampled = System.nanoTime() - start;
+        }
+
+        LOGGER.info("{} states: {} us to build the generator, {} ns/test sequence",
+            size, constructed / 1000, sampled / TIMING_TESTS);
+    }
+
+    /** Returns a chain of states, where a moves forward and b moves back to the initial state. */
+    private static CompactMealy<String, String> chain(int size) {
+        CompactMealy<String, String> hypothesis = new CompactMealy<>(ALPHABET);
+        hypothesis.addInitialState();
+        for (int i = 1; i < size; i++) {
+            hypothesis.addState();
+        }
+        for (int i = 0; i < size; i++) {
+            hypothesis.addTransition(i, "a", Math.min(i + 1, size - 1), "A");
+            hypothesis.addTransition(i, "b", 0, "B" + i);
+        }
+        return hypothesis;
+    }
+
+    private static boolean isSeparated(CompactMealy<String, String> hypothesis, int state, int other,
+        List<Word<String>> suffixes) {
+
+        for (Word<String> suffix: suffixes) {
+            if (!hypothesis.computeStateOutput(state, suffix).equals(hypothesis.computeStateOutput(other, suffix))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,51 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.components.learner.statistics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void recordIntoExponentialBuckets() {
+        Histogram histogram = new Histogram();
+        for (long value: new long[] {0, 1, 2, 3, 4, 100, -5}) {
+            histogram.record(value);
+        }
+
+        Assert.assertEquals(7, histogram.getCount());
+        Assert.assertEquals(110, histogram.getSum());
+        Assert.assertEquals(0, histogram.getMin());
+        Assert.assertEquals(100, histogram.getMax());
+        Assert.assertEquals(2, histogram.getBucketCount(0));
+        Assert.assertEquals(1, histogram.getBucketCount(1));
+        Assert.assertEquals(2, histogram.getBucketCount(2));
+        Assert.assertEquals(1, histogram.getBucketCount(3));
+        Assert.assertEquals(1, histogram.getBucketCount(Histogram.bucketOf(100)));
+        Assert.assertEquals(127, Histogram.upperBoundOf(Histogram.bucketOf(100)));
+        Assert.assertEquals(3, histogram.getQuantileUpperBound(0.5));
+        Assert.assertEquals(100, histogram.getQuantileUpperBound(1.0));
+        Assert.assertEquals(Histogram.BUCKETS - 1, Histogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void exportSortedSnapshot() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("b.hits").add(3);
+        registry.counter("a.hits").increment();
+        registry.gauge("nodes", () -> 42);
+        registry.histogram("latency").record(5);
+        Assert.assertSame(registry.counter("a.hits"), registry.counter("a.hits"));
+
+        StringWriter writer = new StringWriter();
+        registry.exportJson(writer);
+        String json = writer.toString();
+
+        Assert.assertTrue(json.indexOf("\"a.hits\": 1") < json.indexOf("\"b.hits\": 3"));
+        Assert.assertTrue(json.contains("\"nodes\": 42"));
+        Assert.assertTrue(json.contains("\"latency\": {\"count\": 1, \"sum\": 5, \"min\": 5, \"max\": 5, "
+            + "\"p50\": 5, \"p99\": 5, \"buckets\": [[7, 1]]}"));
+    }
+}
@@ -0,0 +1,112 @@
+package io.github.protocolfuzzing.protocolstatefuzzer.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class AsyncWriterTest {
+
+    @Test
+    public void writeRecordsOfAllThreads() throws Exception {
+        StringWriter output = new StringWriter();
+        AsyncWriter asyncWriter = new AsyncWriter(output, 0).initialize();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            String name = "thread" + t;
+            threads.add(Thread.ofPlatform().start(() -> {
+                PrintWriter printWriter = new PrintWriter(asyncWriter);
+                for (int i = 0; i < 100; i++) {
+                    printWriter.println(name + " line " + i);
+                    printWriter.flush();
+                }
+            }));
+        }
+        for (Thread thread: threads) {
+            thread.join();
+        }
+        asyncWriter.close();
+
+        List<String> lines = output.toString().lines().toList();
+        Assert.assertEquals(400, lines.size());
+        for (int t = 0; t < 4; t++) {
+            Assert.assertTrue(lines.contains("thread" + t + " line 99"));
+        }
+    }
+
+    @Test
+    public void writeUnflushedTextOfAllThreadsOnClose() throws Exception {
+        StringWriter output = new StringWriter();
+        AsyncWriter asyncWriter = new AsyncWriter(output, 0).initialize();
+
+        // complete lines are submitted without flushing, incomplete ones on close
+        Thread thread = Thread.ofPlatform().start(() -> {
+            PrintWriter printWriter = new PrintWriter(asyncWriter);
+            printWriter.println("complete");
+            printWriter.print("incomplete");
+        });
+        thread.join();
+        asyncWriter.close();
+
+        Assert.assertEquals("complete" + System.lineSeparator() + "incomplete", output.toString());
+    }
+
+    @Test
+    public void dropRecordsBeyondCapacity() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        StringWriter output = new StringWriter();
+        AsyncWriter asyncWriter = new AsyncWriter(new BlockingWriter(output, writing, released), 1).initialize();
+
+        asyncWriter.write("first\n");
+        asyncWriter.flush();
+        writing.await();
+
+        asyncWriter.write("second\n");
+        asyncWriter.flush();
+        asyncWriter.write("third\n");
+        asyncWriter.flush();
+        released.countDown();
+        asyncWriter.close();
+
+        Assert.assertEquals(List.of("first", "second", "[1 records dropped]"), output.toString().lines().toList());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectWritesAfterClose() throws IOException {
+        AsyncWriter asyncWriter = new AsyncWriter(new StringWriter(), 0).initialize();
+        asyncWriter.close();
+        asyncWriter.write("late");
+    }
+
+    /** Blocks the first write until it is released. */
+    private static class BlockingWriter extends StringWriter {
+        private StringWriter output;
+        private CountDownLatch writing;
+        private CountDownLatch released;
+
+        private BlockingWriter(StringWriter output, CountDownLatch writing, CountDownLatch released) {
+            this.output = output;
+            this.writing = writing;
+            this.released = released;
+        }
+
+        @Override
+        public void write(String str) {
+            writing.countDown();
+            try {
+                released.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            output.write(str);
+        }
+    }
+}